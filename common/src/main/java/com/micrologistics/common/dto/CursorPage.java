@@ -0,0 +1,37 @@
+package com.micrologistics.common.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A page of results read by seeking past a continuation cursor instead of skipping an
+ * offset, without counting the total number of results.
+ *
+ * @param <T> The type of the results
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    
+    private List<T> content;
+    
+    // Opaque token to pass back for the next page; null on the last page
+    private String nextCursor;
+    
+    private int size;
+    
+    /**
+     * Check whether there are more results after this page.
+     * 
+     * @return True if a next cursor is present
+     */
+    public boolean isHasNext() {
+        return nextCursor != null;
+    }
+}
@@ -55,6 +55,9 @@ public class ItemDto {
     
     private Integer priority;
     
+    @Size(max = 64, message = "Site must be less than 65 characters")
+    private String site;
+    
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime registeredAt;
     
@@ -34,6 +34,8 @@ public class RouteDto {
     
     private Double estimatedTimeMinutes;
     
+    private Integer priority;
+    
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime createdAt;
     
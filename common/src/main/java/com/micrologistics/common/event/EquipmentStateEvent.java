@@ -0,0 +1,31 @@
+package com.micrologistics.common.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Event that is published when a routing replica changes the load or operational status of
+ * a facility. Keyed by facility on a compacted topic, so the latest event of each facility
+ * is the state a starting replica restores.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EquipmentStateEvent {
+
+    private String facility;
+
+    private boolean operational;
+
+    // Load of the facility as seen by the publishing replica
+    private double load;
+
+    // Load the publishing replica added since its previous event for the facility
+    private double loadDelta;
+
+    // Instance ID of the publishing replica, so replicas skip their own events
+    private String source;
+}
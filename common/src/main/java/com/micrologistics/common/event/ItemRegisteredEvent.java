@@ -37,6 +37,9 @@ public class ItemRegisteredEvent {
     
     private Integer priority;
     
+    // Warehouse the item was registered at; null for the default site
+    private String site;
+    
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime timestamp;
     
@@ -0,0 +1,22 @@
+package com.micrologistics.common.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Event that is published when a routing replica changes a route, so the other replicas
+ * drop their cached copy of it.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RouteCacheInvalidationEvent {
+
+    private String itemId;
+
+    // Instance ID of the publishing replica, so replicas skip their own events
+    private String source;
+}
@@ -0,0 +1,67 @@
+package com.micrologistics.common.event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Event that is published when a route is created, moves to another step, is re-routed,
+ * completes or fails.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RouteEvent {
+    
+    /**
+     * Event type constants
+     */
+    public static final String TYPE_CREATED = "CREATED";
+    public static final String TYPE_STEP_CHANGED = "STEP_CHANGED";
+    public static final String TYPE_REROUTED = "REROUTED";
+    public static final String TYPE_COMPLETED = "COMPLETED";
+    public static final String TYPE_FAILED = "FAILED";
+    
+    private String eventType;
+    
+    private String routeId;
+    
+    private String itemId;
+    
+    // Only set on created and re-routed events
+    private String trackingId;
+    
+    private String previousStep;
+    
+    private String currentStep;
+    
+    // Only set on created and re-routed events
+    private List<String> routeSteps;
+    
+    private Integer stepIndex;
+    
+    // Only set on created events
+    private Integer priority;
+    
+    private String status;
+    
+    private Double estimatedTimeMinutes;
+    
+    // Only set on re-routed events
+    private Double previousEstimatedTimeMinutes;
+    
+    // Only set on created and re-routed events
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS")
+    private LocalDateTime estimatedCompletionTime;
+    
+    // Millisecond precision, so consumers can measure delivery latency
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS")
+    private LocalDateTime timestamp;
+}
@@ -0,0 +1,30 @@
+package com.micrologistics.common.event;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Event that is published when a scanner reads an item's barcode at a facility.
+ * Used by the routing service to advance the item along its route.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScanEvent {
+    
+    private String trackingId;
+    
+    private String facility;
+    
+    private String scannerId;
+    
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime timestamp;
+}
@@ -53,4 +53,6 @@ public class BusinessException extends RuntimeException {
     public static final String ERROR_INVALID_STATUS_TRANSITION = "INVALID_STATUS_TRANSITION";
     public static final String ERROR_CONTAINER_CLOSED = "CONTAINER_CLOSED";
     public static final String ERROR_ROUTE_INVALID = "ROUTE_INVALID";
+    public static final String ERROR_INVALID_CURSOR = "INVALID_CURSOR";
+    public static final String ERROR_NOT_DISPATCHER = "NOT_DISPATCHER";
 }
@@ -0,0 +1,175 @@
+package com.micrologistics.common.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Consistent hash ring that assigns warehouse sites to shards, the partitions of the topics
+ * partitioned by site.
+ *
+ * Every shard is placed on the ring at a number of pseudo-random points, and a site belongs
+ * to the shard of the first point at or after the site's own hash. Adding a shard therefore
+ * only moves the sites that land on its points, about 1/n of them, instead of reshuffling
+ * every site as hashing modulo the shard count would. Producers and consumers build the ring
+ * from the same shard count, so they agree on which shard carries a site without
+ * coordinating.
+ *
+ * So that one site is not limited to one partition, a site may be spread over a range of
+ * consecutive shards starting at its own; records are placed within the range by the hash
+ * of their key, which keeps the records of one key in order.
+ */
+public final class SiteShardRing {
+
+    /**
+     * Site key of items registered without a site.
+     */
+    public static final String DEFAULT_SITE = "DEFAULT";
+
+    /**
+     * Points placed on the ring for each shard.
+     */
+    public static final int DEFAULT_POINTS_PER_SHARD = 128;
+
+    private final int shards;
+
+    // Ring points in ascending hash order, and the shard each one belongs to
+    private final long[] points;
+    private final int[] owners;
+
+    /**
+     * Create a ring with the default number of points per shard.
+     *
+     * @param shards The number of shards
+     */
+    public SiteShardRing(int shards) {
+        this(shards, DEFAULT_POINTS_PER_SHARD);
+    }
+
+    /**
+     * Create a ring.
+     *
+     * @param shards The number of shards
+     * @param pointsPerShard The number of points placed on the ring for each shard
+     */
+    public SiteShardRing(int shards, int pointsPerShard) {
+        if (shards < 1 || pointsPerShard < 1) {
+            throw new IllegalArgumentException("Invalid ring: " + shards + " shards, " + pointsPerShard + " points");
+        }
+        this.shards = shards;
+        int size = shards * pointsPerShard;
+        long[] hashes = new long[size];
+        for (int shard = 0, i = 0; shard < shards; shard++) {
+            for (int point = 0; point < pointsPerShard; point++, i++) {
+                hashes[i] = hash("shard-" + shard + "#" + point);
+            }
+        }
+
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        // Colliding points are ordered by shard, so every ring built for this shard count is the same
+        Arrays.sort(order, (a, b) -> hashes[a] != hashes[b] ? Long.compareUnsigned(hashes[a], hashes[b])
+                : Integer.compare(a, b));
+        this.points = new long[size];
+        this.owners = new int[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = hashes[order[i]];
+            owners[i] = order[i] / pointsPerShard;
+        }
+    }
+
+    /**
+     * Normalize a site name into the key items are partitioned by.
+     *
+     * @param site The site name, or null
+     * @return The site key, {@link #DEFAULT_SITE} for a missing or blank site
+     */
+    public static String siteKey(String site) {
+        if (site == null || site.isBlank()) {
+            return DEFAULT_SITE;
+        }
+        return site.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Get the shard that carries a site.
+     *
+     * @param siteKey The site key
+     * @return The shard, between 0 and the shard count
+     */
+    public int shardOf(String siteKey) {
+        long hash = hash(siteKey);
+        int low = 0;
+        int high = points.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(points[mid], hash) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        // Past the last point the ring wraps around to the first
+        return owners[low == points.length ? 0 : low];
+    }
+
+    /**
+     * Get the shard a record of a site goes to, when every site is spread over a range of
+     * shards starting at the one that carries it.
+     *
+     * @param siteKey The site key
+     * @param recordKey The record key, such as an item ID
+     * @param shardsPerSite The number of shards each site is spread over
+     * @return The shard, between 0 and the shard count
+     */
+    public int shardOf(String siteKey, String recordKey, int shardsPerSite) {
+        int span = span(shardsPerSite);
+        int offset = (int) Long.remainderUnsigned(hash(recordKey), span);
+        return (shardOf(siteKey) + offset) % shards;
+    }
+
+    /**
+     * Check whether a shard is in the range a site is spread over.
+     *
+     * @param siteKey The site key
+     * @param shard The shard
+     * @param shardsPerSite The number of shards each site is spread over
+     * @return True if records of the site may go to the shard
+     */
+    public boolean carries(String siteKey, int shard, int shardsPerSite) {
+        return Math.floorMod(shard - shardOf(siteKey), shards) < span(shardsPerSite);
+    }
+
+    /**
+     * Get the number of shards.
+     *
+     * @return The shard count
+     */
+    public int getShards() {
+        return shards;
+    }
+
+    private int span(int shardsPerSite) {
+        return Math.max(1, Math.min(shardsPerSite, shards));
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 mixer so that keys
+     * differing only in their last characters still spread over the whole ring.
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
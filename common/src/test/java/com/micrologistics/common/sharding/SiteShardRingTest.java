@@ -0,0 +1,74 @@
+package com.micrologistics.common.sharding;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class SiteShardRingTest {
+
+    @Test
+    void shardOf_SameShardCount_RingsAgree() {
+        // Arrange
+        SiteShardRing producer = new SiteShardRing(6);
+        SiteShardRing consumer = new SiteShardRing(6);
+
+        // Act & Assert
+        for (int i = 0; i < 1_000; i++) {
+            String site = "SITE-" + i;
+            int shard = producer.shardOf(site);
+            assertEquals(shard, consumer.shardOf(site));
+            assertTrue(shard >= 0 && shard < 6);
+        }
+    }
+
+    @Test
+    void shardOf_ShardAdded_OnlySitesOfNewShardMove() {
+        // Arrange
+        SiteShardRing before = new SiteShardRing(3);
+        SiteShardRing after = new SiteShardRing(4);
+        int moved = 0;
+
+        // Act
+        for (int i = 0; i < 10_000; i++) {
+            String site = "SITE-" + i;
+            if (before.shardOf(site) != after.shardOf(site)) {
+                assertEquals(3, after.shardOf(site));
+                moved++;
+            }
+        }
+
+        // Assert
+        assertTrue(moved > 1_500 && moved < 3_500, "moved " + moved);
+    }
+
+    @Test
+    void shardOf_SiteSpreadOverRange_RecordsStayInRange() {
+        // Arrange
+        SiteShardRing ring = new SiteShardRing(6);
+        boolean[] used = new boolean[6];
+
+        // Act
+        for (int i = 0; i < 1_000; i++) {
+            int shard = ring.shardOf(SiteShardRing.DEFAULT_SITE, "item-" + i, 3);
+            assertTrue(ring.carries(SiteShardRing.DEFAULT_SITE, shard, 3));
+            assertEquals(shard, ring.shardOf(SiteShardRing.DEFAULT_SITE, "item-" + i, 3));
+            used[shard] = true;
+        }
+
+        // Assert - the site's records use exactly the three shards of its range
+        int count = 0;
+        for (int shard = 0; shard < used.length; shard++) {
+            assertEquals(used[shard], ring.carries(SiteShardRing.DEFAULT_SITE, shard, 3));
+            count += used[shard] ? 1 : 0;
+        }
+        assertEquals(3, count);
+    }
+
+    @Test
+    void siteKey_BlankOrMixedCase_IsNormalized() {
+        // Act & Assert
+        assertEquals(SiteShardRing.DEFAULT_SITE, SiteShardRing.siteKey(null));
+        assertEquals(SiteShardRing.DEFAULT_SITE, SiteShardRing.siteKey("  "));
+        assertEquals("BERLIN", SiteShardRing.siteKey(" Berlin "));
+    }
+}
@@ -1,6 +1,7 @@
 package com.micrologistics.metrics.config;
 
 import com.micrologistics.common.event.ItemRegisteredEvent;
+import com.micrologistics.common.event.RouteEvent;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Value;
@@ -48,4 +49,27 @@ public class KafkaConfig {
         factory.setConsumerFactory(itemRegisteredEventConsumerFactory());
         return factory;
     }
+
+    @Bean
+    public ConsumerFactory<String, RouteEvent> routeEventConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        props.put(JsonDeserializer.TRUSTED_PACKAGES, "com.micrologistics.common.event");
+        props.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
+        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, RouteEvent.class.getName());
+
+        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(),
+                new JsonDeserializer<>(RouteEvent.class, false));
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, RouteEvent> routeEventKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, RouteEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(routeEventConsumerFactory());
+        return factory;
+    }
 }
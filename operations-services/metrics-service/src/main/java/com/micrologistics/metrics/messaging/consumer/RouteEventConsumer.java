@@ -22,23 +22,33 @@ public class RouteEventConsumer {
 
     @KafkaListener(
             topics = "${kafka.topics.route-events:route-events}",
-            groupId = "${spring.kafka.consumer.group-id:routing-service-group}",
-            containerFactory = "itemRegisteredKafkaListenerContainerFactory"
+            groupId = "${spring.kafka.consumer.group-id:metrics-service-group}",
+            containerFactory = "routeEventKafkaListenerContainerFactory"
     )
     public void onRouteEvent(RouteEvent event) {
-        log.info("Consumed route event: routeId={}", event.getRouteId());
+        log.debug("Consumed route event: routeId={}, type={}", event.getRouteId(), event.getEventType());
 
-        // Example: Register a throughput metric for each new route
-        OperationalMetrics throughputMetric = OperationalMetrics.builder()
-                .metricName(OperationalMetrics.METRIC_THROUGHPUT)
-                .serviceId(OperationalMetrics.SERVICE_ROUTING)
-                .resourceId(event.getRouteId())
-                .value(1.0)
-                .unit(OperationalMetrics.UNIT_COUNT)
-                .timestamp(LocalDateTime.now())
-                .build();
-        metricsService.recordMetric(throughputMetric);
-
-        // Optionally, more route-related metrics can be recorded here.
+        // Routes are counted when created and throughput when completed; step changes are not recorded
+        if (RouteEvent.TYPE_CREATED.equals(event.getEventType())) {
+            OperationalMetrics routeCountMetric = OperationalMetrics.builder()
+                    .metricName(OperationalMetrics.METRIC_ROUTE_COUNT)
+                    .serviceId(OperationalMetrics.SERVICE_ROUTING)
+                    .resourceId(event.getRouteId())
+                    .value(1.0)
+                    .unit(OperationalMetrics.UNIT_COUNT)
+                    .timestamp(LocalDateTime.now())
+                    .build();
+            metricsService.recordMetric(routeCountMetric);
+        } else if (RouteEvent.TYPE_COMPLETED.equals(event.getEventType())) {
+            OperationalMetrics throughputMetric = OperationalMetrics.builder()
+                    .metricName(OperationalMetrics.METRIC_THROUGHPUT)
+                    .serviceId(OperationalMetrics.SERVICE_ROUTING)
+                    .resourceId(event.getRouteId())
+                    .value(1.0)
+                    .unit(OperationalMetrics.UNIT_COUNT)
+                    .timestamp(LocalDateTime.now())
+                    .build();
+            metricsService.recordMetric(throughputMetric);
+        }
     }
 }
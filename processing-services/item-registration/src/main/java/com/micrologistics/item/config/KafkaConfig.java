@@ -16,6 +16,7 @@ import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 
 import com.micrologistics.common.event.ItemRegisteredEvent;
+import com.micrologistics.item.messaging.publisher.SitePartitioner;
 
 /**
  * Configuration for Kafka producers and topics.
@@ -29,8 +30,12 @@ public class KafkaConfig {
     @Value("${kafka.topics.item-registered}")
     private String itemRegisteredTopic;
     
+    @Value("${kafka.item-registered.partitions-per-site:3}")
+    private int partitionsPerSite;
+    
     /**
-     * Configure the Kafka producer factory for ItemRegisteredEvents.
+     * Configure the Kafka producer factory for ItemRegisteredEvents, keyed by item and
+     * partitioned by site.
      * 
      * @return The producer factory
      */
@@ -43,6 +48,8 @@ public class KafkaConfig {
         configProps.put(ProducerConfig.ACKS_CONFIG, "all");
         configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
         configProps.put(ProducerConfig.RETRY_BACKOFF_MS_CONFIG, 1000);
+        configProps.put(ProducerConfig.PARTITIONER_CLASS_CONFIG, SitePartitioner.class);
+        configProps.put(SitePartitioner.PARTITIONS_PER_SITE_CONFIG, partitionsPerSite);
         return new DefaultKafkaProducerFactory<>(configProps);
     }
     
@@ -57,6 +57,10 @@ public class Item {
     @Column
     private Integer priority;
     
+    // Warehouse the item was registered at; null for the default site
+    @Column
+    private String site;
+    
     @Column(name = "registered_at", nullable = false)
     private LocalDateTime registeredAt;
     
@@ -37,6 +37,7 @@ public class ItemMapper {
                 .destination(item.getDestination())
                 .status(item.getStatus())
                 .priority(item.getPriority())
+                .site(item.getSite())
                 .registeredAt(item.getRegisteredAt())
                 .updatedAt(item.getUpdatedAt())
                 .build();
@@ -64,6 +65,7 @@ public class ItemMapper {
                 .destination(itemDto.getDestination())
                 .status(itemDto.getStatus())
                 .priority(itemDto.getPriority())
+                .site(itemDto.getSite())
                 .registeredAt(itemDto.getRegisteredAt())
                 .updatedAt(itemDto.getUpdatedAt())
                 .build();
@@ -106,6 +108,7 @@ public class ItemMapper {
                 .height(item.getHeight())
                 .destination(item.getDestination())
                 .priority(item.getPriority())
+                .site(item.getSite())
                 .timestamp(item.getRegisteredAt())
                 .build();
     }
@@ -33,6 +33,7 @@ public class ItemEventPublisher {
     public void publishItemRegisteredEvent(Item item) {
         try {
             ItemRegisteredEvent event = itemMapper.toEvent(item);
+            // Keyed by item and spread over the partitions of the item's site by SitePartitioner
             kafkaTemplate.send(itemRegisteredTopic, item.getId(), event);
             log.info("Published item registered event for item ID: {}", item.getId());
         } catch (Exception e) {
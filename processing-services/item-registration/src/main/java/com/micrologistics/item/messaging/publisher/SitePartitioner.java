@@ -0,0 +1,52 @@
+package com.micrologistics.item.messaging.publisher;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.common.Cluster;
+
+import com.micrologistics.common.event.ItemRegisteredEvent;
+import com.micrologistics.common.sharding.SiteShardRing;
+
+/**
+ * Kafka partitioner that sends item registrations to the range of partitions the
+ * {@link SiteShardRing} assigns the item's site to, placing each item within the range by its
+ * key. A site is thus routed by the replicas owning its range, several of them for busy sites,
+ * and adding partitions moves as few sites as possible.
+ */
+public class SitePartitioner implements Partitioner {
+    
+    /**
+     * Producer property holding the number of partitions each site is spread over; the
+     * routing service must be configured with the same number.
+     */
+    public static final String PARTITIONS_PER_SITE_CONFIG = "site.partitions-per-site";
+    
+    // Rings by partition count, as topics may be given more partitions while the producer runs
+    private final Map<Integer, SiteShardRing> rings = new ConcurrentHashMap<>();
+    
+    private int partitionsPerSite = 1;
+    
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes,
+            Cluster cluster) {
+        int partitions = cluster.partitionCountForTopic(topic);
+        String site = value instanceof ItemRegisteredEvent ? ((ItemRegisteredEvent) value).getSite() : null;
+        String recordKey = key != null ? key.toString() : "";
+        return rings.computeIfAbsent(partitions, SiteShardRing::new)
+                .shardOf(SiteShardRing.siteKey(site), recordKey, partitionsPerSite);
+    }
+    
+    @Override
+    public void configure(Map<String, ?> configs) {
+        Object configured = configs.get(PARTITIONS_PER_SITE_CONFIG);
+        if (configured != null) {
+            partitionsPerSite = Integer.parseInt(configured.toString());
+        }
+    }
+    
+    @Override
+    public void close() {
+    }
+}
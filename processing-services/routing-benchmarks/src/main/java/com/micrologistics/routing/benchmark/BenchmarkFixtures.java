@@ -0,0 +1,144 @@
+package com.micrologistics.routing.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.micrologistics.routing.algorithm.DestinationIndex;
+import com.micrologistics.routing.algorithm.FacilityTopology;
+
+/**
+ * Reproducible facility layouts and destination sets of a given size.
+ */
+final class BenchmarkFixtures {
+
+    static final String ENTRY = "INBOUND_DOCK";
+    static final String SCANNER = "SCANNER_STATION";
+
+    private static final String[] REGIONS = {"NORTH", "SOUTH", "EAST", "WEST", "CENTRAL"};
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Build a layout of the given number of facilities: an entry dock and a scanner feeding a
+     * grid of sorting areas, each conveying to its neighbours in the next row, with the last
+     * row feeding every outbound dock.
+     *
+     * @param facilityCount The total number of facilities, at least 6
+     * @param seed The seed of processing and transfer times
+     * @return The topology
+     */
+    static FacilityTopology topology(int facilityCount, long seed) {
+        Random random = new Random(seed);
+        int docks = Math.max(2, facilityCount / 8);
+        int sorters = Math.max(2, facilityCount - 2 - docks);
+        int width = (int) Math.ceil(Math.sqrt(sorters));
+
+        FacilityTopology.Builder builder = FacilityTopology.builder()
+                .facility(ENTRY, 2.0, FacilityTopology.Handling.ANY)
+                .facility(SCANNER, 1.0, FacilityTopology.Handling.ANY)
+                .entry(ENTRY)
+                .conveyor(ENTRY, SCANNER, 0.5);
+        FacilityTopology.Handling[] handling = FacilityTopology.Handling.values();
+        for (int i = 0; i < sorters; i++) {
+            builder.facility(sorter(i), 1.0 + random.nextInt(8) * 0.5, handling[i % handling.length]);
+        }
+        for (int d = 0; d < docks; d++) {
+            builder.facility(dock(d), 1.5, FacilityTopology.Handling.ANY).outboundDock(dock(d));
+        }
+
+        for (int i = 0; i < Math.min(width, sorters); i++) {
+            builder.conveyor(SCANNER, sorter(i), 0.5 + random.nextDouble());
+        }
+        for (int i = 0; i < sorters; i++) {
+            int row = i / width;
+            int column = i % width;
+            int nextRow = (row + 1) * width;
+            if (nextRow >= sorters) {
+                for (int d = 0; d < docks; d++) {
+                    builder.conveyor(sorter(i), dock(d), 0.5 + random.nextDouble());
+                }
+                continue;
+            }
+            for (int offset = -1; offset <= 1; offset++) {
+                int target = nextRow + column + offset;
+                if (column + offset >= 0 && column + offset < width && target < sorters) {
+                    builder.conveyor(sorter(i), sorter(target), 0.5 + random.nextDouble());
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Build a destination index with the given number of rules, spread over exact, prefix,
+     * keyword and postal range rules.
+     *
+     * @param topology The topology built by {@link #topology(int, long)}
+     * @param ruleCount The number of rules
+     * @param seed The seed of the dock assignment
+     * @return The destination index
+     */
+    static DestinationIndex destinationIndex(FacilityTopology topology, int ruleCount, long seed) {
+        Random random = new Random(seed);
+        List<String> docks = docks(topology);
+        DestinationIndex.Builder builder = DestinationIndex.builder(topology).defaultDock(docks.get(0));
+        for (int i = 0; i < ruleCount; i++) {
+            String dock = docks.get(random.nextInt(docks.size()));
+            switch (i % 4) {
+                case 0 -> builder.exact(city(i) + ", " + REGIONS[i % REGIONS.length], dock);
+                case 1 -> builder.prefix(city(i), dock);
+                case 2 -> builder.keyword("DEPOT " + i, dock);
+                default -> builder.postalRange(10_000L + i * 10L, 10_000L + i * 10L + 9, dock);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Build destinations to resolve, matching every kind of rule and none.
+     *
+     * @param ruleCount The number of rules in the index
+     * @param count The number of destinations
+     * @param seed The seed of the destination choice
+     * @return The destinations
+     */
+    static String[] destinations(int ruleCount, int count, long seed) {
+        Random random = new Random(seed);
+        String[] destinations = new String[count];
+        for (int i = 0; i < count; i++) {
+            int rule = random.nextInt(Math.max(1, ruleCount));
+            switch (random.nextInt(5)) {
+                case 0 -> destinations[i] = city(rule) + ", " + REGIONS[rule % REGIONS.length];
+                case 1 -> destinations[i] = city(rule) + " HARBOUR ROAD 7";
+                case 2 -> destinations[i] = "UNIT 4, DEPOT " + rule + " ESTATE";
+                case 3 -> destinations[i] = "12 MAIN STREET, SPRINGFIELD " + (10_000 + rule * 10);
+                default -> destinations[i] = "UNKNOWN PLACE " + rule;
+            }
+        }
+        return destinations;
+    }
+
+    static List<String> docks(FacilityTopology topology) {
+        List<String> docks = new ArrayList<>();
+        for (int f = 0; f < topology.size(); f++) {
+            if (topology.isOutboundDock(f)) {
+                docks.add(topology.nameOf(f));
+            }
+        }
+        return docks;
+    }
+
+    private static String sorter(int i) {
+        return "SORTING_AREA_" + i;
+    }
+
+    private static String dock(int d) {
+        return "OUTBOUND_DOCK_" + d;
+    }
+
+    private static String city(int i) {
+        return "CITY" + i;
+    }
+}
@@ -0,0 +1,107 @@
+package com.micrologistics.routing.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.micrologistics.routing.algorithm.FacilityTopology;
+import com.micrologistics.routing.algorithm.OptimalPathFinder;
+import com.micrologistics.routing.algorithm.PathFinderSettings;
+
+/**
+ * Benchmarks of the path finder entry points, shared by all benchmark threads so that
+ * multi-threaded runs measure contention on the load tracker, path trees and plan cache.
+ *
+ * Every trial starts from the same seeded equipment loads; items are planned in a fixed,
+ * seeded order of destinations and weights.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PathFinderBenchmark {
+
+    private static final long SEED = 42L;
+    private static final int DESTINATIONS = 4096;
+
+    // Short enough for the loads added by planned items to settle within a warmup iteration
+    private static final double LOAD_HALF_LIFE_SECONDS = 2.0;
+
+    @Param({"16", "64", "256"})
+    public int facilityCount;
+
+    @Param({"100", "10000"})
+    public int destinationRules;
+
+    private OptimalPathFinder pathFinder;
+    private String[] itemIds;
+    private String[] destinations;
+    private List<String> typicalPath;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        FacilityTopology topology = BenchmarkFixtures.topology(facilityCount, SEED);
+        pathFinder = new OptimalPathFinder(topology, PathFinderSettings.builder()
+                .loadSeed(SEED)
+                .loadHalfLifeSeconds(LOAD_HALF_LIFE_SECONDS)
+                .build());
+        pathFinder.setDestinationIndex(BenchmarkFixtures.destinationIndex(topology, destinationRules, SEED));
+        destinations = BenchmarkFixtures.destinations(destinationRules, DESTINATIONS, SEED);
+        itemIds = new String[DESTINATIONS];
+        for (int i = 0; i < DESTINATIONS; i++) {
+            itemIds[i] = "item-" + i;
+        }
+        typicalPath = pathFinder.findOptimalPath("baseline", destinations[0], 10.0, 1);
+    }
+
+    /**
+     * Decay the loads added by the previous iteration, as the service's periodic sweep does.
+     */
+    @Setup(Level.Iteration)
+    public void decayLoads() {
+        pathFinder.refreshDecayedLoads();
+    }
+
+    /**
+     * Per-thread position in the destination and weight sequence.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+
+        int advance() {
+            return next++ & (DESTINATIONS - 1);
+        }
+    }
+
+    @Benchmark
+    public List<String> findOptimalPath(Cursor cursor) {
+        int i = cursor.advance();
+        return pathFinder.findOptimalPath(itemIds[i], destinations[i], 1.0 + (i % 40), i % 3);
+    }
+
+    @Benchmark
+    public double calculateEstimatedTime() {
+        return pathFinder.calculateEstimatedTime(typicalPath);
+    }
+
+    @Benchmark
+    public String resolveOutboundDock(Cursor cursor) {
+        return pathFinder.resolveOutboundDock(destinations[cursor.advance()]);
+    }
+}
@@ -0,0 +1,41 @@
+package com.micrologistics.routing.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the routing benchmarks once per thread count, with the GC profiler attached so every
+ * result reports allocation per operation.
+ *
+ * Usage: {@code java -Dthreads=1,4,16 -jar target/benchmarks.jar [JMH options]}. Standard JMH
+ * options, such as a benchmark regex or {@code -p facilityCount=64}, are passed through; the
+ * results of each thread count are written to {@code jmh-result-<threads>t.json}.
+ */
+public final class RoutingBenchmarks {
+
+    private static final String DEFAULT_THREADS = "1,4,16";
+
+    private RoutingBenchmarks() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        for (String threads : System.getProperty("threads", DEFAULT_THREADS).split(",")) {
+            int threadCount = Integer.parseInt(threads.trim());
+            Options options = new OptionsBuilder()
+                    .parent(commandLine)
+                    .threads(threadCount)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("jmh-result-" + threadCount + "t.json")
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
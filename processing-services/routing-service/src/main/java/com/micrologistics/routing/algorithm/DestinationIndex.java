@@ -0,0 +1,558 @@
+package com.micrologistics.routing.algorithm;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Immutable index resolving free-form destinations to outbound docks.
+ *
+ * Destinations are normalized on the fly: letters are folded to upper case, digits are
+ * kept, and every other run of characters becomes a single separator. Resolution is a
+ * single pass over the string that simultaneously walks
+ * <ul>
+ * <li>a trie of exact destinations and whole-token prefixes (longest prefix wins),</li>
+ * <li>an Aho-Corasick automaton of region keywords matched anywhere in the string
+ *     (the keyword declared first wins), and</li>
+ * <li>the last run of five to nine digits, looked up in sorted postal-code ranges.</li>
+ * </ul>
+ * Precedence is exact, postal range, prefix, keyword, then the default dock. Resolution
+ * is O(length of the destination) and does not allocate.
+ */
+public final class DestinationIndex {
+
+    /**
+     * Classpath location of the destination index bundled with the service.
+     */
+    public static final String DEFAULT_INDEX_RESOURCE = "destinations/default.destinations";
+
+    private static final int SEPARATOR = 37;
+    private static final int ALPHABET = 38;
+    private static final int MIN_POSTAL_DIGITS = 5;
+    private static final int MAX_POSTAL_DIGITS = 9;
+    private static final int NONE = -1;
+
+    // Trie of exact and prefix rules; children of a node form a sibling list sorted by label
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final byte[] label;
+    private final int[] exactDock;
+    private final int[] prefixDock;
+
+    // Keyword automaton: dense transitions and the best keyword ending at each state
+    private final int[] keywordGoto;
+    private final int[] keywordRank;
+    private final int[] keywordDock;
+
+    // Postal ranges sorted by start
+    private final long[] postalFrom;
+    private final long[] postalTo;
+    private final int[] postalDock;
+
+    private final int defaultDock;
+    private final int size;
+
+    private DestinationIndex(Builder builder) {
+        Trie trie = builder.trie;
+        this.firstChild = Arrays.copyOf(trie.firstChild, trie.count);
+        this.nextSibling = Arrays.copyOf(trie.nextSibling, trie.count);
+        this.label = Arrays.copyOf(trie.label, trie.count);
+        this.exactDock = Arrays.copyOf(trie.exactDock, trie.count);
+        this.prefixDock = Arrays.copyOf(trie.prefixDock, trie.count);
+
+        KeywordAutomaton automaton = new KeywordAutomaton(builder.keywords);
+        this.keywordGoto = automaton.transitions;
+        this.keywordRank = automaton.rank;
+        this.keywordDock = new int[builder.keywordDocks.size()];
+        for (int i = 0; i < keywordDock.length; i++) {
+            keywordDock[i] = builder.keywordDocks.get(i);
+        }
+
+        long[][] ranges = builder.postalRanges.toArray(new long[0][]);
+        Arrays.sort(ranges, (a, b) -> Long.compare(a[0], b[0]));
+        this.postalFrom = new long[ranges.length];
+        this.postalTo = new long[ranges.length];
+        this.postalDock = new int[ranges.length];
+        for (int i = 0; i < ranges.length; i++) {
+            if (i > 0 && ranges[i][0] <= postalTo[i - 1]) {
+                throw new IllegalArgumentException("Overlapping postal ranges starting at " + ranges[i][0]);
+            }
+            postalFrom[i] = ranges[i][0];
+            postalTo[i] = ranges[i][1];
+            postalDock[i] = (int) ranges[i][2];
+        }
+
+        this.defaultDock = builder.defaultDock;
+        this.size = builder.rules;
+    }
+
+    /**
+     * Load the destination index bundled with the service.
+     *
+     * @param topology The topology whose docks the index refers to
+     * @return The default index
+     */
+    public static DestinationIndex defaultIndex(FacilityTopology topology) {
+        InputStream in = DestinationIndex.class.getClassLoader().getResourceAsStream(DEFAULT_INDEX_RESOURCE);
+        if (in == null) {
+            throw new IllegalStateException("Missing bundled destination index: " + DEFAULT_INDEX_RESOURCE);
+        }
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return parse(reader, topology);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read bundled destination index", e);
+        }
+    }
+
+    /**
+     * Parse a destination index definition.
+     *
+     * The format is line based with '|' separated fields; blank lines and lines starting
+     * with '#' are ignored:
+     * <pre>
+     * EXACT|&lt;destination&gt;|&lt;DOCK&gt;
+     * PREFIX|&lt;leading tokens&gt;|&lt;DOCK&gt;
+     * KEYWORD|&lt;text&gt;|&lt;DOCK&gt;
+     * POSTAL|&lt;from&gt;-&lt;to&gt;|&lt;DOCK&gt;
+     * DEFAULT|&lt;DOCK&gt;
+     * </pre>
+     *
+     * @param reader The source of the definition
+     * @param topology The topology whose docks the index refers to
+     * @return The parsed index
+     * @throws IOException If the definition cannot be read
+     */
+    public static DestinationIndex parse(Reader reader, FacilityTopology topology) throws IOException {
+        Builder builder = builder(topology);
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\|");
+            try {
+                String kind = fields[0].trim().toUpperCase(Locale.ROOT);
+                if ("DEFAULT".equals(kind)) {
+                    builder.defaultDock(fields[1].trim());
+                    continue;
+                }
+                String key = fields[1].trim();
+                String dock = fields[2].trim();
+                switch (kind) {
+                    case "EXACT":
+                        builder.exact(key, dock);
+                        break;
+                    case "PREFIX":
+                        builder.prefix(key, dock);
+                        break;
+                    case "KEYWORD":
+                        builder.keyword(key, dock);
+                        break;
+                    case "POSTAL":
+                        int dash = key.indexOf('-');
+                        long from = Long.parseLong(dash < 0 ? key : key.substring(0, dash).trim());
+                        long to = dash < 0 ? from : Long.parseLong(key.substring(dash + 1).trim());
+                        builder.postalRange(from, to, dock);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown rule: " + kind);
+                }
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException(
+                        "Invalid destination index at line " + lineNumber + ": " + line, e);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Create a builder for a new index.
+     *
+     * @param topology The topology whose docks the index refers to
+     * @return The builder
+     */
+    public static Builder builder(FacilityTopology topology) {
+        return new Builder(topology);
+    }
+
+    /**
+     * Resolve a destination to an outbound dock.
+     *
+     * @param destination The destination, in any case and punctuation
+     * @return The ordinal of the outbound dock
+     */
+    public int resolve(String destination) {
+        if (destination == null) {
+            return defaultDock;
+        }
+
+        int trieNode = 0;
+        int prefixMatch = NONE;
+        int keywordState = 0;
+        int bestKeyword = Integer.MAX_VALUE;
+        long digits = 0;
+        int digitCount = 0;
+        long postalCode = NONE;
+        boolean pendingSeparator = false;
+        boolean started = false;
+
+        for (int i = 0, n = destination.length(); i < n; i++) {
+            int code = code(destination.charAt(i));
+
+            if (code <= 36 && code >= 27) {
+                if (digitCount < MAX_POSTAL_DIGITS) {
+                    digits = digits * 10 + (code - 27);
+                }
+                digitCount++;
+            } else if (digitCount > 0) {
+                if (digitCount >= MIN_POSTAL_DIGITS && digitCount <= MAX_POSTAL_DIGITS) {
+                    postalCode = digits;
+                }
+                digits = 0;
+                digitCount = 0;
+            }
+
+            if (code == SEPARATOR) {
+                pendingSeparator = started;
+                continue;
+            }
+            if (pendingSeparator) {
+                if (trieNode != NONE) {
+                    if (prefixDock[trieNode] != NONE) {
+                        prefixMatch = prefixDock[trieNode];
+                    }
+                    trieNode = child(trieNode, SEPARATOR);
+                }
+                keywordState = keywordGoto[keywordState * ALPHABET + SEPARATOR];
+                bestKeyword = Math.min(bestKeyword, keywordRank[keywordState]);
+                pendingSeparator = false;
+            }
+            started = true;
+            if (trieNode != NONE) {
+                trieNode = child(trieNode, code);
+            }
+            keywordState = keywordGoto[keywordState * ALPHABET + code];
+            bestKeyword = Math.min(bestKeyword, keywordRank[keywordState]);
+        }
+        if (digitCount >= MIN_POSTAL_DIGITS && digitCount <= MAX_POSTAL_DIGITS) {
+            postalCode = digits;
+        }
+
+        if (trieNode != NONE && started) {
+            if (exactDock[trieNode] != NONE) {
+                return exactDock[trieNode];
+            }
+            if (prefixDock[trieNode] != NONE) {
+                prefixMatch = prefixDock[trieNode];
+            }
+        }
+        if (postalCode != NONE) {
+            int dock = postalDock(postalCode);
+            if (dock != NONE) {
+                return dock;
+            }
+        }
+        if (prefixMatch != NONE) {
+            return prefixMatch;
+        }
+        if (bestKeyword != Integer.MAX_VALUE) {
+            return keywordDock[bestKeyword];
+        }
+        return defaultDock;
+    }
+
+    /**
+     * Get the dock used when no rule matches.
+     *
+     * @return The ordinal of the default dock
+     */
+    public int getDefaultDock() {
+        return defaultDock;
+    }
+
+    /**
+     * Get the number of rules in the index.
+     *
+     * @return The rule count
+     */
+    public int size() {
+        return size;
+    }
+
+    private int child(int node, int code) {
+        for (int c = firstChild[node]; c != NONE; c = nextSibling[c]) {
+            int l = label[c];
+            if (l == code) {
+                return c;
+            }
+            if (l > code) {
+                break;
+            }
+        }
+        return NONE;
+    }
+
+    private int postalDock(long postalCode) {
+        int lo = 0;
+        int hi = postalFrom.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (postalFrom[mid] <= postalCode) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return hi >= 0 && postalCode <= postalTo[hi] ? postalDock[hi] : NONE;
+    }
+
+    /**
+     * Map a character to its normalized code: 1-26 for letters, 27-36 for digits and
+     * {@link #SEPARATOR} for anything else.
+     */
+    private static int code(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 1;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 1;
+        }
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 27;
+        }
+        return SEPARATOR;
+    }
+
+    /**
+     * Normalize a rule key into codes, collapsing and trimming separators.
+     */
+    private static byte[] normalize(String text) {
+        byte[] codes = new byte[text.length()];
+        int length = 0;
+        boolean pendingSeparator = false;
+        for (int i = 0; i < text.length(); i++) {
+            int code = code(text.charAt(i));
+            if (code == SEPARATOR) {
+                pendingSeparator = length > 0;
+                continue;
+            }
+            if (pendingSeparator) {
+                codes[length++] = SEPARATOR;
+                pendingSeparator = false;
+            }
+            codes[length++] = (byte) code;
+        }
+        if (length == 0) {
+            throw new IllegalArgumentException("Empty destination key: '" + text + "'");
+        }
+        return Arrays.copyOf(codes, length);
+    }
+
+    /**
+     * Builder for destination indexes.
+     */
+    public static final class Builder {
+
+        private final FacilityTopology topology;
+        private final Trie trie = new Trie();
+        private final List<byte[]> keywords = new ArrayList<>();
+        private final List<Integer> keywordDocks = new ArrayList<>();
+        private final List<long[]> postalRanges = new ArrayList<>();
+        private int defaultDock;
+        private int rules;
+
+        private Builder(FacilityTopology topology) {
+            this.topology = topology;
+            this.defaultDock = topology.entry();
+            for (int f = 0; f < topology.size(); f++) {
+                if (topology.isOutboundDock(f)) {
+                    defaultDock = f;
+                    break;
+                }
+            }
+        }
+
+        public Builder exact(String destination, String dock) {
+            int node = trie.insert(normalize(destination));
+            trie.exactDock[node] = dock(dock);
+            rules++;
+            return this;
+        }
+
+        public Builder prefix(String leadingTokens, String dock) {
+            int node = trie.insert(normalize(leadingTokens));
+            trie.prefixDock[node] = dock(dock);
+            rules++;
+            return this;
+        }
+
+        public Builder keyword(String text, String dock) {
+            keywords.add(normalize(text));
+            keywordDocks.add(dock(dock));
+            rules++;
+            return this;
+        }
+
+        public Builder postalRange(long from, long to, String dock) {
+            if (from > to) {
+                throw new IllegalArgumentException("Invalid postal range " + from + "-" + to);
+            }
+            postalRanges.add(new long[] {from, to, dock(dock)});
+            rules++;
+            return this;
+        }
+
+        public Builder defaultDock(String dock) {
+            this.defaultDock = dock(dock);
+            return this;
+        }
+
+        public DestinationIndex build() {
+            return new DestinationIndex(this);
+        }
+
+        private int dock(String name) {
+            int ordinal = topology.ordinalOf(name);
+            if (ordinal < 0 || !topology.isOutboundDock(ordinal)) {
+                throw new IllegalArgumentException("Not an outbound dock: " + name);
+            }
+            return ordinal;
+        }
+    }
+
+    /**
+     * Growable trie with sorted sibling lists.
+     */
+    private static final class Trie {
+
+        private int[] firstChild = new int[64];
+        private int[] nextSibling = new int[64];
+        private byte[] label = new byte[64];
+        private int[] exactDock = new int[64];
+        private int[] prefixDock = new int[64];
+        private int count;
+
+        private Trie() {
+            newNode((byte) 0);
+        }
+
+        int insert(byte[] key) {
+            int node = 0;
+            for (byte code : key) {
+                int previous = NONE;
+                int c = firstChild[node];
+                while (c != NONE && label[c] < code) {
+                    previous = c;
+                    c = nextSibling[c];
+                }
+                if (c == NONE || label[c] != code) {
+                    int created = newNode(code);
+                    nextSibling[created] = c;
+                    if (previous == NONE) {
+                        firstChild[node] = created;
+                    } else {
+                        nextSibling[previous] = created;
+                    }
+                    c = created;
+                }
+                node = c;
+            }
+            return node;
+        }
+
+        private int newNode(byte code) {
+            if (count == firstChild.length) {
+                int capacity = count * 2;
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                nextSibling = Arrays.copyOf(nextSibling, capacity);
+                label = Arrays.copyOf(label, capacity);
+                exactDock = Arrays.copyOf(exactDock, capacity);
+                prefixDock = Arrays.copyOf(prefixDock, capacity);
+            }
+            firstChild[count] = NONE;
+            nextSibling[count] = NONE;
+            label[count] = code;
+            exactDock[count] = NONE;
+            prefixDock[count] = NONE;
+            return count++;
+        }
+    }
+
+    /**
+     * Aho-Corasick automaton over the normalized alphabet with fully expanded transitions.
+     * The rank of a state is the lowest declaration index of any keyword ending there,
+     * including keywords reached through failure links.
+     */
+    private static final class KeywordAutomaton {
+
+        private final int[] transitions;
+        private final int[] rank;
+
+        KeywordAutomaton(List<byte[]> keywords) {
+            int maxStates = 1;
+            for (byte[] keyword : keywords) {
+                maxStates += keyword.length;
+            }
+            int[] go = new int[maxStates * ALPHABET];
+            Arrays.fill(go, NONE);
+            int[] best = new int[maxStates];
+            Arrays.fill(best, Integer.MAX_VALUE);
+            int states = 1;
+
+            for (int k = 0; k < keywords.size(); k++) {
+                int state = 0;
+                for (byte code : keywords.get(k)) {
+                    int slot = state * ALPHABET + code;
+                    if (go[slot] == NONE) {
+                        go[slot] = states++;
+                    }
+                    state = go[slot];
+                }
+                best[state] = Math.min(best[state], k);
+            }
+
+            int[] fail = new int[states];
+            int[] queue = new int[states];
+            int head = 0;
+            int tail = 0;
+            for (int c = 0; c < ALPHABET; c++) {
+                int next = go[c];
+                if (next == NONE) {
+                    go[c] = 0;
+                } else {
+                    fail[next] = 0;
+                    queue[tail++] = next;
+                }
+            }
+            while (head < tail) {
+                int state = queue[head++];
+                best[state] = Math.min(best[state], best[fail[state]]);
+                for (int c = 0; c < ALPHABET; c++) {
+                    int slot = state * ALPHABET + c;
+                    int next = go[slot];
+                    if (next == NONE) {
+                        go[slot] = go[fail[state] * ALPHABET + c];
+                    } else {
+                        fail[next] = go[fail[state] * ALPHABET + c];
+                        queue[tail++] = next;
+                    }
+                }
+            }
+
+            this.transitions = Arrays.copyOf(go, states * ALPHABET);
+            this.rank = Arrays.copyOf(best, states);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.micrologistics.routing.algorithm;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free, time-decaying load counters indexed by facility ordinal.
+ *
+ * Each facility's load lives in a single 64-bit cell packing the load (fixed point,
+ * {@value #LOAD_SCALE} units per load point) with the time it was last written. Load
+ * decays exponentially towards zero with a configurable half-life, modelling work being
+ * completed; it is evaluated lazily on every read and folded into the cell on every
+ * write, so updates are a single compare-and-set and no background thread is needed.
+ */
+public final class EquipmentLoadTracker {
+
+    /**
+     * Load value representing a fully loaded facility.
+     */
+    public static final double MAX_LOAD = 100.0;
+
+    private static final int LOAD_BITS = 20;
+    private static final long LOAD_MASK = (1L << LOAD_BITS) - 1;
+    private static final double LOAD_SCALE = 1000.0;
+    private static final int SNAPSHOT_ATTEMPTS = 4;
+
+    private final AtomicLongArray cells;
+    private final double halfLifeMillis;
+    private final LongSupplier clock;
+    private final long epochMillis;
+
+    /**
+     * Create a tracker driven by the system clock.
+     *
+     * @param facilities The number of facilities
+     * @param halfLifeMillis The load half-life in milliseconds; non-positive disables decay
+     */
+    public EquipmentLoadTracker(int facilities, double halfLifeMillis) {
+        this(facilities, halfLifeMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * Create a tracker driven by the given clock.
+     *
+     * @param facilities The number of facilities
+     * @param halfLifeMillis The load half-life in milliseconds; non-positive disables decay
+     * @param clock Source of the current time in milliseconds
+     */
+    public EquipmentLoadTracker(int facilities, double halfLifeMillis, LongSupplier clock) {
+        this.cells = new AtomicLongArray(facilities);
+        this.halfLifeMillis = halfLifeMillis;
+        this.clock = clock;
+        this.epochMillis = clock.getAsLong();
+    }
+
+    /**
+     * Add load to a facility.
+     *
+     * @param facility The facility ordinal
+     * @param amount The load to add; may be negative
+     * @return The resulting load
+     */
+    public double add(int facility, double amount) {
+        long now = elapsed();
+        while (true) {
+            long cell = cells.get(facility);
+            double load = clamp(decay(load(cell), time(cell), now) + amount);
+            if (cells.compareAndSet(facility, cell, pack(load, now))) {
+                return load;
+            }
+        }
+    }
+
+    /**
+     * Overwrite the load of a facility.
+     *
+     * @param facility The facility ordinal
+     * @param load The new load
+     */
+    public void set(int facility, double load) {
+        cells.set(facility, pack(clamp(load), elapsed()));
+    }
+
+    /**
+     * Overwrite the load of a facility with a load observed some time ago, decayed to now.
+     *
+     * @param facility The facility ordinal
+     * @param load The observed load
+     * @param ageMillis How long ago the load was observed
+     * @return The resulting load
+     */
+    public double set(int facility, double load, long ageMillis) {
+        double decayed = clamp(decay(load, 0L, Math.max(0L, ageMillis)));
+        cells.set(facility, pack(decayed, elapsed()));
+        return decayed;
+    }
+
+    /**
+     * Get the current load of a facility.
+     *
+     * @param facility The facility ordinal
+     * @return The decayed load
+     */
+    public double get(int facility) {
+        long cell = cells.get(facility);
+        return decay(load(cell), time(cell), elapsed());
+    }
+
+    /**
+     * Read the loads of all facilities as of a single instant.
+     *
+     * The cells are collected twice; if nothing changed in between, the first collection
+     * is an atomic snapshot. Under heavy write contention the last collection is used
+     * after a few attempts, which is still consistent per facility.
+     *
+     * @return The decayed loads, indexed by facility ordinal
+     */
+    public double[] snapshot() {
+        int size = cells.length();
+        long[] first = new long[size];
+        long[] second = new long[size];
+        collect(first);
+        for (int attempt = 1; attempt < SNAPSHOT_ATTEMPTS; attempt++) {
+            collect(second);
+            if (Arrays.equals(first, second)) {
+                break;
+            }
+            long[] swap = first;
+            first = second;
+            second = swap;
+        }
+        long now = elapsed();
+        double[] loads = new double[size];
+        for (int f = 0; f < size; f++) {
+            loads[f] = decay(load(first[f]), time(first[f]), now);
+        }
+        return loads;
+    }
+
+    /**
+     * Get the number of facilities tracked.
+     *
+     * @return The facility count
+     */
+    public int size() {
+        return cells.length();
+    }
+
+    private void collect(long[] into) {
+        for (int f = 0; f < into.length; f++) {
+            into[f] = cells.get(f);
+        }
+    }
+
+    private long elapsed() {
+        return Math.max(0L, clock.getAsLong() - epochMillis);
+    }
+
+    private double decay(double load, long since, long now) {
+        if (halfLifeMillis <= 0 || load == 0.0 || now <= since) {
+            return load;
+        }
+        return load * Math.pow(0.5, (now - since) / halfLifeMillis);
+    }
+
+    private static double clamp(double load) {
+        return Math.max(0.0, Math.min(MAX_LOAD, load));
+    }
+
+    private static long pack(double load, long time) {
+        return (time << LOAD_BITS) | (Math.round(load * LOAD_SCALE) & LOAD_MASK);
+    }
+
+    private static double load(long cell) {
+        return (cell & LOAD_MASK) / LOAD_SCALE;
+    }
+
+    private static long time(long cell) {
+        return cell >>> LOAD_BITS;
+    }
+}
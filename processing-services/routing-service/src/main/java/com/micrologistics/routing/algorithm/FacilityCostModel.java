@@ -0,0 +1,94 @@
+package com.micrologistics.routing.algorithm;
+
+/**
+ * Cost of sending an item into a facility, used as the edge weight of path searches.
+ *
+ * Cost profiles combine an item's weight class with its {@link PriorityClass}: profile
+ * {@code p} has weight profile {@code p % WEIGHT_PROFILES} and priority class
+ * {@code p / WEIGHT_PROFILES}.
+ *
+ * Implementations must not allocate: they are evaluated for every relaxed conveyor.
+ */
+@FunctionalInterface
+public interface FacilityCostModel {
+
+    /**
+     * Cost returned for facilities that cannot accept items.
+     */
+    double UNREACHABLE = Double.POSITIVE_INFINITY;
+
+    /**
+     * Weight profile for items up to {@link #HEAVY_ITEM_THRESHOLD}.
+     */
+    int PROFILE_LIGHT = 0;
+
+    /**
+     * Weight profile for items above {@link #HEAVY_ITEM_THRESHOLD}.
+     */
+    int PROFILE_HEAVY = 1;
+
+    /**
+     * Number of weight profiles.
+     */
+    int WEIGHT_PROFILES = 2;
+
+    /**
+     * Number of cost profiles.
+     */
+    int PROFILE_COUNT = WEIGHT_PROFILES * PriorityClass.values().length;
+
+    /**
+     * Weight above which items are treated as heavy.
+     */
+    double HEAVY_ITEM_THRESHOLD = 20.0;
+
+    /**
+     * Get the cost, in minutes, of entering a facility.
+     *
+     * @param facility The facility ordinal
+     * @param profile The cost profile of the item
+     * @return The cost, or {@link #UNREACHABLE}
+     */
+    double enterCost(int facility, int profile);
+
+    /**
+     * Get the weight profile for an item weight.
+     *
+     * @param weight The item weight
+     * @return The weight profile
+     */
+    static int profileFor(double weight) {
+        return weight > HEAVY_ITEM_THRESHOLD ? PROFILE_HEAVY : PROFILE_LIGHT;
+    }
+
+    /**
+     * Get the cost profile for an item weight and priority class.
+     *
+     * @param weight The item weight
+     * @param priority The priority class
+     * @return The cost profile
+     */
+    static int profileFor(double weight, PriorityClass priority) {
+        return priority.ordinal() * WEIGHT_PROFILES + profileFor(weight);
+    }
+
+    /**
+     * Get the weight profile of a cost profile.
+     *
+     * @param profile The cost profile
+     * @return {@link #PROFILE_LIGHT} or {@link #PROFILE_HEAVY}
+     */
+    static int weightProfile(int profile) {
+        return profile % WEIGHT_PROFILES;
+    }
+
+    /**
+     * Get the priority class of a cost profile.
+     *
+     * @param profile The cost profile
+     * @return The priority class
+     */
+    static PriorityClass priorityClass(int profile) {
+        return PriorityClass.ofOrdinal(profile / WEIGHT_PROFILES);
+    }
+}
@@ -0,0 +1,286 @@
+package com.micrologistics.routing.algorithm;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, multi-level queues of the items waiting at each facility, one level per
+ * {@link PriorityClass}, deciding the order in which a facility processes them.
+ *
+ * Dispatching takes the oldest item of the most urgent non-empty level, so express items
+ * never wait behind bulk freight. Queues are lock-free linked queues; each level's depth is
+ * an atomic counter that also enforces its bound. An item is waiting in at most one queue:
+ * moving it on claims its entry, which is then skipped when dispatching and swept out once
+ * enough claimed entries have piled up behind the head.
+ *
+ * The time each item waited, from arriving at a facility until it was dispatched or moved
+ * on, is counted in a fixed-bucket histogram per priority class.
+ */
+public final class FacilityDispatchQueues {
+
+    /**
+     * Upper bounds, in seconds, of the waiting-time histogram buckets. A last bucket counts
+     * the waits above the largest bound.
+     */
+    public static final long[] WAIT_BUCKET_BOUNDS_SECONDS = {1, 5, 15, 30, 60, 120, 300, 600, 1800, 3600};
+
+    private static final int CLASSES = PriorityClass.values().length;
+    private static final int SWEEP_THRESHOLD = 64;
+
+    private final int facilities;
+    private final int capacity;
+    private final LongSupplier clock;
+
+    // Queues and counters by facility * CLASSES + class ordinal
+    private final Queue<Entry>[] queues;
+    private final AtomicIntegerArray depths;
+    private final AtomicIntegerArray claimedBehindHead;
+
+    // Waiting-time histogram buckets by class ordinal * (bounds + 1) + bucket
+    private final AtomicLongArray waits;
+    private final AtomicLong rejected = new AtomicLong();
+
+    // Entry of each waiting item
+    private final Map<String, Entry> waiting = new ConcurrentHashMap<>();
+
+    /**
+     * Create queues driven by the system clock.
+     *
+     * @param facilities The number of facilities
+     * @param capacity The maximum number of items waiting per facility and priority class
+     */
+    public FacilityDispatchQueues(int facilities, int capacity) {
+        this(facilities, capacity, System::currentTimeMillis);
+    }
+
+    /**
+     * Create queues driven by the given clock.
+     *
+     * @param facilities The number of facilities
+     * @param capacity The maximum number of items waiting per facility and priority class
+     * @param clock Source of the current time in milliseconds
+     */
+    @SuppressWarnings("unchecked")
+    public FacilityDispatchQueues(int facilities, int capacity, LongSupplier clock) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid queue capacity: " + capacity);
+        }
+        this.facilities = facilities;
+        this.capacity = capacity;
+        this.clock = clock;
+        this.queues = (Queue<Entry>[]) new Queue<?>[facilities * CLASSES];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.depths = new AtomicIntegerArray(queues.length);
+        this.claimedBehindHead = new AtomicIntegerArray(queues.length);
+        this.waits = new AtomicLongArray(CLASSES * (WAIT_BUCKET_BOUNDS_SECONDS.length + 1));
+    }
+
+    /**
+     * Queue an item at a facility, taking it out of the queue it was waiting in.
+     *
+     * @param itemId The item ID
+     * @param facility The facility ordinal
+     * @param priority The priority class of the item
+     * @param arrivedAtMillis When the item arrived at the facility
+     * @return True if the item was queued, false if the queue was full
+     */
+    public boolean enqueue(String itemId, int facility, PriorityClass priority, long arrivedAtMillis) {
+        int index = index(facility, priority);
+        Entry entry = new Entry(itemId, index, arrivedAtMillis);
+        if (!reserveRoom(index)) {
+            rejected.incrementAndGet();
+            remove(itemId);
+            return false;
+        }
+        Entry previous = waiting.put(itemId, entry);
+        if (previous != null && previous.claim()) {
+            leave(previous, true);
+        }
+        queues[index].offer(entry);
+        return true;
+    }
+
+    /**
+     * Queue an item at the next facility of its path, keeping the priority class it was
+     * waiting with.
+     *
+     * @param itemId The item ID
+     * @param facility The facility ordinal
+     * @param defaultPriority The priority class to use if the item is not waiting anywhere
+     * @param arrivedAtMillis When the item arrived at the facility
+     * @return True if the item was queued, false if the queue was full
+     */
+    public boolean moveTo(String itemId, int facility, PriorityClass defaultPriority, long arrivedAtMillis) {
+        Entry current = waiting.get(itemId);
+        PriorityClass priority = current != null ? PriorityClass.ofOrdinal(current.index % CLASSES) : defaultPriority;
+        return enqueue(itemId, facility, priority, arrivedAtMillis);
+    }
+
+    /**
+     * Take the next item to process at a facility: the longest waiting item of the most
+     * urgent priority class with items waiting.
+     *
+     * @param facility The facility ordinal
+     * @return The item ID, or null if no item is waiting
+     */
+    public String dispatch(int facility) {
+        for (int level = CLASSES - 1; level >= 0; level--) {
+            Queue<Entry> queue = queues[facility * CLASSES + level];
+            Entry entry;
+            while ((entry = queue.poll()) != null) {
+                if (entry.claim()) {
+                    waiting.remove(entry.itemId, entry);
+                    leave(entry, false);
+                    return entry.itemId;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Take an item out of the queue it is waiting in, once it has completed its route or failed.
+     *
+     * @param itemId The item ID
+     * @return True if the item was waiting
+     */
+    public boolean remove(String itemId) {
+        Entry entry = waiting.remove(itemId);
+        if (entry != null && entry.claim()) {
+            leave(entry, true);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of items of a priority class waiting at a facility.
+     *
+     * @param facility The facility ordinal
+     * @param priority The priority class
+     * @return The queue depth
+     */
+    public int depth(int facility, PriorityClass priority) {
+        return depths.get(index(facility, priority));
+    }
+
+    /**
+     * Get the number of items of a priority class waiting at any facility.
+     *
+     * @param priority The priority class
+     * @return The total queue depth
+     */
+    public int depth(PriorityClass priority) {
+        int total = 0;
+        for (int facility = 0; facility < facilities; facility++) {
+            total += depths.get(index(facility, priority));
+        }
+        return total;
+    }
+
+    /**
+     * Get the waiting-time histogram of a priority class.
+     *
+     * @param priority The priority class
+     * @return The count per bucket of {@link #WAIT_BUCKET_BOUNDS_SECONDS}, followed by the
+     *         count of longer waits
+     */
+    public long[] waitHistogram(PriorityClass priority) {
+        int buckets = WAIT_BUCKET_BOUNDS_SECONDS.length + 1;
+        long[] histogram = new long[buckets];
+        for (int b = 0; b < buckets; b++) {
+            histogram[b] = waits.get(priority.ordinal() * buckets + b);
+        }
+        return histogram;
+    }
+
+    /**
+     * Get the number of items that could not be queued because their queue was full.
+     *
+     * @return The rejection count
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Get the number of facilities.
+     *
+     * @return The facility count
+     */
+    public int size() {
+        return facilities;
+    }
+
+    private boolean reserveRoom(int index) {
+        while (true) {
+            int depth = depths.get(index);
+            if (depth >= capacity) {
+                return false;
+            }
+            if (depths.compareAndSet(index, depth, depth + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Account for a claimed entry leaving its queue. Entries claimed while still linked are
+     * swept out once they outnumber the items waiting, keeping removal amortized O(1).
+     */
+    private void leave(Entry entry, boolean stillLinked) {
+        int depth = depths.decrementAndGet(entry.index);
+        recordWait(entry.index % CLASSES, clock.getAsLong() - entry.arrivedAtMillis);
+        if (stillLinked && claimedBehindHead.incrementAndGet(entry.index) > Math.max(SWEEP_THRESHOLD, depth)) {
+            claimedBehindHead.set(entry.index, 0);
+            queues[entry.index].removeIf(Entry::isClaimed);
+        }
+    }
+
+    private void recordWait(int level, long waitMillis) {
+        long seconds = Math.max(0L, waitMillis) / 1000L;
+        int bucket = 0;
+        while (bucket < WAIT_BUCKET_BOUNDS_SECONDS.length && seconds > WAIT_BUCKET_BOUNDS_SECONDS[bucket]) {
+            bucket++;
+        }
+        waits.incrementAndGet(level * (WAIT_BUCKET_BOUNDS_SECONDS.length + 1) + bucket);
+    }
+
+    private static int index(int facility, PriorityClass priority) {
+        return facility * CLASSES + priority.ordinal();
+    }
+
+    /**
+     * An item waiting in a queue; claimed exactly once, by whoever takes it out.
+     */
+    private static final class Entry {
+
+        private final String itemId;
+        private final int index;
+        private final long arrivedAtMillis;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private Entry(String itemId, int index, long arrivedAtMillis) {
+            this.itemId = itemId;
+            this.index = index;
+            this.arrivedAtMillis = arrivedAtMillis;
+        }
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        boolean isClaimed() {
+            return claimed.get();
+        }
+    }
+}
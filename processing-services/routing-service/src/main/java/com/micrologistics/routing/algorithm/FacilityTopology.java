@@ -0,0 +1,361 @@
+package com.micrologistics.routing.algorithm;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable weighted directed graph of processing facilities and the conveyors between them.
+ *
+ * Facilities are addressed by ordinal (their declaration order), and all per-facility and
+ * per-conveyor attributes are held in primitive arrays so that path searches can run without
+ * allocating. Outgoing and incoming conveyors are stored in compressed sparse row form.
+ */
+public final class FacilityTopology {
+
+    /**
+     * Classpath location of the topology bundled with the service.
+     */
+    public static final String DEFAULT_TOPOLOGY_RESOURCE = "topology/default-facility.topology";
+
+    /**
+     * Handling class of a facility, used to steer light and heavy items to suitable equipment.
+     */
+    public enum Handling {
+        ANY,
+        LIGHT,
+        HEAVY
+    }
+
+    private final String[] names;
+    private final Map<String, Integer> ordinals;
+    private final double[] processingMinutes;
+    private final Handling[] handling;
+    private final boolean[] outboundDock;
+    private final int entry;
+
+    // Outgoing conveyors: targets of facility f are outTarget[outStart[f] .. outStart[f + 1])
+    private final int[] outStart;
+    private final int[] outTarget;
+    private final double[] outTransferMinutes;
+
+    // Incoming conveyors: sources of facility f are inSource[inStart[f] .. inStart[f + 1])
+    private final int[] inStart;
+    private final int[] inSource;
+    private final double[] inTransferMinutes;
+
+    private FacilityTopology(Builder builder) {
+        int count = builder.names.size();
+        this.names = builder.names.toArray(new String[0]);
+        this.ordinals = Collections.unmodifiableMap(new HashMap<>(builder.ordinals));
+        this.processingMinutes = new double[count];
+        this.handling = new Handling[count];
+        this.outboundDock = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            processingMinutes[i] = builder.processingMinutes.get(i);
+            handling[i] = builder.handling.get(i);
+            outboundDock[i] = builder.outboundDocks.contains(i);
+        }
+        this.entry = builder.entry;
+
+        int edges = builder.edgeFrom.size();
+        this.outStart = new int[count + 1];
+        this.outTarget = new int[edges];
+        this.outTransferMinutes = new double[edges];
+        this.inStart = new int[count + 1];
+        this.inSource = new int[edges];
+        this.inTransferMinutes = new double[edges];
+
+        for (int e = 0; e < edges; e++) {
+            outStart[builder.edgeFrom.get(e) + 1]++;
+            inStart[builder.edgeTo.get(e) + 1]++;
+        }
+        for (int i = 0; i < count; i++) {
+            outStart[i + 1] += outStart[i];
+            inStart[i + 1] += inStart[i];
+        }
+        int[] outFill = Arrays.copyOf(outStart, count);
+        int[] inFill = Arrays.copyOf(inStart, count);
+        for (int e = 0; e < edges; e++) {
+            int from = builder.edgeFrom.get(e);
+            int to = builder.edgeTo.get(e);
+            double transfer = builder.edgeTransferMinutes.get(e);
+            int o = outFill[from]++;
+            outTarget[o] = to;
+            outTransferMinutes[o] = transfer;
+            int in = inFill[to]++;
+            inSource[in] = from;
+            inTransferMinutes[in] = transfer;
+        }
+    }
+
+    /**
+     * Load the topology bundled with the service.
+     *
+     * @return The default topology
+     */
+    public static FacilityTopology defaultTopology() {
+        InputStream in = FacilityTopology.class.getClassLoader().getResourceAsStream(DEFAULT_TOPOLOGY_RESOURCE);
+        if (in == null) {
+            throw new IllegalStateException("Missing bundled topology: " + DEFAULT_TOPOLOGY_RESOURCE);
+        }
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return parse(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read bundled topology", e);
+        }
+    }
+
+    /**
+     * Parse a topology definition.
+     *
+     * The format is line based; blank lines and lines starting with '#' are ignored:
+     * <pre>
+     * facility &lt;NAME&gt; &lt;processingMinutes&gt; [ANY|LIGHT|HEAVY] [ENTRY] [DOCK]
+     * conveyor &lt;FROM&gt; &lt;TO&gt; [transferMinutes]
+     * </pre>
+     *
+     * @param reader The source of the definition
+     * @return The parsed topology
+     * @throws IOException If the definition cannot be read
+     */
+    public static FacilityTopology parse(Reader reader) throws IOException {
+        Builder builder = builder();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] tokens = line.split("\\s+");
+            try {
+                switch (tokens[0].toLowerCase(Locale.ROOT)) {
+                    case "facility":
+                        parseFacility(builder, tokens);
+                        break;
+                    case "conveyor":
+                        builder.conveyor(tokens[1], tokens[2],
+                                tokens.length > 3 ? Double.parseDouble(tokens[3]) : 0.0);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown directive: " + tokens[0]);
+                }
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException(
+                        "Invalid topology definition at line " + lineNumber + ": " + line, e);
+            }
+        }
+        return builder.build();
+    }
+
+    private static void parseFacility(Builder builder, String[] tokens) {
+        String name = tokens[1];
+        double minutes = Double.parseDouble(tokens[2]);
+        Handling handling = Handling.ANY;
+        boolean entry = false;
+        boolean dock = false;
+        for (int i = 3; i < tokens.length; i++) {
+            String flag = tokens[i].toUpperCase(Locale.ROOT);
+            if ("ENTRY".equals(flag)) {
+                entry = true;
+            } else if ("DOCK".equals(flag)) {
+                dock = true;
+            } else {
+                handling = Handling.valueOf(flag);
+            }
+        }
+        builder.facility(name, minutes, handling);
+        if (entry) {
+            builder.entry(name);
+        }
+        if (dock) {
+            builder.outboundDock(name);
+        }
+    }
+
+    /**
+     * Create a builder for a new topology.
+     *
+     * @return The builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Get the number of facilities.
+     *
+     * @return The facility count
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Get the ordinal of a facility.
+     *
+     * @param name The facility name
+     * @return The ordinal, or -1 if the facility is unknown
+     */
+    public int ordinalOf(String name) {
+        if (name == null) {
+            return -1;
+        }
+        Integer ordinal = ordinals.get(name);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    /**
+     * Get the name of a facility.
+     *
+     * @param ordinal The facility ordinal
+     * @return The facility name
+     */
+    public String nameOf(int ordinal) {
+        return names[ordinal];
+    }
+
+    /**
+     * Get all facility names in ordinal order.
+     *
+     * @return The facility names
+     */
+    public List<String> facilityNames() {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    public double processingMinutes(int ordinal) {
+        return processingMinutes[ordinal];
+    }
+
+    public Handling handling(int ordinal) {
+        return handling[ordinal];
+    }
+
+    public boolean isOutboundDock(int ordinal) {
+        return outboundDock[ordinal];
+    }
+
+    /**
+     * Get the facility every item enters the building through.
+     *
+     * @return The entry ordinal
+     */
+    public int entry() {
+        return entry;
+    }
+
+    public int outStart(int ordinal) {
+        return outStart[ordinal];
+    }
+
+    public int outEnd(int ordinal) {
+        return outStart[ordinal + 1];
+    }
+
+    public int outTarget(int edge) {
+        return outTarget[edge];
+    }
+
+    public double outTransferMinutes(int edge) {
+        return outTransferMinutes[edge];
+    }
+
+    public int inStart(int ordinal) {
+        return inStart[ordinal];
+    }
+
+    public int inEnd(int ordinal) {
+        return inStart[ordinal + 1];
+    }
+
+    public int inSource(int edge) {
+        return inSource[edge];
+    }
+
+    public double inTransferMinutes(int edge) {
+        return inTransferMinutes[edge];
+    }
+
+    /**
+     * Builder for facility topologies.
+     */
+    public static final class Builder {
+
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, Integer> ordinals = new HashMap<>();
+        private final List<Double> processingMinutes = new ArrayList<>();
+        private final List<Handling> handling = new ArrayList<>();
+        private final List<Integer> outboundDocks = new ArrayList<>();
+        private final List<Integer> edgeFrom = new ArrayList<>();
+        private final List<Integer> edgeTo = new ArrayList<>();
+        private final List<Double> edgeTransferMinutes = new ArrayList<>();
+        private int entry = -1;
+
+        private Builder() {
+        }
+
+        public Builder facility(String name, double minutes, Handling handlingClass) {
+            if (ordinals.containsKey(name)) {
+                throw new IllegalArgumentException("Duplicate facility: " + name);
+            }
+            if (minutes < 0) {
+                throw new IllegalArgumentException("Negative processing time for facility: " + name);
+            }
+            ordinals.put(name, names.size());
+            names.add(name);
+            processingMinutes.add(minutes);
+            handling.add(handlingClass);
+            return this;
+        }
+
+        public Builder entry(String name) {
+            this.entry = require(name);
+            return this;
+        }
+
+        public Builder outboundDock(String name) {
+            outboundDocks.add(require(name));
+            return this;
+        }
+
+        public Builder conveyor(String from, String to, double transferMinutes) {
+            edgeFrom.add(require(from));
+            edgeTo.add(require(to));
+            edgeTransferMinutes.add(transferMinutes);
+            return this;
+        }
+
+        public FacilityTopology build() {
+            if (names.isEmpty()) {
+                throw new IllegalStateException("Topology has no facilities");
+            }
+            if (entry < 0) {
+                entry = 0;
+            }
+            return new FacilityTopology(this);
+        }
+
+        private int require(String name) {
+            Integer ordinal = ordinals.get(name);
+            if (ordinal == null) {
+                throw new IllegalArgumentException("Unknown facility: " + name);
+            }
+            return ordinal;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.micrologistics.routing.algorithm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timer wheel holding one deadline per key.
+ *
+ * Deadlines are rounded up to whole ticks and kept in {@value #LEVELS} wheels of
+ * {@value #SLOTS} slots each; a wheel's slot spans {@value #SLOTS} slots of the wheel below.
+ * Scheduling and cancelling are O(1), and advancing the clock costs O(1) per tick plus the
+ * timers that expire or move to a finer wheel. Deadlines beyond the coarsest wheel are
+ * parked in its furthest slot and re-filed as the clock approaches them.
+ *
+ * All operations are serialized on the wheel; expired values are handed back to the caller
+ * rather than processed under the lock.
+ *
+ * @param <K> The key type
+ * @param <V> The type of the value attached to each timer
+ */
+public final class HierarchicalTimerWheel<K, V> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    private final long tickMillis;
+    private final Node<K, V>[][] wheels;
+    private final Map<K, Node<K, V>> timers = new HashMap<>();
+    private long currentTick;
+
+    /**
+     * Create a wheel whose clock starts at the given time.
+     *
+     * @param tickMillis The resolution of the wheel in milliseconds
+     * @param nowMillis The current time in milliseconds
+     */
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimerWheel(long tickMillis, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Invalid tick: " + tickMillis);
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+        this.wheels = (Node<K, V>[][]) new Node<?, ?>[LEVELS][SLOTS];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                Node<K, V> sentinel = new Node<>(null, null, 0L);
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                wheels[level][slot] = sentinel;
+            }
+        }
+    }
+
+    /**
+     * Schedule a timer, replacing any timer with the same key.
+     * Deadlines that have already passed expire on the next tick.
+     *
+     * @param key The key
+     * @param value The value handed back when the timer expires
+     * @param deadlineMillis The deadline in milliseconds
+     */
+    public synchronized void schedule(K key, V value, long deadlineMillis) {
+        Node<K, V> previous = timers.remove(key);
+        if (previous != null) {
+            previous.unlink();
+        }
+        Node<K, V> node = new Node<>(key, value, Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis));
+        timers.put(key, node);
+        file(node, currentTick + 1);
+    }
+
+    /**
+     * Cancel a timer.
+     *
+     * @param key The key
+     * @return The value of the cancelled timer, or null if there was none
+     */
+    public synchronized V cancel(K key) {
+        Node<K, V> node = timers.remove(key);
+        if (node == null) {
+            return null;
+        }
+        node.unlink();
+        return node.value;
+    }
+
+    /**
+     * Advance the clock, removing every timer whose deadline has been reached.
+     *
+     * @param nowMillis The current time in milliseconds
+     * @return The values of the expired timers, earliest tick first
+     */
+    public synchronized List<V> advance(long nowMillis) {
+        List<V> expired = new ArrayList<>();
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+            Node<K, V> sentinel = wheels[0][(int) (currentTick & SLOT_MASK)];
+            for (Node<K, V> node = sentinel.next; node != sentinel; ) {
+                Node<K, V> next = node.next;
+                node.unlink();
+                if (node.tick <= currentTick) {
+                    timers.remove(node.key);
+                    expired.add(node.value);
+                } else {
+                    file(node, currentTick + 1);
+                }
+                node = next;
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Get the number of scheduled timers.
+     *
+     * @return The timer count
+     */
+    public synchronized int size() {
+        return timers.size();
+    }
+
+    /**
+     * Move the timers of every coarser slot the clock has just entered down to finer wheels.
+     * Coarsest first, so timers moved down are picked up by the finer slots entered on the
+     * same tick.
+     */
+    private void cascade() {
+        int top = 0;
+        while (top + 1 < LEVELS && (currentTick & ((1L << (SLOT_BITS * (top + 1))) - 1)) == 0) {
+            top++;
+        }
+        for (int level = top; level >= 1; level--) {
+            int shift = SLOT_BITS * level;
+            Node<K, V> sentinel = wheels[level][(int) ((currentTick >>> shift) & SLOT_MASK)];
+            for (Node<K, V> node = sentinel.next; node != sentinel; ) {
+                Node<K, V> next = node.next;
+                node.unlink();
+                file(node, currentTick);
+                node = next;
+            }
+        }
+    }
+
+    /**
+     * Put a timer in the slot of the finest wheel that reaches its tick, or the given
+     * earliest tick if that is later.
+     */
+    private void file(Node<K, V> node, long earliestTick) {
+        long tick = Math.max(node.tick, earliestTick);
+        long delta = tick - currentTick;
+        if (delta >= MAX_SPAN) {
+            tick = currentTick + MAX_SPAN - 1;
+            delta = MAX_SPAN - 1;
+        }
+        int level = 0;
+        while (delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        node.linkBefore(wheels[level][(int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK)]);
+    }
+
+    private static final class Node<K, V> {
+
+        private final K key;
+        private final V value;
+        private final long tick;
+        private Node<K, V> prev;
+        private Node<K, V> next;
+
+        private Node(K key, V value, long tick) {
+            this.key = key;
+            this.value = value;
+            this.tick = tick;
+        }
+
+        void linkBefore(Node<K, V> sentinel) {
+            prev = sentinel.prev;
+            next = sentinel;
+            sentinel.prev.next = this;
+            sentinel.prev = this;
+        }
+
+        void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+        }
+    }
+}
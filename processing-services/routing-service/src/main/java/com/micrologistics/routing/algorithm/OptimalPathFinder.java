@@ -1,226 +1,472 @@
 package com.micrologistics.routing.algorithm;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
 
-import org.springframework.stereotype.Component;
+import org.springframework.scheduling.annotation.Scheduled;
 
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Algorithm to find the optimal routing path for items based on various factors
  * including destination, current equipment load, and item properties.
+ * Paths are found by a shortest-path search over the {@link FacilityTopology}.
  */
-@Component
 @Slf4j
 public class OptimalPathFinder {
     
-    // Simulated equipment load (would come from a real-time monitoring system)
-    private final Map<String, Integer> equipmentLoad = new ConcurrentHashMap<>();
+    // Penalty, as a fraction of processing time, for sending an item to equipment built for the other weight class
+    private static final double HANDLING_MISMATCH_PENALTY = 0.3;
     
-    // Simulated processing facilities
-    private final List<String> facilities = Arrays.asList(
-        "INBOUND_DOCK", "SCANNER_STATION", "SORTING_AREA_A", "SORTING_AREA_B", 
-        "PACKAGING_AREA", "CONTAINER_LOADING", "OUTBOUND_DOCK_NORTH", "OUTBOUND_DOCK_SOUTH",
-        "OUTBOUND_DOCK_EAST", "OUTBOUND_DOCK_WEST"
-    );
+    // Extra weight given to facility load for each priority class above bulk, so that urgent
+    // items are steered to the less loaded equipment
+    private static final double LOAD_AVERSION_PER_CLASS = 0.5;
     
-    // Average processing time per facility in minutes
-    private final Map<String, Double> processingTimes = new HashMap<>();
+    // Facilities and conveyors of the building
+    private final FacilityTopology topology;
     
-    // Mapping of destinations to optimal outbound docks
-    private final Map<String, String> destinationToOutboundDock = new HashMap<>();
+    // Fixed-point scale of the pending load deltas
+    private static final double DELTA_SCALE = 1000.0;
     
-    // Equipment operational status
-    private final Map<String, Boolean> equipmentOperational = new ConcurrentHashMap<>();
+    // Equipment load by facility ordinal, shared with the other replicas through the equipment state topic
+    private final EquipmentLoadTracker equipmentLoad;
+    
+    // Load added by items routed here since the deltas were last drained, in thousandths
+    private final AtomicLongArray pendingLoadDeltas;
+    
+    // Load added to each facility on a routed item's path
+    private final double loadIncrement;
+    
+    // Last load level of each facility seen by the cost model
+    private final AtomicIntegerArray loadLevels;
+    
+    // Items at each facility, rounded down to a multiple of occupancyQuantum
+    private final AtomicIntegerArray occupancyLevels;
+    
+    // Granularity of the occupancy seen by the cost model
+    private final int occupancyQuantum;
+    
+    // Items each facility starts per minute, for turning occupancy into waiting time
+    private final double capacityPerMinute;
+    
+    // Per-thread buffer receiving the ordinals of a found path
+    private final ThreadLocal<int[]> pathBuffer;
+    
+    // Cost of entering a facility, derived from processing time, load and operational status
+    private final FacilityCostModel costModel = this::enterCost;
+    
+    // Loads are rounded down to a multiple of this before entering the cost model, so that
+    // shortest paths only need repairing when a facility crosses a load level
+    private final int loadQuantum;
+    
+    // Precomputed paths to every outbound dock, repaired as facility costs change
+    private final ShortestPathTrees shortestPaths;
+    
+    // Plans shared by items with the same dock, weight band and priority class
+    private final RoutePlanCache planCache;
+    
+    // Mapping of destinations to optimal outbound docks, replaced as a whole on reload
+    private volatile DestinationIndex destinationIndex;
+    
+    // Equipment operational status by facility ordinal; written before the facility is marked
+    // dirty, which publishes the change to the threads repairing the shortest paths
+    private final boolean[] operational;
+    
+    // Time items actually spend at each facility, learned from step transitions
+    private final StepDurationModel stepDurations;
     
     /**
-     * Constructor to initialize the path finder.
+     * Constructor to initialize the path finder with the bundled facility topology.
      */
     public OptimalPathFinder() {
-        // Initialize with random equipment loads
-        Random random = new Random();
-        for (String facility : facilities) {
-            equipmentLoad.put(facility, random.nextInt(100));
-            equipmentOperational.put(facility, true);
-        }
+        this(FacilityTopology.defaultTopology(), PathFinderSettings.defaults());
+    }
+    
+    /**
+     * Constructor to initialize the path finder with no learned step durations.
+     * 
+     * @param topology The facilities and conveyors to route over
+     * @param settings The path finder tuning parameters
+     */
+    public OptimalPathFinder(FacilityTopology topology, PathFinderSettings settings) {
+        this(topology, settings, StepDurationModel.of(topology, settings));
+    }
+    
+    /**
+     * Constructor to initialize the path finder.
+     * 
+     * @param topology The facilities and conveyors to route over
+     * @param settings The path finder tuning parameters
+     * @param stepDurations The time items spend at each facility, learned from step transitions
+     */
+    public OptimalPathFinder(FacilityTopology topology, PathFinderSettings settings, StepDurationModel stepDurations) {
+        this.topology = topology;
+        this.stepDurations = stepDurations;
+        this.loadQuantum = Math.max(1, settings.getLoadQuantum());
+        this.planCache = new RoutePlanCache(topology, settings);
+        this.pathBuffer = ThreadLocal.withInitial(() -> new int[topology.size()]);
+        this.equipmentLoad = new EquipmentLoadTracker(topology.size(), settings.getLoadHalfLifeSeconds() * 1000.0);
+        this.loadIncrement = settings.getLoadIncrement();
+        this.loadLevels = new AtomicIntegerArray(topology.size());
+        this.pendingLoadDeltas = new AtomicLongArray(topology.size());
+        this.occupancyLevels = new AtomicIntegerArray(topology.size());
+        this.occupancyQuantum = Math.max(1, settings.getOccupancyQuantum());
+        this.capacityPerMinute = Math.max(1, settings.getReservationCapacityPerMinute());
+        this.operational = new boolean[topology.size()];
+        Arrays.fill(operational, true);
         
-        // Initialize processing times
-        processingTimes.put("INBOUND_DOCK", 5.0);
-        processingTimes.put("SCANNER_STATION", 2.0);
-        processingTimes.put("SORTING_AREA_A", 8.0);
-        processingTimes.put("SORTING_AREA_B", 10.0);
-        processingTimes.put("PACKAGING_AREA", 15.0);
-        processingTimes.put("CONTAINER_LOADING", 12.0);
-        processingTimes.put("OUTBOUND_DOCK_NORTH", 7.0);
-        processingTimes.put("OUTBOUND_DOCK_SOUTH", 7.0);
-        processingTimes.put("OUTBOUND_DOCK_EAST", 7.0);
-        processingTimes.put("OUTBOUND_DOCK_WEST", 7.0);
+        // Start idle, with the real loads restored from the equipment state topic; a configured
+        // seed gives reproducible random loads for simulations and benchmarks instead
+        Random random = settings.getLoadSeed() != null ? new Random(settings.getLoadSeed()) : null;
+        for (int facility = 0; facility < topology.size(); facility++) {
+            equipmentLoad.set(facility, random != null ? random.nextInt(100) : 0);
+            loadLevels.set(facility, quantize(equipmentLoad.get(facility)));
+        }
         
-        // Initialize destination mappings (simplified for demonstration)
-        destinationToOutboundDock.put("NORTH", "OUTBOUND_DOCK_NORTH");
-        destinationToOutboundDock.put("SOUTH", "OUTBOUND_DOCK_SOUTH");
-        destinationToOutboundDock.put("EAST", "OUTBOUND_DOCK_EAST");
-        destinationToOutboundDock.put("WEST", "OUTBOUND_DOCK_WEST");
+        // Start with the bundled destination mappings until a configured index is loaded
+        this.destinationIndex = initialDestinationIndex(topology);
         
-        // Default mappings for common cities/regions
-        destinationToOutboundDock.put("NEW YORK", "OUTBOUND_DOCK_EAST");
-        destinationToOutboundDock.put("LOS ANGELES", "OUTBOUND_DOCK_WEST");
-        destinationToOutboundDock.put("CHICAGO", "OUTBOUND_DOCK_NORTH");
-        destinationToOutboundDock.put("HOUSTON", "OUTBOUND_DOCK_SOUTH");
-        destinationToOutboundDock.put("MIAMI", "OUTBOUND_DOCK_SOUTH");
-        destinationToOutboundDock.put("SEATTLE", "OUTBOUND_DOCK_WEST");
-        destinationToOutboundDock.put("BOSTON", "OUTBOUND_DOCK_EAST");
+        this.shortestPaths = new ShortestPathTrees(topology, costModel, FacilityCostModel.PROFILE_COUNT);
     }
     
     /**
      * Calculates the optimal path for an item based on its properties and current system state.
+     * The path is the cheapest route through the facility graph from the entry facility to the
+     * outbound dock serving the destination, read from the incrementally maintained
+     * {@link ShortestPathTrees}. More urgent items weigh facility load more heavily, so they
+     * are sent through the less loaded sorting area.
      * 
      * @param itemId The ID of the item
      * @param destination The destination of the item
      * @param weight The weight of the item
      * @param priority Priority level (higher means more urgent)
-     * @return List of processing steps the item should follow
+     * @return List of processing steps the item should follow, or an empty list if the dock is unreachable
      */
     public List<String> findOptimalPath(String itemId, String destination, double weight, Integer priority) {
-        log.info("Finding optimal path for item {}, destination: {}, weight: {}, priority: {}", 
+        return new ArrayList<>(planRoute(itemId, destination, weight, priority).getSteps());
+    }
+    
+    /**
+     * Plans the route of an item: its optimal path and the estimated time to process it.
+     * Items with the same outbound dock, weight band and priority class share a cached path until a
+     * facility they could route through crosses a load bucket or changes operational status. The
+     * estimate depends on the hour the item reaches each facility and on the learned step
+     * durations, so it is computed for every item rather than cached.
+     * 
+     * @param itemId The ID of the item
+     * @param destination The destination of the item
+     * @param weight The weight of the item
+     * @param priority Priority level (higher means more urgent)
+     * @return The route plan, or {@link RoutePlan#EMPTY} if the dock is unreachable
+     */
+    public RoutePlan planRoute(String itemId, String destination, double weight, Integer priority) {
+        log.debug("Planning route for item {}, destination: {}, weight: {}, priority: {}", 
                 itemId, destination, weight, priority);
         
-        List<String> path = new ArrayList<>();
-        
-        // Start with inbound dock
-        path.add("INBOUND_DOCK");
+        // Pick the outbound dock based on destination
+        int outboundDock = destinationIndex.resolve(destination);
         
-        // All items go through scanner
-        path.add("SCANNER_STATION");
-        
-        // Choose sorting area based on load balancing and weight
-        String sortingArea = chooseSortingArea(weight);
-        path.add(sortingArea);
+        PriorityClass priorityClass = PriorityClass.of(priority);
+        long key = planCache.key(outboundDock, weight, priorityClass);
+        RoutePlan path = planCache.get(key);
+        if (path == null) {
+            path = computePlan(key, outboundDock, FacilityCostModel.profileFor(weight, priorityClass));
+            if (path.isEmpty()) {
+                log.warn("No operational path to {} for item {}", topology.nameOf(outboundDock), itemId);
+                return path;
+            }
+        }
+        RoutePlan plan = path.withEstimatedTimeMinutes(estimatedTime(path.getOrdinals()));
         
-        // Add packaging area for all items
-        path.add("PACKAGING_AREA");
+        // Update simulated equipment load
+        updateEquipmentLoads(plan.getOrdinals());
         
-        // Add container loading
-        path.add("CONTAINER_LOADING");
+        log.debug("Planned route for item {}: {}", itemId, plan.getSteps());
+        return plan;
+    }
+    
+    /**
+     * Finds the cheapest path of an in-flight item from the facility it is at to its outbound
+     * dock, for re-routing it around facilities that went down. Plans are not cached, since
+     * they do not start at the entry facility. Load is added to the facilities after the
+     * start facility, which the item has already been counted at.
+     * 
+     * @param itemId The ID of the item
+     * @param from The ordinal of the facility the item is at
+     * @param outboundDock The ordinal of the item's outbound dock
+     * @param weight The weight of the item
+     * @param priority Priority level (higher means more urgent)
+     * @return The facility ordinals of the path, starting with from, or an empty array if the dock is unreachable
+     */
+    public int[] findPathFrom(String itemId, int from, int outboundDock, double weight, Integer priority) {
+        int profile = FacilityCostModel.profileFor(weight, PriorityClass.of(priority));
+        int[] ordinals = pathBuffer.get();
+        int length;
+        if (shortestPaths.hasTreeFor(outboundDock)) {
+            shortestPaths.refresh();
+            length = shortestPaths.path(from, outboundDock, profile, ordinals);
+        } else {
+            length = PathSearch.shortestPath(topology, costModel, from, outboundDock, profile, ordinals);
+        }
+        if (length == 0) {
+            log.warn("No operational path from {} to {} for item {}", topology.nameOf(from),
+                    topology.nameOf(outboundDock), itemId);
+            return new int[0];
+        }
         
-        // Add appropriate outbound dock based on destination
-        String region = extractRegion(destination);
-        String outboundDock = destinationToOutboundDock.getOrDefault(region, "OUTBOUND_DOCK_SOUTH");
-        path.add(outboundDock);
+        int[] path = Arrays.copyOf(ordinals, length);
+        updateEquipmentLoads(Arrays.copyOfRange(path, 1, length));
+        return path;
+    }
+    
+    /**
+     * Compute a fresh path from the shortest-path trees and cache it. Paths read while another
+     * thread is still repairing the trees may route through a facility that has just gone
+     * down, so they are only used for the item at hand and not cached.
+     * 
+     * @param key The cache key
+     * @param outboundDock The ordinal of the outbound dock
+     * @param profile The cost profile of the item
+     * @return The plan, without an estimate, or {@link RoutePlan#EMPTY} if the dock is unreachable
+     */
+    private RoutePlan computePlan(long key, int outboundDock, int profile) {
+        long generation = planCache.generation(outboundDock);
         
-        // Update simulated equipment load
-        updateEquipmentLoads(path);
+        int[] ordinals = pathBuffer.get();
+        int length;
+        boolean current = true;
+        if (shortestPaths.hasTreeFor(outboundDock)) {
+            shortestPaths.refresh();
+            current = !shortestPaths.isStale();
+            length = shortestPaths.path(topology.entry(), outboundDock, profile, ordinals);
+        } else {
+            length = PathSearch.shortestPath(topology, costModel, topology.entry(), outboundDock, profile, ordinals);
+        }
+        if (length == 0) {
+            return RoutePlan.EMPTY;
+        }
         
-        log.info("Determined path for item {}: {}", itemId, path);
-        return path;
+        List<String> steps = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            steps.add(topology.nameOf(ordinals[i]));
+        }
+        RoutePlan plan = new RoutePlan(steps, Arrays.copyOf(ordinals, length), 0.0, outboundDock, generation);
+        if (current) {
+            planCache.put(key, plan);
+        }
+        return plan;
     }
     
     /**
-     * Calculate the total estimated processing time for a route.
+     * Calculate the total estimated processing time for a route. Each step takes the time
+     * items have recently spent at the facility in the hour the item is expected to get
+     * there, or the configured processing time stretched by load until enough step
+     * transitions have been recorded.
      * 
      * @param path The path of processing steps
      * @return The estimated time in minutes
      */
     public double calculateEstimatedTime(List<String> path) {
-        // Base processing time based on each facility
-        double totalTime = path.stream()
-                .mapToDouble(step -> processingTimes.getOrDefault(step, 5.0))
-                .sum();
-        
-        // Add time based on current equipment loads (busier = slower)
-        for (String step : path) {
-            int load = equipmentLoad.getOrDefault(step, 0);
-            // Add 0-100% extra time based on load (0-100)
-            totalTime += processingTimes.getOrDefault(step, 5.0) * (load / 100.0);
+        int[] ordinals = new int[path.size()];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = topology.ordinalOf(path.get(i));
+        }
+        return estimatedTime(ordinals);
+    }
+    
+    private double estimatedTime(int[] ordinals) {
+        LocalDateTime now = LocalDateTime.now();
+        double totalTime = 0.0;
+        for (int ordinal : ordinals) {
+            double processingTime = ordinal >= 0 ? topology.processingMinutes(ordinal) : 5.0;
+            // Base processing time plus 0-100% extra time based on load (busier = slower)
+            double load = ordinal >= 0 ? equipmentLoad.get(ordinal) : 0.0;
+            double configuredTime = processingTime + processingTime * (load / 100.0);
+            int arrivalHour = now.plusSeconds(Math.round(totalTime * 60)).getHour();
+            totalTime += stepDurations.expectedMinutes(ordinal, arrivalHour, configuredTime);
         }
-        
         return totalTime;
     }
     
     /**
-     * Choose the sorting area based on weight and current load.
+     * Cost of sending an item into a facility: its processing time stretched by current load,
+     * plus the time to work off the items already at the facility, both weighted by the
+     * item's priority class, plus a penalty when the facility is built for the other weight class.
      * 
-     * @param weight The item weight
-     * @return The selected sorting area
+     * @param facility The facility ordinal
+     * @param profile The cost profile of the item
+     * @return The cost in minutes, or {@link FacilityCostModel#UNREACHABLE} if the facility is down
      */
-    private String chooseSortingArea(double weight) {
-        // Check if either sorting area is non-operational
-        if (!equipmentOperational.getOrDefault("SORTING_AREA_A", true)) {
-            return "SORTING_AREA_B";
-        }
-        
-        if (!equipmentOperational.getOrDefault("SORTING_AREA_B", true)) {
-            return "SORTING_AREA_A";
+    private double enterCost(int facility, int profile) {
+        if (!operational[facility]) {
+            return FacilityCostModel.UNREACHABLE;
         }
         
-        int loadA = equipmentLoad.getOrDefault("SORTING_AREA_A", 0);
-        int loadB = equipmentLoad.getOrDefault("SORTING_AREA_B", 0);
+        double processingTime = topology.processingMinutes(facility);
+        double loadWeight = 1.0 + LOAD_AVERSION_PER_CLASS * FacilityCostModel.priorityClass(profile).ordinal();
+        double cost = processingTime * (1.0 + loadWeight * quantize(equipmentLoad.get(facility)) / 100.0)
+                + loadWeight * occupancyLevels.get(facility) / capacityPerMinute;
         
-        // Heavy items go to sorting area B unless it's significantly more loaded
-        if (weight > 20.0) {
-            return (loadB > loadA + 30) ? "SORTING_AREA_A" : "SORTING_AREA_B";
-        } else {
-            return (loadA > loadB + 30) ? "SORTING_AREA_B" : "SORTING_AREA_A";
+        int weightProfile = FacilityCostModel.weightProfile(profile);
+        FacilityTopology.Handling handling = topology.handling(facility);
+        if ((handling == FacilityTopology.Handling.LIGHT && weightProfile == FacilityCostModel.PROFILE_HEAVY)
+                || (handling == FacilityTopology.Handling.HEAVY && weightProfile == FacilityCostModel.PROFILE_LIGHT)) {
+            cost += processingTime * HANDLING_MISMATCH_PENALTY;
         }
+        return cost;
     }
     
     /**
-     * Extract region from destination string.
+     * Round a load down to the cost model's granularity.
      * 
-     * @param destination The destination
-     * @return The region
+     * @param load The load (0-100)
+     * @return The quantized load
      */
-    private String extractRegion(String destination) {
-        if (destination == null) {
-            return "SOUTH"; // Default region
+    private int quantize(double load) {
+        int whole = (int) load;
+        return whole - whole % loadQuantum;
+    }
+    
+    /**
+     * Propagate a facility's load to the cost model: mark its shortest paths for repair if it
+     * crossed a load level, and let the plan cache check its load buckets.
+     * 
+     * @param facility The facility ordinal
+     * @param load The current load
+     */
+    private void onLoadChanged(int facility, double load) {
+        int level = quantize(load);
+        if (loadLevels.getAndSet(facility, level) != level) {
+            shortestPaths.markDirty(facility);
         }
-        
-        String upperDestination = destination.toUpperCase();
-        
-        // First check if we have an exact match in our mapping
-        if (destinationToOutboundDock.containsKey(upperDestination)) {
-            return upperDestination;
+        planCache.onLoadChanged(facility, (int) load);
+    }
+    
+    /**
+     * Update the number of items at a facility, as counted from route step transitions.
+     * Shortest paths and cached plans through the facility are only marked outdated when
+     * the count crosses a multiple of the occupancy quantum.
+     * 
+     * @param facility The facility ordinal
+     * @param occupancy The number of in-flight items at the facility
+     */
+    public void updateOccupancy(int facility, long occupancy) {
+        long clamped = Math.max(0L, Math.min(occupancy, Integer.MAX_VALUE));
+        int level = (int) (clamped - clamped % occupancyQuantum);
+        if (occupancyLevels.getAndSet(facility, level) != level) {
+            shortestPaths.markDirty(facility);
+            planCache.invalidate(facility);
         }
-        
-        // Then check for region keywords
-        if (upperDestination.contains("NORTH")) return "NORTH";
-        if (upperDestination.contains("SOUTH")) return "SOUTH";
-        if (upperDestination.contains("EAST")) return "EAST";
-        if (upperDestination.contains("WEST")) return "WEST";
-        
-        // If no match, use the default region
-        return "SOUTH";
+    }
+    
+    /**
+     * Re-evaluate all facility loads so that decay is reflected in shortest paths and cached
+     * plans even when no new items are routed through a facility.
+     */
+    @Scheduled(fixedDelayString = "${routing.load.sweep-interval-ms:1000}")
+    public void refreshDecayedLoads() {
+        double[] loads = equipmentLoad.snapshot();
+        for (int facility = 0; facility < loads.length; facility++) {
+            onLoadChanged(facility, loads[facility]);
+        }
+    }
+    
+    /**
+     * Mark the shortest paths and cached plans through a facility as outdated.
+     * 
+     * @param facility The facility ordinal
+     */
+    private void markCostChanged(int facility) {
+        shortestPaths.markDirty(facility);
+        planCache.invalidate(facility);
+    }
+    
+    /**
+     * Takes back the load a planned route added, for an item that turned out to have a route
+     * already. The load is taken out of the deltas published to the other replicas as well.
+     * 
+     * @param plan The plan returned by {@link #planRoute}
+     */
+    public void releaseRoute(RoutePlan plan) {
+        updateEquipmentLoads(plan.getOrdinals(), -loadIncrement);
     }
     
     /**
      * Update equipment loads based on a new path.
      * 
-     * @param path The path to update loads for
+     * @param path The facility ordinals of the path to update loads for
      */
-    private void updateEquipmentLoads(List<String> path) {
-        for (String step : path) {
-            int currentLoad = equipmentLoad.getOrDefault(step, 0);
-            // Increment load by a small amount (1-3 units)
-            int increment = new Random().nextInt(3) + 1;
-            equipmentLoad.put(step, Math.min(currentLoad + increment, 100));
+    private void updateEquipmentLoads(int[] path) {
+        // Completed work is modelled by the tracker's decay, so only arrivals are recorded here
+        updateEquipmentLoads(path, loadIncrement);
+    }
+    
+    /**
+     * Add load to each facility on a path and to the deltas published to the other replicas.
+     * 
+     * @param path The facility ordinals of the path
+     * @param amount The load to add to each facility; negative to take load back
+     */
+    private void updateEquipmentLoads(int[] path, double amount) {
+        long delta = Math.round(amount * DELTA_SCALE);
+        for (int ordinal : path) {
+            onLoadChanged(ordinal, equipmentLoad.add(ordinal, amount));
+            pendingLoadDeltas.addAndGet(ordinal, delta);
         }
-        
-        // Simulate some load reduction on random facilities (natural completion of work)
-        for (int i = 0; i < 2; i++) {
-            String randomFacility = facilities.get(new Random().nextInt(facilities.size()));
-            int currentLoad = equipmentLoad.getOrDefault(randomFacility, 0);
-            if (currentLoad > 5) {
-                // Reduce by 1-5 units
-                int reduction = new Random().nextInt(5) + 1;
-                equipmentLoad.put(randomFacility, Math.max(currentLoad - reduction, 0));
-            }
+    }
+    
+    /**
+     * Take the load added by items routed here since the last call, to publish to the other replicas.
+     * 
+     * @return The added load, indexed by facility ordinal
+     */
+    public double[] drainLoadDeltas() {
+        double[] deltas = new double[pendingLoadDeltas.length()];
+        for (int facility = 0; facility < deltas.length; facility++) {
+            deltas[facility] = pendingLoadDeltas.getAndSet(facility, 0L) / DELTA_SCALE;
         }
+        return deltas;
+    }
+    
+    /**
+     * Add load routed to a facility by another replica.
+     * 
+     * @param facility The facility name
+     * @param delta The added load
+     */
+    public void applyLoadDelta(String facility, double delta) {
+        int ordinal = topology.ordinalOf(facility);
+        if (ordinal >= 0 && delta != 0.0) {
+            onLoadChanged(ordinal, equipmentLoad.add(ordinal, delta));
+        }
+    }
+    
+    /**
+     * Restore the state of a facility as last published, without applying the load changes
+     * that go with a status change.
+     * 
+     * @param facility The facility name
+     * @param isOperational Whether the facility is operational
+     * @param load The published load
+     * @param ageMillis How long ago the state was published
+     */
+    public void restoreEquipmentState(String facility, boolean isOperational, double load, long ageMillis) {
+        int ordinal = topology.ordinalOf(facility);
+        if (ordinal < 0) {
+            return;
+        }
+        if (operational[ordinal] != isOperational) {
+            operational[ordinal] = isOperational;
+            markCostChanged(ordinal);
+        }
+        onLoadChanged(ordinal, equipmentLoad.set(ordinal, load, ageMillis));
     }
     
     /**
@@ -232,26 +478,73 @@ public class OptimalPathFinder {
     public void updateEquipmentStatus(String equipment, boolean isOperational) {
         log.info("Updating equipment status for {}: operational = {}", equipment, isOperational);
         
-        equipmentOperational.put(equipment, isOperational);
+        int ordinal = topology.ordinalOf(equipment);
+        if (ordinal < 0) {
+            // Facilities of the other sites are handled by their own path finders
+            log.debug("Ignoring status of equipment {} outside the topology", equipment);
+            return;
+        }
+        operational[ordinal] = isOperational;
+        markCostChanged(ordinal);
         
         // If equipment is not operational, set its load to maximum to prevent routing
         if (!isOperational) {
-            equipmentLoad.put(equipment, 100);
+            setLoad(ordinal, EquipmentLoadTracker.MAX_LOAD);
             log.warn("Equipment {} is now non-operational", equipment);
         } else {
             // Reset to a moderate load when equipment becomes operational again
-            equipmentLoad.put(equipment, 20);
+            setLoad(ordinal, 20);
             log.info("Equipment {} is now operational", equipment);
         }
     }
     
     /**
-     * Get the current load status of all equipment.
+     * Overwrite the load of a facility.
+     * 
+     * @param facility The facility ordinal, ignored if negative
+     * @param load The new load
+     */
+    private void setLoad(int facility, double load) {
+        if (facility >= 0) {
+            equipmentLoad.set(facility, load);
+            onLoadChanged(facility, load);
+        }
+    }
+    
+    /**
+     * Get the current load status of all equipment, read as a single consistent snapshot.
      * 
      * @return A map of equipment to load
      */
     public Map<String, Integer> getEquipmentLoadStatus() {
-        return new HashMap<>(equipmentLoad);
+        double[] loads = equipmentLoad.snapshot();
+        Map<String, Integer> status = new HashMap<>();
+        for (int facility = 0; facility < loads.length; facility++) {
+            status.put(topology.nameOf(facility), (int) Math.round(loads[facility]));
+        }
+        return status;
+    }
+    
+    /**
+     * Get the current load of a facility.
+     * 
+     * @param facility The facility name
+     * @return The load, or 0 for unknown facilities
+     */
+    public double getLoad(String facility) {
+        int ordinal = topology.ordinalOf(facility);
+        return ordinal >= 0 ? equipmentLoad.get(ordinal) : 0.0;
+    }
+    
+    /**
+     * Check whether a facility is operational.
+     * 
+     * @param facility The facility name
+     * @return True unless the facility has been marked non-operational
+     */
+    public boolean isOperational(String facility) {
+        int ordinal = topology.ordinalOf(facility);
+        return ordinal < 0 || operational[ordinal];
     }
     
     /**
@@ -260,7 +553,59 @@ public class OptimalPathFinder {
      * @return A map of equipment to operational status
      */
     public Map<String, Boolean> getEquipmentOperationalStatus() {
-        return new HashMap<>(equipmentOperational);
+        Map<String, Boolean> status = new HashMap<>();
+        for (int facility = 0; facility < operational.length; facility++) {
+            status.put(topology.nameOf(facility), operational[facility]);
+        }
+        return status;
+    }
+    
+    /**
+     * Get the outbound dock serving a destination.
+     * 
+     * @param destination The destination
+     * @return The outbound dock name
+     */
+    public String resolveOutboundDock(String destination) {
+        return topology.nameOf(destinationIndex.resolve(destination));
+    }
+    
+    /**
+     * Load the bundled destination mappings, or send everything to the first outbound dock if
+     * they refer to docks the topology does not have.
+     */
+    private static DestinationIndex initialDestinationIndex(FacilityTopology topology) {
+        try {
+            return DestinationIndex.defaultIndex(topology);
+        } catch (IllegalArgumentException e) {
+            log.warn("Bundled destination index does not match the topology: {}", e.getMessage());
+            for (int facility = 0; facility < topology.size(); facility++) {
+                if (topology.isOutboundDock(facility)) {
+                    return DestinationIndex.builder(topology).defaultDock(topology.nameOf(facility)).build();
+                }
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Replace the destination index. Items routed concurrently see either the old or the new
+     * index, never a mix of both.
+     * 
+     * @param index The new destination index, built against this path finder's topology
+     */
+    public void setDestinationIndex(DestinationIndex index) {
+        this.destinationIndex = index;
+        log.info("Destination index replaced: {} rules", index.size());
+    }
+    
+    /**
+     * Get the cache of route plans, for metrics.
+     * 
+     * @return The route plan cache
+     */
+    public RoutePlanCache getPlanCache() {
+        return planCache;
     }
     
     /**
@@ -269,6 +614,6 @@ public class OptimalPathFinder {
      * @return List of facilities
      */
     public List<String> getAllFacilities() {
-        return new ArrayList<>(facilities);
+        return new ArrayList<>(topology.facilityNames());
     }
 }
@@ -0,0 +1,114 @@
+package com.micrologistics.routing.algorithm;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Tuning parameters of the {@link OptimalPathFinder}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PathFinderSettings {
+    
+    /**
+     * Loads are rounded down to a multiple of this before entering the cost model.
+     */
+    @Builder.Default
+    private int loadQuantum = 5;
+    
+    /**
+     * Facility occupancy is rounded down to a multiple of this before entering the cost model.
+     */
+    @Builder.Default
+    private int occupancyQuantum = 10;
+    
+    /**
+     * Load added to every facility on a routed item's path.
+     */
+    @Builder.Default
+    private double loadIncrement = 2.0;
+    
+    /**
+     * Time for a facility's load to halve as queued work is completed.
+     */
+    @Builder.Default
+    private double loadHalfLifeSeconds = 120.0;
+    
+    /**
+     * Maximum number of cached route plans.
+     */
+    @Builder.Default
+    private long planCacheMaximumSize = 10_000;
+    
+    /**
+     * Width of the load buckets whose crossing invalidates cached route plans.
+     */
+    @Builder.Default
+    private int planCacheLoadBucket = 10;
+    
+    /**
+     * Width, in weight units, of the weight bands route plans are cached by.
+     */
+    @Builder.Default
+    private double planCacheWeightBand = 5.0;
+    
+    /**
+     * Seed of the initial equipment loads, for reproducible runs; null for a random seed.
+     */
+    private Long loadSeed;
+    
+    /**
+     * Number of items each facility can start processing per minute.
+     */
+    @Builder.Default
+    private int reservationCapacityPerMinute = 10;
+    
+    /**
+     * How far ahead, in minutes, facility slots can be reserved.
+     */
+    @Builder.Default
+    private int reservationHorizonMinutes = 1440;
+    
+    /**
+     * Slots per minute held back at each facility for every priority class above an item's own.
+     */
+    @Builder.Default
+    private int reservationPriorityHeadroom = 2;
+    
+    /**
+     * Maximum number of items waiting in each facility's queue for one priority class.
+     */
+    @Builder.Default
+    private int dispatchQueueCapacity = 10_000;
+    
+    /**
+     * Weight of a new sample in the moving averages of the time spent at each facility.
+     */
+    @Builder.Default
+    private double durationSmoothing = 0.05;
+    
+    /**
+     * Number of recorded step durations a facility needs before they replace its configured processing time.
+     */
+    @Builder.Default
+    private int durationMinSamples = 20;
+    
+    /**
+     * Step durations above this many minutes are not recorded.
+     */
+    @Builder.Default
+    private double durationMaxMinutes = 1440.0;
+    
+    /**
+     * Create settings with all defaults.
+     * 
+     * @return The default settings
+     */
+    public static PathFinderSettings defaults() {
+        return PathFinderSettings.builder().build();
+    }
+}
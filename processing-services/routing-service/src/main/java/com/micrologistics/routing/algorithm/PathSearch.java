@@ -0,0 +1,117 @@
+package com.micrologistics.routing.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Dijkstra shortest-path search over a {@link FacilityTopology}.
+ *
+ * Each thread keeps its own scratch arrays sized to the topology, and entries are
+ * invalidated with a generation stamp rather than cleared, so a search only touches the
+ * facilities it actually visits and does not allocate once the scratch space exists.
+ */
+public final class PathSearch {
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private PathSearch() {
+    }
+
+    /**
+     * Find the cheapest path between two facilities.
+     *
+     * @param topology The facility topology
+     * @param costModel The cost of entering each facility
+     * @param source The ordinal of the start facility
+     * @param target The ordinal of the destination facility
+     * @param profile The cost profile of the item
+     * @param pathOut Receives the ordinals of the path, source first; must hold topology.size() entries
+     * @return The number of facilities written to pathOut, or 0 if the target is unreachable
+     */
+    public static int shortestPath(FacilityTopology topology, FacilityCostModel costModel,
+            int source, int target, int profile, int[] pathOut) {
+        Scratch s = SCRATCH.get();
+        s.prepare(topology.size());
+        int stamp = s.stamp;
+
+        s.visit(source, stamp, 0.0, -1);
+        s.heap.offer(source);
+
+        while (!s.heap.isEmpty()) {
+            int u = s.heap.poll();
+            if (u == target) {
+                break;
+            }
+            s.settled[u] = stamp;
+            double du = s.dist[u];
+            for (int e = topology.outStart(u), end = topology.outEnd(u); e < end; e++) {
+                int v = topology.outTarget(e);
+                if (s.settled[v] == stamp) {
+                    continue;
+                }
+                double cost = costModel.enterCost(v, profile);
+                if (cost == FacilityCostModel.UNREACHABLE) {
+                    continue;
+                }
+                double candidate = du + topology.outTransferMinutes(e) + cost;
+                if (s.seen[v] != stamp) {
+                    s.visit(v, stamp, candidate, u);
+                    s.heap.offer(v);
+                } else if (candidate < s.dist[v]) {
+                    s.dist[v] = candidate;
+                    s.prev[v] = u;
+                    s.heap.offer(v);
+                }
+            }
+        }
+
+        if (s.seen[target] != stamp) {
+            return 0;
+        }
+        int length = 0;
+        for (int v = target; v >= 0; v = s.prev[v]) {
+            pathOut[length++] = v;
+        }
+        for (int i = 0, j = length - 1; i < j; i++, j--) {
+            int tmp = pathOut[i];
+            pathOut[i] = pathOut[j];
+            pathOut[j] = tmp;
+        }
+        return length;
+    }
+
+    /**
+     * Per-thread search state: distances, predecessors and an indexed binary heap.
+     */
+    private static final class Scratch {
+
+        private double[] dist = new double[0];
+        private int[] prev = new int[0];
+        private int[] seen = new int[0];
+        private int[] settled = new int[0];
+        private IndexedMinHeap heap = new IndexedMinHeap(0);
+        private int stamp;
+
+        void prepare(int size) {
+            if (dist.length < size) {
+                dist = new double[size];
+                prev = new int[size];
+                seen = new int[size];
+                settled = new int[size];
+                heap = new IndexedMinHeap(size);
+                stamp = 0;
+            }
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(seen, 0);
+                Arrays.fill(settled, 0);
+                stamp = 1;
+            }
+            heap.reset(dist);
+        }
+
+        void visit(int v, int currentStamp, double distance, int predecessor) {
+            seen[v] = currentStamp;
+            dist[v] = distance;
+            prev[v] = predecessor;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.micrologistics.routing.algorithm;
+
+/**
+ * Service classes items are dispatched by, from least to most urgent.
+ *
+ * Item priorities are integers where higher means more urgent; they are folded into a
+ * small number of classes so that queues, reserved capacity and cached plans are shared by
+ * items that are treated alike.
+ */
+public enum PriorityClass {
+
+    /**
+     * Bulk freight, priority 0 or below.
+     */
+    BULK,
+
+    /**
+     * Regular parcels, priority 1 (the default).
+     */
+    STANDARD,
+
+    /**
+     * Express items, priority 2 and above.
+     */
+    EXPRESS;
+
+    private static final PriorityClass[] VALUES = values();
+
+    /**
+     * Get the class of an item priority.
+     *
+     * @param priority The item priority, or null for the default
+     * @return The priority class
+     */
+    public static PriorityClass of(Integer priority) {
+        if (priority == null) {
+            return STANDARD;
+        }
+        if (priority <= 0) {
+            return BULK;
+        }
+        return priority == 1 ? STANDARD : EXPRESS;
+    }
+
+    /**
+     * Get the class at an ordinal.
+     *
+     * @param ordinal The ordinal
+     * @return The priority class
+     */
+    public static PriorityClass ofOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * Get the number of classes above this one.
+     *
+     * @return The number of more urgent classes
+     */
+    public int levelsBelowTop() {
+        return VALUES.length - 1 - ordinal();
+    }
+}
@@ -0,0 +1,513 @@
+package com.micrologistics.routing.algorithm;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-facility calendar of processing slots, used to predict when an item will actually
+ * be processed at each station of its path.
+ *
+ * Each facility has a ring buffer of one-minute buckets covering the reservation horizon.
+ * A bucket is a single 64-bit cell packing the absolute minute it refers to with the number
+ * of items reserved to start processing in that minute, so reserving and releasing are a
+ * compare-and-set and buckets that have fallen behind the clock are recycled implicitly.
+ *
+ * Reservations are dropped once the item is expected to have left its last facility more
+ * than a horizon ago, so items completed on another replica, or that never finish, do not
+ * stay in the calendar. Items are filed under the minute their reservation finishes, so
+ * dropping them only visits the minutes that have expired rather than every reservation.
+ *
+ * Reserving a path walks it in order: the item arrives at a facility when it leaves the
+ * previous one, starts in the first minute with spare capacity, and leaves after the
+ * facility's processing time plus the conveyor transfer time.
+ *
+ * Part of every minute's capacity can be held back for more urgent items: an item may only
+ * fill a bucket up to the capacity less the headroom of each {@link PriorityClass} above its
+ * own, so express items still find early slots when bulk freight has booked the calendar.
+ */
+public final class ReservationCalendar {
+
+    private static final int COUNT_BITS = 16;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final double MILLIS_PER_MINUTE = 60_000.0;
+    private static final long NOT_RESERVED = -1L;
+
+    private final FacilityTopology topology;
+    private final int capacityPerMinute;
+    private final int priorityHeadroom;
+    private final int horizonMinutes;
+    private final AtomicLongArray buckets;
+    private final LongSupplier clock;
+    private final IntToDoubleFunction processingMinutes;
+
+    // Reserved buckets by item, so they can be released when the item moves on
+    private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+    // IDs of the items whose reservation finishes in each minute; entries of reservations
+    // that have since been replaced or released are skipped when their minute expires
+    private final ConcurrentSkipListMap<Long, Set<String>> itemsByFinishMinute = new ConcurrentSkipListMap<>();
+    // The last minute expired reservations were dropped in
+    private final AtomicLong expiredMinute = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Create a calendar driven by the system clock.
+     *
+     * @param topology The facility topology
+     * @param capacityPerMinute The number of items each facility can start per minute
+     * @param horizonMinutes How far ahead slots can be reserved
+     */
+    public ReservationCalendar(FacilityTopology topology, int capacityPerMinute, int horizonMinutes) {
+        this(topology, capacityPerMinute, horizonMinutes, System::currentTimeMillis);
+    }
+
+    /**
+     * Create a calendar driven by the given clock.
+     *
+     * @param topology The facility topology
+     * @param capacityPerMinute The number of items each facility can start per minute
+     * @param horizonMinutes How far ahead slots can be reserved
+     * @param clock Source of the current time in milliseconds
+     */
+    public ReservationCalendar(FacilityTopology topology, int capacityPerMinute, int horizonMinutes,
+            LongSupplier clock) {
+        this(topology, capacityPerMinute, 0, horizonMinutes, clock);
+    }
+
+    /**
+     * Create a calendar that holds capacity back for more urgent items.
+     *
+     * @param topology The facility topology
+     * @param capacityPerMinute The number of items each facility can start per minute
+     * @param priorityHeadroom The slots per minute held back for each more urgent priority class
+     * @param horizonMinutes How far ahead slots can be reserved
+     * @param clock Source of the current time in milliseconds
+     */
+    public ReservationCalendar(FacilityTopology topology, int capacityPerMinute, int priorityHeadroom,
+            int horizonMinutes, LongSupplier clock) {
+        this(topology, capacityPerMinute, priorityHeadroom, horizonMinutes, clock, topology::processingMinutes);
+    }
+
+    /**
+     * Create a calendar that takes the time items stay at each facility from the given function
+     * instead of the topology's processing times.
+     *
+     * @param topology The facility topology
+     * @param capacityPerMinute The number of items each facility can start per minute
+     * @param priorityHeadroom The slots per minute held back for each more urgent priority class
+     * @param horizonMinutes How far ahead slots can be reserved
+     * @param clock Source of the current time in milliseconds
+     * @param processingMinutes The time, in minutes, an item stays at a facility, by facility ordinal
+     */
+    public ReservationCalendar(FacilityTopology topology, int capacityPerMinute, int priorityHeadroom,
+            int horizonMinutes, LongSupplier clock, IntToDoubleFunction processingMinutes) {
+        if (capacityPerMinute < 1 || capacityPerMinute > COUNT_MASK) {
+            throw new IllegalArgumentException("Invalid capacity per minute: " + capacityPerMinute);
+        }
+        if (priorityHeadroom < 0) {
+            throw new IllegalArgumentException("Invalid priority headroom: " + priorityHeadroom);
+        }
+        this.topology = topology;
+        this.capacityPerMinute = capacityPerMinute;
+        this.priorityHeadroom = priorityHeadroom;
+        this.horizonMinutes = Math.max(1, horizonMinutes);
+        this.buckets = new AtomicLongArray(topology.size() * this.horizonMinutes);
+        this.clock = clock;
+        this.processingMinutes = processingMinutes;
+    }
+
+    /**
+     * Reserve processing slots for an item along its path, replacing any reservation the
+     * item already holds. The item may use the full capacity of every minute.
+     *
+     * @param itemId The item ID
+     * @param path The facility ordinals of the item's path, in order
+     * @return The predicted time, in minutes from now, until the item leaves the last facility
+     */
+    public double reserve(String itemId, int[] path) {
+        return reserve(itemId, path, PriorityClass.EXPRESS);
+    }
+
+    /**
+     * Reserve processing slots for an item along its path, replacing any reservation the
+     * item already holds.
+     *
+     * Facilities without spare capacity for the item's priority class within the horizon are
+     * not reserved; the item is assumed to start there as soon as it arrives.
+     *
+     * @param itemId The item ID
+     * @param path The facility ordinals of the item's path, in order
+     * @param priority The priority class of the item
+     * @return The predicted time, in minutes from now, until the item leaves the last facility
+     */
+    public double reserve(String itemId, int[] path, PriorityClass priority) {
+        double now = clock.getAsLong() / MILLIS_PER_MINUTE;
+        Reservation reservation = claim(path, now, capacityFor(priority));
+        Reservation previous = reservations.put(itemId, reservation);
+        fileUnderFinishMinute(itemId, reservation);
+        if (previous != null) {
+            previous.releaseBefore(this, previous.facilities.length);
+        }
+        return reservation.finishMinute - now;
+    }
+
+    /**
+     * Reserve processing slots for an item along its path, unless the item already holds a
+     * reservation, which is then left untouched. The item may use the full capacity of every
+     * minute.
+     *
+     * @param itemId The item ID
+     * @param path The facility ordinals of the item's path, in order
+     * @return The predicted time, in minutes from now, until the item leaves the last facility,
+     *         or NaN if the item already holds a reservation
+     */
+    public double reserveIfAbsent(String itemId, int[] path) {
+        return reserveIfAbsent(itemId, path, PriorityClass.EXPRESS);
+    }
+
+    /**
+     * Reserve processing slots for an item along its path, unless the item already holds a
+     * reservation, which is then left untouched.
+     *
+     * @param itemId The item ID
+     * @param path The facility ordinals of the item's path, in order
+     * @param priority The priority class of the item
+     * @return The predicted time, in minutes from now, until the item leaves the last facility,
+     *         or NaN if the item already holds a reservation
+     */
+    public double reserveIfAbsent(String itemId, int[] path, PriorityClass priority) {
+        if (reservations.containsKey(itemId)) {
+            return Double.NaN;
+        }
+        double now = clock.getAsLong() / MILLIS_PER_MINUTE;
+        Reservation reservation = claim(path, now, capacityFor(priority));
+        if (reservations.putIfAbsent(itemId, reservation) != null) {
+            // Lost a race with another reservation for the same item
+            reservation.releaseBefore(this, reservation.facilities.length);
+            return Double.NaN;
+        }
+        fileUnderFinishMinute(itemId, reservation);
+        return reservation.finishMinute - now;
+    }
+
+    /**
+     * Replace the reservation of an item whose path changed part-way, reserving slots for the
+     * steps from its current one onwards. Step indexes keep referring to the whole path, so
+     * passed steps can still be released by index.
+     *
+     * @param itemId The item ID
+     * @param path The facility ordinals of the item's whole path, in order
+     * @param fromStep The index of the item's current step
+     * @param priority The priority class of the item
+     * @return The predicted time, in minutes from now, until the item leaves the last facility
+     */
+    public double rebook(String itemId, int[] path, int fromStep, PriorityClass priority) {
+        Booking booking = book(path, fromStep, priority);
+        confirm(itemId, booking);
+        return booking.getMinutes();
+    }
+
+    /**
+     * Reserve slots for the steps of a changed path from the current one onwards, without
+     * touching the reservation the item holds. The booking replaces that reservation once it
+     * is confirmed, or gives its slots back once it is cancelled, so a path change that may
+     * still be rejected leaves the item's slots as they were.
+     *
+     * @param path The facility ordinals of the item's whole path, in order
+     * @param fromStep The index of the item's current step
+     * @param priority The priority class of the item
+     * @return The booking, to confirm or cancel
+     */
+    public Booking book(int[] path, int fromStep, PriorityClass priority) {
+        int from = Math.max(0, Math.min(fromStep, path.length));
+        double now = clock.getAsLong() / MILLIS_PER_MINUTE;
+        Reservation remaining = claim(Arrays.copyOfRange(path, from, path.length), now, capacityFor(priority));
+        long[] minutes = new long[path.length];
+        Arrays.fill(minutes, 0, from, NOT_RESERVED);
+        System.arraycopy(remaining.minutes, 0, minutes, from, remaining.minutes.length);
+        return new Booking(new Reservation(path.clone(), minutes, remaining.finishMinute),
+                remaining.finishMinute - now);
+    }
+
+    /**
+     * Make a booking the reservation of an item, releasing the reservation it replaces.
+     * Bookings already confirmed or cancelled are ignored.
+     *
+     * @param itemId The item ID
+     * @param booking The booking
+     */
+    public void confirm(String itemId, Booking booking) {
+        if (!booking.settle()) {
+            return;
+        }
+        Reservation previous = reservations.put(itemId, booking.reservation);
+        fileUnderFinishMinute(itemId, booking.reservation);
+        if (previous != null) {
+            previous.releaseBefore(this, previous.facilities.length);
+        }
+    }
+
+    /**
+     * Give back the slots of a booking that will not be confirmed. Bookings already confirmed
+     * or cancelled are ignored.
+     *
+     * @param booking The booking
+     */
+    public void cancel(Booking booking) {
+        if (booking.settle()) {
+            booking.reservation.releaseBefore(this, booking.reservation.facilities.length);
+        }
+    }
+
+    /**
+     * Release the slots an item reserved at the facilities before a step of its path, once
+     * it has moved past them.
+     *
+     * @param itemId The item ID
+     * @param stepIndex The index of the item's current step
+     */
+    public void releasePassedSteps(String itemId, int stepIndex) {
+        Reservation reservation = reservations.get(itemId);
+        if (reservation != null) {
+            reservation.releaseBefore(this, stepIndex);
+        }
+    }
+
+    /**
+     * Release all slots reserved by an item.
+     *
+     * @param itemId The item ID
+     * @return True if the item held a reservation
+     */
+    public boolean release(String itemId) {
+        Reservation reservation = reservations.remove(itemId);
+        if (reservation == null) {
+            return false;
+        }
+        reservation.releaseBefore(this, reservation.facilities.length);
+        return true;
+    }
+
+    /**
+     * Get the number of items reserved to start at a facility in a minute.
+     *
+     * @param facility The facility ordinal
+     * @param epochMinute The minute, counted from the epoch
+     * @return The number of reservations
+     */
+    public int reserved(int facility, long epochMinute) {
+        long cell = buckets.get(index(facility, epochMinute));
+        return minute(cell) == epochMinute ? count(cell) : 0;
+    }
+
+    /**
+     * Check whether an item holds a reservation.
+     *
+     * @param itemId The item ID
+     * @return True if the item holds a reservation
+     */
+    public boolean isReserved(String itemId) {
+        return reservations.containsKey(itemId);
+    }
+
+    /**
+     * Get the number of items holding reservations.
+     *
+     * @return The item count
+     */
+    public int size() {
+        return reservations.size();
+    }
+
+    /**
+     * Get the number of items of a priority class that may start at a facility per minute.
+     */
+    private int capacityFor(PriorityClass priority) {
+        return Math.max(1, capacityPerMinute - priority.levelsBelowTop() * priorityHeadroom);
+    }
+
+    /**
+     * Claim a slot at every facility of a path, walking it in order from the given time.
+     */
+    private Reservation claim(int[] path, double now, int capacity) {
+        advanceTo((long) Math.floor(now));
+        long[] minutes = new long[path.length];
+        double time = now;
+        for (int i = 0; i < path.length; i++) {
+            int facility = path[i];
+            long arrival = (long) Math.floor(time);
+            long slot = reserveFrom(facility, arrival, (long) Math.floor(now) + horizonMinutes, capacity);
+            minutes[i] = slot;
+            double start = slot > arrival ? slot : time;
+            time = start + processingMinutes.applyAsDouble(facility);
+            if (i + 1 < path.length) {
+                time += transferMinutes(facility, path[i + 1]);
+            }
+        }
+        return new Reservation(path.clone(), minutes, time);
+    }
+
+    /**
+     * Drop the reservations that finished more than a horizon before the given minute, at most
+     * once a minute. Their buckets have all been recycled by then, so there is nothing left to
+     * release. Only the items filed under the expired minutes are visited.
+     */
+    private void advanceTo(long minute) {
+        long expired = expiredMinute.get();
+        if (minute <= expired || !expiredMinute.compareAndSet(expired, minute)) {
+            return;
+        }
+        long cutoff = minute - horizonMinutes;
+        for (Map.Entry<Long, Set<String>> entry = itemsByFinishMinute.firstEntry();
+                entry != null && entry.getKey() < cutoff; entry = itemsByFinishMinute.firstEntry()) {
+            itemsByFinishMinute.remove(entry.getKey());
+            for (String itemId : entry.getValue()) {
+                reservations.computeIfPresent(itemId,
+                        (id, reservation) -> finishMinute(reservation) < cutoff ? null : reservation);
+            }
+        }
+    }
+
+    /**
+     * File an item under the minute its new reservation finishes in. Reservations finish after
+     * the current minute, so they are never filed under a minute that is being dropped.
+     */
+    private void fileUnderFinishMinute(String itemId, Reservation reservation) {
+        itemsByFinishMinute.computeIfAbsent(finishMinute(reservation), minute -> ConcurrentHashMap.newKeySet())
+                .add(itemId);
+    }
+
+    private static long finishMinute(Reservation reservation) {
+        return (long) Math.floor(reservation.finishMinute);
+    }
+
+    /**
+     * Claim a slot in the first minute from the given one with fewer than the given number of
+     * reservations.
+     *
+     * @return The reserved minute, or {@link #NOT_RESERVED} if the facility is full up to the limit
+     */
+    private long reserveFrom(int facility, long fromMinute, long limitMinute, int capacity) {
+        for (long minute = fromMinute; minute < limitMinute; minute++) {
+            int index = index(facility, minute);
+            while (true) {
+                long cell = buckets.get(index);
+                long cellMinute = minute(cell);
+                if (cellMinute > minute) {
+                    // Already recycled for a later minute, so this one is in the past
+                    break;
+                }
+                int count = cellMinute == minute ? count(cell) : 0;
+                if (count >= capacity) {
+                    break;
+                }
+                if (buckets.compareAndSet(index, cell, pack(minute, count + 1))) {
+                    return minute;
+                }
+            }
+        }
+        return NOT_RESERVED;
+    }
+
+    private void releaseSlot(int facility, long minute) {
+        int index = index(facility, minute);
+        while (true) {
+            long cell = buckets.get(index);
+            if (minute(cell) != minute || count(cell) == 0) {
+                // The bucket has already been recycled
+                return;
+            }
+            if (buckets.compareAndSet(index, cell, pack(minute, count(cell) - 1))) {
+                return;
+            }
+        }
+    }
+
+    private double transferMinutes(int from, int to) {
+        for (int e = topology.outStart(from), end = topology.outEnd(from); e < end; e++) {
+            if (topology.outTarget(e) == to) {
+                return topology.outTransferMinutes(e);
+            }
+        }
+        return 0.0;
+    }
+
+    private int index(int facility, long minute) {
+        return facility * horizonMinutes + (int) Math.floorMod(minute, (long) horizonMinutes);
+    }
+
+    private static long pack(long minute, int count) {
+        return (minute << COUNT_BITS) | count;
+    }
+
+    private static long minute(long cell) {
+        return cell >>> COUNT_BITS;
+    }
+
+    private static int count(long cell) {
+        return (int) (cell & COUNT_MASK);
+    }
+
+    /**
+     * Slots reserved for a changed path that has not yet replaced the item's reservation.
+     */
+    public static final class Booking {
+
+        private final Reservation reservation;
+        private final double minutes;
+        private boolean settled;
+
+        private Booking(Reservation reservation, double minutes) {
+            this.reservation = reservation;
+            this.minutes = minutes;
+        }
+
+        /**
+         * Get the predicted time until the item leaves the last facility of the path.
+         *
+         * @return The time, in minutes from when the booking was made
+         */
+        public double getMinutes() {
+            return minutes;
+        }
+
+        private synchronized boolean settle() {
+            if (settled) {
+                return false;
+            }
+            settled = true;
+            return true;
+        }
+    }
+
+    /**
+     * The buckets reserved by one item; released entries are marked {@link #NOT_RESERVED}.
+     */
+    private static final class Reservation {
+
+        private final int[] facilities;
+        private final long[] minutes;
+        private final double finishMinute;
+
+        private Reservation(int[] facilities, long[] minutes, double finishMinute) {
+            this.facilities = facilities;
+            this.minutes = minutes;
+            this.finishMinute = finishMinute;
+        }
+
+        synchronized void releaseBefore(ReservationCalendar calendar, int stepIndex) {
+            int end = Math.min(stepIndex, minutes.length);
+            for (int i = 0; i < end; i++) {
+                if (minutes[i] != NOT_RESERVED) {
+                    calendar.releaseSlot(facilities[i], minutes[i]);
+                    minutes[i] = NOT_RESERVED;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.micrologistics.routing.algorithm;
+
+import java.util.Collections;
+import java.util.List;
+
+import lombok.Getter;
+
+/**
+ * A computed route through the facility graph together with its estimated processing time.
+ * Plans are immutable. Cached plans carry only the path, which is shared between all items
+ * that map to the same cache key; the estimate depends on when the item is planned, so each
+ * item gets a copy with its own estimate.
+ */
+@Getter
+public final class RoutePlan {
+    
+    /**
+     * Plan returned when no operational path exists.
+     */
+    public static final RoutePlan EMPTY = new RoutePlan(Collections.emptyList(), new int[0], 0.0, -1, 0L);
+    
+    private final List<String> steps;
+    
+    private final double estimatedTimeMinutes;
+    
+    // Facility ordinals of the steps, used to account load without name lookups
+    private final int[] ordinals;
+    
+    // Outbound dock the plan leads to, and that dock's plan generation when it was computed
+    private final int outboundDock;
+    private final long generation;
+    
+    /**
+     * Create a route plan.
+     * 
+     * @param steps The facility names of the path
+     * @param ordinals The facility ordinals of the path
+     * @param estimatedTimeMinutes The estimated processing time
+     * @param outboundDock The ordinal of the outbound dock
+     * @param generation The plan generation of the dock when the plan was computed
+     */
+    public RoutePlan(List<String> steps, int[] ordinals, double estimatedTimeMinutes, int outboundDock, long generation) {
+        this.steps = Collections.unmodifiableList(steps);
+        this.ordinals = ordinals;
+        this.estimatedTimeMinutes = estimatedTimeMinutes;
+        this.outboundDock = outboundDock;
+        this.generation = generation;
+    }
+    
+    /**
+     * Copy this plan with another estimated processing time, sharing its path.
+     * 
+     * @param minutes The estimated processing time
+     * @return The plan
+     */
+    public RoutePlan withEstimatedTimeMinutes(double minutes) {
+        return new RoutePlan(steps, ordinals, minutes, outboundDock, generation);
+    }
+    
+    /**
+     * Check whether this plan contains a path.
+     * 
+     * @return True if no operational path was found
+     */
+    public boolean isEmpty() {
+        return steps.isEmpty();
+    }
+}
@@ -0,0 +1,206 @@
+package com.micrologistics.routing.algorithm;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Bounded cache of route plans keyed by outbound dock, weight band and priority class.
+ *
+ * Every outbound dock has a generation counter. A facility's load crossing a bucket
+ * boundary, or its operational status flipping, advances the generation of every dock it
+ * can route to; cached plans for those docks are then treated as stale and recomputed on
+ * their next lookup. Validation is a single comparison, independent of path length.
+ *
+ * Plans are cached without an estimated processing time, which depends on the hour an item
+ * is planned in and is computed for each item.
+ */
+public final class RoutePlanCache {
+
+    private final Cache<Long, RoutePlan> plans;
+    private final AtomicLongArray generations;
+    private final AtomicIntegerArray buckets;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // For each facility, the outbound docks reachable through it from the entry facility
+    private final int[][] docksByFacility;
+
+    private final int loadBucket;
+    private final double weightBand;
+
+    /**
+     * Create a cache for a topology.
+     *
+     * @param topology The facility topology
+     * @param settings The path finder settings
+     */
+    public RoutePlanCache(FacilityTopology topology, PathFinderSettings settings) {
+        this.plans = Caffeine.newBuilder()
+                .maximumSize(settings.getPlanCacheMaximumSize())
+                .recordStats()
+                .build();
+        this.generations = new AtomicLongArray(topology.size());
+        this.buckets = new AtomicIntegerArray(topology.size());
+        this.docksByFacility = relevantDocks(topology);
+        this.loadBucket = Math.max(1, settings.getPlanCacheLoadBucket());
+        this.weightBand = settings.getPlanCacheWeightBand() > 0 ? settings.getPlanCacheWeightBand() : 1.0;
+    }
+
+    /**
+     * Build the cache key of an item.
+     *
+     * @param outboundDock The ordinal of the outbound dock
+     * @param weight The item weight
+     * @param priority The priority class of the item
+     * @return The cache key
+     */
+    public long key(int outboundDock, double weight, PriorityClass priority) {
+        long band = Math.min((long) (Math.max(weight, 0.0) / weightBand), 0xFFFFFFL);
+        return ((long) outboundDock << 32) | (band << 8) | priority.ordinal();
+    }
+
+    /**
+     * Get the current plan generation of an outbound dock. Read this before computing a
+     * plan so that invalidations racing with the computation are not lost.
+     *
+     * @param outboundDock The ordinal of the outbound dock
+     * @return The generation
+     */
+    public long generation(int outboundDock) {
+        return generations.get(outboundDock);
+    }
+
+    /**
+     * Look up a plan that is still valid.
+     *
+     * @param key The cache key
+     * @return The plan, or null if absent or stale
+     */
+    public RoutePlan get(long key) {
+        RoutePlan plan = plans.getIfPresent(key);
+        if (plan != null && plan.getGeneration() != generations.get(plan.getOutboundDock())) {
+            plans.asMap().remove(key, plan);
+            return null;
+        }
+        return plan;
+    }
+
+    /**
+     * Store a plan.
+     *
+     * @param key The cache key
+     * @param plan The plan
+     */
+    public void put(long key, RoutePlan plan) {
+        plans.put(key, plan);
+    }
+
+    /**
+     * Record a facility's current load, invalidating plans if it crossed into another bucket.
+     *
+     * @param facility The facility ordinal
+     * @param load The current load
+     */
+    public void onLoadChanged(int facility, int load) {
+        int bucket = load / loadBucket;
+        if (buckets.getAndSet(facility, bucket) != bucket) {
+            invalidate(facility);
+        }
+    }
+
+    /**
+     * Invalidate all plans to docks reachable through a facility.
+     *
+     * @param facility The facility ordinal
+     */
+    public void invalidate(int facility) {
+        int[] docks = docksByFacility[facility];
+        for (int dock : docks) {
+            generations.incrementAndGet(dock);
+        }
+        if (docks.length > 0) {
+            invalidations.incrementAndGet();
+        }
+    }
+
+    /**
+     * Get the underlying cache, for metrics.
+     *
+     * @return The cache
+     */
+    public Cache<Long, RoutePlan> getCache() {
+        return plans;
+    }
+
+    /**
+     * Get the number of facility changes that invalidated plans.
+     *
+     * @return The invalidation count
+     */
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    private static int[][] relevantDocks(FacilityTopology topology) {
+        int size = topology.size();
+        boolean[] fromEntry = new boolean[size];
+        int[] queue = new int[size];
+        int tail = 0;
+        fromEntry[topology.entry()] = true;
+        queue[tail++] = topology.entry();
+        for (int head = 0; head < tail; head++) {
+            int u = queue[head];
+            for (int e = topology.outStart(u); e < topology.outEnd(u); e++) {
+                int v = topology.outTarget(e);
+                if (!fromEntry[v]) {
+                    fromEntry[v] = true;
+                    queue[tail++] = v;
+                }
+            }
+        }
+
+        int[] dockOrdinals = new int[size];
+        int dockCount = 0;
+        for (int f = 0; f < size; f++) {
+            if (topology.isOutboundDock(f)) {
+                dockOrdinals[dockCount++] = f;
+            }
+        }
+        boolean[][] reaches = new boolean[dockCount][size];
+        int[] counts = new int[size];
+        for (int d = 0; d < dockCount; d++) {
+            boolean[] toDock = reaches[d];
+            tail = 0;
+            toDock[dockOrdinals[d]] = true;
+            queue[tail++] = dockOrdinals[d];
+            for (int head = 0; head < tail; head++) {
+                int v = queue[head];
+                if (fromEntry[v]) {
+                    counts[v]++;
+                }
+                for (int e = topology.inStart(v); e < topology.inEnd(v); e++) {
+                    int u = topology.inSource(e);
+                    if (!toDock[u]) {
+                        toDock[u] = true;
+                        queue[tail++] = u;
+                    }
+                }
+            }
+        }
+
+        int[][] docks = new int[size][];
+        for (int f = 0; f < size; f++) {
+            docks[f] = new int[counts[f]];
+            int n = 0;
+            for (int d = 0; d < dockCount && n < counts[f]; d++) {
+                if (reaches[d][f]) {
+                    docks[f][n++] = dockOrdinals[d];
+                }
+            }
+        }
+        return docks;
+    }
+}
@@ -0,0 +1,389 @@
+package com.micrologistics.routing.algorithm;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Dynamic shortest paths from every facility to every outbound dock.
+ *
+ * One reverse shortest-path tree is kept per outbound dock and cost profile. Routing a new
+ * item only follows next-hop pointers, so a query costs O(path length). When the cost of
+ * entering a facility changes, the facility is marked dirty and the affected trees are
+ * repaired incrementally on the next {@link #refresh()}: cost decreases are propagated
+ * backwards from the facility, and cost increases only re-settle the subtree that routed
+ * through it.
+ *
+ * Repairs are serialized and work on copies of the trees they modify; readers always see
+ * a complete, immutable snapshot and never block.
+ */
+public final class ShortestPathTrees {
+
+    private final FacilityTopology topology;
+    private final FacilityCostModel costModel;
+    private final int profiles;
+
+    // Tree slot of each facility, or -1 for facilities that are not outbound docks
+    private final int[] treeByTarget;
+    private final int[] targets;
+
+    private final AtomicLongArray dirty;
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private final ReentrantLock repairLock = new ReentrantLock();
+
+    // Writer scratch space, guarded by repairLock
+    private final IndexedMinHeap heap;
+    private final boolean[] affected;
+    private final int[] affectedQueue;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Build the trees for all outbound docks of a topology.
+     *
+     * @param topology The facility topology
+     * @param costModel The cost of entering each facility
+     * @param profiles The number of cost profiles to maintain
+     */
+    public ShortestPathTrees(FacilityTopology topology, FacilityCostModel costModel, int profiles) {
+        this.topology = topology;
+        this.costModel = costModel;
+        this.profiles = profiles;
+
+        int size = topology.size();
+        this.treeByTarget = new int[size];
+        Arrays.fill(treeByTarget, -1);
+        int docks = 0;
+        for (int f = 0; f < size; f++) {
+            if (topology.isOutboundDock(f)) {
+                treeByTarget[f] = docks++;
+            }
+        }
+        this.targets = new int[docks];
+        for (int f = 0; f < size; f++) {
+            if (treeByTarget[f] >= 0) {
+                targets[treeByTarget[f]] = f;
+            }
+        }
+
+        this.dirty = new AtomicLongArray((size + 63) >>> 6);
+        this.heap = new IndexedMinHeap(size);
+        this.affected = new boolean[size];
+        this.affectedQueue = new int[size];
+
+        repairLock.lock();
+        try {
+            this.snapshot = build();
+        } finally {
+            repairLock.unlock();
+        }
+    }
+
+    /**
+     * Record that the cost of entering a facility may have changed.
+     *
+     * @param facility The facility ordinal
+     */
+    public void markDirty(int facility) {
+        long mask = 1L << (facility & 63);
+        dirty.getAndAccumulate(facility >>> 6, mask, (current, bit) -> current | bit);
+        pending.set(true);
+    }
+
+    /**
+     * Repair the trees for all facilities marked dirty since the last refresh.
+     * If another thread is already repairing, this returns immediately and callers keep
+     * using the current snapshot.
+     *
+     * @return True if a repair was performed
+     */
+    public boolean refresh() {
+        if (!pending.get() || !repairLock.tryLock()) {
+            return false;
+        }
+        try {
+            pending.set(false);
+            Snapshot current = snapshot;
+            Snapshot next = current.mutableCopy();
+            boolean changed = false;
+            for (int w = 0; w < dirty.length(); w++) {
+                long bits = dirty.getAndSet(w, 0L);
+                while (bits != 0) {
+                    int facility = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    changed |= applyCostChange(next, facility);
+                }
+            }
+            if (changed) {
+                snapshot = next;
+            }
+            return changed;
+        } finally {
+            repairLock.unlock();
+        }
+    }
+
+    /**
+     * Check whether cost changes are waiting to be repaired, or being repaired by another
+     * thread, so the current snapshot may not reflect them yet.
+     *
+     * @return True if the snapshot may be outdated
+     */
+    public boolean isStale() {
+        return pending.get() || (repairLock.isLocked() && !repairLock.isHeldByCurrentThread());
+    }
+
+    /**
+     * Check whether trees are maintained for a target facility.
+     *
+     * @param target The facility ordinal
+     * @return True if the facility is an outbound dock
+     */
+    public boolean hasTreeFor(int target) {
+        return target >= 0 && target < treeByTarget.length && treeByTarget[target] >= 0;
+    }
+
+    /**
+     * Get the cheapest path from a facility to an outbound dock.
+     *
+     * @param source The ordinal of the start facility
+     * @param target The ordinal of the outbound dock
+     * @param profile The cost profile of the item
+     * @param pathOut Receives the ordinals of the path, source first; must hold topology.size() entries
+     * @return The number of facilities written to pathOut, or 0 if the dock is unreachable
+     */
+    public int path(int source, int target, int profile, int[] pathOut) {
+        Snapshot s = snapshot;
+        int slot = slot(treeByTarget[target], profile);
+        double[] dist = s.dist[slot];
+        int[] next = s.next[slot];
+        if (dist[source] == FacilityCostModel.UNREACHABLE) {
+            return 0;
+        }
+        int length = 0;
+        int v = source;
+        while (v != target) {
+            if (v < 0 || length == pathOut.length - 1) {
+                return 0;
+            }
+            pathOut[length++] = v;
+            v = next[v];
+        }
+        pathOut[length++] = target;
+        return length;
+    }
+
+    /**
+     * Get the cost of the cheapest path from a facility to an outbound dock.
+     *
+     * @param source The ordinal of the start facility
+     * @param target The ordinal of the outbound dock
+     * @param profile The cost profile of the item
+     * @return The path cost, or {@link FacilityCostModel#UNREACHABLE}
+     */
+    public double distance(int source, int target, int profile) {
+        return snapshot.dist[slot(treeByTarget[target], profile)][source];
+    }
+
+    private int slot(int tree, int profile) {
+        return tree * profiles + profile;
+    }
+
+    private Snapshot build() {
+        int size = topology.size();
+        double[][] cost = new double[profiles][size];
+        for (int p = 0; p < profiles; p++) {
+            for (int f = 0; f < size; f++) {
+                cost[p][f] = costModel.enterCost(f, p);
+            }
+        }
+        double[][] dist = new double[targets.length * profiles][];
+        int[][] next = new int[targets.length * profiles][];
+        for (int t = 0; t < targets.length; t++) {
+            for (int p = 0; p < profiles; p++) {
+                int slot = slot(t, p);
+                dist[slot] = new double[size];
+                next[slot] = new int[size];
+                Arrays.fill(dist[slot], FacilityCostModel.UNREACHABLE);
+                Arrays.fill(next[slot], -1);
+                dist[slot][targets[t]] = 0.0;
+                heap.reset(dist[slot]);
+                heap.offer(targets[t]);
+                propagate(dist[slot], next[slot], cost[p], null);
+            }
+        }
+        return new Snapshot(dist, next, cost);
+    }
+
+    private boolean applyCostChange(Snapshot s, int facility) {
+        boolean changed = false;
+        for (int p = 0; p < profiles; p++) {
+            double oldCost = s.cost[p][facility];
+            double newCost = costModel.enterCost(facility, p);
+            if (Double.compare(oldCost, newCost) == 0) {
+                continue;
+            }
+            s.cost[p][facility] = newCost;
+            changed = true;
+            for (int t = 0; t < targets.length; t++) {
+                int slot = slot(t, p);
+                s.ensureOwned(slot);
+                if (newCost > oldCost) {
+                    repairIncrease(s.dist[slot], s.next[slot], s.cost[p], facility);
+                } else {
+                    repairDecrease(s.dist[slot], s.next[slot], s.cost[p], facility);
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Entering the facility became cheaper: offer it to its predecessors and propagate
+     * any improvement backwards.
+     */
+    private void repairDecrease(double[] dist, int[] next, double[] cost, int facility) {
+        if (dist[facility] == FacilityCostModel.UNREACHABLE) {
+            return;
+        }
+        heap.reset(dist);
+        double through = cost[facility] + dist[facility];
+        for (int e = topology.inStart(facility), end = topology.inEnd(facility); e < end; e++) {
+            int u = topology.inSource(e);
+            double candidate = topology.inTransferMinutes(e) + through;
+            if (candidate < dist[u]) {
+                dist[u] = candidate;
+                next[u] = facility;
+                heap.offer(u);
+            }
+        }
+        propagate(dist, next, cost, null);
+    }
+
+    /**
+     * Entering the facility became more expensive: only facilities whose tree path runs
+     * through it can get worse. Detach that subtree, seed each member from its best
+     * neighbour outside the subtree, and re-settle it.
+     */
+    private void repairIncrease(double[] dist, int[] next, double[] cost, int facility) {
+        int count = 0;
+        for (int e = topology.inStart(facility), end = topology.inEnd(facility); e < end; e++) {
+            int u = topology.inSource(e);
+            if (next[u] == facility && !affected[u]) {
+                affected[u] = true;
+                affectedQueue[count++] = u;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            int x = affectedQueue[i];
+            for (int e = topology.inStart(x), end = topology.inEnd(x); e < end; e++) {
+                int y = topology.inSource(e);
+                if (next[y] == x && !affected[y]) {
+                    affected[y] = true;
+                    affectedQueue[count++] = y;
+                }
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+
+        for (int i = 0; i < count; i++) {
+            int x = affectedQueue[i];
+            dist[x] = FacilityCostModel.UNREACHABLE;
+            next[x] = -1;
+        }
+        heap.reset(dist);
+        for (int i = 0; i < count; i++) {
+            int x = affectedQueue[i];
+            for (int e = topology.outStart(x), end = topology.outEnd(x); e < end; e++) {
+                int w = topology.outTarget(e);
+                if (affected[w]) {
+                    continue;
+                }
+                double candidate = topology.outTransferMinutes(e) + cost[w] + dist[w];
+                if (candidate < dist[x]) {
+                    dist[x] = candidate;
+                    next[x] = w;
+                }
+            }
+            if (dist[x] != FacilityCostModel.UNREACHABLE) {
+                heap.offer(x);
+            }
+        }
+        propagate(dist, next, cost, affected);
+
+        for (int i = 0; i < count; i++) {
+            affected[affectedQueue[i]] = false;
+        }
+    }
+
+    /**
+     * Settle facilities from the heap, relaxing their incoming conveyors.
+     *
+     * @param restrictTo If not null, only facilities flagged here are relaxed
+     */
+    private void propagate(double[] dist, int[] next, double[] cost, boolean[] restrictTo) {
+        while (!heap.isEmpty()) {
+            int x = heap.poll();
+            double through = cost[x] + dist[x];
+            if (through == FacilityCostModel.UNREACHABLE) {
+                continue;
+            }
+            for (int e = topology.inStart(x), end = topology.inEnd(x); e < end; e++) {
+                int y = topology.inSource(e);
+                if (restrictTo != null && !restrictTo[y]) {
+                    continue;
+                }
+                double candidate = topology.inTransferMinutes(e) + through;
+                if (candidate < dist[y]) {
+                    dist[y] = candidate;
+                    next[y] = x;
+                    heap.offer(y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Immutable view of all trees. During a repair a copy is made in which trees are
+     * cloned on first modification; the copy is published once the repair is complete.
+     */
+    private static final class Snapshot {
+
+        private final double[][] dist;
+        private final int[][] next;
+        private final double[][] cost;
+        private final boolean[] owned;
+
+        private Snapshot(double[][] dist, int[][] next, double[][] cost) {
+            this.dist = dist;
+            this.next = next;
+            this.cost = cost;
+            this.owned = null;
+        }
+
+        private Snapshot(Snapshot source) {
+            this.dist = source.dist.clone();
+            this.next = source.next.clone();
+            this.cost = new double[source.cost.length][];
+            for (int p = 0; p < cost.length; p++) {
+                cost[p] = source.cost[p].clone();
+            }
+            this.owned = new boolean[dist.length];
+        }
+
+        Snapshot mutableCopy() {
+            return new Snapshot(this);
+        }
+
+        void ensureOwned(int slot) {
+            if (!owned[slot]) {
+                dist[slot] = dist[slot].clone();
+                next[slot] = next[slot].clone();
+                owned[slot] = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package com.micrologistics.routing.algorithm;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.micrologistics.common.sharding.SiteShardRing;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * One path finder per warehouse site, holding the site's shortest paths, cached plans and
+ * facility loads.
+ *
+ * The default site is routed by the shared {@link OptimalPathFinder} bean, over the default
+ * site's topology only. The path finders of other sites are created when the replica is
+ * assigned one of the partitions the site's registrations are spread over, or when an item of
+ * the site first arrives, and dropped when those partitions move to other replicas, so each
+ * replica only holds the state of the sites it routes. A site is routed by the few replicas
+ * owning its partitions, which share the load they route to its facilities, and the equipment
+ * status of all facilities, through the equipment state topic. The last published status and
+ * load of the other sites' facilities are kept here and copied into a site's path finder when
+ * it is created.
+ */
+@Slf4j
+public class SitePathFinders {
+
+    private final SiteTopologies sites;
+    private final OptimalPathFinder defaultPathFinder;
+    private final PathFinderSettings settings;
+    private final StepDurationModel stepDurations;
+
+    // Path finders of the sites other than the default one, by site key
+    private final Map<String, OptimalPathFinder> pathFinders = new ConcurrentHashMap<>();
+
+    // Non-operational facilities of the sites other than the default one
+    private final Set<String> downFacilities = ConcurrentHashMap.newKeySet();
+
+    // Last published load of the facilities of the sites other than the default one
+    private final Map<String, PublishedLoad> publishedLoads = new ConcurrentHashMap<>();
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Create the registry of per-site path finders.
+     *
+     * @param sites The site topologies
+     * @param defaultPathFinder The path finder of the default site
+     * @param settings The path finder settings
+     * @param stepDurations The time items spend at each facility of the union, learned from step transitions
+     */
+    public SitePathFinders(SiteTopologies sites, OptimalPathFinder defaultPathFinder, PathFinderSettings settings,
+            StepDurationModel stepDurations) {
+        this.sites = sites;
+        this.defaultPathFinder = defaultPathFinder;
+        this.settings = settings;
+        this.stepDurations = stepDurations;
+    }
+
+    /**
+     * Get the site an item is routed at. Items of unknown sites are routed at the default site.
+     *
+     * @param site The site name from the item's registration, or null
+     * @return The site
+     */
+    public SiteTopology siteOf(String site) {
+        SiteTopology topology = sites.get(SiteShardRing.siteKey(site));
+        if (topology == null) {
+            log.warn("Unknown site {}, routing at the default site", site);
+            return sites.getDefault();
+        }
+        return topology;
+    }
+
+    /**
+     * Get the site a facility belongs to.
+     *
+     * @param ordinal The union ordinal of the facility
+     * @return The site, or null if the ordinal is outside the union
+     */
+    public SiteTopology siteAt(int ordinal) {
+        return sites.siteAt(ordinal);
+    }
+
+    /**
+     * Get the path finder of a site, creating it if this replica does not hold it yet.
+     *
+     * @param site The site
+     * @return The path finder
+     */
+    public OptimalPathFinder pathFinderOf(SiteTopology site) {
+        if (site.getOffset() == 0) {
+            return defaultPathFinder;
+        }
+        return pathFinders.computeIfAbsent(site.getKey(), key -> create(site));
+    }
+
+    /**
+     * Hold the path finders of exactly the given sites, creating the missing ones and dropping
+     * the others.
+     *
+     * @param siteKeys The keys of the sites this replica routes
+     */
+    public void retainOnly(Collection<String> siteKeys) {
+        for (String key : pathFinders.keySet()) {
+            OptimalPathFinder released = siteKeys.contains(key) ? null : pathFinders.remove(key);
+            if (released != null) {
+                log.info("Released path finder of site {}", key);
+                listeners.forEach(listener -> listener.onReleased(key, released));
+            }
+        }
+        for (String key : siteKeys) {
+            SiteTopology site = sites.get(key);
+            if (site != null) {
+                pathFinderOf(site);
+            }
+        }
+    }
+
+    /**
+     * Apply an equipment status change to a facility of a site other than the default one,
+     * and to the path finder of its site if this replica holds it. The shared path finder is
+     * updated by the caller.
+     *
+     * @param facility The facility name
+     * @param isOperational Whether the facility is operational
+     */
+    public void updateEquipmentStatus(String facility, boolean isOperational) {
+        String site = sites.siteOf(facility);
+        if (site == null || SiteShardRing.DEFAULT_SITE.equals(site)) {
+            return;
+        }
+        setOperational(facility, isOperational);
+        OptimalPathFinder pathFinder = pathFinders.get(site);
+        if (pathFinder != null) {
+            pathFinder.updateEquipmentStatus(facility, isOperational);
+        }
+    }
+
+    /**
+     * Restore the state of a facility of a site other than the default one as last published.
+     * The shared path finder is restored by the caller.
+     *
+     * @param facility The facility name
+     * @param isOperational Whether the facility is operational
+     * @param load The published load
+     * @param ageMillis How long ago the state was published
+     */
+    public void restoreEquipmentState(String facility, boolean isOperational, double load, long ageMillis) {
+        String site = sites.siteOf(facility);
+        if (site == null || SiteShardRing.DEFAULT_SITE.equals(site)) {
+            return;
+        }
+        setOperational(facility, isOperational);
+        publishedLoads.put(facility, new PublishedLoad(load, System.currentTimeMillis() - ageMillis));
+        OptimalPathFinder pathFinder = pathFinders.get(site);
+        if (pathFinder != null) {
+            pathFinder.restoreEquipmentState(facility, isOperational, load, ageMillis);
+        }
+    }
+
+    /**
+     * Add load routed to a facility of a site other than the default one by another replica,
+     * in the path finder of its site if this replica holds it, and keep the load that replica
+     * published. The shared path finder is updated by the caller.
+     *
+     * @param facility The facility name
+     * @param delta The added load
+     * @param load The published load
+     * @param ageMillis How long ago the state was published
+     */
+    public void applyLoadDelta(String facility, double delta, double load, long ageMillis) {
+        String site = sites.siteOf(facility);
+        if (site == null || SiteShardRing.DEFAULT_SITE.equals(site)) {
+            return;
+        }
+        publishedLoads.put(facility, new PublishedLoad(load, System.currentTimeMillis() - ageMillis));
+        OptimalPathFinder pathFinder = pathFinders.get(site);
+        if (pathFinder != null) {
+            pathFinder.applyLoadDelta(facility, delta);
+        }
+    }
+
+    /**
+     * Take the load routed to the facilities of every held site other than the default one
+     * since the last call. The shared path finder's deltas are drained by the caller.
+     *
+     * @return The added load by facility name, for facilities whose load changed
+     */
+    public Map<String, Double> drainLoadDeltas() {
+        Map<String, Double> deltas = new LinkedHashMap<>();
+        pathFinders.forEach((key, pathFinder) -> {
+            FacilityTopology topology = sites.get(key).getTopology();
+            double[] siteDeltas = pathFinder.drainLoadDeltas();
+            for (int facility = 0; facility < siteDeltas.length; facility++) {
+                if (siteDeltas[facility] != 0.0) {
+                    deltas.put(topology.nameOf(facility), siteDeltas[facility]);
+                }
+            }
+        });
+        return deltas;
+    }
+
+    /**
+     * Get the load of a facility of any site, from the path finder of its site if this
+     * replica holds it, or else as last published.
+     *
+     * @param facility The facility name
+     * @return The load
+     */
+    public double getLoad(String facility) {
+        String site = sites.siteOf(facility);
+        if (site == null || SiteShardRing.DEFAULT_SITE.equals(site)) {
+            return defaultPathFinder.getLoad(facility);
+        }
+        OptimalPathFinder pathFinder = pathFinders.get(site);
+        if (pathFinder != null) {
+            return pathFinder.getLoad(facility);
+        }
+        PublishedLoad published = publishedLoads.get(facility);
+        return published != null ? published.load : 0.0;
+    }
+
+    /**
+     * Check whether a facility of any site is operational.
+     *
+     * @param facility The facility name
+     * @return True unless the facility has been marked non-operational
+     */
+    public boolean isOperational(String facility) {
+        String site = sites.siteOf(facility);
+        if (site == null || SiteShardRing.DEFAULT_SITE.equals(site)) {
+            return defaultPathFinder.isOperational(facility);
+        }
+        return !downFacilities.contains(facility);
+    }
+
+    /**
+     * Get the operational status of the facilities of all sites.
+     *
+     * @return A map of facility to operational status
+     */
+    public Map<String, Boolean> getEquipmentOperationalStatus() {
+        Map<String, Boolean> status = new HashMap<>(defaultPathFinder.getEquipmentOperationalStatus());
+        for (String key : sites.siteKeys()) {
+            if (!SiteShardRing.DEFAULT_SITE.equals(key)) {
+                for (String facility : sites.get(key).getTopology().facilityNames()) {
+                    status.put(facility, !downFacilities.contains(facility));
+                }
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Get the load of the facilities of every site whose path finder this replica holds. The
+     * load of the other sites' facilities is only known to the replicas routing them.
+     *
+     * @return A map of facility to load
+     */
+    public Map<String, Integer> getEquipmentLoadStatus() {
+        Map<String, Integer> status = new HashMap<>(defaultPathFinder.getEquipmentLoadStatus());
+        for (OptimalPathFinder pathFinder : pathFinders.values()) {
+            status.putAll(pathFinder.getEquipmentLoadStatus());
+        }
+        return status;
+    }
+
+    /**
+     * Update the number of items at a facility in the path finder of its site, if this
+     * replica holds it.
+     *
+     * @param ordinal The union ordinal of the facility
+     * @param occupancy The number of in-flight items at the facility
+     */
+    public void updateOccupancy(int ordinal, long occupancy) {
+        SiteTopology site = sites.siteAt(ordinal);
+        if (site == null) {
+            return;
+        }
+        OptimalPathFinder pathFinder = site.getOffset() == 0 ? defaultPathFinder : pathFinders.get(site.getKey());
+        if (pathFinder != null) {
+            pathFinder.updateOccupancy(site.toSite(ordinal), occupancy);
+        }
+    }
+
+    /**
+     * Register a listener for the path finders of the sites other than the default one. It is
+     * told about the path finders already held right away.
+     *
+     * @param listener The listener
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        pathFinders.forEach(listener::onCreated);
+    }
+
+    /**
+     * Get the keys of all configured sites.
+     *
+     * @return The site keys
+     */
+    public Set<String> siteKeys() {
+        return sites.siteKeys();
+    }
+
+    /**
+     * Get the keys of the sites other than the default one whose path finders this replica holds.
+     *
+     * @return The site keys
+     */
+    public Set<String> heldSites() {
+        return Set.copyOf(pathFinders.keySet());
+    }
+
+    /**
+     * Re-evaluate the decayed facility loads of every held path finder, as the shared path
+     * finder does for itself.
+     */
+    @Scheduled(fixedDelayString = "${routing.load.sweep-interval-ms:1000}")
+    public void refreshDecayedLoads() {
+        for (OptimalPathFinder pathFinder : pathFinders.values()) {
+            pathFinder.refreshDecayedLoads();
+        }
+    }
+
+    private void setOperational(String facility, boolean isOperational) {
+        if (isOperational) {
+            downFacilities.remove(facility);
+        } else {
+            downFacilities.add(facility);
+        }
+    }
+
+    private OptimalPathFinder create(SiteTopology site) {
+        FacilityTopology topology = site.getTopology();
+        OptimalPathFinder pathFinder = new OptimalPathFinder(topology, settings,
+                stepDurations.slice(site.getOffset(), topology.size()));
+        pathFinder.setDestinationIndex(site.getDestinationIndex());
+        long now = System.currentTimeMillis();
+        for (int facility = 0; facility < topology.size(); facility++) {
+            String name = topology.nameOf(facility);
+            if (downFacilities.contains(name)) {
+                pathFinder.updateEquipmentStatus(name, false);
+            }
+            PublishedLoad published = publishedLoads.get(name);
+            if (published != null) {
+                pathFinder.restoreEquipmentState(name, !downFacilities.contains(name), published.load,
+                        now - published.publishedAtMillis);
+            }
+        }
+        log.info("Created path finder of site {}: {} facilities", site.getKey(), topology.size());
+        listeners.forEach(listener -> listener.onCreated(site.getKey(), pathFinder));
+        return pathFinder;
+    }
+
+    /**
+     * Told when the path finder of a site other than the default one is created or released.
+     */
+    public interface Listener {
+
+        /**
+         * Called when this replica starts holding the path finder of a site.
+         *
+         * @param siteKey The site key
+         * @param pathFinder The path finder
+         */
+        void onCreated(String siteKey, OptimalPathFinder pathFinder);
+
+        /**
+         * Called when this replica stops holding the path finder of a site.
+         *
+         * @param siteKey The site key
+         * @param pathFinder The path finder
+         */
+        void onReleased(String siteKey, OptimalPathFinder pathFinder);
+    }
+
+    /**
+     * The load of a facility as last published, and when it was published.
+     */
+    private static final class PublishedLoad {
+
+        private final double load;
+
+        private final long publishedAtMillis;
+
+        private PublishedLoad(double load, long publishedAtMillis) {
+            this.load = load;
+            this.publishedAtMillis = publishedAtMillis;
+        }
+    }
+}
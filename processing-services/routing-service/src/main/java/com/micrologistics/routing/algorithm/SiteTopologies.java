@@ -0,0 +1,190 @@
+package com.micrologistics.routing.algorithm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.micrologistics.common.sharding.SiteShardRing;
+
+/**
+ * The facility topologies of all warehouse sites, and their union.
+ *
+ * Every site is routed by a path finder of its own, over its own topology. Routes, scans and
+ * the in-flight monitors address facilities by their ordinal in the union, which lists the
+ * facilities of the default site first and then those of every other site in the order the
+ * sites are declared, so a site's local ordinals only need an offset to become union
+ * ordinals. Facility names must be unique across sites; routes are stored with codes
+ * registered per facility name, so sites may be declared in any order.
+ */
+public final class SiteTopologies {
+
+    private final Map<String, SiteTopology> sites;
+    private final Map<String, String> siteOfFacility;
+    private final FacilityTopology union;
+
+    private SiteTopologies(Map<String, SiteTopology> sites, FacilityTopology union) {
+        this.sites = Collections.unmodifiableMap(sites);
+        this.union = union;
+        Map<String, String> siteOfFacility = new HashMap<>();
+        for (SiteTopology site : sites.values()) {
+            for (String facility : site.getTopology().facilityNames()) {
+                siteOfFacility.put(facility, site.getKey());
+            }
+        }
+        this.siteOfFacility = Collections.unmodifiableMap(siteOfFacility);
+    }
+
+    /**
+     * Create a builder whose default site has the given topology.
+     *
+     * @param defaultTopology The topology of the default site
+     * @return The builder
+     */
+    public static Builder builder(FacilityTopology defaultTopology) {
+        return new Builder(defaultTopology);
+    }
+
+    /**
+     * Create the topologies of a single site.
+     *
+     * @param topology The topology of the default site
+     * @return The site topologies
+     */
+    public static SiteTopologies single(FacilityTopology topology) {
+        return builder(topology).build();
+    }
+
+    /**
+     * Get the union of all site topologies.
+     *
+     * @return The union topology
+     */
+    public FacilityTopology getUnion() {
+        return union;
+    }
+
+    /**
+     * Get a site.
+     *
+     * @param siteKey The site key
+     * @return The site, or null if no such site is configured
+     */
+    public SiteTopology get(String siteKey) {
+        return sites.get(siteKey);
+    }
+
+    /**
+     * Get the default site.
+     *
+     * @return The default site
+     */
+    public SiteTopology getDefault() {
+        return sites.get(SiteShardRing.DEFAULT_SITE);
+    }
+
+    /**
+     * Get the keys of all sites, the default site first.
+     *
+     * @return The site keys
+     */
+    public Set<String> siteKeys() {
+        return sites.keySet();
+    }
+
+    /**
+     * Get the site a facility belongs to.
+     *
+     * @param facility The facility name
+     * @return The site key, or null if no site has the facility
+     */
+    public String siteOf(String facility) {
+        return siteOfFacility.get(facility);
+    }
+
+    /**
+     * Get the site a facility belongs to.
+     *
+     * @param ordinal The union ordinal of the facility
+     * @return The site, or null if the ordinal is outside the union
+     */
+    public SiteTopology siteAt(int ordinal) {
+        for (SiteTopology site : sites.values()) {
+            if (site.toSite(ordinal) >= 0) {
+                return site;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Builder for site topologies.
+     */
+    public static final class Builder {
+
+        private final Map<String, FacilityTopology> topologies = new LinkedHashMap<>();
+        private final Map<String, DestinationIndex> destinations = new HashMap<>();
+
+        private Builder(FacilityTopology defaultTopology) {
+            topologies.put(SiteShardRing.DEFAULT_SITE, defaultTopology);
+        }
+
+        /**
+         * Add a site.
+         *
+         * @param site The site name
+         * @param topology The facilities and conveyors of the site
+         * @param destinationIndex The docks of the site that destinations are sent to
+         * @return This builder
+         */
+        public Builder site(String site, FacilityTopology topology, DestinationIndex destinationIndex) {
+            String key = SiteShardRing.siteKey(site);
+            if (topologies.containsKey(key)) {
+                throw new IllegalArgumentException("Duplicate site: " + key);
+            }
+            topologies.put(key, topology);
+            destinations.put(key, destinationIndex);
+            return this;
+        }
+
+        public SiteTopologies build() {
+            FacilityTopology defaultTopology = topologies.get(SiteShardRing.DEFAULT_SITE);
+            Map<String, SiteTopology> sites = new LinkedHashMap<>();
+            if (topologies.size() == 1) {
+                sites.put(SiteShardRing.DEFAULT_SITE, new SiteTopology(SiteShardRing.DEFAULT_SITE, defaultTopology, null, 0));
+                return new SiteTopologies(sites, defaultTopology);
+            }
+
+            FacilityTopology.Builder union = FacilityTopology.builder();
+            List<FacilityTopology> ordered = new ArrayList<>(topologies.values());
+            for (FacilityTopology topology : ordered) {
+                for (int f = 0; f < topology.size(); f++) {
+                    union.facility(topology.nameOf(f), topology.processingMinutes(f), topology.handling(f));
+                    if (topology.isOutboundDock(f)) {
+                        union.outboundDock(topology.nameOf(f));
+                    }
+                }
+            }
+            for (FacilityTopology topology : ordered) {
+                for (int f = 0; f < topology.size(); f++) {
+                    for (int e = topology.outStart(f); e < topology.outEnd(f); e++) {
+                        union.conveyor(topology.nameOf(f), topology.nameOf(topology.outTarget(e)),
+                                topology.outTransferMinutes(e));
+                    }
+                }
+            }
+            union.entry(defaultTopology.nameOf(defaultTopology.entry()));
+
+            int offset = 0;
+            for (Map.Entry<String, FacilityTopology> site : topologies.entrySet()) {
+                sites.put(site.getKey(), new SiteTopology(site.getKey(), site.getValue(),
+                        destinations.get(site.getKey()), offset));
+                offset += site.getValue().size();
+            }
+            return new SiteTopologies(sites, union.build());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.micrologistics.routing.algorithm;
+
+import lombok.Getter;
+
+/**
+ * The facilities of one warehouse site, and where they are placed in the union of all sites.
+ */
+@Getter
+public final class SiteTopology {
+    
+    private final String key;
+    
+    private final FacilityTopology topology;
+    
+    // Null for the default site, whose index is loaded into the shared path finder
+    private final DestinationIndex destinationIndex;
+    
+    // Union ordinal of the site's first facility
+    private final int offset;
+    
+    /**
+     * Create a site.
+     * 
+     * @param key The site key
+     * @param topology The facilities and conveyors of the site
+     * @param destinationIndex The docks destinations are sent to
+     * @param offset The union ordinal of the site's first facility
+     */
+    public SiteTopology(String key, FacilityTopology topology, DestinationIndex destinationIndex, int offset) {
+        this.key = key;
+        this.topology = topology;
+        this.destinationIndex = destinationIndex;
+        this.offset = offset;
+    }
+    
+    /**
+     * Translate a union ordinal into an ordinal of this site's topology.
+     * 
+     * @param ordinal The union ordinal
+     * @return The site ordinal, or -1 if the facility belongs to another site
+     */
+    public int toSite(int ordinal) {
+        int local = ordinal - offset;
+        return local >= 0 && local < topology.size() ? local : -1;
+    }
+    
+    /**
+     * Translate ordinals of this site's topology into union ordinals.
+     * 
+     * @param ordinals The site ordinals
+     * @return The union ordinals; the same array for a site at offset 0
+     */
+    public int[] toUnion(int[] ordinals) {
+        if (offset == 0) {
+            return ordinals;
+        }
+        int[] union = new int[ordinals.length];
+        for (int i = 0; i < ordinals.length; i++) {
+            union[i] = ordinals[i] + offset;
+        }
+        return union;
+    }
+}
@@ -0,0 +1,280 @@
+package com.micrologistics.routing.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Online model of the time items actually spend at each facility, learned from recorded
+ * step transitions.
+ *
+ * For every facility the model keeps an exponentially weighted moving average of the time
+ * spent there for each hour of the day and overall, together with streaming estimates of
+ * the median and 90th percentile (the P-square algorithm, which keeps five markers instead
+ * of the samples). Recording a duration and reading an estimate are O(1) and only lock the
+ * facility concerned.
+ *
+ * Until a facility has enough samples for an hour, the overall average is used, and until
+ * it has enough samples overall, the caller's fallback. Once the 90th percentile is known,
+ * samples are capped at a multiple of it, so a forgotten item does not skew the averages.
+ */
+public final class StepDurationModel {
+
+    /**
+     * Hours in a day, the resolution of the hour-of-day averages.
+     */
+    public static final int HOURS_PER_DAY = 24;
+
+    // Samples are capped at this multiple of the 90th percentile
+    private static final double OUTLIER_FACTOR = 3.0;
+
+    private final FacilityDurations[] facilities;
+    private final double smoothing;
+    private final int minSamples;
+    private final double maxMinutes;
+
+    /**
+     * Create an empty model.
+     *
+     * @param facilities The number of facilities
+     * @param smoothing The weight of a new sample in the moving averages, between 0 and 1
+     * @param minSamples The number of samples an average needs before it is used
+     * @param maxMinutes Durations above this are discarded as not being a real stay at the facility
+     */
+    public StepDurationModel(int facilities, double smoothing, int minSamples, double maxMinutes) {
+        if (smoothing <= 0.0 || smoothing > 1.0) {
+            throw new IllegalArgumentException("Invalid smoothing: " + smoothing);
+        }
+        this.facilities = new FacilityDurations[facilities];
+        for (int facility = 0; facility < facilities; facility++) {
+            this.facilities[facility] = new FacilityDurations();
+        }
+        this.smoothing = smoothing;
+        this.minSamples = Math.max(1, minSamples);
+        this.maxMinutes = maxMinutes;
+    }
+
+    private StepDurationModel(FacilityDurations[] facilities, double smoothing, int minSamples, double maxMinutes) {
+        this.facilities = facilities;
+        this.smoothing = smoothing;
+        this.minSamples = minSamples;
+        this.maxMinutes = maxMinutes;
+    }
+
+    /**
+     * Create a model from the path finder settings.
+     *
+     * @param topology The facility topology
+     * @param settings The path finder settings
+     * @return The model
+     */
+    public static StepDurationModel of(FacilityTopology topology, PathFinderSettings settings) {
+        return new StepDurationModel(topology.size(), settings.getDurationSmoothing(),
+                settings.getDurationMinSamples(), settings.getDurationMaxMinutes());
+    }
+
+    /**
+     * Get a view of a range of facilities, such as the facilities of one site in the union of
+     * all sites. The view shares the learned durations with this model.
+     *
+     * @param offset The ordinal in this model of the view's first facility
+     * @param length The number of facilities in the view
+     * @return The view, indexed from 0
+     */
+    public StepDurationModel slice(int offset, int length) {
+        return new StepDurationModel(Arrays.copyOfRange(facilities, offset, offset + length), smoothing,
+                minSamples, maxMinutes);
+    }
+
+    /**
+     * Record the time an item spent at a facility.
+     *
+     * @param facility The facility ordinal
+     * @param minutes The time spent, in minutes
+     * @param hourOfDay The hour of the day the item arrived at the facility
+     * @return True if the duration was recorded, false if it was out of range
+     */
+    public boolean record(int facility, double minutes, int hourOfDay) {
+        if (facility < 0 || facility >= facilities.length || !(minutes >= 0.0) || minutes > maxMinutes) {
+            return false;
+        }
+        facilities[facility].record(minutes, Math.floorMod(hourOfDay, HOURS_PER_DAY), smoothing, minSamples);
+        return true;
+    }
+
+    /**
+     * Get the expected time an item arriving at a facility in a given hour will spend there.
+     *
+     * @param facility The facility ordinal
+     * @param hourOfDay The hour of the day the item arrives
+     * @param fallback The time to use while the facility has too few samples
+     * @return The expected time, in minutes
+     */
+    public double expectedMinutes(int facility, int hourOfDay, double fallback) {
+        if (facility < 0 || facility >= facilities.length) {
+            return fallback;
+        }
+        return facilities[facility].expected(Math.floorMod(hourOfDay, HOURS_PER_DAY), minSamples, fallback);
+    }
+
+    /**
+     * Get the estimated median time spent at a facility.
+     *
+     * @param facility The facility ordinal
+     * @return The median, in minutes, or NaN if nothing has been recorded
+     */
+    public double median(int facility) {
+        return facilities[facility].quantile(true);
+    }
+
+    /**
+     * Get the estimated 90th percentile of the time spent at a facility.
+     *
+     * @param facility The facility ordinal
+     * @return The 90th percentile, in minutes, or NaN if nothing has been recorded
+     */
+    public double percentile90(int facility) {
+        return facilities[facility].quantile(false);
+    }
+
+    /**
+     * Get the number of durations recorded for a facility.
+     *
+     * @param facility The facility ordinal
+     * @return The sample count
+     */
+    public long samples(int facility) {
+        return facilities[facility].samples();
+    }
+
+    /**
+     * The learned durations of one facility, guarded by its own monitor.
+     */
+    private static final class FacilityDurations {
+
+        private final double[] hourlyAverage = new double[HOURS_PER_DAY];
+        private final long[] hourlySamples = new long[HOURS_PER_DAY];
+        private final P2Quantile median = new P2Quantile(0.5);
+        private final P2Quantile percentile90 = new P2Quantile(0.9);
+        private double average;
+        private long samples;
+
+        synchronized void record(double minutes, int hour, double smoothing, int minSamples) {
+            median.add(minutes);
+            percentile90.add(minutes);
+            double sample = samples >= minSamples ? Math.min(minutes, OUTLIER_FACTOR * percentile90.value()) : minutes;
+            average = samples == 0 ? sample : average + smoothing * (sample - average);
+            hourlyAverage[hour] = hourlySamples[hour] == 0 ? sample
+                    : hourlyAverage[hour] + smoothing * (sample - hourlyAverage[hour]);
+            hourlySamples[hour]++;
+            samples++;
+        }
+
+        synchronized double expected(int hour, int minSamples, double fallback) {
+            if (hourlySamples[hour] >= minSamples) {
+                return hourlyAverage[hour];
+            }
+            return samples >= minSamples ? average : fallback;
+        }
+
+        synchronized double quantile(boolean median) {
+            return median ? this.median.value() : percentile90.value();
+        }
+
+        synchronized long samples() {
+            return samples;
+        }
+    }
+
+    /**
+     * Streaming estimate of one quantile with the P-square algorithm of Jain and Chlamtac:
+     * five markers track the minimum, the quantile, the maximum and two points in between,
+     * and are moved along a piecewise-parabolic curve as samples arrive.
+     */
+    static final class P2Quantile {
+
+        private final double p;
+        private final double[] heights = new double[5];
+        private final int[] positions = new int[5];
+        private final double[] desired = new double[5];
+        private final double[] increments;
+        private int count;
+
+        P2Quantile(double p) {
+            this.p = p;
+            this.increments = new double[] {0.0, p / 2, p, (1 + p) / 2, 1.0};
+        }
+
+        void add(double x) {
+            if (count < 5) {
+                heights[count++] = x;
+                if (count == 5) {
+                    Arrays.sort(heights);
+                    for (int i = 0; i < 5; i++) {
+                        positions[i] = i + 1;
+                    }
+                    desired[0] = 1;
+                    desired[1] = 1 + 2 * p;
+                    desired[2] = 1 + 4 * p;
+                    desired[3] = 3 + 2 * p;
+                    desired[4] = 5;
+                }
+                return;
+            }
+
+            int cell;
+            if (x < heights[0]) {
+                heights[0] = x;
+                cell = 0;
+            } else if (x >= heights[4]) {
+                heights[4] = x;
+                cell = 3;
+            } else {
+                cell = 0;
+                while (x >= heights[cell + 1]) {
+                    cell++;
+                }
+            }
+            for (int i = cell + 1; i < 5; i++) {
+                positions[i]++;
+            }
+            for (int i = 0; i < 5; i++) {
+                desired[i] += increments[i];
+            }
+
+            for (int i = 1; i <= 3; i++) {
+                double d = desired[i] - positions[i];
+                if ((d >= 1 && positions[i + 1] - positions[i] > 1) || (d <= -1 && positions[i - 1] - positions[i] < -1)) {
+                    int step = d >= 0 ? 1 : -1;
+                    double candidate = parabolic(i, step);
+                    heights[i] = heights[i - 1] < candidate && candidate < heights[i + 1] ? candidate : linear(i, step);
+                    positions[i] += step;
+                }
+            }
+            count++;
+        }
+
+        double value() {
+            if (count == 0) {
+                return Double.NaN;
+            }
+            if (count < 5) {
+                double[] sorted = Arrays.copyOf(heights, count);
+                Arrays.sort(sorted);
+                return sorted[(int) Math.round(p * (count - 1))];
+            }
+            return heights[2];
+        }
+
+        private double parabolic(int i, int step) {
+            double span = positions[i + 1] - positions[i - 1];
+            double above = (positions[i] - positions[i - 1] + step) * (heights[i + 1] - heights[i])
+                    / (positions[i + 1] - positions[i]);
+            double below = (positions[i + 1] - positions[i] - step) * (heights[i] - heights[i - 1])
+                    / (positions[i] - positions[i - 1]);
+            return heights[i] + step / span * (above + below);
+        }
+
+        private double linear(int i, int step) {
+            return heights[i] + step * (heights[i + step] - heights[i]) / (positions[i + step] - positions[i]);
+        }
+    }
+}
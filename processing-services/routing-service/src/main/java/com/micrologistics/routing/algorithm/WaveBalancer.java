@@ -0,0 +1,64 @@
+package com.micrologistics.routing.algorithm;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Assigns the waves of an outbound planning window to docks so that no dock becomes a
+ * hotspot.
+ *
+ * Waves are placed largest first (the longest-processing-time heuristic for balancing bins),
+ * each on the candidate dock whose queue would be shortest after taking it. A wave stays at
+ * the dock its destination maps to unless another dock's queue is shorter by more than the
+ * switch penalty, so waves only move when the imbalance outweighs loading a truck away from
+ * its usual bay.
+ */
+public final class WaveBalancer {
+
+    private final double switchPenalty;
+
+    /**
+     * Create a balancer.
+     *
+     * @param switchPenalty The number of queued items a dock must be ahead by before a wave
+     *                      is moved away from its preferred dock
+     */
+    public WaveBalancer(double switchPenalty) {
+        this.switchPenalty = Math.max(0.0, switchPenalty);
+    }
+
+    /**
+     * Assign waves to docks.
+     *
+     * @param sizes The number of items in each wave
+     * @param preferredDocks The dock each wave's destination maps to
+     * @param candidateDocks The docks each wave may be loaded at, including its preferred dock
+     * @param dockLoads The items already queued at each dock, by facility ordinal; updated
+     *                  with the assigned waves
+     * @return The dock of each wave
+     */
+    public int[] assign(int[] sizes, int[] preferredDocks, int[][] candidateDocks, long[] dockLoads) {
+        Integer[] order = new Integer[sizes.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt((Integer wave) -> sizes[wave]).reversed());
+
+        int[] docks = new int[sizes.length];
+        for (int wave : order) {
+            int preferred = preferredDocks[wave];
+            int best = preferred;
+            double bestCost = dockLoads[preferred];
+            for (int dock : candidateDocks[wave]) {
+                double cost = dockLoads[dock] + (dock != preferred ? switchPenalty : 0.0);
+                if (cost < bestCost) {
+                    best = dock;
+                    bestCost = cost;
+                }
+            }
+            docks[wave] = best;
+            dockLoads[best] += sizes[wave];
+        }
+        return docks;
+    }
+}
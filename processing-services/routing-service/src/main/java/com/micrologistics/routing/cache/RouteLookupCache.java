@@ -0,0 +1,188 @@
+package com.micrologistics.routing.cache;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.micrologistics.common.dto.RouteDto;
+import com.micrologistics.routing.entity.Route;
+import com.micrologistics.routing.event.RouteCreatedEvent;
+import com.micrologistics.routing.event.RouteReroutedEvent;
+import com.micrologistics.routing.event.RouteStepChangedEvent;
+import com.micrologistics.routing.mapper.RouteMapper;
+import com.micrologistics.routing.messaging.publisher.RouteCacheInvalidationPublisher;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded read-through cache of routes for lookups by item ID and tracking ID.
+ *
+ * Routes are cached by item ID, with a second cache mapping tracking IDs to item IDs.
+ * Entries expire a fixed time after they were written. Route changes are written through
+ * once committed: new routes are cached, and cached routes are moved to their new step.
+ * Other replicas are told to drop their copy through the route cache invalidation topic.
+ */
+@Component
+@Slf4j
+public class RouteLookupCache {
+
+    private final Cache<String, RouteDto> routesByItemId;
+    private final Cache<String, String> itemIdsByTrackingId;
+    private final RouteMapper routeMapper;
+    private final RouteCacheInvalidationPublisher invalidationPublisher;
+
+    public RouteLookupCache(
+            RouteMapper routeMapper,
+            RouteCacheInvalidationPublisher invalidationPublisher,
+            @Value("${routing.route-cache.maximum-size:100000}") long maximumSize,
+            @Value("${routing.route-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.routeMapper = routeMapper;
+        this.invalidationPublisher = invalidationPublisher;
+        this.routesByItemId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.itemIdsByTrackingId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Get the route of an item, loading and caching it on a miss.
+     *
+     * @param itemId The item ID
+     * @param loader Loads the route from the database
+     * @return The route, or empty if the item has no route
+     */
+    public Optional<RouteDto> getByItemId(String itemId, Function<String, Optional<RouteDto>> loader) {
+        RouteDto route = routesByItemId.get(itemId, id -> loader.apply(id).orElse(null));
+        if (route != null) {
+            itemIdsByTrackingId.put(route.getTrackingId(), route.getItemId());
+        }
+        return Optional.ofNullable(route);
+    }
+
+    /**
+     * Get the route of a tracking ID, loading and caching it on a miss.
+     *
+     * @param trackingId The tracking ID
+     * @param loader Loads the route from the database
+     * @return The route, or empty if no route has the tracking ID
+     */
+    public Optional<RouteDto> getByTrackingId(String trackingId, Function<String, Optional<RouteDto>> loader) {
+        String itemId = itemIdsByTrackingId.getIfPresent(trackingId);
+        if (itemId != null) {
+            RouteDto route = routesByItemId.getIfPresent(itemId);
+            if (route != null && trackingId.equals(route.getTrackingId())) {
+                return Optional.of(route);
+            }
+        }
+        Optional<RouteDto> route = loader.apply(trackingId);
+        route.ifPresent(loaded -> {
+            // A route changed while it was being loaded keeps the newer cached copy
+            routesByItemId.asMap().putIfAbsent(loaded.getItemId(), loaded);
+            itemIdsByTrackingId.put(trackingId, loaded.getItemId());
+        });
+        return route;
+    }
+
+    /**
+     * Cache a newly created route once its creation has been committed.
+     *
+     * @param event The route created event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRouteCreated(RouteCreatedEvent event) {
+        Route route = event.getRoute();
+        routesByItemId.put(route.getItemId(), routeMapper.toDto(route));
+        itemIdsByTrackingId.put(route.getTrackingId(), route.getItemId());
+    }
+
+    /**
+     * Move a cached route to its new step once the change has been committed, and tell the
+     * other replicas to drop their copy.
+     *
+     * @param event The route step changed event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRouteStepChanged(RouteStepChangedEvent event) {
+        routesByItemId.asMap().computeIfPresent(event.getItemId(), (itemId, cached) -> withStep(cached, event));
+        invalidationPublisher.publishInvalidation(event.getItemId());
+    }
+
+    /**
+     * Cache the new steps of a re-routed route once they have been committed, and tell the
+     * other replicas to drop their copy.
+     *
+     * @param event The route rerouted event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRouteRerouted(RouteReroutedEvent event) {
+        Route route = event.getRoute();
+        routesByItemId.put(route.getItemId(), routeMapper.toDto(route));
+        invalidationPublisher.publishInvalidation(route.getItemId());
+    }
+
+    /**
+     * Drop the cached route of an item changed by another replica.
+     *
+     * @param itemId The item ID
+     */
+    public void invalidate(String itemId) {
+        routesByItemId.invalidate(itemId);
+    }
+
+    /**
+     * Get the cache of routes by item ID, for metrics.
+     *
+     * @return The cache
+     */
+    public Cache<String, RouteDto> getRouteCache() {
+        return routesByItemId;
+    }
+
+    /**
+     * Get the cache of item IDs by tracking ID, for metrics.
+     *
+     * @return The cache
+     */
+    public Cache<String, String> getTrackingIdCache() {
+        return itemIdsByTrackingId;
+    }
+
+    /**
+     * Copy a cached route with the step of a change applied, unless the change is older than
+     * the cached step. Cached routes are shared with readers and never modified.
+     */
+    private static RouteDto withStep(RouteDto cached, RouteStepChangedEvent event) {
+        boolean finished = Route.STATUS_COMPLETED.equals(event.getStatus())
+                || Route.STATUS_FAILED.equals(event.getStatus());
+        int cachedIndex = cached.getRouteSteps() != null ? cached.getRouteSteps().indexOf(cached.getCurrentStep()) : -1;
+        if (!finished && event.getStepIndex() < cachedIndex) {
+            return cached;
+        }
+        return RouteDto.builder()
+                .id(cached.getId())
+                .itemId(cached.getItemId())
+                .trackingId(cached.getTrackingId())
+                .routeSteps(cached.getRouteSteps())
+                .currentStep(event.getStep())
+                .status(event.getStatus())
+                .estimatedTimeMinutes(event.getEstimatedTimeMinutes())
+                .priority(cached.getPriority())
+                .createdAt(cached.getCreatedAt())
+                .updatedAt(LocalDateTime.now())
+                .estimatedCompletionTime(cached.getEstimatedCompletionTime())
+                .build();
+    }
+}
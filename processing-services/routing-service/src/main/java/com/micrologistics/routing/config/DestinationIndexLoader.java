@@ -0,0 +1,76 @@
+package com.micrologistics.routing.config;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import com.micrologistics.routing.algorithm.DestinationIndex;
+import com.micrologistics.routing.algorithm.OptimalPathFinder;
+import com.micrologistics.routing.algorithm.SiteTopologies;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Loads the destination index from the configured location and swaps it into the path
+ * finder. The index is reloaded whenever the environment is refreshed (e.g. through the
+ * actuator refresh endpoint or a config server push), so destinations can be changed
+ * without a restart. A definition that fails to load leaves the current index in place.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DestinationIndexLoader {
+
+    private static final String LOCATION_PROPERTY = "routing.destinations.location";
+
+    private static final String DEFAULT_LOCATION = "classpath:" + DestinationIndex.DEFAULT_INDEX_RESOURCE;
+
+    private final OptimalPathFinder pathFinder;
+    private final SiteTopologies sites;
+    private final ResourceLoader resourceLoader;
+    private final Environment environment;
+
+    /**
+     * Load the configured index before the service starts routing items.
+     *
+     * @throws IOException If the index cannot be read
+     */
+    @PostConstruct
+    public void loadInitialIndex() throws IOException {
+        pathFinder.setDestinationIndex(load());
+    }
+
+    /**
+     * Reload the index after the environment has been refreshed.
+     *
+     * @param event The environment change event
+     */
+    @EventListener
+    public void onEnvironmentChange(EnvironmentChangeEvent event) {
+        try {
+            pathFinder.setDestinationIndex(load());
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to reload destination index, keeping the current one", e);
+        }
+    }
+
+    private DestinationIndex load() throws IOException {
+        Resource location = resourceLoader.getResource(environment.getProperty(LOCATION_PROPERTY, DEFAULT_LOCATION));
+        try (Reader reader = new InputStreamReader(location.getInputStream(), StandardCharsets.UTF_8)) {
+            // The shared path finder routes the default site, so its docks are the ones indexed
+            DestinationIndex index = DestinationIndex.parse(reader, sites.getDefault().getTopology());
+            log.info("Loaded destination index from {}: {} rules", location, index.size());
+            return index;
+        }
+    }
+}
@@ -3,23 +3,34 @@ package com.micrologistics.routing.config;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.config.TopicConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
 import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 
+import com.micrologistics.common.event.EquipmentStateEvent;
 import com.micrologistics.common.event.ItemRegisteredEvent;
+import com.micrologistics.common.event.RouteCacheInvalidationEvent;
+import com.micrologistics.common.event.RouteEvent;
+import com.micrologistics.common.event.ScanEvent;
+import com.micrologistics.routing.messaging.consumer.SiteAssignmentListener;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
  * Configuration for Kafka consumers and producers.
@@ -33,6 +44,31 @@ public class KafkaConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
     
+    // Names the consumer groups of this replica; resolved once, as the fallback id is random
+    @Value("${routing.instance-id}")
+    private String instanceId;
+    
+    @Value("${kafka.consumer.batch.max-poll-records:500}")
+    private int batchMaxPollRecords;
+    
+    @Value("${kafka.topics.equipment-state}")
+    private String equipmentStateTopic;
+    
+    @Value("${kafka.topics.route-cache-invalidation}")
+    private String routeCacheInvalidationTopic;
+    
+    @Value("${kafka.topics.route-events}")
+    private String routeEventsTopic;
+    
+    @Value("${kafka.producer.route-events.linger-ms:20}")
+    private int routeEventsLingerMs;
+    
+    @Value("${kafka.producer.route-events.batch-size:65536}")
+    private int routeEventsBatchSize;
+    
+    @Value("${kafka.producer.route-events.compression-type:lz4}")
+    private String routeEventsCompressionType;
+    
     /**
      * Configure the Kafka consumer factory for ItemRegisteredEvents.
      * 
@@ -53,15 +89,215 @@ public class KafkaConfig {
     }
     
     /**
-     * Configure the Kafka listener container factory for ItemRegisteredEvents.
+     * Configure the Kafka listener container factory for ItemRegisteredEvents. The sites this
+     * replica routes follow the partitions it is assigned.
      * 
+     * @param siteAssignmentListener Tracks the sites carried by the assigned partitions
      * @return The listener container factory
      */
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, ItemRegisteredEvent> itemRegisteredKafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, ItemRegisteredEvent> itemRegisteredKafkaListenerContainerFactory(
+            SiteAssignmentListener siteAssignmentListener) {
         ConcurrentKafkaListenerContainerFactory<String, ItemRegisteredEvent> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(itemRegisteredEventConsumerFactory());
+        factory.getContainerProperties().setConsumerRebalanceListener(siteAssignmentListener);
+        return factory;
+    }
+    
+    /**
+     * Configure the Kafka listener container factory delivering ItemRegisteredEvents in
+     * batches of up to kafka.consumer.batch.max-poll-records.
+     * 
+     * @param siteAssignmentListener Tracks the sites carried by the assigned partitions
+     * @return The batch listener container factory
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, ItemRegisteredEvent> itemRegisteredBatchKafkaListenerContainerFactory(
+            SiteAssignmentListener siteAssignmentListener) {
+        Map<String, Object> props = new HashMap<>(itemRegisteredEventConsumerFactory().getConfigurationProperties());
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxPollRecords);
+        
+        ConcurrentKafkaListenerContainerFactory<String, ItemRegisteredEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(props));
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setConsumerRebalanceListener(siteAssignmentListener);
+        return factory;
+    }
+    
+    /**
+     * Configure the Kafka consumer factory for ScanEvents.
+     * 
+     * @return The consumer factory
+     */
+    @Bean
+    public ConsumerFactory<String, ScanEvent> scanEventConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxPollRecords);
+        props.put(JsonDeserializer.TRUSTED_PACKAGES, "com.micrologistics.common.event");
+        props.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
+        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, "com.micrologistics.common.event.ScanEvent");
+        
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+    
+    /**
+     * Configure the Kafka listener container factory delivering ScanEvents in batches.
+     * 
+     * @return The batch listener container factory
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, ScanEvent> scanEventKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, ScanEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(scanEventConsumerFactory());
+        factory.setBatchListener(true);
+        return factory;
+    }
+    
+    /**
+     * Configure the Kafka consumer factory for EquipmentStateEvents. Every replica gets a
+     * consumer group of its own, named after its instance ID, so each one reads all equipment
+     * state.
+     * 
+     * @return The consumer factory
+     */
+    @Bean
+    public ConsumerFactory<String, EquipmentStateEvent> equipmentStateConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, instanceId + "-equipment");
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        props.put(JsonDeserializer.TRUSTED_PACKAGES, "com.micrologistics.common.event");
+        props.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
+        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, "com.micrologistics.common.event.EquipmentStateEvent");
+        
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+    
+    /**
+     * Configure the Kafka listener container factory delivering EquipmentStateEvents in batches.
+     * 
+     * @return The batch listener container factory
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, EquipmentStateEvent> equipmentStateKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, EquipmentStateEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(equipmentStateConsumerFactory());
+        factory.setBatchListener(true);
+        return factory;
+    }
+    
+    /**
+     * Define the equipment state topic, compacted so it keeps the latest state of every facility.
+     * 
+     * @return The topic configuration
+     */
+    @Bean
+    public NewTopic equipmentStateTopic() {
+        return TopicBuilder.name(equipmentStateTopic)
+                .partitions(3)
+                .replicas(1)
+                .compact()
+                .build();
+    }
+    
+    /**
+     * Configure the Kafka consumer factory for RouteCacheInvalidationEvents. Every replica
+     * gets a consumer group of its own, named after its instance ID, and only reads
+     * invalidations published after it starts.
+     * 
+     * @return The consumer factory
+     */
+    @Bean
+    public ConsumerFactory<String, RouteCacheInvalidationEvent> routeCacheInvalidationConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, instanceId + "-route-cache");
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        props.put(JsonDeserializer.TRUSTED_PACKAGES, "com.micrologistics.common.event");
+        props.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
+        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, "com.micrologistics.common.event.RouteCacheInvalidationEvent");
+        
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+    
+    /**
+     * Configure the Kafka listener container factory delivering RouteCacheInvalidationEvents in batches.
+     * 
+     * @return The batch listener container factory
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, RouteCacheInvalidationEvent> routeCacheInvalidationKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, RouteCacheInvalidationEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(routeCacheInvalidationConsumerFactory());
+        factory.setBatchListener(true);
+        return factory;
+    }
+    
+    /**
+     * Define the route cache invalidation topic. Invalidations are only of use to running
+     * replicas, so they are kept for an hour.
+     * 
+     * @return The topic configuration
+     */
+    @Bean
+    public NewTopic routeCacheInvalidationTopic() {
+        return TopicBuilder.name(routeCacheInvalidationTopic)
+                .partitions(3)
+                .replicas(1)
+                .config(TopicConfig.RETENTION_MS_CONFIG, "3600000")
+                .build();
+    }
+    
+    /**
+     * Configure the Kafka consumer factory for RouteEvents. Every replica gets a consumer
+     * group of its own, named after its instance ID, so each one reads the route changes of
+     * all replicas.
+     * 
+     * @return The consumer factory
+     */
+    @Bean
+    public ConsumerFactory<String, RouteEvent> routeEventConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, instanceId + "-route-events");
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxPollRecords);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        props.put(JsonDeserializer.TRUSTED_PACKAGES, "com.micrologistics.common.event");
+        props.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
+        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, "com.micrologistics.common.event.RouteEvent");
+        
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+    
+    /**
+     * Configure the Kafka listener container factory delivering RouteEvents in batches.
+     * 
+     * @return The batch listener container factory
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, RouteEvent> routeEventKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, RouteEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(routeEventConsumerFactory());
+        factory.setBatchListener(true);
         return factory;
     }
     
@@ -92,4 +328,59 @@ public class KafkaConfig {
     public KafkaTemplate<String, Object> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
+    
+    /**
+     * Define the route events topic, keyed by route so each route's events stay in order.
+     * 
+     * @return The topic configuration
+     */
+    @Bean
+    public NewTopic routeEventsTopic() {
+        return TopicBuilder.name(routeEventsTopic)
+                .partitions(3)
+                .replicas(1)
+                .build();
+    }
+    
+    /**
+     * Configure the Kafka producer factory for RouteEvents. Every route change produces an
+     * event, so records wait up to kafka.producer.route-events.linger-ms to fill batches of
+     * kafka.producer.route-events.batch-size bytes, which are compressed as a whole. The
+     * producer is idempotent, so retries do not duplicate events. Producer metrics, such as
+     * the average batch size, record queue time and compression rate, are registered with
+     * the meter registry.
+     * 
+     * @param meterRegistry The meter registry
+     * @return The producer factory
+     */
+    @Bean
+    public ProducerFactory<String, RouteEvent> routeEventProducerFactory(MeterRegistry meterRegistry) {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        configProps.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        configProps.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, routeEventsLingerMs);
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, routeEventsBatchSize);
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, routeEventsCompressionType);
+        
+        DefaultKafkaProducerFactory<String, RouteEvent> factory = new DefaultKafkaProducerFactory<>(configProps);
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return factory;
+    }
+    
+    /**
+     * Create a KafkaTemplate for RouteEvents.
+     * 
+     * @param routeEventProducerFactory The route event producer factory
+     * @return The Kafka template
+     */
+    @Bean
+    public KafkaTemplate<String, RouteEvent> routeEventKafkaTemplate(
+            ProducerFactory<String, RouteEvent> routeEventProducerFactory) {
+        return new KafkaTemplate<>(routeEventProducerFactory);
+    }
 }
@@ -0,0 +1,281 @@
+package com.micrologistics.routing.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.micrologistics.common.sharding.SiteShardRing;
+import com.micrologistics.routing.algorithm.FacilityTopology;
+import com.micrologistics.routing.algorithm.OptimalPathFinder;
+import com.micrologistics.routing.algorithm.PriorityClass;
+import com.micrologistics.routing.algorithm.RoutePlanCache;
+import com.micrologistics.routing.algorithm.SitePathFinders;
+import com.micrologistics.routing.algorithm.StepDurationModel;
+import com.micrologistics.routing.cache.RouteLookupCache;
+import com.micrologistics.routing.messaging.publisher.RouteLifecyclePublisher;
+import com.micrologistics.routing.monitor.DispatchQueueMonitor;
+import com.micrologistics.routing.monitor.FacilityOccupancyMonitor;
+import com.micrologistics.routing.monitor.FacilityRouteIndex;
+import com.micrologistics.routing.monitor.OverdueRouteMonitor;
+import com.micrologistics.routing.service.RerouteService;
+import com.micrologistics.routing.service.RouteArchiveService;
+import com.micrologistics.routing.service.WavePlanningService;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Configuration for routing-specific metrics exposed through the actuator.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Expose hit, miss and eviction counts of the route plan caches, along with the number
+     * of facility changes that invalidated cached plans, tagged with their site. The caches
+     * of other sites are bound while this replica holds their path finders.
+     *
+     * @param pathFinder The path finder of the default site
+     * @param sitePathFinders The path finders of the other sites
+     * @return The meter binder
+     */
+    @Bean
+    public MeterBinder routePlanCacheMetrics(OptimalPathFinder pathFinder, SitePathFinders sitePathFinders) {
+        return registry -> {
+            bindPlanCache(registry, SiteShardRing.DEFAULT_SITE, pathFinder);
+            sitePathFinders.addListener(new SitePathFinders.Listener() {
+                @Override
+                public void onCreated(String siteKey, OptimalPathFinder sitePathFinder) {
+                    bindPlanCache(registry, siteKey, sitePathFinder);
+                }
+
+                @Override
+                public void onReleased(String siteKey, OptimalPathFinder sitePathFinder) {
+                    for (Meter meter : registry.getMeters()) {
+                        if (siteKey.equals(meter.getId().getTag("site"))) {
+                            registry.remove(meter);
+                        }
+                    }
+                }
+            });
+        };
+    }
+
+    /**
+     * Expose hit, miss and eviction counts of the route lookup caches.
+     *
+     * @param routeLookupCache The route lookup cache
+     * @return The meter binder
+     */
+    @Bean
+    public MeterBinder routeLookupCacheMetrics(RouteLookupCache routeLookupCache) {
+        return registry -> {
+            CaffeineCacheMetrics.monitor(registry, routeLookupCache.getRouteCache(), "routeLookups");
+            CaffeineCacheMetrics.monitor(registry, routeLookupCache.getTrackingIdCache(), "routeTrackingIds");
+        };
+    }
+
+    /**
+     * Expose the number of in-flight routes that are on schedule and that are overdue.
+     *
+     * @param monitor The overdue route monitor
+     * @return The meter binder
+     */
+    @Bean
+    public MeterBinder overdueRouteMetrics(OverdueRouteMonitor monitor) {
+        return registry -> {
+            Gauge.builder("routing.routes.pending", monitor, OverdueRouteMonitor::getPendingCount)
+                    .description("In-flight routes whose estimated completion time has not passed")
+                    .register(registry);
+            Gauge.builder("routing.routes.overdue", monitor, OverdueRouteMonitor::getOverdueCount)
+                    .description("In-flight routes that have missed their estimated completion time")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Expose the number of items waiting in the facility dispatch queues of each priority
+     * class, and the number of items turned away by full queues.
+     *
+     * @param monitor The dispatch queue monitor
+     * @return The meter binder
+     */
+    @Bean
+    public MeterBinder dispatchQueueMetrics(DispatchQueueMonitor monitor) {
+        return registry -> {
+            for (PriorityClass priority : PriorityClass.values()) {
+                Gauge.builder("routing.dispatch.queue.depth", monitor, m -> m.getDepth(priority))
+                        .description("Items waiting to be processed at any facility")
+                        .tag("priority", priority.name())
+                        .register(registry);
+            }
+            FunctionCounter.builder("routing.dispatch.queue.rejected", monitor,
+                            DispatchQueueMonitor::getRejectedCount)
+                    .description("Items that could not be queued because their facility queue was full")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Expose the number of in-flight routes indexed by the facilities ahead of them, and the
+     * number of routes re-routed around facilities that went down or to another dock.
+     *
+     * @param index The facility route index
+     * @param rerouteService The reroute service
+     * @return The meter binder
+     */
+    @Bean
+    public MeterBinder rerouteMetrics(FacilityRouteIndex index, RerouteService rerouteService) {
+        return registry -> {
+            Gauge.builder("routing.reroute.indexed.routes", index, FacilityRouteIndex::size)
+                    .description("In-flight routes indexed by the facilities they have yet to pass")
+                    .register(registry);
+            FunctionCounter.builder("routing.reroute.routes", rerouteService, RerouteService::getReroutedCount)
+                    .description("In-flight routes re-routed around facilities that went down or to another dock")
+                    .register(registry);
+            FunctionCounter.builder("routing.reroute.unroutable", rerouteService,
+                            RerouteService::getUnroutableCount)
+                    .description("In-flight routes left on their path because their dock was unreachable")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Expose the number of in-flight items currently at each facility.
+     *
+     * @param monitor The facility occupancy monitor
+     * @param topology The facility topology
+     * @return The meter binder
+     */
+    @Bean
+    public MeterBinder facilityOccupancyMetrics(FacilityOccupancyMonitor monitor, FacilityTopology topology) {
+        return registry -> {
+            for (int facility = 0; facility < topology.size(); facility++) {
+                int ordinal = facility;
+                Gauge.builder("routing.facility.occupancy", monitor, m -> m.getOccupancy(ordinal))
+                        .description("In-flight items currently at the facility")
+                        .tag("facility", topology.nameOf(facility))
+                        .register(registry);
+            }
+        };
+    }
+
+    /**
+     * Learned time items spend at each facility.
+     *
+     * @param stepDurations The step duration model
+     * @param topology The facility topology
+     * @return The meter binder
+     */
+    @Bean
+    public MeterBinder stepDurationMetrics(StepDurationModel stepDurations, FacilityTopology topology) {
+        return registry -> {
+            for (int facility = 0; facility < topology.size(); facility++) {
+                int ordinal = facility;
+                Gauge.builder("routing.facility.duration.median", stepDurations, d -> d.median(ordinal))
+                        .description("Estimated median minutes items spend at the facility")
+                        .tag("facility", topology.nameOf(facility))
+                        .register(registry);
+                Gauge.builder("routing.facility.duration.p90", stepDurations, d -> d.percentile90(ordinal))
+                        .description("Estimated 90th percentile of the minutes items spend at the facility")
+                        .tag("facility", topology.nameOf(facility))
+                        .register(registry);
+            }
+        };
+    }
+
+    /**
+     * Sites whose path finders this replica holds, besides the default site.
+     *
+     * @param sitePathFinders The site path finders
+     * @return The meter binder
+     */
+    @Bean
+    public MeterBinder sitePathFinderMetrics(SitePathFinders sitePathFinders) {
+        return registry -> Gauge.builder("routing.sites.held", sitePathFinders, s -> s.heldSites().size())
+                .description("Sites other than the default one routed by this replica")
+                .register(registry);
+    }
+
+    /**
+     * Expose the routed items waiting for the next wave planning window, and the number of
+     * waves planned and items moved to another dock.
+     *
+     * @param wavePlanningService The wave planning service
+     * @return The meter binder
+     */
+    @Bean
+    public MeterBinder wavePlanningMetrics(WavePlanningService wavePlanningService) {
+        return registry -> {
+            Gauge.builder("routing.waves.pending", wavePlanningService, WavePlanningService::getPendingCount)
+                    .description("Routed items waiting for the next wave planning window")
+                    .register(registry);
+            FunctionCounter.builder("routing.waves.planned", wavePlanningService,
+                            WavePlanningService::getPlannedWaveCount)
+                    .description("Outbound waves planned")
+                    .register(registry);
+            FunctionCounter.builder("routing.waves.moved.items", wavePlanningService,
+                            WavePlanningService::getMovedItemCount)
+                    .description("Items whose wave was moved away from the dock their destination maps to")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Expose the time from sending route events to their acknowledgement by the broker,
+     * which includes the time spent waiting for a batch to fill, and the events that could
+     * not be delivered.
+     *
+     * @param publisher The route lifecycle publisher
+     * @return The meter binder
+     */
+    @Bean
+    public MeterBinder routeEventDeliveryMetrics(RouteLifecyclePublisher publisher) {
+        return registry -> {
+            FunctionTimer.builder("routing.route.events.delivery", publisher,
+                            RouteLifecyclePublisher::getDeliveredCount, RouteLifecyclePublisher::getDeliveryNanos,
+                            TimeUnit.NANOSECONDS)
+                    .description("Time from sending route events to their acknowledgement")
+                    .register(registry);
+            FunctionCounter.builder("routing.route.events.failed", publisher, RouteLifecyclePublisher::getFailedCount)
+                    .description("Route events that could not be delivered")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Expose the completed routes and step history rows moved to the archive tables.
+     *
+     * @param routeArchiveService The route archive service
+     * @return The meter binder
+     */
+    @Bean
+    public MeterBinder routeArchiveMetrics(RouteArchiveService routeArchiveService) {
+        return registry -> {
+            FunctionCounter.builder("routing.archive.routes", routeArchiveService,
+                            RouteArchiveService::getArchivedRouteCount)
+                    .description("Completed routes moved to the archive")
+                    .register(registry);
+            FunctionCounter.builder("routing.archive.steps", routeArchiveService,
+                            RouteArchiveService::getArchivedStepCount)
+                    .description("Step history rows moved to the archive")
+                    .register(registry);
+        };
+    }
+
+    private static void bindPlanCache(MeterRegistry registry, String site, OptimalPathFinder pathFinder) {
+        RoutePlanCache planCache = pathFinder.getPlanCache();
+        CaffeineCacheMetrics.monitor(registry, planCache.getCache(), "routePlans", "site", site);
+        FunctionCounter.builder("routing.plan.cache.invalidations", planCache,
+                        RoutePlanCache::getInvalidationCount)
+                .description("Facility load or status changes that invalidated cached route plans")
+                .tag("site", site)
+                .register(registry);
+    }
+}
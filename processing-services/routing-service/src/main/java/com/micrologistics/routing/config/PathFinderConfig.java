@@ -0,0 +1,234 @@
+package com.micrologistics.routing.config;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+import com.micrologistics.routing.algorithm.DestinationIndex;
+import com.micrologistics.routing.algorithm.FacilityTopology;
+import com.micrologistics.routing.algorithm.OptimalPathFinder;
+import com.micrologistics.routing.algorithm.PathFinderSettings;
+import com.micrologistics.routing.algorithm.ReservationCalendar;
+import com.micrologistics.routing.algorithm.SitePathFinders;
+import com.micrologistics.routing.algorithm.SiteTopologies;
+import com.micrologistics.routing.algorithm.StepDurationModel;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Configuration for the facility topology and tuning of the path finder.
+ */
+@Configuration
+@Slf4j
+public class PathFinderConfig {
+
+    @Value("${routing.topology.location:classpath:" + FacilityTopology.DEFAULT_TOPOLOGY_RESOURCE + "}")
+    private Resource topologyLocation;
+
+    @Value("${routing.sites.location:#{null}}")
+    private Resource sitesLocation;
+
+    @Value("${routing.paths.load-quantum:5}")
+    private int loadQuantum;
+
+    @Value("${routing.paths.occupancy-quantum:10}")
+    private int occupancyQuantum;
+
+    @Value("${routing.load.increment-per-item:2.0}")
+    private double loadIncrement;
+
+    @Value("${routing.load.half-life-seconds:120}")
+    private double loadHalfLifeSeconds;
+
+    @Value("${routing.load.seed:#{null}}")
+    private Long loadSeed;
+
+    @Value("${routing.plan-cache.maximum-size:10000}")
+    private long planCacheMaximumSize;
+
+    @Value("${routing.plan-cache.load-bucket:10}")
+    private int planCacheLoadBucket;
+
+    @Value("${routing.plan-cache.weight-band:5.0}")
+    private double planCacheWeightBand;
+
+    @Value("${routing.reservations.capacity-per-minute:10}")
+    private int reservationCapacityPerMinute;
+
+    @Value("${routing.reservations.horizon-minutes:1440}")
+    private int reservationHorizonMinutes;
+
+    @Value("${routing.reservations.priority-headroom:2}")
+    private int reservationPriorityHeadroom;
+
+    @Value("${routing.dispatch.queue-capacity:10000}")
+    private int dispatchQueueCapacity;
+
+    @Value("${routing.durations.smoothing:0.05}")
+    private double durationSmoothing;
+
+    @Value("${routing.durations.min-samples:20}")
+    private int durationMinSamples;
+
+    @Value("${routing.durations.max-minutes:1440}")
+    private double durationMaxMinutes;
+
+    /**
+     * Load the topology of the default site from the configured location, and those of the
+     * other sites from the sites definition, if one is configured.
+     *
+     * The sites definition is line based; blank lines and lines starting with '#' are ignored:
+     * <pre>
+     * site &lt;NAME&gt; &lt;topology location&gt; &lt;destinations location&gt;
+     * </pre>
+     *
+     * @param resourceLoader Resolves the locations of the site definitions
+     * @return The site topologies
+     * @throws IOException If a definition cannot be read
+     */
+    @Bean
+    public SiteTopologies siteTopologies(ResourceLoader resourceLoader) throws IOException {
+        SiteTopologies.Builder sites = SiteTopologies.builder(loadTopology(topologyLocation));
+        if (sitesLocation == null) {
+            return sites.build();
+        }
+        try (BufferedReader lines = new BufferedReader(
+                new InputStreamReader(sitesLocation.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] tokens = line.split("\\s+");
+                if (tokens.length != 4 || !"site".equalsIgnoreCase(tokens[0])) {
+                    throw new IllegalArgumentException("Invalid sites definition: " + line);
+                }
+                FacilityTopology topology = loadTopology(resourceLoader.getResource(tokens[2]));
+                Resource destinations = resourceLoader.getResource(tokens[3]);
+                try (Reader reader = new InputStreamReader(destinations.getInputStream(), StandardCharsets.UTF_8)) {
+                    sites.site(tokens[1], topology, DestinationIndex.parse(reader, topology));
+                }
+            }
+        }
+        return sites.build();
+    }
+
+    /**
+     * Get the facility topology routes are stored in: the union of all site topologies,
+     * which is the default site's topology when no other sites are configured.
+     *
+     * @param sites The site topologies
+     * @return The facility topology
+     */
+    @Bean
+    public FacilityTopology facilityTopology(SiteTopologies sites) {
+        log.info("Routing {} sites: {} facilities", sites.siteKeys().size(), sites.getUnion().size());
+        return sites.getUnion();
+    }
+
+    /**
+     * Create the path finder of the default site. It only holds the default site's facilities,
+     * whose ordinals are the same in the union.
+     *
+     * @param sites The site topologies
+     * @param settings The path finder settings
+     * @param durations The step duration model
+     * @return The path finder
+     */
+    @Bean
+    public OptimalPathFinder optimalPathFinder(SiteTopologies sites, PathFinderSettings settings,
+            StepDurationModel durations) {
+        FacilityTopology topology = sites.getDefault().getTopology();
+        return new OptimalPathFinder(topology, settings, durations.slice(0, topology.size()));
+    }
+
+    /**
+     * Create the registry of per-site path finders.
+     *
+     * @param sites The site topologies
+     * @param pathFinder The path finder shared by all sites, which routes the default site
+     * @param settings The path finder settings
+     * @param durations The step duration model
+     * @return The site path finders
+     */
+    @Bean
+    public SitePathFinders sitePathFinders(SiteTopologies sites, OptimalPathFinder pathFinder,
+            PathFinderSettings settings, StepDurationModel durations) {
+        return new SitePathFinders(sites, pathFinder, settings, durations);
+    }
+
+    /**
+     * Collect the path finder tuning parameters.
+     *
+     * @return The path finder settings
+     */
+    @Bean
+    public PathFinderSettings pathFinderSettings() {
+        return PathFinderSettings.builder()
+                .loadQuantum(loadQuantum)
+                .occupancyQuantum(occupancyQuantum)
+                .loadIncrement(loadIncrement)
+                .loadHalfLifeSeconds(loadHalfLifeSeconds)
+                .loadSeed(loadSeed)
+                .planCacheMaximumSize(planCacheMaximumSize)
+                .planCacheLoadBucket(planCacheLoadBucket)
+                .planCacheWeightBand(planCacheWeightBand)
+                .reservationCapacityPerMinute(reservationCapacityPerMinute)
+                .reservationHorizonMinutes(reservationHorizonMinutes)
+                .reservationPriorityHeadroom(reservationPriorityHeadroom)
+                .dispatchQueueCapacity(dispatchQueueCapacity)
+                .durationSmoothing(durationSmoothing)
+                .durationMinSamples(durationMinSamples)
+                .durationMaxMinutes(durationMaxMinutes)
+                .build();
+    }
+
+    /**
+     * Create the model of the time items spend at each facility, learned from step transitions.
+     *
+     * @param topology The facility topology
+     * @param settings The path finder settings
+     * @return The step duration model
+     */
+    @Bean
+    public StepDurationModel stepDurationModel(FacilityTopology topology, PathFinderSettings settings) {
+        return StepDurationModel.of(topology, settings);
+    }
+
+    /**
+     * Create the calendar of facility processing slots. Items are expected to stay at a
+     * facility for the time learned from step transitions in the current hour, or the
+     * configured processing time until enough transitions have been recorded.
+     *
+     * @param topology The facility topology
+     * @param settings The path finder settings
+     * @param durations The step duration model
+     * @return The reservation calendar
+     */
+    @Bean
+    public ReservationCalendar reservationCalendar(FacilityTopology topology, PathFinderSettings settings,
+            StepDurationModel durations) {
+        return new ReservationCalendar(topology, settings.getReservationCapacityPerMinute(),
+                settings.getReservationPriorityHeadroom(), settings.getReservationHorizonMinutes(),
+                System::currentTimeMillis, facility -> durations.expectedMinutes(facility,
+                        LocalTime.now().getHour(), topology.processingMinutes(facility)));
+    }
+
+    private static FacilityTopology loadTopology(Resource location) throws IOException {
+        try (Reader reader = new InputStreamReader(location.getInputStream(), StandardCharsets.UTF_8)) {
+            FacilityTopology topology = FacilityTopology.parse(reader);
+            log.info("Loaded facility topology from {}: {} facilities", location, topology.size());
+            return topology;
+        }
+    }
+}
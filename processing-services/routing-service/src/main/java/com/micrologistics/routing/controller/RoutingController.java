@@ -7,16 +7,22 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.micrologistics.common.dto.CursorPage;
 import com.micrologistics.common.dto.RouteDto;
+import com.micrologistics.common.event.ScanEvent;
+import com.micrologistics.common.exception.BusinessException;
+import com.micrologistics.routing.monitor.DispatchQueueStats;
 import com.micrologistics.routing.service.RoutingService;
 
 import lombok.RequiredArgsConstructor;
@@ -41,6 +47,7 @@ public class RoutingController {
      * @param destination The destination
      * @param weight The weight
      * @param priority The priority (optional)
+     * @param site The warehouse site (optional)
      * @return The created route
      */
     @PostMapping
@@ -49,10 +56,11 @@ public class RoutingController {
             @RequestParam String trackingId,
             @RequestParam String destination,
             @RequestParam Double weight,
-            @RequestParam(required = false) Integer priority) {
+            @RequestParam(required = false) Integer priority,
+            @RequestParam(required = false) String site) {
         
         log.info("Received request to create route for item: {}, tracking: {}", itemId, trackingId);
-        RouteDto route = routingService.createRoute(itemId, trackingId, destination, weight, priority);
+        RouteDto route = routingService.createRoute(itemId, trackingId, destination, weight, priority, site);
         return ResponseEntity.ok(route);
     }
     
@@ -128,6 +136,31 @@ public class RoutingController {
         return ResponseEntity.ok(routes);
     }
     
+    /**
+     * Get routes ordered by creation time, a page at a time. Each page carries the cursor of
+     * the next one; unlike {@link #getRoutes}, deep pages are as cheap as the first and no
+     * total count is returned.
+     * 
+     * @param cursor The cursor returned with the previous page, omitted for the first page
+     * @param size The page size
+     * @param status Optional status filter
+     * @param direction Sort direction (ASC or DESC)
+     * @return A page of routes with the cursor of the next page
+     */
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPage<RouteDto>> getRoutesAfter(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "DESC") String direction) {
+        
+        log.info("Received request to get routes after cursor, size: {}, status: {}", size, status);
+        String statusFilter = status != null && !status.isEmpty() ? status : null;
+        CursorPage<RouteDto> routes = routingService.getRoutesAfter(statusFilter, cursor, size,
+                "ASC".equalsIgnoreCase(direction));
+        return ResponseEntity.ok(routes);
+    }
+    
     /**
      * Update a route's current step.
      * 
@@ -145,6 +178,32 @@ public class RoutingController {
         return ResponseEntity.ok(updatedRoute);
     }
     
+    /**
+     * Apply a batch of scanner events to the routes of the scanned items.
+     * 
+     * @param scans The scan events, in the order they were read
+     * @return The number of scans received and applied
+     */
+    @PostMapping("/scans")
+    public ResponseEntity<Map<String, Integer>> applyScans(@RequestBody List<ScanEvent> scans) {
+        log.debug("Received batch of {} scans", scans.size());
+        int applied = routingService.applyScans(scans);
+        return ResponseEntity.ok(Map.of("received", scans.size(), "applied", applied));
+    }
+    
+    /**
+     * Mark a route as failed.
+     * 
+     * @param id The route ID
+     * @return The updated route
+     */
+    @PutMapping("/{id}/fail")
+    public ResponseEntity<RouteDto> failRoute(@PathVariable String id) {
+        log.info("Received request to mark route with ID: {} as failed", id);
+        RouteDto updatedRoute = routingService.failRoute(id);
+        return ResponseEntity.ok(updatedRoute);
+    }
+    
     /**
      * Get equipment load status.
      * 
@@ -199,7 +258,69 @@ public class RoutingController {
     }
     
     /**
-     * Get delayed routes (completion time exceeded estimated time).
+     * Get the number of in-flight items currently at each facility.
+     * 
+     * @return Map of facility to item count
+     */
+    @GetMapping("/facilities/occupancy")
+    public ResponseEntity<Map<String, Long>> getFacilityOccupancy() {
+        log.debug("Received request to get facility occupancy");
+        return ResponseEntity.ok(routingService.getFacilityOccupancy());
+    }
+    
+    /**
+     * Get the number of in-flight items currently at a facility.
+     * 
+     * @param facility The facility name
+     * @return The facility and its item count
+     */
+    @GetMapping("/facilities/{facility}/occupancy")
+    public ResponseEntity<Map<String, Object>> getFacilityOccupancy(@PathVariable String facility) {
+        log.debug("Received request to get occupancy of {}", facility);
+        long occupancy = routingService.getFacilityOccupancy(facility);
+        return ResponseEntity.ok(Map.of("facility", facility, "occupancy", occupancy));
+    }
+    
+    /**
+     * Take the next item a facility should process, most urgent priority class first.
+     * 
+     * @param facility The facility name
+     * @return The item ID, no content if no item is waiting, or conflict if another replica
+     *         dispatches the facility's items and the request should be retried there
+     */
+    @PostMapping("/facilities/{facility}/dispatch")
+    public ResponseEntity<Map<String, String>> dispatchNextItem(@PathVariable String facility) {
+        log.debug("Received request to dispatch the next item at {}", facility);
+        String itemId;
+        try {
+            itemId = routingService.dispatchNextItem(facility);
+        } catch (BusinessException e) {
+            if (!BusinessException.ERROR_NOT_DISPATCHER.equals(e.getErrorCode())) {
+                throw e;
+            }
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("facility", facility, "error", e.getErrorCode()));
+        }
+        if (itemId == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(Map.of("facility", facility, "itemId", itemId));
+    }
+    
+    /**
+     * Get the dispatch queue depths and waiting-time histograms by priority class.
+     * 
+     * @return Map of priority class to queue statistics
+     */
+    @GetMapping("/queues")
+    public ResponseEntity<Map<String, DispatchQueueStats>> getDispatchQueueStats() {
+        log.info("Received request to get dispatch queue statistics");
+        Map<String, DispatchQueueStats> stats = routingService.getDispatchQueueStats();
+        return ResponseEntity.ok(stats);
+    }
+    
+    /**
+     * Get delayed routes (in flight past their estimated completion time).
      * 
      * @return List of delayed routes
      */
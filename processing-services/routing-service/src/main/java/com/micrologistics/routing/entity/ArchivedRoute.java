@@ -0,0 +1,76 @@
+package com.micrologistics.routing.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entity class for completed routes moved out of the routes table by the archive.
+ * Has the columns of {@link Route}; rows are written and read with SQL only.
+ */
+@Entity
+@Table(name = "routes_archive", indexes = {
+        @Index(name = "idx_routes_archive_tracking_id", columnList = "tracking_id"),
+        // Redelivered registrations of archived items are matched on it by the route insert
+        @Index(name = "idx_routes_archive_item_id", columnList = "item_id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedRoute {
+    
+    @Id
+    private String id;
+    
+    @Column(nullable = false)
+    private String itemId;
+    
+    @Column(nullable = false)
+    private String trackingId;
+    
+    @Column(name = "step_codes")
+    private short[] stepCodes;
+    
+    @Column(nullable = false)
+    private String currentStep;
+    
+    @Column(name = "current_step_index")
+    private Integer currentStepIndex;
+    
+    @Column(nullable = false)
+    private String status;
+    
+    @Column
+    private Double estimatedTimeMinutes;
+    
+    @Column
+    private Integer priority;
+    
+    @Column
+    private Double weight;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    @Column(name = "estimated_completion_time")
+    private LocalDateTime estimatedCompletionTime;
+    
+    @Column(name = "step_entered_at")
+    private LocalDateTime stepEnteredAt;
+    
+    @Column(name = "archived_at")
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,47 @@
+package com.micrologistics.routing.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entity class for step history rows moved out of route_step_history by the archive.
+ * Has the columns of {@link RouteStepHistory} and keeps their IDs; rows are written with SQL only.
+ */
+@Entity
+@Table(name = "route_step_history_archive")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedRouteStepHistory {
+    
+    @Id
+    private Long id;
+    
+    @Column(nullable = false)
+    private String routeId;
+    
+    @Column(nullable = false)
+    private String itemId;
+    
+    @Column(nullable = false)
+    private short facility;
+    
+    @Column(name = "next_facility", nullable = false)
+    private short nextFacility;
+    
+    @Column(name = "entered_at", nullable = false)
+    private LocalDateTime enteredAt;
+    
+    @Column(name = "left_at", nullable = false)
+    private LocalDateTime leftAt;
+}
@@ -0,0 +1,33 @@
+package com.micrologistics.routing.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entity class for the code a facility is stored under in step_codes and the step history.
+ * Codes are assigned once per facility name and never change or get reused, so facilities
+ * can be reordered in or removed from the topology without changing stored routes.
+ */
+@Entity
+@Table(name = "facility_codes", uniqueConstraints = @UniqueConstraint(name = "uk_facility_codes_code",
+        columnNames = "code"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacilityCode {
+    
+    @Id
+    private String name;
+    
+    @Column(nullable = false)
+    private short code;
+}
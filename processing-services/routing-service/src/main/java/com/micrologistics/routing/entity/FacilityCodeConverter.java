@@ -0,0 +1,30 @@
+package com.micrologistics.routing.entity;
+
+import com.micrologistics.routing.repository.FacilityCodes;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores a facility ordinal as its stable facility code.
+ * Instances are created through Spring's bean container for Hibernate, which supplies the codes.
+ */
+@Converter
+public class FacilityCodeConverter implements AttributeConverter<Short, Short> {
+
+    private final FacilityCodes facilityCodes;
+
+    public FacilityCodeConverter(FacilityCodes facilityCodes) {
+        this.facilityCodes = facilityCodes;
+    }
+
+    @Override
+    public Short convertToDatabaseColumn(Short ordinal) {
+        return ordinal != null && ordinal >= 0 ? facilityCodes.codeOf(ordinal) : ordinal;
+    }
+
+    @Override
+    public Short convertToEntityAttribute(Short code) {
+        return code != null ? (short) facilityCodes.ordinalOf(code) : null;
+    }
+}
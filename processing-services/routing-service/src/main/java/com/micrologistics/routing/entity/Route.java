@@ -3,16 +3,17 @@ package com.micrologistics.routing.entity;
 import java.time.LocalDateTime;
 import java.util.List;
 
-import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
-import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
-import jakarta.persistence.JoinColumn;
-import jakarta.persistence.OrderColumn;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.UniqueConstraint;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -24,7 +25,13 @@ import lombok.NoArgsConstructor;
  * Represents the persistent data model for item routes.
  */
 @Entity
-@Table(name = "routes")
+@Table(name = "routes", indexes = {
+        @Index(name = "idx_routes_tracking_id", columnList = "tracking_id"),
+        @Index(name = "idx_routes_status_eta", columnList = "status, estimated_completion_time"),
+        @Index(name = "idx_routes_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_routes_status_created_at_id", columnList = "status, created_at, id")
+}, uniqueConstraints = @UniqueConstraint(name = "uk_routes_item_id", columnNames = "item_id"))
+@EntityListeners(RouteStepsListener.class)
 @Data
 @Builder
 @NoArgsConstructor
@@ -35,27 +42,44 @@ public class Route {
     @GeneratedValue(strategy = GenerationType.UUID)
     private String id;
     
+    // One route per item, so redelivered registrations can be inserted with ON CONFLICT DO NOTHING
     @Column(nullable = false)
     private String itemId;
     
     @Column(nullable = false)
     private String trackingId;
     
-    @ElementCollection
-    @CollectionTable(name = "route_steps", joinColumns = @JoinColumn(name = "route_id"))
-    @OrderColumn(name = "step_order")
-    @Column(name = "step")
+    // Facility ordinals of the steps, kept in sync with routeSteps by RouteStepsListener and
+    // stored as stable facility codes in a smallint[] column; legacy rows are moved over from
+    // route_steps by RouteStepsMigration
+    @Column(name = "step_codes")
+    @Convert(converter = StepCodesConverter.class)
+    private short[] stepCodes;
+    
+    @Transient
     private List<String> routeSteps;
     
     @Column(nullable = false)
     private String currentStep;
     
+    // Position of currentStep in routeSteps, so scans can advance a route without loading it
+    @Column(name = "current_step_index")
+    private Integer currentStepIndex;
+    
     @Column(nullable = false)
     private String status;
     
     @Column
     private Double estimatedTimeMinutes;
     
+    // Item priority, higher is more urgent; null for routes created before priorities were kept
+    @Column
+    private Integer priority;
+    
+    // Item weight, so the remaining path can be re-planned; null for routes created before weights were kept
+    @Column
+    private Double weight;
+    
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
     
@@ -65,6 +89,14 @@ public class Route {
     @Column(name = "estimated_completion_time")
     private LocalDateTime estimatedCompletionTime;
     
+    // When the item reached its current step, so the time spent there can be recorded once it moves on
+    @Column(name = "step_entered_at")
+    private LocalDateTime stepEnteredAt;
+    
+    // Destination the route was planned for; only carried to the listeners of its creation
+    @Transient
+    private String destination;
+    
     /**
      * Route status constants
      */
@@ -73,6 +105,26 @@ public class Route {
     public static final String STATUS_COMPLETED = "COMPLETED";
     public static final String STATUS_FAILED = "FAILED";
     
+    /**
+     * Set the steps of the route. The stored step codes are re-encoded when the route is saved.
+     * 
+     * @param routeSteps The steps
+     */
+    public void setRouteSteps(List<String> routeSteps) {
+        this.routeSteps = routeSteps;
+        // Marks the row dirty so the encoding listener runs even if nothing else changed
+        this.stepCodes = null;
+    }
+    
+    /**
+     * Set the steps decoded from the stored step codes, leaving the codes in place.
+     * 
+     * @param routeSteps The decoded steps
+     */
+    void loadRouteSteps(List<String> routeSteps) {
+        this.routeSteps = routeSteps;
+    }
+    
     /**
      * Check if this is the final step in the route.
      * 
@@ -106,6 +158,9 @@ public class Route {
      * @return The index of the current step, or -1 if not found
      */
     public int getCurrentStepIndex() {
+        if (currentStepIndex != null) {
+            return currentStepIndex;
+        }
         if (routeSteps != null && currentStep != null) {
             return routeSteps.indexOf(currentStep);
         }
@@ -0,0 +1,57 @@
+package com.micrologistics.routing.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entity class for the time an item spent at one step of its route.
+ * Append-only: a row is written when the item moves on to the next step and never updated.
+ */
+@Entity
+@Table(name = "route_step_history", indexes = {
+        @Index(name = "idx_route_step_history_left_at", columnList = "left_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RouteStepHistory {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private String routeId;
+    
+    @Column(nullable = false)
+    private String itemId;
+    
+    // Facility ordinals, stored as stable facility codes as in Route.stepCodes
+    @Column(nullable = false)
+    @Convert(converter = FacilityCodeConverter.class)
+    private short facility;
+    
+    @Column(name = "next_facility", nullable = false)
+    @Convert(converter = FacilityCodeConverter.class)
+    private short nextFacility;
+    
+    @Column(name = "entered_at", nullable = false)
+    private LocalDateTime enteredAt;
+    
+    @Column(name = "left_at", nullable = false)
+    private LocalDateTime leftAt;
+}
@@ -0,0 +1,108 @@
+package com.micrologistics.routing.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.micrologistics.routing.algorithm.FacilityTopology;
+import com.micrologistics.routing.repository.FacilityCodes;
+
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+
+/**
+ * Translates the steps of a route between facility names and the facility ordinals kept in
+ * its step_codes column, so a route is persisted as a single row instead of one row per
+ * step.
+ *
+ * Ordinals are taken from the configured {@link FacilityTopology} and written as the stable
+ * codes of {@link FacilityCodes}, so the topology may be reordered without changing stored
+ * routes. Instances are created through Spring's bean container for Hibernate, which supplies
+ * the topology and the codes.
+ */
+public class RouteStepsListener {
+
+    /**
+     * Step name used for stored ordinals that the topology does not know.
+     */
+    public static final String UNKNOWN_STEP = "UNKNOWN";
+
+    private final FacilityTopology topology;
+    private final FacilityCodes facilityCodes;
+
+    public RouteStepsListener(FacilityTopology topology, FacilityCodes facilityCodes) {
+        this.topology = topology;
+        this.facilityCodes = facilityCodes;
+    }
+
+    /**
+     * Encode the step names of a route before it is written.
+     *
+     * @param route The route
+     */
+    @PrePersist
+    @PreUpdate
+    public void encode(Route route) {
+        if (route.getRouteSteps() != null) {
+            route.setStepCodes(encodeSteps(topology, route.getRouteSteps()));
+        }
+    }
+
+    /**
+     * Decode the step names of a route after it is read.
+     *
+     * @param route The route
+     */
+    @PostLoad
+    public void decode(Route route) {
+        if (route.getStepCodes() != null) {
+            route.loadRouteSteps(decodeSteps(topology, route.getStepCodes()));
+        }
+    }
+
+    /**
+     * Get the stored code of a step.
+     *
+     * @param step The step name
+     * @return The code, or -1 if the step is not a known facility
+     */
+    public int codeOf(String step) {
+        int ordinal = topology.ordinalOf(step);
+        return ordinal >= 0 ? facilityCodes.codeOf(ordinal) : -1;
+    }
+
+    /**
+     * Encode step names as the facility ordinals stored in step_codes.
+     *
+     * @param topology The facility topology
+     * @param steps The step names
+     * @return The step codes
+     * @throws IllegalArgumentException If a step is not a known facility
+     */
+    public static short[] encodeSteps(FacilityTopology topology, List<String> steps) {
+        short[] codes = new short[steps.size()];
+        for (int i = 0; i < codes.length; i++) {
+            int ordinal = topology.ordinalOf(steps.get(i));
+            if (ordinal < 0) {
+                throw new IllegalArgumentException("Unknown route step: " + steps.get(i));
+            }
+            codes[i] = (short) ordinal;
+        }
+        return codes;
+    }
+
+    /**
+     * Decode stored step codes into step names.
+     *
+     * @param topology The facility topology
+     * @param codes The step codes
+     * @return The step names, with {@link #UNKNOWN_STEP} for codes the topology does not know
+     */
+    public static List<String> decodeSteps(FacilityTopology topology, short[] codes) {
+        List<String> steps = new ArrayList<>(codes.length);
+        for (short code : codes) {
+            steps.add(code >= 0 && code < topology.size() ? topology.nameOf(code) : UNKNOWN_STEP);
+        }
+        return steps;
+    }
+}
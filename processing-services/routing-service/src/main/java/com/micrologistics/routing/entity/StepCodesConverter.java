@@ -0,0 +1,30 @@
+package com.micrologistics.routing.entity;
+
+import com.micrologistics.routing.repository.FacilityCodes;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores the facility ordinals of a route's steps as their stable facility codes.
+ * Instances are created through Spring's bean container for Hibernate, which supplies the codes.
+ */
+@Converter
+public class StepCodesConverter implements AttributeConverter<short[], short[]> {
+
+    private final FacilityCodes facilityCodes;
+
+    public StepCodesConverter(FacilityCodes facilityCodes) {
+        this.facilityCodes = facilityCodes;
+    }
+
+    @Override
+    public short[] convertToDatabaseColumn(short[] ordinals) {
+        return ordinals != null ? facilityCodes.toCodes(ordinals) : null;
+    }
+
+    @Override
+    public short[] convertToEntityAttribute(short[] codes) {
+        return codes != null ? facilityCodes.toOrdinals(codes) : null;
+    }
+}
@@ -0,0 +1,16 @@
+package com.micrologistics.routing.event;
+
+import com.micrologistics.routing.entity.Route;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Application event published when a route has been created.
+ */
+@Getter
+@AllArgsConstructor
+public class RouteCreatedEvent {
+    
+    private final Route route;
+}
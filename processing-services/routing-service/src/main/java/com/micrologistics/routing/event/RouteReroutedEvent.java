@@ -0,0 +1,20 @@
+package com.micrologistics.routing.event;
+
+import com.micrologistics.routing.entity.Route;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Application event published when the remaining steps of an in-flight route have been
+ * replaced, for example to avoid a facility that went down.
+ */
+@Getter
+@AllArgsConstructor
+public class RouteReroutedEvent {
+    
+    private final Route route;
+    
+    // Estimated time of the route before it was re-routed
+    private final Double previousEstimatedTimeMinutes;
+}
@@ -0,0 +1,50 @@
+package com.micrologistics.routing.event;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Application event published when a route has moved to another step, completed or failed.
+ */
+@Getter
+@AllArgsConstructor
+public class RouteStepChangedEvent {
+    
+    private final String routeId;
+    
+    private final String itemId;
+    
+    private final String previousStep;
+    
+    private final String step;
+    
+    private final int stepIndex;
+    
+    private final String status;
+    
+    private final Double estimatedTimeMinutes;
+    
+    // When the item reached the previous step; null unless it moved on to the next step of its
+    // route, so the time it spent there is known
+    private final LocalDateTime previousStepAt;
+    
+    private final LocalDateTime changedAt;
+    
+    /**
+     * Create an event for a change that does not record the time spent at the previous step.
+     * 
+     * @param routeId The route ID
+     * @param itemId The item ID
+     * @param previousStep The step before the change
+     * @param step The step after the change
+     * @param stepIndex The index of the step in the route
+     * @param status The route status after the change
+     * @param estimatedTimeMinutes The estimated time of the route
+     */
+    public RouteStepChangedEvent(String routeId, String itemId, String previousStep, String step, int stepIndex,
+            String status, Double estimatedTimeMinutes) {
+        this(routeId, itemId, previousStep, step, stepIndex, status, estimatedTimeMinutes, null, null);
+    }
+}
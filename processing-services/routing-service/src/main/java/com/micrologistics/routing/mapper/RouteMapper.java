@@ -33,6 +33,7 @@ public class RouteMapper {
                 .currentStep(route.getCurrentStep())
                 .status(route.getStatus())
                 .estimatedTimeMinutes(route.getEstimatedTimeMinutes())
+                .priority(route.getPriority())
                 .createdAt(route.getCreatedAt())
                 .updatedAt(route.getUpdatedAt())
                 .estimatedCompletionTime(route.getEstimatedCompletionTime())
@@ -58,6 +59,7 @@ public class RouteMapper {
                 .currentStep(routeDto.getCurrentStep())
                 .status(routeDto.getStatus())
                 .estimatedTimeMinutes(routeDto.getEstimatedTimeMinutes())
+                .priority(routeDto.getPriority())
                 .createdAt(routeDto.getCreatedAt())
                 .updatedAt(routeDto.getUpdatedAt())
                 .estimatedCompletionTime(routeDto.getEstimatedCompletionTime())
@@ -0,0 +1,86 @@
+package com.micrologistics.routing.messaging.consumer;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+
+import com.micrologistics.common.event.EquipmentStateEvent;
+import com.micrologistics.routing.algorithm.OptimalPathFinder;
+import com.micrologistics.routing.algorithm.SitePathFinders;
+import com.micrologistics.routing.messaging.publisher.EquipmentStatePublisher;
+import com.micrologistics.routing.service.RerouteService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Kafka consumer keeping this replica's equipment state in step with the other replicas.
+ *
+ * Every replica reads the whole compacted equipment state topic from the beginning in a
+ * consumer group of its own. Events published before the replica started restore the last
+ * known state of each facility; later events from other replicas are applied as deltas.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EquipmentStateConsumer implements ConsumerSeekAware {
+    
+    private final OptimalPathFinder pathFinder;
+    private final SitePathFinders sitePathFinders;
+    private final EquipmentStatePublisher publisher;
+    private final RerouteService rerouteService;
+    
+    private final long startedAtMillis = System.currentTimeMillis();
+    
+    /**
+     * Consume a batch of equipment state events from Kafka.
+     * 
+     * @param records The equipment state records
+     */
+    @KafkaListener(
+        topics = "${kafka.topics.equipment-state}",
+        containerFactory = "equipmentStateKafkaListenerContainerFactory"
+    )
+    public void consumeEquipmentStates(List<ConsumerRecord<String, EquipmentStateEvent>> records) {
+        long now = System.currentTimeMillis();
+        for (ConsumerRecord<String, EquipmentStateEvent> record : records) {
+            EquipmentStateEvent event = record.value();
+            if (event == null || event.getFacility() == null) {
+                continue;
+            }
+            try {
+                if (record.timestamp() < startedAtMillis) {
+                    pathFinder.restoreEquipmentState(event.getFacility(), event.isOperational(), event.getLoad(),
+                            now - record.timestamp());
+                    sitePathFinders.restoreEquipmentState(event.getFacility(), event.isOperational(),
+                            event.getLoad(), now - record.timestamp());
+                } else if (!publisher.getInstanceId().equals(event.getSource())) {
+                    if (sitePathFinders.isOperational(event.getFacility()) != event.isOperational()) {
+                        pathFinder.updateEquipmentStatus(event.getFacility(), event.isOperational());
+                        sitePathFinders.updateEquipmentStatus(event.getFacility(), event.isOperational());
+                        if (!event.isOperational()) {
+                            // Routes created on this replica are re-routed here
+                            rerouteService.rerouteAround(event.getFacility());
+                        }
+                    }
+                    pathFinder.applyLoadDelta(event.getFacility(), event.getLoadDelta());
+                    sitePathFinders.applyLoadDelta(event.getFacility(), event.getLoadDelta(), event.getLoad(),
+                            now - record.timestamp());
+                }
+            } catch (Exception e) {
+                log.error("Error applying equipment state of {}: {}", event.getFacility(), e.getMessage(), e);
+            }
+        }
+    }
+    
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        // Replay the compacted topic so the latest state of every facility is restored
+        callback.seekToBeginning(assignments.keySet());
+    }
+}
@@ -0,0 +1,56 @@
+package com.micrologistics.routing.messaging.consumer;
+
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import com.micrologistics.common.event.ItemRegisteredEvent;
+import com.micrologistics.routing.service.RoutingService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Kafka consumer for item registration events in batch mode.
+ * Routes every event of a poll with a single existence check and one batched insert.
+ */
+@Component
+@ConditionalOnProperty(name = "kafka.consumer.batch.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class ItemRegistrationBatchConsumer {
+    
+    private final RoutingService routingService;
+    
+    /**
+     * Consume a batch of item registered events from Kafka.
+     * 
+     * @param events The item registered events
+     */
+    @KafkaListener(
+        topics = "${kafka.topics.item-registered}",
+        containerFactory = "itemRegisteredBatchKafkaListenerContainerFactory"
+    )
+    public void consumeItemRegisteredEvents(List<ItemRegisteredEvent> events) {
+        log.info("Received batch of {} item registered events", events.size());
+        
+        try {
+            routingService.createRoutes(events);
+        } catch (Exception e) {
+            log.error("Error processing batch of {} item registered events, retrying one by one: {}", 
+                    events.size(), e.getMessage(), e);
+            // Isolate the failing events so the rest of the batch is still routed; the failed batch
+            // gave back the load and slots of its plans when it rolled back
+            for (ItemRegisteredEvent event : events) {
+                try {
+                    routingService.processItemRegisteredEvent(event);
+                } catch (Exception itemException) {
+                    log.error("Error processing item registered event for itemId={}: {}", 
+                            event.getId(), itemException.getMessage(), itemException);
+                }
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.micrologistics.routing.messaging.consumer;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
@@ -11,9 +12,11 @@ import lombok.extern.slf4j.Slf4j;
 
 /**
  * Kafka consumer for item registration events.
- * Processes new items that need routing.
+ * Processes new items that need routing, one event at a time.
+ * Replaced by {@link ItemRegistrationBatchConsumer} when batch consumption is enabled.
  */
 @Component
+@ConditionalOnProperty(name = "kafka.consumer.batch.enabled", havingValue = "false", matchIfMissing = true)
 @RequiredArgsConstructor
 @Slf4j
 public class ItemRegistrationConsumer {
@@ -0,0 +1,62 @@
+package com.micrologistics.routing.messaging.consumer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+
+import com.micrologistics.common.event.RouteCacheInvalidationEvent;
+import com.micrologistics.routing.cache.RouteLookupCache;
+import com.micrologistics.routing.messaging.publisher.RouteCacheInvalidationPublisher;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Kafka consumer dropping cached routes that other replicas have changed.
+ * Every replica reads all invalidations in a consumer group of its own, starting from the
+ * latest offset, since its cache starts out empty; the group outlives restarts, so the
+ * consumer skips the invalidations committed before it started.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RouteCacheInvalidationConsumer implements ConsumerSeekAware {
+    
+    private final RouteLookupCache routeLookupCache;
+    private final RouteCacheInvalidationPublisher publisher;
+    
+    // Later assignments continue from the committed offsets
+    private final AtomicBoolean started = new AtomicBoolean();
+    
+    /**
+     * Consume a batch of route cache invalidations from Kafka.
+     * 
+     * @param events The invalidation events
+     */
+    @KafkaListener(
+        topics = "${kafka.topics.route-cache-invalidation}",
+        containerFactory = "routeCacheInvalidationKafkaListenerContainerFactory"
+    )
+    public void consumeInvalidations(List<RouteCacheInvalidationEvent> events) {
+        int invalidated = 0;
+        for (RouteCacheInvalidationEvent event : events) {
+            if (event != null && event.getItemId() != null && !publisher.getInstanceId().equals(event.getSource())) {
+                routeLookupCache.invalidate(event.getItemId());
+                invalidated++;
+            }
+        }
+        log.debug("Invalidated {} cached routes from a batch of {} events", invalidated, events.size());
+    }
+    
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        if (started.compareAndSet(false, true)) {
+            callback.seekToEnd(assignments.keySet());
+        }
+    }
+}
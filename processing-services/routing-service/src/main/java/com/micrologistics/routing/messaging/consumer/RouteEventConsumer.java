@@ -0,0 +1,98 @@
+package com.micrologistics.routing.messaging.consumer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+
+import com.micrologistics.common.event.RouteEvent;
+import com.micrologistics.routing.monitor.DispatchQueueMonitor;
+import com.micrologistics.routing.monitor.FacilityOccupancyMonitor;
+import com.micrologistics.routing.monitor.FacilityRouteIndex;
+import com.micrologistics.routing.monitor.OverdueRouteMonitor;
+import com.micrologistics.routing.monitor.StepTimingAggregator;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Kafka consumer feeding the route changes of all replicas, this one included, to the route
+ * monitors, so every replica's aggregates, occupancy counters, overdue routes, dispatch
+ * queues and facility route index agree.
+ *
+ * Every replica reads all route events in a consumer group of its own. The monitors are
+ * rebuilt from the routes table on startup, so on the first assignment the consumer seeks
+ * to the earliest rebuild and each monitor skips the events published before its own.
+ * Counting monitors take their rebuild time after their query and the others before it, so
+ * an event near the rebuild is never counted twice, at the cost of a few missed ones.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RouteEventConsumer implements ConsumerSeekAware {
+    
+    private final StepTimingAggregator stepTimingAggregator;
+    private final FacilityOccupancyMonitor facilityOccupancyMonitor;
+    private final OverdueRouteMonitor overdueRouteMonitor;
+    private final DispatchQueueMonitor dispatchQueueMonitor;
+    private final FacilityRouteIndex facilityRouteIndex;
+    
+    // Later assignments continue from the committed offsets instead of replaying events
+    private final AtomicBoolean replayed = new AtomicBoolean();
+    
+    /**
+     * Consume a batch of route events from Kafka.
+     * 
+     * @param records The route event records
+     */
+    @KafkaListener(
+        topics = "${kafka.topics.route-events}",
+        containerFactory = "routeEventKafkaListenerContainerFactory"
+    )
+    public void consumeRouteEvents(List<ConsumerRecord<String, RouteEvent>> records) {
+        for (ConsumerRecord<String, RouteEvent> record : records) {
+            RouteEvent event = record.value();
+            if (event == null || event.getEventType() == null || event.getRouteId() == null) {
+                continue;
+            }
+            try {
+                if (record.timestamp() >= stepTimingAggregator.getRebuiltAtMillis()) {
+                    stepTimingAggregator.onRouteEvent(event);
+                }
+                if (record.timestamp() >= facilityOccupancyMonitor.getRebuiltAtMillis()) {
+                    facilityOccupancyMonitor.onRouteEvent(event);
+                }
+                if (record.timestamp() >= overdueRouteMonitor.getRebuiltAtMillis()) {
+                    overdueRouteMonitor.onRouteEvent(event);
+                }
+                if (record.timestamp() >= dispatchQueueMonitor.getRebuiltAtMillis()) {
+                    dispatchQueueMonitor.onRouteEvent(event);
+                }
+                if (record.timestamp() >= facilityRouteIndex.getRebuiltAtMillis()) {
+                    facilityRouteIndex.onRouteEvent(event);
+                }
+            } catch (Exception e) {
+                log.error("Error applying {} event of route ID: {}", event.getEventType(), event.getRouteId(), e);
+            }
+        }
+    }
+    
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        if (replayed.compareAndSet(false, true)) {
+            long rebuiltAt = LongStream.of(
+                    stepTimingAggregator.getRebuiltAtMillis(),
+                    facilityOccupancyMonitor.getRebuiltAtMillis(),
+                    overdueRouteMonitor.getRebuiltAtMillis(),
+                    dispatchQueueMonitor.getRebuiltAtMillis(),
+                    facilityRouteIndex.getRebuiltAtMillis()).min().getAsLong();
+            callback.seekToTimestamp(assignments.keySet(), rebuiltAt);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.micrologistics.routing.messaging.consumer;
+
+import java.util.List;
+
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import com.micrologistics.common.event.ScanEvent;
+import com.micrologistics.routing.service.RoutingService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Kafka consumer for scanner events.
+ * Advances item routes a poll at a time; scans are keyed by tracking ID, so the scans of
+ * an item arrive in order on a single partition.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ScanEventConsumer {
+    
+    private final RoutingService routingService;
+    
+    /**
+     * Consume a batch of scan events from Kafka.
+     * 
+     * @param scans The scan events
+     */
+    @KafkaListener(
+        topics = "${kafka.topics.scan-events}",
+        containerFactory = "scanEventKafkaListenerContainerFactory"
+    )
+    public void consumeScanEvents(List<ScanEvent> scans) {
+        log.debug("Received batch of {} scan events", scans.size());
+        
+        try {
+            int applied = routingService.applyScans(scans);
+            log.debug("Applied {} of {} scan events", applied, scans.size());
+        } catch (Exception e) {
+            log.error("Error applying batch of {} scan events: {}", scans.size(), e.getMessage(), e);
+            // In a production environment, we'd implement error handling, retries,
+            // and a dead-letter queue for failed messages
+        }
+    }
+}
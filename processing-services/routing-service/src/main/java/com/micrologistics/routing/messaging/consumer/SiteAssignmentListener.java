@@ -0,0 +1,103 @@
+package com.micrologistics.routing.messaging.consumer;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import com.micrologistics.common.sharding.SiteShardRing;
+import com.micrologistics.routing.algorithm.SitePathFinders;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the per-site path finders of this replica in step with the item registration
+ * partitions it is assigned. Registrations are keyed by item, and the {@link SiteShardRing}
+ * spreads each site over a range of partitions, so the sites a replica routes are those whose
+ * range includes one of its partitions.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SiteAssignmentListener implements ConsumerAwareRebalanceListener {
+    
+    private final SitePathFinders sitePathFinders;
+    
+    @Value("${kafka.topics.item-registered}")
+    private String itemRegisteredTopic;
+    
+    // Must match the item registration service's partitioner
+    @Value("${kafka.item-registered.partitions-per-site:3}")
+    private int partitionsPerSite;
+    
+    // Shared by the consumers of all listener container threads
+    private final Set<Integer> ownedPartitions = ConcurrentHashMap.newKeySet();
+    
+    private volatile int partitionCount;
+    
+    @Override
+    public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        release(partitions);
+    }
+    
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        release(partitions);
+    }
+    
+    /**
+     * Create the path finders of the sites carried by the owned partitions and drop the others.
+     * 
+     * @param consumer The consumer
+     * @param partitions The newly assigned partitions
+     */
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            if (itemRegisteredTopic.equals(partition.topic())) {
+                ownedPartitions.add(partition.partition());
+            }
+        }
+        partitionCount = consumer.partitionsFor(itemRegisteredTopic).size();
+        SiteShardRing ring = new SiteShardRing(partitionCount);
+        Set<String> ownedSites = new HashSet<>();
+        for (String site : sitePathFinders.siteKeys()) {
+            for (int partition : ownedPartitions) {
+                if (ring.carries(site, partition, partitionsPerSite)) {
+                    ownedSites.add(site);
+                    break;
+                }
+            }
+        }
+        sitePathFinders.retainOnly(ownedSites);
+        log.info("Assigned item registration partitions {}, routing sites {}", ownedPartitions, ownedSites);
+    }
+    
+    /**
+     * Check whether a key hashes to an item registration partition owned by this replica, so
+     * that work on state every replica holds, such as reporting an overdue route, is done by
+     * one replica only while the partitions are stably assigned.
+     * 
+     * @param key The key, such as a route ID
+     * @return True if this replica owns the key
+     */
+    public boolean isOwner(String key) {
+        int partitions = partitionCount;
+        return partitions > 0 && ownedPartitions.contains(Math.floorMod(key.hashCode(), partitions));
+    }
+    
+    private void release(Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            if (itemRegisteredTopic.equals(partition.topic())) {
+                ownedPartitions.remove(partition.partition());
+            }
+        }
+    }
+}
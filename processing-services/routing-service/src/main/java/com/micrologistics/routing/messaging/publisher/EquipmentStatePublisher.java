@@ -0,0 +1,87 @@
+package com.micrologistics.routing.messaging.publisher;
+
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.micrologistics.common.event.EquipmentStateEvent;
+import com.micrologistics.routing.algorithm.FacilityTopology;
+import com.micrologistics.routing.algorithm.OptimalPathFinder;
+import com.micrologistics.routing.algorithm.SitePathFinders;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publisher of this replica's equipment load and status changes to the other replicas.
+ * Load added by routed items, at the default site and at every site this replica routes, is
+ * accumulated and published per facility every routing.equipment-state.publish-interval-ms;
+ * status changes are published immediately.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EquipmentStatePublisher {
+    
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final OptimalPathFinder pathFinder;
+    private final SitePathFinders sitePathFinders;
+    private final FacilityTopology topology;
+    
+    // Identifies this replica's events, which its own consumer skips
+    private final String instanceId = UUID.randomUUID().toString();
+    
+    @Value("${kafka.topics.equipment-state}")
+    private String equipmentStateTopic;
+    
+    /**
+     * Publish the load added to each facility since the last run.
+     */
+    @Scheduled(fixedDelayString = "${routing.equipment-state.publish-interval-ms:50}")
+    public void publishLoadDeltas() {
+        double[] deltas = pathFinder.drainLoadDeltas();
+        for (int facility = 0; facility < deltas.length; facility++) {
+            if (deltas[facility] != 0.0) {
+                publish(topology.nameOf(facility), deltas[facility]);
+            }
+        }
+        sitePathFinders.drainLoadDeltas().forEach((facility, delta) -> publish(facility, delta));
+    }
+    
+    /**
+     * Publish the operational status and load of a facility after its status changed.
+     * 
+     * @param facility The facility name
+     */
+    public void publishStatus(String facility) {
+        publish(facility, 0.0);
+    }
+    
+    /**
+     * Get the ID this replica publishes its events under.
+     * 
+     * @return The instance ID
+     */
+    public String getInstanceId() {
+        return instanceId;
+    }
+    
+    private void publish(String facility, double loadDelta) {
+        EquipmentStateEvent event = EquipmentStateEvent.builder()
+                .facility(facility)
+                .operational(sitePathFinders.isOperational(facility))
+                .load(sitePathFinders.getLoad(facility))
+                .loadDelta(loadDelta)
+                .source(instanceId)
+                .build();
+        try {
+            kafkaTemplate.send(equipmentStateTopic, facility, event);
+            log.debug("Published equipment state of {}: load delta {}", facility, loadDelta);
+        } catch (Exception e) {
+            log.error("Error publishing equipment state of {}", facility, e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.micrologistics.routing.messaging.publisher;
+
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import com.micrologistics.common.event.RouteCacheInvalidationEvent;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publisher telling the other replicas which routes this replica has changed.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RouteCacheInvalidationPublisher {
+    
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    
+    // Identifies this replica's events, which its own consumer skips
+    private final String instanceId = UUID.randomUUID().toString();
+    
+    @Value("${kafka.topics.route-cache-invalidation}")
+    private String routeCacheInvalidationTopic;
+    
+    /**
+     * Publish that the route of an item has changed.
+     * 
+     * @param itemId The item ID
+     */
+    public void publishInvalidation(String itemId) {
+        try {
+            kafkaTemplate.send(routeCacheInvalidationTopic, itemId,
+                    new RouteCacheInvalidationEvent(itemId, instanceId));
+        } catch (Exception e) {
+            // Other replicas serve their copy until it expires
+            log.error("Error publishing route cache invalidation for item: {}", itemId, e);
+        }
+    }
+    
+    /**
+     * Get the ID this replica publishes its events under.
+     * 
+     * @return The instance ID
+     */
+    public String getInstanceId() {
+        return instanceId;
+    }
+}
@@ -0,0 +1,40 @@
+package com.micrologistics.routing.messaging.publisher;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import com.micrologistics.common.event.RouteOverdueEvent;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publisher for route-related events.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RouteEventPublisher {
+    
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    
+    @Value("${kafka.topics.route-overdue}")
+    private String routeOverdueTopic;
+    
+    /**
+     * Publish a route overdue event.
+     * 
+     * @param event The route overdue event
+     */
+    public void publishRouteOverdueEvent(RouteOverdueEvent event) {
+        try {
+            kafkaTemplate.send(routeOverdueTopic, event.getRouteId(), event);
+            log.info("Published route overdue event for route ID: {}, estimated completion: {}", 
+                    event.getRouteId(), event.getEstimatedCompletionTime());
+        } catch (Exception e) {
+            log.error("Error publishing route overdue event for route ID: {}", event.getRouteId(), e);
+            // In a production environment, would use a retry mechanism or dead letter queue
+        }
+    }
+}
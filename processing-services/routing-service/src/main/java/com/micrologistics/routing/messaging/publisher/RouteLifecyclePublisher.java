@@ -0,0 +1,158 @@
+package com.micrologistics.routing.messaging.publisher;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.micrologistics.common.event.RouteEvent;
+import com.micrologistics.routing.entity.Route;
+import com.micrologistics.routing.event.RouteCreatedEvent;
+import com.micrologistics.routing.event.RouteReroutedEvent;
+import com.micrologistics.routing.event.RouteStepChangedEvent;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publisher of route created, step changed, re-routed, completed and failed events, for
+ * downstream accounting of routing throughput and for the route monitors of every replica.
+ *
+ * Events are published once the change has been committed, through a producer of their
+ * own that batches, compresses and de-duplicates them (see KafkaConfig), so a batch of
+ * routes created together leaves in a few requests. Sends are not awaited; the time from
+ * each send to the broker's acknowledgement is accumulated for the delivery latency metric.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RouteLifecyclePublisher {
+    
+    private final KafkaTemplate<String, RouteEvent> routeEventKafkaTemplate;
+    
+    private final LongAdder deliveredCount = new LongAdder();
+    private final LongAdder deliveryNanos = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    
+    @Value("${kafka.topics.route-events}")
+    private String routeEventsTopic;
+    
+    /**
+     * Publish the creation of a route.
+     * 
+     * @param event The route created event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRouteCreated(RouteCreatedEvent event) {
+        Route route = event.getRoute();
+        publish(RouteEvent.builder()
+                .eventType(RouteEvent.TYPE_CREATED)
+                .routeId(route.getId())
+                .itemId(route.getItemId())
+                .trackingId(route.getTrackingId())
+                .currentStep(route.getCurrentStep())
+                .routeSteps(route.getRouteSteps())
+                .stepIndex(route.getCurrentStepIndex())
+                .priority(route.getPriority())
+                .status(route.getStatus())
+                .estimatedTimeMinutes(route.getEstimatedTimeMinutes())
+                .estimatedCompletionTime(route.getEstimatedCompletionTime())
+                .timestamp(LocalDateTime.now())
+                .build());
+    }
+    
+    /**
+     * Publish a route moving to another step, completing or failing.
+     * 
+     * @param event The route step changed event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRouteStepChanged(RouteStepChangedEvent event) {
+        String eventType = Route.STATUS_COMPLETED.equals(event.getStatus()) ? RouteEvent.TYPE_COMPLETED
+                : Route.STATUS_FAILED.equals(event.getStatus()) ? RouteEvent.TYPE_FAILED
+                : RouteEvent.TYPE_STEP_CHANGED;
+        publish(RouteEvent.builder()
+                .eventType(eventType)
+                .routeId(event.getRouteId())
+                .itemId(event.getItemId())
+                .previousStep(event.getPreviousStep())
+                .currentStep(event.getStep())
+                .stepIndex(event.getStepIndex())
+                .status(event.getStatus())
+                .estimatedTimeMinutes(event.getEstimatedTimeMinutes())
+                .timestamp(LocalDateTime.now())
+                .build());
+    }
+    
+    /**
+     * Publish the re-planning of a route's remaining steps.
+     * 
+     * @param event The route re-routed event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRouteRerouted(RouteReroutedEvent event) {
+        Route route = event.getRoute();
+        publish(RouteEvent.builder()
+                .eventType(RouteEvent.TYPE_REROUTED)
+                .routeId(route.getId())
+                .itemId(route.getItemId())
+                .trackingId(route.getTrackingId())
+                .currentStep(route.getCurrentStep())
+                .routeSteps(route.getRouteSteps())
+                .stepIndex(route.getCurrentStepIndex())
+                .status(route.getStatus())
+                .estimatedTimeMinutes(route.getEstimatedTimeMinutes())
+                .previousEstimatedTimeMinutes(event.getPreviousEstimatedTimeMinutes())
+                .estimatedCompletionTime(route.getEstimatedCompletionTime())
+                .timestamp(LocalDateTime.now())
+                .build());
+    }
+    
+    /**
+     * Get the number of route events acknowledged by the broker since startup.
+     * 
+     * @return The event count
+     */
+    public long getDeliveredCount() {
+        return deliveredCount.sum();
+    }
+    
+    /**
+     * Get the total time from sending route events to their acknowledgement, since startup.
+     * 
+     * @return The total delivery time, in nanoseconds
+     */
+    public double getDeliveryNanos() {
+        return deliveryNanos.sum();
+    }
+    
+    /**
+     * Get the number of route events that could not be delivered since startup.
+     * 
+     * @return The event count
+     */
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+    
+    private void publish(RouteEvent event) {
+        long sentAt = System.nanoTime();
+        try {
+            routeEventKafkaTemplate.send(routeEventsTopic, event.getRouteId(), event).whenComplete((result, e) -> {
+                if (e != null) {
+                    failedCount.increment();
+                    log.error("Error delivering {} event for route ID: {}", event.getEventType(), event.getRouteId(), e);
+                } else {
+                    deliveredCount.increment();
+                    deliveryNanos.add(System.nanoTime() - sentAt);
+                }
+            });
+        } catch (Exception e) {
+            failedCount.increment();
+            log.error("Error publishing {} event for route ID: {}", event.getEventType(), event.getRouteId(), e);
+        }
+    }
+}
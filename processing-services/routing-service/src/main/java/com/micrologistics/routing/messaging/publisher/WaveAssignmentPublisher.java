@@ -0,0 +1,46 @@
+package com.micrologistics.routing.messaging.publisher;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import com.micrologistics.common.event.WaveAssignmentEvent;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publisher of the outbound waves planned in a window. Waves are keyed by dock, so each
+ * dock's assignments are read in order.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WaveAssignmentPublisher {
+    
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    
+    @Value("${kafka.topics.outbound-waves}")
+    private String outboundWavesTopic;
+    
+    /**
+     * Publish the waves of a planning window. The sends are not awaited one by one, so the
+     * producer batches them.
+     * 
+     * @param events The wave assignment events
+     */
+    public void publishWaves(List<WaveAssignmentEvent> events) {
+        int published = 0;
+        for (WaveAssignmentEvent event : events) {
+            try {
+                kafkaTemplate.send(outboundWavesTopic, event.getDock(), event);
+                published++;
+            } catch (Exception e) {
+                log.error("Error publishing wave {} for dock {}", event.getWaveId(), event.getDock(), e);
+            }
+        }
+        log.info("Published {} of {} outbound waves", published, events.size());
+    }
+}
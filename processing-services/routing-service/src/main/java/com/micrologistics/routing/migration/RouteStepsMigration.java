@@ -0,0 +1,115 @@
+package com.micrologistics.routing.migration;
+
+import java.sql.PreparedStatement;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.micrologistics.routing.repository.FacilityCodes;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Moves route steps from the legacy route_steps table (one row per step) into the
+ * step_codes array column of routes, and indexes that column for containment queries.
+ *
+ * Steps are moved in chunks of routes; each chunk is deleted from route_steps in the same
+ * statement that fills step_codes, so the migration can be interrupted and resumed. The
+ * legacy table is dropped once it is empty. Routes without a current_step_index are then
+ * given one from the position of their current step.
+ *
+ * Runs once Hibernate has updated the schema and before the listener containers and the web
+ * server start, so nothing reads a route whose steps have not been moved yet; beans that
+ * load routes on startup depend on it.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+public class RouteStepsMigration {
+
+    private static final String CREATE_INDEX_SQL =
+            "CREATE INDEX IF NOT EXISTS idx_routes_step_codes ON routes USING GIN (step_codes)";
+
+    private static final String LEGACY_TABLE_EXISTS_SQL = "SELECT to_regclass('route_steps') IS NOT NULL";
+
+    // Step names are mapped to their stored facility codes through their position in the names by code
+    private static final String MOVE_CHUNK_SQL =
+            "WITH chunk AS (SELECT DISTINCT route_id FROM route_steps LIMIT ?), "
+            + "moved AS (DELETE FROM route_steps rs USING chunk WHERE rs.route_id = chunk.route_id "
+            + "RETURNING rs.route_id, rs.step, rs.step_order) "
+            + "UPDATE routes r SET step_codes = m.codes FROM ("
+            + "SELECT route_id, array_agg(CAST(COALESCE(array_position(CAST(? AS text[]), step) - 1, -1) AS smallint) "
+            + "ORDER BY step_order) AS codes FROM moved GROUP BY route_id) m "
+            + "WHERE r.id = m.route_id AND r.step_codes IS NULL";
+
+    private static final String LEGACY_ROWS_REMAIN_SQL = "SELECT EXISTS (SELECT 1 FROM route_steps)";
+
+    private static final String DROP_LEGACY_TABLE_SQL = "DROP TABLE IF EXISTS route_steps";
+
+    // Routes created before current_step_index existed get it from the position of their current step
+    private static final String BACKFILL_STEP_INDEX_SQL =
+            "UPDATE routes SET current_step_index = array_position(step_codes, "
+            + "CAST(array_position(CAST(? AS text[]), current_step) - 1 AS smallint)) - 1 "
+            + "WHERE current_step_index IS NULL AND step_codes IS NOT NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FacilityCodes facilityCodes;
+
+    @Value("${routing.migration.route-steps.enabled:true}")
+    private boolean enabled;
+
+    @Value("${routing.migration.route-steps.chunk-size:1000}")
+    private int chunkSize;
+
+    @PostConstruct
+    public void migrate() {
+        if (!enabled || !isPostgres()) {
+            return;
+        }
+        jdbcTemplate.execute(CREATE_INDEX_SQL);
+        Object[] facilityNames = facilityCodes.namesByCode();
+
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(LEGACY_TABLE_EXISTS_SQL, Boolean.class))) {
+            migrateLegacySteps(facilityNames);
+        }
+
+        int backfilled = jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(BACKFILL_STEP_INDEX_SQL);
+            statement.setArray(1, connection.createArrayOf("text", facilityNames));
+            return statement;
+        });
+        if (backfilled > 0) {
+            log.info("Backfilled current_step_index of {} routes", backfilled);
+        }
+    }
+
+    private void migrateLegacySteps(Object[] facilityNames) {
+        log.info("Migrating route steps from route_steps to routes.step_codes in chunks of {}", chunkSize);
+        long migrated = 0;
+        while (Boolean.TRUE.equals(jdbcTemplate.queryForObject(LEGACY_ROWS_REMAIN_SQL, Boolean.class))) {
+            int moved = jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(MOVE_CHUNK_SQL);
+                statement.setInt(1, chunkSize);
+                statement.setArray(2, connection.createArrayOf("text", facilityNames));
+                return statement;
+            });
+            migrated += moved;
+            log.debug("Migrated route steps of {} routes so far", migrated);
+        }
+
+        jdbcTemplate.execute(DROP_LEGACY_TABLE_SQL);
+        log.info("Migrated route steps of {} routes, dropped route_steps", migrated);
+    }
+
+    private boolean isPostgres() {
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equalsIgnoreCase(product);
+    }
+}
@@ -0,0 +1,200 @@
+package com.micrologistics.routing.monitor;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import com.micrologistics.common.event.RouteEvent;
+import com.micrologistics.routing.algorithm.FacilityDispatchQueues;
+import com.micrologistics.routing.algorithm.FacilityTopology;
+import com.micrologistics.routing.algorithm.PathFinderSettings;
+import com.micrologistics.routing.algorithm.PriorityClass;
+import com.micrologistics.routing.entity.Route;
+import com.micrologistics.routing.messaging.consumer.SiteAssignmentListener;
+import com.micrologistics.routing.repository.RouteRepository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps every in-flight item in the priority queue of the facility it is currently at, so
+ * facilities can pull their next item in priority order and queue depths and waiting times
+ * can be reported per priority class.
+ *
+ * Items are queued when their route is created, move to the next queue as their route
+ * advances and leave when it completes or fails, as the route events of all replicas arrive,
+ * so every replica holds every waiting item.
+ *
+ * Dispatching is single-replica: the items waiting at a facility are only handed out by the
+ * replica owning the facility's key among the item registration partitions, so no item is
+ * handed out twice. Items the previous owner handed out just before a rebalance, and that
+ * have not moved on yet, may be handed out once more by the new owner.
+ */
+@Component
+@Slf4j
+public class DispatchQueueMonitor {
+
+    private static final List<String> IN_FLIGHT_STATUSES = List.of(Route.STATUS_CREATED, Route.STATUS_IN_PROGRESS);
+
+    private final RouteRepository routeRepository;
+    private final FacilityTopology topology;
+    private final SiteAssignmentListener siteAssignmentListener;
+    private final FacilityDispatchQueues queues;
+
+    // When the queues were rebuilt; route events published before then are already applied
+    private volatile long rebuiltAtMillis;
+
+    public DispatchQueueMonitor(RouteRepository routeRepository, FacilityTopology topology,
+            SiteAssignmentListener siteAssignmentListener, PathFinderSettings settings) {
+        this.routeRepository = routeRepository;
+        this.topology = topology;
+        this.siteAssignmentListener = siteAssignmentListener;
+        this.queues = new FacilityDispatchQueues(topology.size(), settings.getDispatchQueueCapacity());
+    }
+
+    /**
+     * Queue all in-flight items at their current step before the listener containers and
+     * the web server start. Items are ordered by the time their route last changed.
+     */
+    @PostConstruct
+    public void rebuild() {
+        // Taken before the query: events applied twice leave the same state, missed ones would not
+        rebuiltAtMillis = System.currentTimeMillis();
+        List<Object[]> positions = routeRepository.findQueuePositionsByStatusIn(IN_FLIGHT_STATUSES);
+        int queued = 0;
+        for (Object[] position : positions) {
+            int facility = topology.ordinalOf((String) position[1]);
+            if (facility >= 0 && queues.enqueue((String) position[0], facility,
+                    PriorityClass.of((Integer) position[2]), epochMillis((LocalDateTime) position[3]))) {
+                queued++;
+            }
+        }
+        log.info("Queued {} of {} in-flight items at their current facility", queued, positions.size());
+    }
+
+    /**
+     * Apply a route event of any replica: queue the item of a new route at its first step,
+     * move an item to the queue of its route's new step, or drop it once the route has
+     * completed or failed.
+     *
+     * @param event The route event
+     */
+    public void onRouteEvent(RouteEvent event) {
+        String eventType = event.getEventType();
+        if (event.getItemId() == null) {
+            return;
+        }
+        if (RouteEvent.TYPE_CREATED.equals(eventType)) {
+            int facility = ordinalOf(event.getCurrentStep());
+            if (facility >= 0 && !queues.enqueue(event.getItemId(), facility, PriorityClass.of(event.getPriority()),
+                    epochMillis(event.getTimestamp()))) {
+                log.warn("Dispatch queue of {} is full, item {} is not queued", event.getCurrentStep(),
+                        event.getItemId());
+            }
+        } else if (RouteEvent.TYPE_COMPLETED.equals(eventType) || RouteEvent.TYPE_FAILED.equals(eventType)) {
+            queues.remove(event.getItemId());
+        } else if (RouteEvent.TYPE_STEP_CHANGED.equals(eventType)) {
+            int facility = ordinalOf(event.getCurrentStep());
+            if (facility >= 0 && !event.getCurrentStep().equals(event.getPreviousStep())
+                    && !queues.moveTo(event.getItemId(), facility, PriorityClass.STANDARD,
+                            epochMillis(event.getTimestamp()))) {
+                log.warn("Dispatch queue of {} is full, item {} is not queued", event.getCurrentStep(),
+                        event.getItemId());
+            }
+        }
+    }
+
+    /**
+     * Get the time the queues were rebuilt.
+     *
+     * @return The rebuild time, in epoch milliseconds
+     */
+    public long getRebuiltAtMillis() {
+        return rebuiltAtMillis;
+    }
+
+    /**
+     * Check whether this replica hands out the items waiting at a facility.
+     *
+     * @param facility The facility ordinal
+     * @return True if this replica owns the facility
+     */
+    public boolean isDispatcher(int facility) {
+        return siteAssignmentListener.isOwner(topology.nameOf(facility));
+    }
+
+    /**
+     * Take the next item to process at a facility. Callers check that this replica is the
+     * facility's dispatcher first.
+     *
+     * @param facility The facility ordinal
+     * @return The item ID, or null if no item is waiting
+     */
+    public String dispatch(int facility) {
+        return queues.dispatch(facility);
+    }
+
+    /**
+     * Get the number of items of a priority class waiting at any facility.
+     *
+     * @param priority The priority class
+     * @return The queue depth
+     */
+    public int getDepth(PriorityClass priority) {
+        return queues.depth(priority);
+    }
+
+    /**
+     * Get the number of items that could not be queued because their queue was full.
+     *
+     * @return The rejection count
+     */
+    public long getRejectedCount() {
+        return queues.getRejectedCount();
+    }
+
+    /**
+     * Get the queue depths and waiting-time histogram of every priority class, most urgent first.
+     *
+     * @return The statistics by priority class
+     */
+    public Map<String, DispatchQueueStats> getStats() {
+        long[] bounds = FacilityDispatchQueues.WAIT_BUCKET_BOUNDS_SECONDS;
+        Map<String, DispatchQueueStats> stats = new LinkedHashMap<>();
+        PriorityClass[] classes = PriorityClass.values();
+        for (int level = classes.length - 1; level >= 0; level--) {
+            PriorityClass priority = classes[level];
+            Map<String, Integer> depthByFacility = new LinkedHashMap<>();
+            int depth = 0;
+            for (int facility = 0; facility < topology.size(); facility++) {
+                int facilityDepth = queues.depth(facility, priority);
+                if (facilityDepth > 0) {
+                    depthByFacility.put(topology.nameOf(facility), facilityDepth);
+                    depth += facilityDepth;
+                }
+            }
+
+            long[] counts = queues.waitHistogram(priority);
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            for (int b = 0; b < bounds.length; b++) {
+                histogram.put("le_" + bounds[b] + "s", counts[b]);
+            }
+            histogram.put("gt_" + bounds[bounds.length - 1] + "s", counts[bounds.length]);
+
+            stats.put(priority.name(), new DispatchQueueStats(priority.name(), depth, depthByFacility, histogram));
+        }
+        return stats;
+    }
+
+    private int ordinalOf(String step) {
+        return step != null ? topology.ordinalOf(step) : -1;
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : System.currentTimeMillis();
+    }
+}
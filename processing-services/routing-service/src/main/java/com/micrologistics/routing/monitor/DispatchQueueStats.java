@@ -0,0 +1,25 @@
+package com.micrologistics.routing.monitor;
+
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Depth and waiting times of the dispatch queues of one priority class.
+ */
+@Getter
+@AllArgsConstructor
+public class DispatchQueueStats {
+
+    private final String priorityClass;
+
+    // Items waiting at any facility
+    private final int depth;
+
+    // Items waiting by facility name, for facilities with a queue
+    private final Map<String, Integer> depthByFacility;
+
+    // Items that left a queue by waiting-time bucket, in bucket order
+    private final Map<String, Long> waitHistogram;
+}
@@ -0,0 +1,138 @@
+package com.micrologistics.routing.monitor;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Component;
+
+import com.micrologistics.common.event.RouteEvent;
+import com.micrologistics.routing.algorithm.FacilityTopology;
+import com.micrologistics.routing.algorithm.SitePathFinders;
+import com.micrologistics.routing.entity.Route;
+import com.micrologistics.routing.repository.RouteRepository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Counts the in-flight items currently at each facility, so occupancy can be read without
+ * loading routes and fed to the cost model of the path finder of each facility's site.
+ *
+ * Counters are striped, so the many threads applying step transitions do not contend on a
+ * single cell. Items are counted at their first step when their route is created, move
+ * between facilities as their route advances and are no longer counted once it completes
+ * or fails, as the route events of all replicas arrive, so every replica counts every item.
+ */
+@Component
+@Slf4j
+public class FacilityOccupancyMonitor {
+
+    private static final List<String> IN_FLIGHT_STATUSES = List.of(Route.STATUS_CREATED, Route.STATUS_IN_PROGRESS);
+
+    private final RouteRepository routeRepository;
+    private final FacilityTopology topology;
+    private final SitePathFinders sitePathFinders;
+
+    // Items at each facility, by facility ordinal
+    private final LongAdder[] occupancy;
+
+    // When the counters were rebuilt; route events published before then are already counted
+    private volatile long rebuiltAtMillis;
+
+    public FacilityOccupancyMonitor(RouteRepository routeRepository, FacilityTopology topology,
+            SitePathFinders sitePathFinders) {
+        this.routeRepository = routeRepository;
+        this.topology = topology;
+        this.sitePathFinders = sitePathFinders;
+        this.occupancy = new LongAdder[topology.size()];
+        for (int facility = 0; facility < occupancy.length; facility++) {
+            occupancy[facility] = new LongAdder();
+        }
+    }
+
+    /**
+     * Count the in-flight items at each facility with a single aggregate query, before the
+     * listener containers and the web server start. The rebuild time is taken once the query
+     * has returned, so a change committed before the query but published after it is not
+     * counted twice; the few changes committed while the query runs are missed instead.
+     */
+    @PostConstruct
+    public void rebuild() {
+        long items = 0;
+        List<Object[]> rows = routeRepository.countByCurrentStepAndStatusIn(IN_FLIGHT_STATUSES);
+        rebuiltAtMillis = System.currentTimeMillis();
+        for (Object[] row : rows) {
+            int facility = topology.ordinalOf((String) row[0]);
+            if (facility >= 0) {
+                occupancy[facility].add((Long) row[1]);
+                items += (Long) row[1];
+            }
+        }
+        for (int facility = 0; facility < occupancy.length; facility++) {
+            sitePathFinders.updateOccupancy(facility, occupancy[facility].sum());
+        }
+        log.info("Counted {} in-flight items at their current facility", items);
+    }
+
+    /**
+     * Apply a route event of any replica: count the item of a new route at its first step,
+     * move an item to the facility of its route's new step, or stop counting it once the
+     * route has completed or failed.
+     *
+     * @param event The route event
+     */
+    public void onRouteEvent(RouteEvent event) {
+        String eventType = event.getEventType();
+        if (RouteEvent.TYPE_CREATED.equals(eventType)) {
+            add(event.getCurrentStep(), 1);
+        } else if (RouteEvent.TYPE_COMPLETED.equals(eventType) || RouteEvent.TYPE_FAILED.equals(eventType)) {
+            add(event.getPreviousStep(), -1);
+        } else if (RouteEvent.TYPE_STEP_CHANGED.equals(eventType)
+                && event.getCurrentStep() != null && !event.getCurrentStep().equals(event.getPreviousStep())) {
+            add(event.getPreviousStep(), -1);
+            add(event.getCurrentStep(), 1);
+        }
+    }
+
+    /**
+     * Get the time the counters were rebuilt.
+     *
+     * @return The rebuild time, in epoch milliseconds
+     */
+    public long getRebuiltAtMillis() {
+        return rebuiltAtMillis;
+    }
+
+    /**
+     * Get the number of in-flight items at a facility.
+     *
+     * @param facility The facility ordinal
+     * @return The item count
+     */
+    public long getOccupancy(int facility) {
+        return Math.max(0, occupancy[facility].sum());
+    }
+
+    /**
+     * Get the number of in-flight items at every facility, in topology order.
+     *
+     * @return Map of facility to item count
+     */
+    public Map<String, Long> getOccupancy() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int facility = 0; facility < occupancy.length; facility++) {
+            counts.put(topology.nameOf(facility), getOccupancy(facility));
+        }
+        return counts;
+    }
+
+    private void add(String step, int delta) {
+        int facility = step != null ? topology.ordinalOf(step) : -1;
+        if (facility >= 0) {
+            occupancy[facility].add(delta);
+            sitePathFinders.updateOccupancy(facility, occupancy[facility].sum());
+        }
+    }
+}
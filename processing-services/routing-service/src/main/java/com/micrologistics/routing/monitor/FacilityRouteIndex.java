@@ -0,0 +1,193 @@
+package com.micrologistics.routing.monitor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import com.micrologistics.common.event.RouteEvent;
+import com.micrologistics.routing.algorithm.FacilityTopology;
+import com.micrologistics.routing.entity.Route;
+import com.micrologistics.routing.repository.RouteRepository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Index from each facility to the in-flight routes that have yet to pass through it, so the
+ * routes affected by a facility going down are found without searching the routes table.
+ *
+ * Only the steps after a route's current step are indexed. Routes are added when they are
+ * created, drop the facilities they pass as they advance, and leave the index when they
+ * complete or fail, as the route events of all replicas arrive. The index trails the routes
+ * table by the event delivery delay; callers re-read the routes it returns.
+ */
+@Component
+@DependsOn("routeStepsMigration")
+@Slf4j
+public class FacilityRouteIndex {
+
+    private static final List<String> IN_FLIGHT_STATUSES = List.of(Route.STATUS_CREATED, Route.STATUS_IN_PROGRESS);
+
+    private final RouteRepository routeRepository;
+    private final FacilityTopology topology;
+
+    // When the index was rebuilt; route events published before then are already applied
+    private volatile long rebuiltAtMillis;
+
+    // Steps and current step index of each indexed route, by route ID
+    private final Map<String, TrackedRoute> routes = new ConcurrentHashMap<>();
+
+    // IDs of the routes with each facility among their remaining steps, by facility ordinal
+    private final Set<String>[] routesByFacility;
+
+    @SuppressWarnings("unchecked")
+    public FacilityRouteIndex(RouteRepository routeRepository, FacilityTopology topology) {
+        this.routeRepository = routeRepository;
+        this.topology = topology;
+        this.routesByFacility = (Set<String>[]) new Set<?>[topology.size()];
+        for (int facility = 0; facility < routesByFacility.length; facility++) {
+            routesByFacility[facility] = ConcurrentHashMap.newKeySet();
+        }
+    }
+
+    /**
+     * Index the remaining steps of all in-flight routes before the listener containers and
+     * the web server start.
+     */
+    @PostConstruct
+    public void rebuild() {
+        // Taken before the query: events applied twice leave the same state, missed ones would not
+        rebuiltAtMillis = System.currentTimeMillis();
+        List<Object[]> rows = routeRepository.findStepCodesByStatusIn(IN_FLIGHT_STATUSES);
+        for (Object[] row : rows) {
+            if (row[1] != null) {
+                track((String) row[0], (short[]) row[1], row[2] != null ? (Integer) row[2] : 0);
+            }
+        }
+        log.info("Indexed remaining steps of {} in-flight routes", routes.size());
+    }
+
+    /**
+     * Apply a route event of any replica: index the steps of a new or re-routed route after
+     * its current step, drop the facilities a route has passed, or drop the whole route once
+     * it has completed or failed.
+     *
+     * @param event The route event
+     */
+    public void onRouteEvent(RouteEvent event) {
+        String eventType = event.getEventType();
+        if (RouteEvent.TYPE_CREATED.equals(eventType) || RouteEvent.TYPE_REROUTED.equals(eventType)) {
+            if (event.getRouteSteps() != null && event.getStepIndex() != null) {
+                track(event.getRouteId(), ordinalsOf(event.getRouteSteps()), event.getStepIndex());
+            }
+        } else if (RouteEvent.TYPE_COMPLETED.equals(eventType) || RouteEvent.TYPE_FAILED.equals(eventType)) {
+            untrack(event.getRouteId());
+        } else if (RouteEvent.TYPE_STEP_CHANGED.equals(eventType)) {
+            TrackedRoute tracked = routes.get(event.getRouteId());
+            if (tracked != null && event.getStepIndex() != null && event.getStepIndex() > tracked.stepIndex) {
+                track(event.getRouteId(), tracked.stepCodes, event.getStepIndex());
+            }
+        }
+    }
+
+    /**
+     * Get the time the index was rebuilt.
+     *
+     * @return The rebuild time, in epoch milliseconds
+     */
+    public long getRebuiltAtMillis() {
+        return rebuiltAtMillis;
+    }
+
+    /**
+     * Get the in-flight routes that have yet to pass through a facility.
+     *
+     * @param facility The facility ordinal
+     * @return The route IDs
+     */
+    public List<String> routesThrough(int facility) {
+        return List.copyOf(routesByFacility[facility]);
+    }
+
+    /**
+     * Get the number of indexed routes.
+     *
+     * @return The route count
+     */
+    public int size() {
+        return routes.size();
+    }
+
+    /**
+     * Index the steps of a route after its current step, replacing what was indexed for it.
+     * The route is added to its new facilities before it leaves its old ones, so a concurrent
+     * lookup never misses it.
+     */
+    private void track(String routeId, short[] stepCodes, int stepIndex) {
+        TrackedRoute next = new TrackedRoute(stepCodes, stepIndex);
+        for (int i = stepIndex + 1; i < stepCodes.length; i++) {
+            if (isFacility(stepCodes[i])) {
+                routesByFacility[stepCodes[i]].add(routeId);
+            }
+        }
+        TrackedRoute previous = routes.put(routeId, next);
+        if (previous != null) {
+            for (int i = previous.stepIndex + 1; i < previous.stepCodes.length; i++) {
+                if (isFacility(previous.stepCodes[i]) && !next.hasRemaining(previous.stepCodes[i])) {
+                    routesByFacility[previous.stepCodes[i]].remove(routeId);
+                }
+            }
+        }
+    }
+
+    private void untrack(String routeId) {
+        TrackedRoute previous = routes.remove(routeId);
+        if (previous != null) {
+            for (int i = previous.stepIndex + 1; i < previous.stepCodes.length; i++) {
+                if (isFacility(previous.stepCodes[i])) {
+                    routesByFacility[previous.stepCodes[i]].remove(routeId);
+                }
+            }
+        }
+    }
+
+    private short[] ordinalsOf(List<String> routeSteps) {
+        short[] stepCodes = new short[routeSteps.size()];
+        for (int i = 0; i < stepCodes.length; i++) {
+            stepCodes[i] = (short) topology.ordinalOf(routeSteps.get(i));
+        }
+        return stepCodes;
+    }
+
+    private boolean isFacility(int stepCode) {
+        return stepCode >= 0 && stepCode < routesByFacility.length;
+    }
+
+    /**
+     * The indexed steps of a route and the index of its current step.
+     */
+    private static final class TrackedRoute {
+
+        private final short[] stepCodes;
+
+        private final int stepIndex;
+
+        private TrackedRoute(short[] stepCodes, int stepIndex) {
+            this.stepCodes = stepCodes;
+            this.stepIndex = stepIndex;
+        }
+
+        private boolean hasRemaining(int facility) {
+            for (int i = stepIndex + 1; i < stepCodes.length; i++) {
+                if (stepCodes[i] == facility) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.micrologistics.routing.monitor;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.micrologistics.common.event.RouteEvent;
+import com.micrologistics.common.event.RouteOverdueEvent;
+import com.micrologistics.routing.algorithm.HierarchicalTimerWheel;
+import com.micrologistics.routing.entity.Route;
+import com.micrologistics.routing.messaging.consumer.SiteAssignmentListener;
+import com.micrologistics.routing.messaging.publisher.RouteEventPublisher;
+import com.micrologistics.routing.repository.RouteRepository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tracks the estimated completion time of every in-flight route on a timer wheel, so a
+ * route is reported the moment it misses its ETA instead of being found by scanning the
+ * routes table.
+ *
+ * Routes are added when they are created and dropped when they complete or fail, as the
+ * route events of all replicas arrive, so every replica tracks every route. Routes that have
+ * missed their ETA stay in the overdue set until they finish; each is reported by the one
+ * replica that owns it (see {@link SiteAssignmentListener#isOwner}).
+ */
+@Component
+@Slf4j
+public class OverdueRouteMonitor {
+    
+    private static final List<String> IN_FLIGHT_STATUSES = List.of(Route.STATUS_CREATED, Route.STATUS_IN_PROGRESS);
+    
+    private final RouteRepository routeRepository;
+    private final RouteEventPublisher routeEventPublisher;
+    private final SiteAssignmentListener siteAssignmentListener;
+    private final HierarchicalTimerWheel<String, TrackedRoute> wheel;
+    
+    // In-flight routes past their ETA, by route ID
+    private final Map<String, TrackedRoute> overdueRoutes = new ConcurrentHashMap<>();
+    
+    // When the deadlines were loaded; route events published before then are already tracked
+    private volatile long rebuiltAtMillis;
+    
+    public OverdueRouteMonitor(
+            RouteRepository routeRepository,
+            RouteEventPublisher routeEventPublisher,
+            SiteAssignmentListener siteAssignmentListener,
+            @Value("${routing.overdue.tick-ms:1000}") long tickMillis) {
+        this.routeRepository = routeRepository;
+        this.routeEventPublisher = routeEventPublisher;
+        this.siteAssignmentListener = siteAssignmentListener;
+        this.wheel = new HierarchicalTimerWheel<>(tickMillis, System.currentTimeMillis());
+    }
+    
+    /**
+     * Load the deadlines of all in-flight routes with a single indexed query. Runs before the
+     * listener containers and the web server start, so no route changes are missed.
+     */
+    @PostConstruct
+    public void rebuild() {
+        // Taken before the query: events applied twice leave the same state, missed ones would not
+        rebuiltAtMillis = System.currentTimeMillis();
+        List<Object[]> deadlines = routeRepository.findDeadlinesByStatusIn(IN_FLIGHT_STATUSES);
+        for (Object[] deadline : deadlines) {
+            track(new TrackedRoute((String) deadline[0], (String) deadline[1], (String) deadline[2],
+                    (LocalDateTime) deadline[3]));
+        }
+        // Routes already past their ETA are reported on the first tick
+        log.info("Tracking ETAs of {} in-flight routes", deadlines.size());
+    }
+    
+    /**
+     * Apply a route event of any replica: start tracking a new route, move a re-routed route
+     * to its new ETA, or stop tracking a route once it has completed or failed. A route that
+     * had missed its old ETA is reported again if it misses the new one.
+     * 
+     * @param event The route event
+     */
+    public void onRouteEvent(RouteEvent event) {
+        String eventType = event.getEventType();
+        if (RouteEvent.TYPE_CREATED.equals(eventType) || RouteEvent.TYPE_REROUTED.equals(eventType)) {
+            if (event.getEstimatedCompletionTime() != null) {
+                overdueRoutes.remove(event.getRouteId());
+                track(new TrackedRoute(event.getRouteId(), event.getItemId(), event.getTrackingId(),
+                        event.getEstimatedCompletionTime()));
+            }
+        } else if (RouteEvent.TYPE_COMPLETED.equals(eventType) || RouteEvent.TYPE_FAILED.equals(eventType)) {
+            wheel.cancel(event.getRouteId());
+            overdueRoutes.remove(event.getRouteId());
+        }
+    }
+    
+    /**
+     * Get the time the deadlines were loaded.
+     * 
+     * @return The rebuild time, in epoch milliseconds
+     */
+    public long getRebuiltAtMillis() {
+        return rebuiltAtMillis;
+    }
+    
+    /**
+     * Advance the wheel and report the routes owned by this replica that have just missed their ETA.
+     */
+    @Scheduled(fixedDelayString = "${routing.overdue.tick-ms:1000}")
+    public void advance() {
+        List<TrackedRoute> expired = wheel.advance(System.currentTimeMillis());
+        if (expired.isEmpty()) {
+            return;
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        for (TrackedRoute route : expired) {
+            overdueRoutes.put(route.getRouteId(), route);
+            if (!siteAssignmentListener.isOwner(route.getRouteId())) {
+                continue;
+            }
+            routeEventPublisher.publishRouteOverdueEvent(RouteOverdueEvent.builder()
+                    .routeId(route.getRouteId())
+                    .itemId(route.getItemId())
+                    .trackingId(route.getTrackingId())
+                    .estimatedCompletionTime(route.getEstimatedCompletionTime())
+                    .timestamp(now)
+                    .build());
+        }
+        log.warn("{} routes missed their ETA, {} overdue in total", expired.size(), overdueRoutes.size());
+    }
+    
+    /**
+     * Get the IDs of the in-flight routes that have missed their ETA, longest overdue first.
+     * 
+     * @param limit The maximum number of route IDs
+     * @return The route IDs
+     */
+    public List<String> getOverdueRouteIds(int limit) {
+        return overdueRoutes.values().stream()
+                .sorted(Comparator.comparing(TrackedRoute::getEstimatedCompletionTime))
+                .limit(limit)
+                .map(TrackedRoute::getRouteId)
+                .toList();
+    }
+    
+    /**
+     * Get the number of overdue in-flight routes.
+     * 
+     * @return The route count
+     */
+    public int getOverdueCount() {
+        return overdueRoutes.size();
+    }
+    
+    /**
+     * Get the number of in-flight routes whose ETA has not passed yet.
+     * 
+     * @return The route count
+     */
+    public int getPendingCount() {
+        return wheel.size();
+    }
+    
+    private void track(TrackedRoute route) {
+        long deadline = route.getEstimatedCompletionTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        wheel.schedule(route.getRouteId(), route, deadline);
+    }
+    
+    /**
+     * The fields of a tracked route needed to report it as overdue.
+     */
+    @Getter
+    @AllArgsConstructor
+    private static final class TrackedRoute {
+        
+        private final String routeId;
+        
+        private final String itemId;
+        
+        private final String trackingId;
+        
+        private final LocalDateTime estimatedCompletionTime;
+    }
+}
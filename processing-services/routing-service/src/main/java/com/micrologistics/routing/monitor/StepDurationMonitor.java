@@ -0,0 +1,105 @@
+package com.micrologistics.routing.monitor;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.micrologistics.routing.algorithm.FacilityTopology;
+import com.micrologistics.routing.algorithm.StepDurationModel;
+import com.micrologistics.routing.event.RouteStepChangedEvent;
+import com.micrologistics.routing.repository.RouteStepHistoryRepository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Feeds the time items spent at each facility to the {@link StepDurationModel}, so estimates
+ * follow how long processing actually takes rather than the configured processing times.
+ *
+ * The time between an item reaching a step and reaching the next one includes the transfer
+ * along the conveyor between them, which is known from the topology and taken off. On
+ * startup the model is warmed up from the most recent rows of the route_step_history table.
+ */
+@Component
+@Slf4j
+public class StepDurationMonitor {
+
+    private final RouteStepHistoryRepository historyRepository;
+    private final FacilityTopology topology;
+    private final StepDurationModel stepDurations;
+    private final int warmupHours;
+    private final int warmupLimit;
+
+    public StepDurationMonitor(
+            RouteStepHistoryRepository historyRepository,
+            FacilityTopology topology,
+            StepDurationModel stepDurations,
+            @Value("${routing.durations.warmup-hours:24}") int warmupHours,
+            @Value("${routing.durations.warmup-limit:100000}") int warmupLimit) {
+        this.historyRepository = historyRepository;
+        this.topology = topology;
+        this.stepDurations = stepDurations;
+        this.warmupHours = warmupHours;
+        this.warmupLimit = warmupLimit;
+    }
+
+    /**
+     * Replay the recent step history, oldest first, before the listener containers and the
+     * web server start.
+     */
+    @PostConstruct
+    public void warmUp() {
+        if (warmupHours <= 0 || warmupLimit <= 0) {
+            return;
+        }
+        List<Object[]> rows = historyRepository.findDurationsSince(LocalDateTime.now().minusHours(warmupHours),
+                PageRequest.of(0, warmupLimit));
+        int recorded = 0;
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            Object[] row = rows.get(i);
+            if (record(((Number) row[0]).intValue(), ((Number) row[1]).intValue(),
+                    (LocalDateTime) row[2], (LocalDateTime) row[3])) {
+                recorded++;
+            }
+        }
+        log.info("Learned step durations from {} of {} recent step transitions", recorded, rows.size());
+    }
+
+    /**
+     * Record the time an item spent at the step it moved on from.
+     *
+     * @param event The route step changed event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRouteStepChanged(RouteStepChangedEvent event) {
+        if (event.getPreviousStepAt() == null || event.getChangedAt() == null) {
+            return;
+        }
+        record(topology.ordinalOf(event.getPreviousStep()), topology.ordinalOf(event.getStep()),
+                event.getPreviousStepAt(), event.getChangedAt());
+    }
+
+    private boolean record(int facility, int nextFacility, LocalDateTime enteredAt, LocalDateTime leftAt) {
+        long elapsedMillis = Duration.between(enteredAt, leftAt).toMillis();
+        if (facility < 0 || nextFacility < 0 || elapsedMillis < 0) {
+            // Scans delivered out of order
+            return false;
+        }
+        double minutes = elapsedMillis / 60_000.0 - transferMinutes(facility, nextFacility);
+        return stepDurations.record(facility, Math.max(0.0, minutes), enteredAt.getHour());
+    }
+
+    private double transferMinutes(int from, int to) {
+        for (int edge = topology.outStart(from); edge < topology.outEnd(from); edge++) {
+            if (topology.outTarget(edge) == to) {
+                return topology.outTransferMinutes(edge);
+            }
+        }
+        return 0.0;
+    }
+}
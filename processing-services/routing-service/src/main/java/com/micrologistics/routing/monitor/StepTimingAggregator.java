@@ -0,0 +1,172 @@
+package com.micrologistics.routing.monitor;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import com.micrologistics.common.event.RouteEvent;
+import com.micrologistics.routing.entity.Route;
+import com.micrologistics.routing.repository.RouteRepository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the count, sum, minimum and maximum of the estimated times of the in-flight routes at
+ * each step, so step statistics cost O(number of facilities) instead of a GROUP BY over the
+ * routes table.
+ *
+ * The aggregates are rebuilt with one aggregate query over the in-flight routes on startup
+ * and then updated from the route events of all replicas. Routes leave the aggregates when
+ * they complete or fail, so archiving finished routes does not change what a rebuild sees
+ * and a restarted replica agrees with the running ones. Minimums and maximums are not
+ * lowered or raised again when routes leave a step.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StepTimingAggregator {
+
+    private static final List<String> IN_FLIGHT_STATUSES = List.of(Route.STATUS_CREATED, Route.STATUS_IN_PROGRESS);
+
+    private final RouteRepository routeRepository;
+
+    // Aggregates by step name
+    private final Map<String, StepTiming> timings = new ConcurrentHashMap<>();
+
+    // When the aggregates were rebuilt; route events published before then are already counted
+    private volatile long rebuiltAtMillis;
+
+    /**
+     * Rebuild the aggregates before the listener containers and the web server start. The
+     * rebuild time is taken once the query has returned, so a change committed before the
+     * query but published after it is not counted twice; the few changes committed while the
+     * query runs are missed instead.
+     */
+    @PostConstruct
+    public void rebuild() {
+        List<Object[]> results = routeRepository.findEstimatedTimeStatsByStatusIn(IN_FLIGHT_STATUSES);
+        rebuiltAtMillis = System.currentTimeMillis();
+        for (Object[] result : results) {
+            if (result[0] != null) {
+                timings.put((String) result[0], new StepTiming(((Number) result[1]).longValue(),
+                        result[2] != null ? ((Number) result[2]).doubleValue() : 0.0,
+                        (Double) result[3], (Double) result[4]));
+            }
+        }
+        log.info("Rebuilt estimated time aggregates of {} steps from in-flight routes", timings.size());
+    }
+
+    /**
+     * Apply a route event of any replica: count a new route at its first step, move a route's
+     * estimated time to its new step, replace the estimated time of a re-routed route, or drop
+     * a route that has completed or failed from the step it was counted at.
+     *
+     * @param event The route event
+     */
+    public void onRouteEvent(RouteEvent event) {
+        if (RouteEvent.TYPE_COMPLETED.equals(event.getEventType())
+                || RouteEvent.TYPE_FAILED.equals(event.getEventType())) {
+            String step = event.getPreviousStep() != null ? event.getPreviousStep() : event.getCurrentStep();
+            if (step != null && event.getEstimatedTimeMinutes() != null) {
+                timing(step).remove(event.getEstimatedTimeMinutes());
+            }
+        } else if (RouteEvent.TYPE_CREATED.equals(event.getEventType())) {
+            if (event.getCurrentStep() != null && event.getEstimatedTimeMinutes() != null) {
+                timing(event.getCurrentStep()).add(event.getEstimatedTimeMinutes());
+            }
+        } else if (RouteEvent.TYPE_REROUTED.equals(event.getEventType())) {
+            if (event.getCurrentStep() == null) {
+                return;
+            }
+            if (event.getPreviousEstimatedTimeMinutes() != null) {
+                timing(event.getCurrentStep()).remove(event.getPreviousEstimatedTimeMinutes());
+            }
+            if (event.getEstimatedTimeMinutes() != null) {
+                timing(event.getCurrentStep()).add(event.getEstimatedTimeMinutes());
+            }
+        } else {
+            if (event.getEstimatedTimeMinutes() == null
+                    || Objects.equals(event.getPreviousStep(), event.getCurrentStep())) {
+                return;
+            }
+            if (event.getPreviousStep() != null) {
+                timing(event.getPreviousStep()).remove(event.getEstimatedTimeMinutes());
+            }
+            if (event.getCurrentStep() != null) {
+                timing(event.getCurrentStep()).add(event.getEstimatedTimeMinutes());
+            }
+        }
+    }
+
+    /**
+     * Get the time the aggregates were rebuilt.
+     *
+     * @return The rebuild time, in epoch milliseconds
+     */
+    public long getRebuiltAtMillis() {
+        return rebuiltAtMillis;
+    }
+
+    /**
+     * Get the average estimated time of the routes at each step.
+     *
+     * @return Map of step to average time, for steps with at least one route
+     */
+    public Map<String, Double> getAverageTimeByStep() {
+        Map<String, Double> averageTimes = new HashMap<>();
+        timings.forEach((step, timing) -> {
+            Double average = timing.average();
+            if (average != null) {
+                averageTimes.put(step, average);
+            }
+        });
+        return averageTimes;
+    }
+
+    private StepTiming timing(String step) {
+        return timings.computeIfAbsent(step, s -> new StepTiming(0, 0.0, null, null));
+    }
+
+    /**
+     * Running aggregates of the estimated times at one step.
+     */
+    private static final class StepTiming {
+
+        private long count;
+        private double total;
+        private Double min;
+        private Double max;
+
+        private StepTiming(long count, double total, Double min, Double max) {
+            this.count = count;
+            this.total = total;
+            this.min = min;
+            this.max = max;
+        }
+
+        synchronized void add(double minutes) {
+            count++;
+            total += minutes;
+            min = min == null ? minutes : Math.min(min, minutes);
+            max = max == null ? minutes : Math.max(max, minutes);
+        }
+
+        synchronized void remove(double minutes) {
+            if (count == 0) {
+                return;
+            }
+            count--;
+            total = count == 0 ? 0.0 : total - minutes;
+        }
+
+        synchronized Double average() {
+            return count == 0 ? null : total / count;
+        }
+    }
+}
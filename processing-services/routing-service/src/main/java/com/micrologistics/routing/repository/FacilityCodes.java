@@ -0,0 +1,169 @@
+package com.micrologistics.routing.repository;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.micrologistics.routing.algorithm.FacilityTopology;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Translates between the ordinals facilities have in the configured topology and the stable
+ * codes they are stored under, registered in the facility_codes table.
+ *
+ * Facilities the table does not know yet are registered on first use, in ordinal order, with
+ * the next free code; this gives every facility of a topology its ordinal as code the first
+ * time, which matches the routes stored before codes were registered. Codes of facilities no
+ * longer in the topology decode to -1. Registering uses one conflict-free insert per missing
+ * facility, so replicas starting together agree on the codes.
+ */
+@Component
+@Slf4j
+public class FacilityCodes {
+    
+    private static final String FIND_ALL_SQL = "SELECT name, code FROM facility_codes";
+    
+    // Skipped on a conflict with a code or name another replica registered first, then retried
+    private static final String REGISTER_SQL =
+            "INSERT INTO facility_codes (name, code) "
+            + "SELECT ?, COALESCE(MAX(code), -1) + 1 FROM facility_codes ON CONFLICT DO NOTHING";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final FacilityTopology topology;
+    
+    // Loaded on first use, once the schema has been created
+    private volatile Mapping mapping;
+    
+    public FacilityCodes(JdbcTemplate jdbcTemplate, FacilityTopology topology) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.topology = topology;
+    }
+    
+    /**
+     * Get the stored code of a facility.
+     * 
+     * @param ordinal The facility ordinal
+     * @return The code
+     */
+    public short codeOf(int ordinal) {
+        return mapping().codes[ordinal];
+    }
+    
+    /**
+     * Get the facility a stored code stands for.
+     * 
+     * @param code The code
+     * @return The facility ordinal, or -1 if the facility is no longer in the topology
+     */
+    public int ordinalOf(int code) {
+        int[] ordinals = mapping().ordinals;
+        return code >= 0 && code < ordinals.length ? ordinals[code] : -1;
+    }
+    
+    /**
+     * Encode facility ordinals as stored codes.
+     * 
+     * @param ordinals The facility ordinals
+     * @return The codes
+     */
+    public short[] toCodes(short[] ordinals) {
+        short[] codes = new short[ordinals.length];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = ordinals[i] >= 0 ? codeOf(ordinals[i]) : -1;
+        }
+        return codes;
+    }
+    
+    /**
+     * Decode stored codes into facility ordinals.
+     * 
+     * @param codes The codes
+     * @return The facility ordinals, -1 for facilities no longer in the topology
+     */
+    public short[] toOrdinals(short[] codes) {
+        short[] ordinals = new short[codes.length];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = (short) ordinalOf(codes[i]);
+        }
+        return ordinals;
+    }
+    
+    /**
+     * Get the facility names indexed by code, for SQL that maps stored codes to names.
+     * 
+     * @return The names, null for codes of facilities no longer in the topology
+     */
+    public Object[] namesByCode() {
+        return mapping().namesByCode.clone();
+    }
+    
+    private Mapping mapping() {
+        Mapping current = mapping;
+        if (current == null) {
+            synchronized (this) {
+                current = mapping;
+                if (current == null) {
+                    current = load();
+                    mapping = current;
+                }
+            }
+        }
+        return current;
+    }
+    
+    private Mapping load() {
+        Map<String, Short> registered = findAll();
+        int added = 0;
+        for (int ordinal = 0; ordinal < topology.size(); ordinal++) {
+            String name = topology.nameOf(ordinal);
+            while (!registered.containsKey(name)) {
+                added += jdbcTemplate.update(REGISTER_SQL, name);
+                registered = findAll();
+            }
+        }
+        if (added > 0) {
+            log.info("Registered stored codes of {} new facilities", added);
+        }
+        
+        short[] codes = new short[topology.size()];
+        int maxCode = registered.values().stream().mapToInt(Short::intValue).max().orElse(-1);
+        int[] ordinals = new int[maxCode + 1];
+        Object[] namesByCode = new Object[maxCode + 1];
+        Arrays.fill(ordinals, -1);
+        for (int ordinal = 0; ordinal < codes.length; ordinal++) {
+            short code = registered.get(topology.nameOf(ordinal));
+            codes[ordinal] = code;
+            ordinals[code] = ordinal;
+            namesByCode[code] = topology.nameOf(ordinal);
+        }
+        return new Mapping(codes, ordinals, namesByCode);
+    }
+    
+    private Map<String, Short> findAll() {
+        Map<String, Short> registered = new HashMap<>();
+        jdbcTemplate.query(FIND_ALL_SQL, rs -> {
+            registered.put(rs.getString(1), rs.getShort(2));
+        });
+        return registered;
+    }
+    
+    /**
+     * Codes by ordinal and ordinals and names by code.
+     */
+    private static final class Mapping {
+        
+        private final short[] codes;
+        private final int[] ordinals;
+        private final Object[] namesByCode;
+        
+        private Mapping(short[] codes, int[] ordinals, Object[] namesByCode) {
+            this.codes = codes;
+            this.ordinals = ordinals;
+            this.namesByCode = namesByCode;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.micrologistics.routing.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import com.micrologistics.common.exception.BusinessException;
+import com.micrologistics.routing.entity.Route;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Position of a route in the (created_at, id) order of keyset pagination, encoded for
+ * clients as an opaque URL-safe token.
+ */
+@Getter
+@AllArgsConstructor
+public final class RouteCursor {
+    
+    private static final char SEPARATOR = '|';
+    
+    private final LocalDateTime createdAt;
+    
+    private final String id;
+    
+    /**
+     * Get the cursor positioned at a route.
+     * 
+     * @param route The route
+     * @return The cursor
+     */
+    public static RouteCursor of(Route route) {
+        return new RouteCursor(route.getCreatedAt(), route.getId());
+    }
+    
+    /**
+     * Encode this cursor as a token.
+     * 
+     * @return The token
+     */
+    public String encode() {
+        String position = createdAt + String.valueOf(SEPARATOR) + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Decode a token.
+     * 
+     * @param token The token
+     * @return The cursor
+     * @throws BusinessException If the token is not a valid cursor
+     */
+    public static RouteCursor decode(String token) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = position.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Missing separator");
+            }
+            return new RouteCursor(LocalDateTime.parse(position.substring(0, separator)),
+                    position.substring(separator + 1));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BusinessException("Invalid cursor: " + token, BusinessException.ERROR_INVALID_CURSOR, e);
+        }
+    }
+}
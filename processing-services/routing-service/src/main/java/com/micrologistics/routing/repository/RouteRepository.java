@@ -1,5 +1,6 @@
 package com.micrologistics.routing.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -7,15 +8,17 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.micrologistics.routing.entity.Route;
+import com.micrologistics.routing.entity.RouteStepsListener;
 
 /**
  * Repository interface for managing Route entities.
  */
 @Repository
-public interface RouteRepository extends JpaRepository<Route, String> {
+public interface RouteRepository extends JpaRepository<Route, String>, RouteRepositoryCustom {
     
     /**
      * Find a route by its tracking ID.
@@ -60,12 +63,13 @@ public interface RouteRepository extends JpaRepository<Route, String> {
     
     /**
      * Find routes containing a specific step in their route steps.
+     * Served by the GIN index on step_codes.
      * 
-     * @param step The step to look for
+     * @param stepCode The stored code of the step, see {@link RouteStepsListener#codeOf(String)}
      * @return A list of routes that include the specified step
      */
-    @Query("SELECT r FROM Route r JOIN r.routeSteps steps WHERE steps = :step")
-    List<Route> findByRouteStepsContaining(String step);
+    @Query(value = "SELECT * FROM routes WHERE step_codes @> ARRAY[CAST(:stepCode AS smallint)]", nativeQuery = true)
+    List<Route> findByRouteStepsContaining(@Param("stepCode") int stepCode);
     
     /**
      * Count routes by status.
@@ -76,18 +80,52 @@ public interface RouteRepository extends JpaRepository<Route, String> {
     long countByStatus(String status);
     
     /**
-     * Find the average estimated time for routes by current step.
+     * Aggregate the estimated times of the routes in the given statuses by current step.
+     * Only used to rebuild the in-memory aggregates.
      * 
-     * @return A list of current steps and their average estimated times
+     * @param statuses The statuses to include
+     * @return A list of current steps with the count, sum, minimum and maximum of their estimated times
      */
-    @Query("SELECT r.currentStep, AVG(r.estimatedTimeMinutes) FROM Route r GROUP BY r.currentStep")
-    List<Object[]> findAverageEstimatedTimeByStep();
+    @Query("SELECT r.currentStep, COUNT(r.estimatedTimeMinutes), SUM(r.estimatedTimeMinutes), "
+            + "MIN(r.estimatedTimeMinutes), MAX(r.estimatedTimeMinutes) FROM Route r "
+            + "WHERE r.status IN :statuses GROUP BY r.currentStep")
+    List<Object[]> findEstimatedTimeStatsByStatusIn(@Param("statuses") Collection<String> statuses);
     
     /**
-     * Get routes with completion time exceeding estimated time.
+     * Get the deadline of every route in the given statuses, without loading the routes.
+     * Served by the index on (status, estimated_completion_time).
      * 
-     * @return A list of delayed routes
+     * @param statuses The statuses to include
+     * @return The ID, item ID, tracking ID and estimated completion time of each route
      */
-    @Query("SELECT r FROM Route r WHERE r.status = 'COMPLETED' AND r.updatedAt > r.estimatedCompletionTime")
-    List<Route> findDelayedRoutes();
+    @Query("SELECT r.id, r.itemId, r.trackingId, r.estimatedCompletionTime FROM Route r "
+            + "WHERE r.status IN :statuses AND r.estimatedCompletionTime IS NOT NULL")
+    List<Object[]> findDeadlinesByStatusIn(@Param("statuses") Collection<String> statuses);
+    
+    /**
+     * Get the current step and priority of every route in the given statuses, without loading the routes.
+     * 
+     * @param statuses The statuses to include
+     * @return The item ID, current step, priority and last update time of each route
+     */
+    @Query("SELECT r.itemId, r.currentStep, r.priority, r.updatedAt FROM Route r WHERE r.status IN :statuses")
+    List<Object[]> findQueuePositionsByStatusIn(@Param("statuses") Collection<String> statuses);
+    
+    /**
+     * Get the steps and current step index of every route in the given statuses, without loading the routes.
+     * 
+     * @param statuses The statuses to include
+     * @return The ID, step codes and current step index of each route
+     */
+    @Query("SELECT r.id, r.stepCodes, r.currentStepIndex FROM Route r WHERE r.status IN :statuses")
+    List<Object[]> findStepCodesByStatusIn(@Param("statuses") Collection<String> statuses);
+    
+    /**
+     * Count the routes in the given statuses at each step with a single aggregate query.
+     * 
+     * @param statuses The statuses to include
+     * @return A list of current steps with the number of routes at each
+     */
+    @Query("SELECT r.currentStep, COUNT(r) FROM Route r WHERE r.status IN :statuses GROUP BY r.currentStep")
+    List<Object[]> countByCurrentStepAndStatusIn(@Param("statuses") Collection<String> statuses);
 }
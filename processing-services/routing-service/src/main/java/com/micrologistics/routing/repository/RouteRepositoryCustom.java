@@ -0,0 +1,98 @@
+package com.micrologistics.routing.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import com.micrologistics.routing.entity.Route;
+
+/**
+ * Bulk route operations that bypass entity loading.
+ */
+public interface RouteRepositoryCustom {
+    
+    /**
+     * Advance routes to the scanned steps with a single conditional update.
+     * A route only moves forward, to the first occurrence of the step after its current step,
+     * and only while it is CREATED or IN_PROGRESS; scans that do not qualify are ignored.
+     * Each tracking ID must appear at most once.
+     * 
+     * @param trackingIds The tracking IDs of the scanned items
+     * @param stepCodes The facility ordinals of the scanned steps, parallel to trackingIds
+     * @param scannedAt The scan times, parallel to trackingIds
+     * @return The transitions that were applied
+     */
+    List<RouteStepTransition> advanceSteps(List<String> trackingIds, List<Integer> stepCodes,
+            List<LocalDateTime> scannedAt);
+    
+    /**
+     * Insert a route unless one already exists for its item, in routes or routes_archive, in a
+     * single statement that returns the existing route instead. A route without an ID is given one.
+     * 
+     * @param route The new route
+     * @return The given route if it was inserted, otherwise the item's existing or archived route
+     */
+    Route insertIfAbsent(Route route);
+    
+    /**
+     * Insert routes in a single statement, skipping those whose item already has a route,
+     * archived or not.
+     * Routes without an ID are given one.
+     * 
+     * @param routes The new routes, at most one per item
+     * @return The IDs of the routes that were inserted
+     */
+    Set<String> insertAllIfAbsent(List<Route> routes);
+    
+    /**
+     * Read a page of routes in (created_at, id) order, seeking past a cursor on the
+     * composite index instead of skipping an offset, without counting the routes.
+     * 
+     * @param status The status to filter by, or null for all routes
+     * @param after The position to continue after, or null for the first page
+     * @param ascending True for oldest first, false for newest first
+     * @param limit The maximum number of routes
+     * @return The routes
+     */
+    List<Route> findPage(String status, RouteCursor after, boolean ascending, int limit);
+    
+    /**
+     * Store the new steps and estimates of re-routed routes with a single conditional update.
+     * A route is only updated while it is CREATED or IN_PROGRESS and still has the steps and
+     * current step index it was re-routed from, so routes that moved on in the meantime are skipped.
+     * 
+     * @param routes The re-routed routes, with their new steps encoded in stepCodes
+     * @param previousStepCodes The step codes each route was re-routed from, parallel to routes
+     * @return The IDs of the routes that were updated
+     */
+    Set<String> replaceSteps(List<Route> routes, List<short[]> previousStepCodes);
+    
+    /**
+     * Move a chunk of completed routes created before a cutoff to routes_archive, in a
+     * single statement. Routes locked by another transaction are skipped until a later chunk.
+     * 
+     * @param createdBefore The cutoff
+     * @param limit The maximum number of routes to move
+     * @return The number of routes moved
+     */
+    int archiveCompleted(LocalDateTime createdBefore, int limit);
+    
+    /**
+     * Move a chunk of step history rows left before a cutoff to route_step_history_archive,
+     * in a single statement.
+     * 
+     * @param leftBefore The cutoff
+     * @param limit The maximum number of rows to move
+     * @return The number of rows moved
+     */
+    int archiveStepHistory(LocalDateTime leftBefore, int limit);
+    
+    /**
+     * Find an archived route by its tracking ID.
+     * 
+     * @param trackingId The tracking ID
+     * @return An Optional containing the archived route if found
+     */
+    Optional<Route> findArchivedByTrackingId(String trackingId);
+}
@@ -0,0 +1,421 @@
+package com.micrologistics.routing.repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.micrologistics.routing.algorithm.FacilityTopology;
+import com.micrologistics.routing.entity.Route;
+import com.micrologistics.routing.entity.RouteStepsListener;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * JDBC implementation of the bulk route operations.
+ */
+@RequiredArgsConstructor
+public class RouteRepositoryImpl implements RouteRepositoryCustom {
+    
+    // Scans are joined to routes by tracking ID; array_position searches step_codes from the
+    // step after the current one, so repeated and out-of-order scans match nothing
+    // The time spent at the step an item leaves is appended to route_step_history in the same
+    // statement, when the item moved to the next step on its route rather than skipping ahead
+    private static final String ADVANCE_STEPS_SQL =
+            "WITH moved AS (UPDATE routes r SET "
+            + "current_step_index = s.step_index, "
+            + "current_step = (CAST(? AS text[]))[r.step_codes[s.step_index + 1] + 1], "
+            + "status = CASE WHEN s.step_index = cardinality(r.step_codes) - 1 THEN 'COMPLETED' ELSE 'IN_PROGRESS' END, "
+            + "updated_at = s.scanned_at, step_entered_at = s.scanned_at "
+            + "FROM (SELECT r2.id, array_position(r2.step_codes, scan.code, COALESCE(r2.current_step_index, 0) + 2) - 1 "
+            + "AS step_index, scan.scanned_at, r2.current_step AS previous_step, "
+            + "COALESCE(r2.current_step_index, 0) AS previous_index, "
+            + "r2.step_codes[COALESCE(r2.current_step_index, 0) + 1] AS previous_code, "
+            + "COALESCE(r2.step_entered_at, r2.created_at) AS previous_entered_at "
+            + "FROM unnest(CAST(? AS text[]), CAST(? AS smallint[]), CAST(? AS timestamp[])) "
+            + "AS scan(tracking_id, code, scanned_at) "
+            + "JOIN routes r2 ON r2.tracking_id = scan.tracking_id "
+            + "WHERE r2.status IN ('CREATED', 'IN_PROGRESS')) s "
+            + "WHERE r.id = s.id AND s.step_index IS NOT NULL "
+            + "RETURNING r.id, r.item_id, s.previous_step, r.current_step, r.current_step_index, r.status, "
+            + "r.estimated_time_minutes, r.step_codes[r.current_step_index + 1] AS code, s.previous_index, "
+            + "s.previous_code, s.previous_entered_at, s.scanned_at), "
+            + "history AS (INSERT INTO route_step_history "
+            + "(route_id, item_id, facility, next_facility, entered_at, left_at) "
+            + "SELECT id, item_id, previous_code, code, previous_entered_at, scanned_at FROM moved "
+            + "WHERE current_step_index = previous_index + 1) "
+            + "SELECT id, item_id, previous_step, current_step, current_step_index, status, estimated_time_minutes, "
+            + "CASE WHEN current_step_index = previous_index + 1 THEN previous_entered_at END, scanned_at "
+            + "FROM moved";
+    
+    private static final String ROUTE_COLUMNS =
+            "id, item_id, tracking_id, step_codes, current_step, current_step_index, status, "
+            + "estimated_time_minutes, priority, weight, created_at, updated_at, estimated_completion_time, step_entered_at";
+    
+    // Conflicts on the item ID constraint skip the insert, and so does an archived route of the
+    // item, which the constraint no longer covers; the existing route is then read in the same
+    // statement, which cannot see the row inserted by its own CTE
+    private static final String INSERT_IF_ABSENT_SQL =
+            "WITH inserted AS (INSERT INTO routes (" + ROUTE_COLUMNS + ") "
+            + "SELECT CAST(? AS text), CAST(? AS text), CAST(? AS text), CAST(? AS smallint[]), CAST(? AS text), "
+            + "CAST(? AS int), CAST(? AS text), CAST(? AS float8), CAST(? AS int), CAST(? AS float8), "
+            + "CAST(? AS timestamp), CAST(? AS timestamp), CAST(? AS timestamp), CAST(? AS timestamp) "
+            + "WHERE NOT EXISTS (SELECT 1 FROM routes_archive WHERE item_id = ?) "
+            + "ON CONFLICT DO NOTHING RETURNING id) "
+            + "SELECT (SELECT count(*) FROM inserted) AS inserted_count, r.* FROM (SELECT 1) one "
+            + "LEFT JOIN (SELECT " + ROUTE_COLUMNS + " FROM routes WHERE item_id = ? "
+            + "UNION ALL SELECT " + ROUTE_COLUMNS + " FROM routes_archive WHERE item_id = ? LIMIT 1) r "
+            + "ON NOT EXISTS (SELECT 1 FROM inserted)";
+    
+    private static final String FIND_BY_ITEM_ID_SQL =
+            "SELECT " + ROUTE_COLUMNS + " FROM routes WHERE item_id = ? LIMIT 1";
+    
+    // Step codes travel as array literals, since unnest cannot split a two-dimensional array into rows;
+    // items with an archived route are skipped like those with a route
+    private static final String INSERT_ALL_IF_ABSENT_SQL =
+            "INSERT INTO routes (" + ROUTE_COLUMNS + ") "
+            + "SELECT t.id, t.item_id, t.tracking_id, CAST(t.step_codes AS smallint[]), t.current_step, "
+            + "t.current_step_index, t.status, t.estimated_time_minutes, t.priority, t.weight, t.created_at, t.updated_at, "
+            + "t.estimated_completion_time, t.step_entered_at "
+            + "FROM unnest(CAST(? AS text[]), CAST(? AS text[]), CAST(? AS text[]), CAST(? AS text[]), "
+            + "CAST(? AS text[]), CAST(? AS int[]), CAST(? AS text[]), CAST(? AS float8[]), CAST(? AS int[]), "
+            + "CAST(? AS float8[]), CAST(? AS timestamp[]), CAST(? AS timestamp[]), CAST(? AS timestamp[]), "
+            + "CAST(? AS timestamp[])) "
+            + "AS t(id, item_id, tracking_id, step_codes, current_step, current_step_index, status, "
+            + "estimated_time_minutes, priority, weight, created_at, updated_at, estimated_completion_time, "
+            + "step_entered_at) "
+            + "WHERE NOT EXISTS (SELECT 1 FROM routes_archive a WHERE a.item_id = t.item_id) "
+            + "ON CONFLICT DO NOTHING RETURNING id";
+    
+    // Routes are matched on the steps and step index they were re-routed from, so a scan or
+    // another replica's re-route committed in the meantime wins
+    private static final String REPLACE_STEPS_SQL =
+            "UPDATE routes r SET step_codes = CAST(t.step_codes AS smallint[]), "
+            + "estimated_time_minutes = t.estimated_time_minutes, "
+            + "estimated_completion_time = t.estimated_completion_time, updated_at = t.updated_at "
+            + "FROM unnest(CAST(? AS text[]), CAST(? AS text[]), CAST(? AS text[]), CAST(? AS int[]), "
+            + "CAST(? AS float8[]), CAST(? AS timestamp[]), CAST(? AS timestamp[])) "
+            + "AS t(id, step_codes, previous_step_codes, current_step_index, estimated_time_minutes, "
+            + "estimated_completion_time, updated_at) "
+            + "WHERE r.id = t.id AND r.step_codes = CAST(t.previous_step_codes AS smallint[]) "
+            + "AND r.current_step_index = t.current_step_index "
+            + "AND r.status IN ('CREATED', 'IN_PROGRESS') "
+            + "RETURNING r.id";
+    
+    // Row value comparisons let the (created_at, id) indexes seek straight to the cursor
+    private static final String FIND_PAGE_SQL = "SELECT " + ROUTE_COLUMNS + " FROM routes";
+    
+    // Served by the (status, created_at, id) index; SKIP LOCKED leaves routes another
+    // transaction holds for a later chunk instead of waiting on them
+    private static final String ARCHIVE_COMPLETED_SQL =
+            "WITH chunk AS (SELECT id FROM routes WHERE status = 'COMPLETED' AND created_at < ? "
+            + "ORDER BY created_at, id LIMIT ? FOR UPDATE SKIP LOCKED), "
+            + "moved AS (DELETE FROM routes r USING chunk WHERE r.id = chunk.id RETURNING r.*) "
+            + "INSERT INTO routes_archive (" + ROUTE_COLUMNS + ", archived_at) "
+            + "SELECT " + ROUTE_COLUMNS + ", now() FROM moved";
+    
+    private static final String HISTORY_COLUMNS =
+            "id, route_id, item_id, facility, next_facility, entered_at, left_at";
+    
+    // Served by the left_at index
+    private static final String ARCHIVE_STEP_HISTORY_SQL =
+            "WITH chunk AS (SELECT id FROM route_step_history WHERE left_at < ? "
+            + "ORDER BY left_at LIMIT ? FOR UPDATE SKIP LOCKED), "
+            + "moved AS (DELETE FROM route_step_history h USING chunk WHERE h.id = chunk.id RETURNING h.*) "
+            + "INSERT INTO route_step_history_archive (" + HISTORY_COLUMNS + ") "
+            + "SELECT " + HISTORY_COLUMNS + " FROM moved";
+    
+    private static final String FIND_ARCHIVED_BY_TRACKING_ID_SQL =
+            "SELECT " + ROUTE_COLUMNS + " FROM routes_archive WHERE tracking_id = ? LIMIT 1";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final FacilityTopology topology;
+    private final FacilityCodes facilityCodes;
+    
+    @Override
+    public List<RouteStepTransition> advanceSteps(List<String> trackingIds, List<Integer> stepCodes,
+            List<LocalDateTime> scannedAt) {
+        Object[] facilityNames = facilityCodes.namesByCode();
+        Object[] codes = stepCodes.stream()
+                .map(ordinal -> ordinal >= 0 ? facilityCodes.codeOf(ordinal) : (short) -1)
+                .toArray();
+        Timestamp[] times = scannedAt.stream().map(Timestamp::valueOf).toArray(Timestamp[]::new);
+        
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ADVANCE_STEPS_SQL);
+            statement.setArray(1, connection.createArrayOf("text", facilityNames));
+            statement.setArray(2, connection.createArrayOf("text", trackingIds.toArray()));
+            statement.setArray(3, connection.createArrayOf("int2", codes));
+            statement.setArray(4, connection.createArrayOf("timestamp", times));
+            return statement;
+        }, (rs, rowNum) -> new RouteStepTransition(
+                rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getInt(5),
+                rs.getString(6), rs.getObject(7, Double.class), rs.getObject(8, LocalDateTime.class),
+                rs.getObject(9, LocalDateTime.class)));
+    }
+    
+    @Override
+    public Route insertIfAbsent(Route route) {
+        assignId(route);
+        short[] codes = encode(route.getRouteSteps());
+        
+        Route stored = jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_IF_ABSENT_SQL);
+            statement.setString(1, route.getId());
+            statement.setString(2, route.getItemId());
+            statement.setString(3, route.getTrackingId());
+            statement.setArray(4, codeArray(connection, stored(codes)));
+            statement.setString(5, route.getCurrentStep());
+            statement.setObject(6, route.getCurrentStepIndex());
+            statement.setString(7, route.getStatus());
+            statement.setObject(8, route.getEstimatedTimeMinutes());
+            statement.setObject(9, route.getPriority());
+            statement.setObject(10, route.getWeight());
+            statement.setObject(11, timestamp(route.getCreatedAt()));
+            statement.setObject(12, timestamp(route.getUpdatedAt()));
+            statement.setObject(13, timestamp(route.getEstimatedCompletionTime()));
+            statement.setObject(14, timestamp(route.getStepEnteredAt()));
+            statement.setString(15, route.getItemId());
+            statement.setString(16, route.getItemId());
+            statement.setString(17, route.getItemId());
+            return statement;
+        }, rs -> {
+            rs.next();
+            if (rs.getLong("inserted_count") > 0) {
+                route.setStepCodes(codes);
+                return route;
+            }
+            return rs.getString("id") != null ? mapRoute(rs, 0) : null;
+        });
+        
+        if (stored == null) {
+            // The conflicting route was committed after this statement's snapshot was taken
+            stored = jdbcTemplate.queryForObject(FIND_BY_ITEM_ID_SQL, this::mapRoute, route.getItemId());
+        }
+        return stored;
+    }
+    
+    @Override
+    public Set<String> insertAllIfAbsent(List<Route> routes) {
+        if (routes.isEmpty()) {
+            return Set.of();
+        }
+        int size = routes.size();
+        String[] ids = new String[size];
+        String[] itemIds = new String[size];
+        String[] trackingIds = new String[size];
+        String[] stepCodes = new String[size];
+        String[] currentSteps = new String[size];
+        Integer[] currentStepIndexes = new Integer[size];
+        String[] statuses = new String[size];
+        Double[] estimatedTimes = new Double[size];
+        Integer[] priorities = new Integer[size];
+        Double[] weights = new Double[size];
+        Timestamp[] createdAt = new Timestamp[size];
+        Timestamp[] updatedAt = new Timestamp[size];
+        Timestamp[] estimatedCompletionTimes = new Timestamp[size];
+        Timestamp[] stepEnteredAt = new Timestamp[size];
+        short[][] codes = new short[size][];
+        for (int i = 0; i < size; i++) {
+            Route route = routes.get(i);
+            assignId(route);
+            codes[i] = encode(route.getRouteSteps());
+            ids[i] = route.getId();
+            itemIds[i] = route.getItemId();
+            trackingIds[i] = route.getTrackingId();
+            stepCodes[i] = arrayLiteral(stored(codes[i]));
+            currentSteps[i] = route.getCurrentStep();
+            currentStepIndexes[i] = route.getCurrentStepIndex();
+            statuses[i] = route.getStatus();
+            estimatedTimes[i] = route.getEstimatedTimeMinutes();
+            priorities[i] = route.getPriority();
+            weights[i] = route.getWeight();
+            createdAt[i] = timestamp(route.getCreatedAt());
+            updatedAt[i] = timestamp(route.getUpdatedAt());
+            estimatedCompletionTimes[i] = timestamp(route.getEstimatedCompletionTime());
+            stepEnteredAt[i] = timestamp(route.getStepEnteredAt());
+        }
+        
+        List<String> inserted = jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_ALL_IF_ABSENT_SQL);
+            statement.setArray(1, connection.createArrayOf("text", ids));
+            statement.setArray(2, connection.createArrayOf("text", itemIds));
+            statement.setArray(3, connection.createArrayOf("text", trackingIds));
+            statement.setArray(4, connection.createArrayOf("text", stepCodes));
+            statement.setArray(5, connection.createArrayOf("text", currentSteps));
+            statement.setArray(6, connection.createArrayOf("int4", currentStepIndexes));
+            statement.setArray(7, connection.createArrayOf("text", statuses));
+            statement.setArray(8, connection.createArrayOf("float8", estimatedTimes));
+            statement.setArray(9, connection.createArrayOf("int4", priorities));
+            statement.setArray(10, connection.createArrayOf("float8", weights));
+            statement.setArray(11, connection.createArrayOf("timestamp", createdAt));
+            statement.setArray(12, connection.createArrayOf("timestamp", updatedAt));
+            statement.setArray(13, connection.createArrayOf("timestamp", estimatedCompletionTimes));
+            statement.setArray(14, connection.createArrayOf("timestamp", stepEnteredAt));
+            return statement;
+        }, (rs, rowNum) -> rs.getString(1));
+        
+        for (int i = 0; i < size; i++) {
+            routes.get(i).setStepCodes(codes[i]);
+        }
+        return new HashSet<>(inserted);
+    }
+    
+    @Override
+    public List<Route> findPage(String status, RouteCursor after, boolean ascending, int limit) {
+        StringBuilder sql = new StringBuilder(FIND_PAGE_SQL);
+        List<Object> args = new ArrayList<>(4);
+        String conjunction = " WHERE ";
+        if (status != null) {
+            sql.append(conjunction).append("status = ?");
+            args.add(status);
+            conjunction = " AND ";
+        }
+        if (after != null) {
+            sql.append(conjunction).append("(created_at, id) ").append(ascending ? ">" : "<").append(" (?, ?)");
+            args.add(timestamp(after.getCreatedAt()));
+            args.add(after.getId());
+        }
+        String direction = ascending ? "ASC" : "DESC";
+        sql.append(" ORDER BY created_at ").append(direction).append(", id ").append(direction).append(" LIMIT ?");
+        args.add(limit);
+        
+        return jdbcTemplate.query(sql.toString(), this::mapRoute, args.toArray());
+    }
+    
+    @Override
+    public Set<String> replaceSteps(List<Route> routes, List<short[]> previousStepCodes) {
+        if (routes.isEmpty()) {
+            return Set.of();
+        }
+        int size = routes.size();
+        String[] ids = new String[size];
+        String[] stepCodes = new String[size];
+        String[] previousCodes = new String[size];
+        Integer[] currentStepIndexes = new Integer[size];
+        Double[] estimatedTimes = new Double[size];
+        Timestamp[] estimatedCompletionTimes = new Timestamp[size];
+        Timestamp[] updatedAt = new Timestamp[size];
+        for (int i = 0; i < size; i++) {
+            Route route = routes.get(i);
+            ids[i] = route.getId();
+            stepCodes[i] = arrayLiteral(stored(route.getStepCodes()));
+            previousCodes[i] = arrayLiteral(stored(previousStepCodes.get(i)));
+            currentStepIndexes[i] = route.getCurrentStepIndex();
+            estimatedTimes[i] = route.getEstimatedTimeMinutes();
+            estimatedCompletionTimes[i] = timestamp(route.getEstimatedCompletionTime());
+            updatedAt[i] = timestamp(route.getUpdatedAt());
+        }
+        
+        List<String> updated = jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(REPLACE_STEPS_SQL);
+            statement.setArray(1, connection.createArrayOf("text", ids));
+            statement.setArray(2, connection.createArrayOf("text", stepCodes));
+            statement.setArray(3, connection.createArrayOf("text", previousCodes));
+            statement.setArray(4, connection.createArrayOf("int4", currentStepIndexes));
+            statement.setArray(5, connection.createArrayOf("float8", estimatedTimes));
+            statement.setArray(6, connection.createArrayOf("timestamp", estimatedCompletionTimes));
+            statement.setArray(7, connection.createArrayOf("timestamp", updatedAt));
+            return statement;
+        }, (rs, rowNum) -> rs.getString(1));
+        return new HashSet<>(updated);
+    }
+    
+    @Override
+    public int archiveCompleted(LocalDateTime createdBefore, int limit) {
+        return jdbcTemplate.update(ARCHIVE_COMPLETED_SQL, timestamp(createdBefore), limit);
+    }
+    
+    @Override
+    public int archiveStepHistory(LocalDateTime leftBefore, int limit) {
+        return jdbcTemplate.update(ARCHIVE_STEP_HISTORY_SQL, timestamp(leftBefore), limit);
+    }
+    
+    @Override
+    public Optional<Route> findArchivedByTrackingId(String trackingId) {
+        return jdbcTemplate.query(FIND_ARCHIVED_BY_TRACKING_ID_SQL, this::mapRoute, trackingId).stream().findFirst();
+    }
+    
+    private Route mapRoute(ResultSet rs, int rowNum) throws SQLException {
+        Array codeArray = rs.getArray("step_codes");
+        short[] codes = null;
+        if (codeArray != null) {
+            Object[] values = (Object[]) codeArray.getArray();
+            codes = new short[values.length];
+            for (int i = 0; i < values.length; i++) {
+                codes[i] = ((Number) values[i]).shortValue();
+            }
+            codes = facilityCodes.toOrdinals(codes);
+        }
+        return Route.builder()
+                .id(rs.getString("id"))
+                .itemId(rs.getString("item_id"))
+                .trackingId(rs.getString("tracking_id"))
+                .stepCodes(codes)
+                .routeSteps(codes != null ? RouteStepsListener.decodeSteps(topology, codes) : null)
+                .currentStep(rs.getString("current_step"))
+                .currentStepIndex(rs.getObject("current_step_index", Integer.class))
+                .status(rs.getString("status"))
+                .estimatedTimeMinutes(rs.getObject("estimated_time_minutes", Double.class))
+                .priority(rs.getObject("priority", Integer.class))
+                .weight(rs.getObject("weight", Double.class))
+                .createdAt(rs.getObject("created_at", LocalDateTime.class))
+                .updatedAt(rs.getObject("updated_at", LocalDateTime.class))
+                .estimatedCompletionTime(rs.getObject("estimated_completion_time", LocalDateTime.class))
+                .stepEnteredAt(rs.getObject("step_entered_at", LocalDateTime.class))
+                .build();
+    }
+    
+    private short[] encode(List<String> steps) {
+        return steps != null ? RouteStepsListener.encodeSteps(topology, steps) : null;
+    }
+    
+    // Routes keep facility ordinals in memory and are written with the stable facility codes
+    private short[] stored(short[] ordinals) {
+        return ordinals != null ? facilityCodes.toCodes(ordinals) : null;
+    }
+    
+    private static Array codeArray(Connection connection, short[] codes) throws SQLException {
+        if (codes == null) {
+            return null;
+        }
+        Short[] values = new Short[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            values[i] = codes[i];
+        }
+        return connection.createArrayOf("int2", values);
+    }
+    
+    private static String arrayLiteral(short[] codes) {
+        if (codes == null) {
+            return null;
+        }
+        StringJoiner literal = new StringJoiner(",", "{", "}");
+        for (short code : codes) {
+            literal.add(Short.toString(code));
+        }
+        return literal.toString();
+    }
+    
+    private static Timestamp timestamp(LocalDateTime time) {
+        return time != null ? Timestamp.valueOf(time) : null;
+    }
+    
+    private static void assignId(Route route) {
+        if (route.getId() == null) {
+            route.setId(UUID.randomUUID().toString());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.micrologistics.routing.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.micrologistics.routing.entity.RouteStepHistory;
+
+/**
+ * Repository interface for managing RouteStepHistory entities.
+ * Rows for scans are appended by {@link RouteRepositoryCustom#advanceSteps}.
+ */
+@Repository
+public interface RouteStepHistoryRepository extends JpaRepository<RouteStepHistory, Long> {
+    
+    /**
+     * Find the steps left since a given time, most recent first, without loading entities.
+     * 
+     * @param since The earliest time an item left the step
+     * @param pageable The number of rows to read
+     * @return Rows of facility, next facility, entered at and left at
+     */
+    @Query("SELECT h.facility, h.nextFacility, h.enteredAt, h.leftAt FROM RouteStepHistory h "
+            + "WHERE h.leftAt > :since ORDER BY h.leftAt DESC")
+    List<Object[]> findDurationsSince(@Param("since") LocalDateTime since, Pageable pageable);
+}
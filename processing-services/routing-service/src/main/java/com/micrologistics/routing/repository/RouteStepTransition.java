@@ -0,0 +1,36 @@
+package com.micrologistics.routing.repository;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A route step change applied directly in the database, as returned by
+ * {@link RouteRepositoryCustom#advanceSteps}.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class RouteStepTransition {
+    
+    private final String routeId;
+    
+    private final String itemId;
+    
+    private final String previousStep;
+    
+    private final String step;
+    
+    private final int stepIndex;
+    
+    private final String status;
+    
+    private final Double estimatedTimeMinutes;
+    
+    // When the item reached the previous step; null unless it moved on to the next step of its route
+    private final LocalDateTime previousStepAt;
+    
+    private final LocalDateTime stepAt;
+}
@@ -0,0 +1,48 @@
+package com.micrologistics.routing.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Service interface for re-routing in-flight items around facilities that went down, or to
+ * another outbound dock.
+ */
+public interface RerouteService {
+
+    /**
+     * Re-plan the remaining steps of every in-flight route that has yet to pass through a
+     * facility, in parallel batches. Returns immediately; the routes are re-planned in the
+     * background.
+     *
+     * @param facility The facility name
+     * @return The number of routes that were re-routed, once all batches have finished
+     */
+    CompletableFuture<Integer> rerouteAround(String facility);
+
+    /**
+     * Re-plan the remaining steps of in-flight routes so that they end at another outbound
+     * dock, in parallel batches. Routes that already end at their dock, or have reached
+     * their last step, are left as they are. Returns immediately; the routes are re-planned
+     * in the background.
+     *
+     * @param docks The outbound dock to send each route to, by route ID
+     * @return The IDs of the routes that were re-routed, once all batches have finished
+     */
+    CompletableFuture<Set<String>> redirectToDocks(Map<String, String> docks);
+
+    /**
+     * Get the number of routes re-routed since startup.
+     *
+     * @return The route count
+     */
+    long getReroutedCount();
+
+    /**
+     * Get the number of routes that could not be re-routed because their outbound dock was
+     * unreachable from their current step.
+     *
+     * @return The route count
+     */
+    long getUnroutableCount();
+}
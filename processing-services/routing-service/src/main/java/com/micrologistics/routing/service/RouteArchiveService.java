@@ -0,0 +1,43 @@
+package com.micrologistics.routing.service;
+
+import java.util.Optional;
+
+import com.micrologistics.routing.entity.Route;
+
+/**
+ * Service interface for moving completed routes out of the routes table once they are no
+ * longer looked up often, so the tables queried by status stay proportional to the routes
+ * in flight.
+ */
+public interface RouteArchiveService {
+
+    /**
+     * Move completed routes and step history older than the retention period to the
+     * archive tables, a chunk at a time.
+     *
+     * @return The number of routes archived
+     */
+    int archiveCompletedRoutes();
+
+    /**
+     * Find an archived route by its tracking ID.
+     *
+     * @param trackingId The tracking ID
+     * @return An Optional containing the archived route if found
+     */
+    Optional<Route> findArchivedByTrackingId(String trackingId);
+
+    /**
+     * Get the number of routes archived since startup.
+     *
+     * @return The route count
+     */
+    long getArchivedRouteCount();
+
+    /**
+     * Get the number of step history rows archived since startup.
+     *
+     * @return The row count
+     */
+    long getArchivedStepCount();
+}
@@ -6,8 +6,12 @@ import java.util.Map;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import com.micrologistics.common.dto.CursorPage;
 import com.micrologistics.common.dto.RouteDto;
 import com.micrologistics.common.event.ItemRegisteredEvent;
+import com.micrologistics.common.event.ScanEvent;
+import com.micrologistics.common.exception.BusinessException;
+import com.micrologistics.routing.monitor.DispatchQueueStats;
 
 /**
  * Service interface for route management.
@@ -26,6 +30,30 @@ public interface RoutingService {
      */
     RouteDto createRoute(String itemId, String trackingId, String destination, Double weight, Integer priority);
     
+    /**
+     * Create a new route for an item registered at a warehouse site.
+     * 
+     * @param itemId The item ID
+     * @param trackingId The tracking ID
+     * @param destination The destination
+     * @param weight The weight
+     * @param priority The priority (optional)
+     * @param site The site (optional, the default site if absent)
+     * @return The created route
+     */
+    RouteDto createRoute(String itemId, String trackingId, String destination, Double weight, Integer priority,
+            String site);
+    
+    /**
+     * Create routes for a batch of registered items.
+     * Items that already have a route, or appear more than once in the batch, are skipped,
+     * as are items for which no route can be determined.
+     * 
+     * @param events The item registered events
+     * @return The created routes
+     */
+    List<RouteDto> createRoutes(List<ItemRegisteredEvent> events);
+    
     /**
      * Get a route by its ID.
      * 
@@ -67,6 +95,19 @@ public interface RoutingService {
      */
     Page<RouteDto> getRoutesByStatus(String status, Pageable pageable);
     
+    /**
+     * Get a page of routes ordered by creation time, continuing after a cursor.
+     * Unlike the offset-based listings, deep pages cost the same as the first and no
+     * total count is computed.
+     * 
+     * @param status The status to filter by, or null for all routes
+     * @param cursor The cursor returned with the previous page, or null for the first page
+     * @param size The page size
+     * @param ascending True for oldest first, false for newest first
+     * @return A page of routes with the cursor of the next page
+     */
+    CursorPage<RouteDto> getRoutesAfter(String status, String cursor, int size, boolean ascending);
+    
     /**
      * Update a route's current step.
      * 
@@ -76,6 +117,24 @@ public interface RoutingService {
      */
     RouteDto updateRouteStep(String id, String step);
     
+    /**
+     * Apply a batch of scanner events, advancing each scanned item's route to the scanned step.
+     * Scans of unknown items or facilities, and scans that would move a route backwards, are ignored.
+     * 
+     * @param scans The scan events, in the order they were read
+     * @return The number of scans that advanced a route
+     */
+    int applyScans(List<ScanEvent> scans);
+    
+    /**
+     * Mark a route as failed, releasing the facility slots reserved for its item. A route
+     * that has already failed is returned as it is.
+     * 
+     * @param id The route ID
+     * @return The updated route
+     */
+    RouteDto failRoute(String id);
+    
     /**
      * Process an item registered event by creating a route for it.
      * 
@@ -85,7 +144,7 @@ public interface RoutingService {
     RouteDto processItemRegisteredEvent(ItemRegisteredEvent event);
     
     /**
-     * Get the current load status of all equipment.
+     * Get the current load status of the equipment of every site this replica routes.
      * 
      * @return A map of equipment to load
      */
@@ -114,16 +173,49 @@ public interface RoutingService {
     List<String> getAllFacilities();
     
     /**
-     * Get routes that are delayed (completion time exceeded estimated time).
+     * Get in-flight routes that have missed their estimated completion time, longest overdue
+     * first and at most 1000 of them.
      * 
      * @return List of delayed routes
      */
     List<RouteDto> getDelayedRoutes();
     
     /**
-     * Get the average estimated time by step.
+     * Get the average estimated time of the in-flight routes by step.
      * 
      * @return A map of step to average time
      */
     Map<String, Double> getAverageTimeByStep();
+    
+    /**
+     * Take the next item to process at a facility, most urgent priority class first. Only
+     * the replica owning the facility hands out its items.
+     * 
+     * @param facility The facility name
+     * @return The item ID, or null if no item is waiting
+     * @throws BusinessException If another replica dispatches the facility's items
+     */
+    String dispatchNextItem(String facility);
+    
+    /**
+     * Get the depths and waiting-time histograms of the facility queues by priority class.
+     * 
+     * @return A map of priority class to queue statistics
+     */
+    Map<String, DispatchQueueStats> getDispatchQueueStats();
+    
+    /**
+     * Get the number of in-flight items currently at each facility.
+     * 
+     * @return A map of facility to item count
+     */
+    Map<String, Long> getFacilityOccupancy();
+    
+    /**
+     * Get the number of in-flight items currently at a facility.
+     * 
+     * @param facility The facility name
+     * @return The item count
+     */
+    long getFacilityOccupancy(String facility);
 }
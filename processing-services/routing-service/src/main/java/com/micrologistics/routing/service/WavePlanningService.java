@@ -0,0 +1,39 @@
+package com.micrologistics.routing.service;
+
+/**
+ * Service interface for planning outbound waves: routed items are buffered for a window,
+ * grouped into waves by destination and departure cutoff, and the waves spread over the
+ * outbound docks.
+ */
+public interface WavePlanningService {
+
+    /**
+     * Plan the items buffered since the last run into waves, assign the waves to outbound
+     * docks and publish the assignments.
+     *
+     * @return The number of waves planned
+     */
+    int planWaves();
+
+    /**
+     * Get the number of routed items waiting for the next planning window.
+     *
+     * @return The item count
+     */
+    int getPendingCount();
+
+    /**
+     * Get the number of waves planned since startup.
+     *
+     * @return The wave count
+     */
+    long getPlannedWaveCount();
+
+    /**
+     * Get the number of items whose wave was moved away from the dock their destination
+     * maps to since startup.
+     *
+     * @return The item count
+     */
+    long getMovedItemCount();
+}
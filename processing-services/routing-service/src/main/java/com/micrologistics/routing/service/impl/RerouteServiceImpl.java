@@ -0,0 +1,269 @@
+package com.micrologistics.routing.service.impl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import com.micrologistics.routing.algorithm.FacilityTopology;
+import com.micrologistics.routing.algorithm.PriorityClass;
+import com.micrologistics.routing.algorithm.ReservationCalendar;
+import com.micrologistics.routing.algorithm.SitePathFinders;
+import com.micrologistics.routing.algorithm.SiteTopology;
+import com.micrologistics.routing.entity.Route;
+import com.micrologistics.routing.entity.RouteStepsListener;
+import com.micrologistics.routing.event.RouteReroutedEvent;
+import com.micrologistics.routing.monitor.FacilityRouteIndex;
+import com.micrologistics.routing.repository.RouteRepository;
+import com.micrologistics.routing.service.RerouteService;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementation of the RerouteService interface.
+ *
+ * The routes to re-plan are taken from the {@link FacilityRouteIndex}, or given by the caller
+ * when routes are sent to another dock, and split into batches that are re-planned on a pool
+ * of worker threads. Each batch loads its routes by ID, keeps those that still need a new
+ * path, finds a new path from each route's current step to its outbound dock, and stores the
+ * new steps with a single conditional update.
+ */
+@Service
+@Slf4j
+public class RerouteServiceImpl implements RerouteService {
+
+    private final RouteRepository routeRepository;
+    private final SitePathFinders sitePathFinders;
+    private final ReservationCalendar reservationCalendar;
+    private final FacilityTopology topology;
+    private final FacilityRouteIndex facilityRouteIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final ExecutorService executor;
+
+    private final AtomicLong reroutedCount = new AtomicLong();
+    private final AtomicLong unroutableCount = new AtomicLong();
+
+    public RerouteServiceImpl(
+            RouteRepository routeRepository,
+            SitePathFinders sitePathFinders,
+            ReservationCalendar reservationCalendar,
+            FacilityTopology topology,
+            FacilityRouteIndex facilityRouteIndex,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${routing.reroute.batch-size:500}") int batchSize,
+            @Value("${routing.reroute.threads:4}") int threads) {
+        this.routeRepository = routeRepository;
+        this.sitePathFinders = sitePathFinders;
+        this.reservationCalendar = reservationCalendar;
+        this.topology = topology;
+        this.facilityRouteIndex = facilityRouteIndex;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = Math.max(1, batchSize);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "reroute-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Integer> rerouteAround(String facility) {
+        int ordinal = topology.ordinalOf(facility);
+        if (ordinal < 0) {
+            return CompletableFuture.completedFuture(0);
+        }
+        List<String> routeIds = facilityRouteIndex.routesThrough(ordinal);
+        if (routeIds.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+        log.info("Re-routing {} in-flight routes around {}", routeIds.size(), facility);
+
+        // Routes keep their dock, and only those with the facility still ahead are re-planned
+        return rerouteAll(routeIds, "around " + facility, route -> {
+            short[] codes = route.getStepCodes();
+            return hasAhead(codes, route.getCurrentStepIndex(), ordinal) ? codes[codes.length - 1] : -1;
+        }).thenApply(Set::size);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> redirectToDocks(Map<String, String> docks) {
+        if (docks.isEmpty()) {
+            return CompletableFuture.completedFuture(Set.of());
+        }
+        Map<String, String> targets = Map.copyOf(docks);
+        List<String> routeIds = new ArrayList<>(targets.keySet());
+        log.info("Sending {} in-flight routes to other outbound docks", routeIds.size());
+
+        return rerouteAll(routeIds, "to other docks", route -> {
+            short[] codes = route.getStepCodes();
+            int dock = topology.ordinalOf(targets.get(route.getId()));
+            int last = codes.length - 1;
+            return dock >= 0 && topology.isOutboundDock(dock) && codes[last] != dock
+                    && route.getCurrentStepIndex() < last ? dock : -1;
+        });
+    }
+
+    @Override
+    public long getReroutedCount() {
+        return reroutedCount.get();
+    }
+
+    @Override
+    public long getUnroutableCount() {
+        return unroutableCount.get();
+    }
+
+    /**
+     * Re-plan routes in parallel batches.
+     *
+     * @param routeIds The IDs of the routes
+     * @param reason What the routes are re-routed for, for logging
+     * @param targetDock The dock ordinal each route should end at, or -1 to leave it as it is
+     * @return The IDs of the routes that were re-routed, once all batches have finished
+     */
+    private CompletableFuture<Set<String>> rerouteAll(List<String> routeIds, String reason,
+            ToIntFunction<Route> targetDock) {
+        long startedAt = System.currentTimeMillis();
+        List<CompletableFuture<Set<String>>> batches = new ArrayList<>();
+        for (int from = 0; from < routeIds.size(); from += batchSize) {
+            List<String> batch = routeIds.subList(from, Math.min(from + batchSize, routeIds.size()));
+            batches.add(CompletableFuture.supplyAsync(() -> rerouteBatch(batch, reason, targetDock), executor));
+        }
+        return CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            Set<String> rerouted = new HashSet<>();
+            batches.forEach(batch -> rerouted.addAll(batch.join()));
+            log.info("Re-routed {} of {} in-flight routes {} in {} ms", rerouted.size(), routeIds.size(),
+                    reason, System.currentTimeMillis() - startedAt);
+            return rerouted;
+        });
+    }
+
+    /**
+     * Re-plan a batch of routes.
+     *
+     * @param routeIds The IDs of the routes
+     * @param reason What the routes are re-routed for, for logging
+     * @param targetDock The dock ordinal each route should end at, or -1 to leave it as it is
+     * @return The IDs of the routes that were re-routed
+     */
+    private Set<String> rerouteBatch(List<String> routeIds, String reason, ToIntFunction<Route> targetDock) {
+        // Slots booked for the new paths, only replacing a route's reservation once its update is stored
+        List<ReservationCalendar.Booking> bookings = new ArrayList<>(routeIds.size());
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<Route> rerouted = new ArrayList<>(routeIds.size());
+            List<short[]> previousStepCodes = new ArrayList<>(routeIds.size());
+            List<Double> previousEstimates = new ArrayList<>(routeIds.size());
+            for (Route route : routeRepository.findAllById(routeIds)) {
+                short[] codes = route.getStepCodes();
+                int stepIndex = route.getCurrentStepIndex();
+                if (!isInFlight(route) || codes == null || stepIndex < 0 || stepIndex >= codes.length) {
+                    continue;
+                }
+                int dock = targetDock.applyAsInt(route);
+                if (dock < 0) {
+                    continue;
+                }
+
+                // Routes are re-planned by the path finder of the site the item is at, in its ordinals
+                SiteTopology site = sitePathFinders.siteAt(codes[stepIndex]);
+                int siteDock = site != null ? site.toSite(dock) : -1;
+                int[] remaining = siteDock < 0 ? new int[0] : site.toUnion(sitePathFinders.pathFinderOf(site)
+                        .findPathFrom(route.getItemId(), site.toSite(codes[stepIndex]), siteDock,
+                                route.getWeight() != null ? route.getWeight() : 0.0, route.getPriority()));
+                if (remaining.length == 0) {
+                    unroutableCount.incrementAndGet();
+                    continue;
+                }
+
+                // The passed steps are kept, followed by the new path from the current step
+                int[] path = new int[stepIndex + remaining.length];
+                short[] newCodes = new short[path.length];
+                for (int i = 0; i < path.length; i++) {
+                    path[i] = i < stepIndex ? codes[i] : remaining[i - stepIndex];
+                    newCodes[i] = (short) path[i];
+                }
+                ReservationCalendar.Booking booking = reservationCalendar.book(path, stepIndex,
+                        PriorityClass.of(route.getPriority()));
+                bookings.add(booking);
+                double eta = booking.getMinutes();
+
+                previousStepCodes.add(codes);
+                previousEstimates.add(route.getEstimatedTimeMinutes());
+                route.setRouteSteps(RouteStepsListener.decodeSteps(topology, newCodes));
+                route.setStepCodes(newCodes);
+                route.setEstimatedTimeMinutes(minutesSince(route.getCreatedAt(), now) + eta);
+                route.setEstimatedCompletionTime(now.plusSeconds(Math.round(eta * 60)));
+                route.setUpdatedAt(now);
+                rerouted.add(route);
+            }
+
+            Set<String> updated = routeRepository.replaceSteps(rerouted, previousStepCodes);
+            // Bookings are all settled before any listener runs, so a failing listener cannot undo them
+            for (int i = 0; i < rerouted.size(); i++) {
+                Route route = rerouted.get(i);
+                if (updated.contains(route.getId())) {
+                    reservationCalendar.confirm(route.getItemId(), bookings.get(i));
+                } else {
+                    // Moved on while it was being re-planned, so it keeps the slots of its current path
+                    reservationCalendar.cancel(bookings.get(i));
+                    log.debug("Route {} changed while being re-routed, skipping", route.getId());
+                }
+            }
+            for (int i = 0; i < rerouted.size(); i++) {
+                Route route = rerouted.get(i);
+                if (updated.contains(route.getId())) {
+                    eventPublisher.publishEvent(new RouteReroutedEvent(route, previousEstimates.get(i)));
+                }
+            }
+            reroutedCount.addAndGet(updated.size());
+            return updated;
+        } catch (Exception e) {
+            log.error("Error re-routing a batch of {} routes {}: {}", routeIds.size(), reason, e.getMessage(), e);
+            // Confirmed bookings are left in place; the others were never stored
+            bookings.forEach(reservationCalendar::cancel);
+            return Set.of();
+        }
+    }
+
+    /**
+     * Stop the re-routing workers.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static boolean isInFlight(Route route) {
+        return Route.STATUS_CREATED.equals(route.getStatus()) || Route.STATUS_IN_PROGRESS.equals(route.getStatus());
+    }
+
+    private static boolean hasAhead(short[] codes, int stepIndex, int facility) {
+        for (int i = stepIndex + 1; i < codes.length; i++) {
+            if (codes[i] == facility) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double minutesSince(LocalDateTime time, LocalDateTime now) {
+        return time != null ? Duration.between(time, now).toMillis() / 60_000.0 : 0.0;
+    }
+}
@@ -0,0 +1,132 @@
+package com.micrologistics.routing.service.impl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntUnaryOperator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.micrologistics.routing.entity.Route;
+import com.micrologistics.routing.repository.RouteRepository;
+import com.micrologistics.routing.service.RouteArchiveService;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementation of the RouteArchiveService interface.
+ *
+ * Completed routes created more than the retention period ago are moved to routes_archive,
+ * and step history rows left more than the retention period ago to route_step_history_archive,
+ * whose schema is kept with the other tables from ArchivedRoute and ArchivedRouteStepHistory.
+ * Each chunk is deleted and inserted in one short statement of its own, so no lock is held for
+ * longer than a chunk and an interrupted run loses nothing; routes locked by a concurrent
+ * transaction are left for the next run. Runs take minutes on a large backlog, so they have a
+ * thread of their own instead of holding up the shared scheduler of the monitors and publishers.
+ *
+ * Archived routes are still found by tracking ID, and a redelivered registration of an
+ * archived item gets its archived route back instead of a second route.
+ */
+@Service
+@Slf4j
+public class RouteArchiveServiceImpl implements RouteArchiveService {
+
+    private final RouteRepository routeRepository;
+    private final boolean enabled;
+    private final Duration retention;
+    private final long intervalMs;
+    private final int chunkSize;
+    private final ScheduledExecutorService executor;
+
+    private final AtomicLong archivedRouteCount = new AtomicLong();
+    private final AtomicLong archivedStepCount = new AtomicLong();
+
+    public RouteArchiveServiceImpl(
+            RouteRepository routeRepository,
+            @Value("${routing.archive.enabled:true}") boolean enabled,
+            @Value("${routing.archive.retention-days:14}") long retentionDays,
+            @Value("${routing.archive.interval-ms:3600000}") long intervalMs,
+            @Value("${routing.archive.chunk-size:1000}") int chunkSize) {
+        this.routeRepository = routeRepository;
+        this.enabled = enabled;
+        this.retention = Duration.ofDays(Math.max(1, retentionDays));
+        this.intervalMs = Math.max(1, intervalMs);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "route-archive");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            executor.scheduleWithFixedDelay(this::runArchive, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public int archiveCompletedRoutes() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        long startedAt = System.nanoTime();
+
+        int routes = archiveInChunks(limit -> routeRepository.archiveCompleted(cutoff, limit));
+        archivedRouteCount.addAndGet(routes);
+        int steps = archiveInChunks(limit -> routeRepository.archiveStepHistory(cutoff, limit));
+        archivedStepCount.addAndGet(steps);
+
+        if (routes > 0 || steps > 0) {
+            log.info("Archived {} completed routes and {} step history rows from before {} in {} ms",
+                    routes, steps, cutoff, (System.nanoTime() - startedAt) / 1_000_000);
+        }
+        return routes;
+    }
+
+    @Override
+    public Optional<Route> findArchivedByTrackingId(String trackingId) {
+        return routeRepository.findArchivedByTrackingId(trackingId);
+    }
+
+    @Override
+    public long getArchivedRouteCount() {
+        return archivedRouteCount.get();
+    }
+
+    @Override
+    public long getArchivedStepCount() {
+        return archivedStepCount.get();
+    }
+
+    // A failed run must not end the schedule, which the executor would do for an uncaught exception
+    private void runArchive() {
+        try {
+            archiveCompletedRoutes();
+        } catch (RuntimeException e) {
+            log.error("Error archiving completed routes: {}", e.getMessage(), e);
+        }
+    }
+
+    // Stops at the first partial chunk, so rows skipped as locked are not retried in a busy loop
+    private int archiveInChunks(IntUnaryOperator archiveChunk) {
+        int total = 0;
+        int moved;
+        do {
+            moved = archiveChunk.applyAsInt(chunkSize);
+            total += moved;
+        } while (moved == chunkSize);
+        return total;
+    }
+}
@@ -1,24 +1,53 @@
 package com.micrologistics.routing.service.impl;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.micrologistics.common.dto.CursorPage;
 import com.micrologistics.common.dto.RouteDto;
 import com.micrologistics.common.event.ItemRegisteredEvent;
+import com.micrologistics.common.event.ScanEvent;
 import com.micrologistics.common.exception.BusinessException;
 import com.micrologistics.common.exception.ResourceNotFoundException;
+import com.micrologistics.routing.algorithm.FacilityTopology;
 import com.micrologistics.routing.algorithm.OptimalPathFinder;
+import com.micrologistics.routing.algorithm.PriorityClass;
+import com.micrologistics.routing.algorithm.ReservationCalendar;
+import com.micrologistics.routing.algorithm.RoutePlan;
+import com.micrologistics.routing.algorithm.SitePathFinders;
+import com.micrologistics.routing.algorithm.SiteTopology;
+import com.micrologistics.routing.cache.RouteLookupCache;
 import com.micrologistics.routing.entity.Route;
+import com.micrologistics.routing.entity.RouteStepHistory;
+import com.micrologistics.routing.event.RouteCreatedEvent;
+import com.micrologistics.routing.event.RouteStepChangedEvent;
 import com.micrologistics.routing.mapper.RouteMapper;
+import com.micrologistics.routing.messaging.publisher.EquipmentStatePublisher;
+import com.micrologistics.routing.monitor.DispatchQueueMonitor;
+import com.micrologistics.routing.monitor.DispatchQueueStats;
+import com.micrologistics.routing.monitor.FacilityOccupancyMonitor;
+import com.micrologistics.routing.monitor.OverdueRouteMonitor;
+import com.micrologistics.routing.monitor.StepTimingAggregator;
+import com.micrologistics.routing.repository.RouteCursor;
 import com.micrologistics.routing.repository.RouteRepository;
+import com.micrologistics.routing.repository.RouteStepHistoryRepository;
+import com.micrologistics.routing.repository.RouteStepTransition;
+import com.micrologistics.routing.service.RerouteService;
+import com.micrologistics.routing.service.RouteArchiveService;
 import com.micrologistics.routing.service.RoutingService;
 
 import lombok.RequiredArgsConstructor;
@@ -32,60 +61,182 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class RoutingServiceImpl implements RoutingService {
 
+    // Largest page a cursor listing returns
+    private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+    
+    // Delayed routes returned at most, longest overdue first
+    private static final int MAX_DELAYED_ROUTES = 1000;
+
     private final RouteRepository routeRepository;
+    private final RouteStepHistoryRepository routeStepHistoryRepository;
     private final RouteMapper routeMapper;
     private final OptimalPathFinder pathFinder;
+    private final SitePathFinders sitePathFinders;
+    private final ReservationCalendar reservationCalendar;
+    private final FacilityTopology topology;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OverdueRouteMonitor overdueRouteMonitor;
+    private final StepTimingAggregator stepTimingAggregator;
+    private final DispatchQueueMonitor dispatchQueueMonitor;
+    private final FacilityOccupancyMonitor facilityOccupancyMonitor;
+    private final EquipmentStatePublisher equipmentStatePublisher;
+    private final RouteLookupCache routeLookupCache;
+    private final RerouteService rerouteService;
+    private final RouteArchiveService routeArchiveService;
     
     @Override
     @Transactional
     public RouteDto createRoute(String itemId, String trackingId, String destination, Double weight, Integer priority) {
+        return createRoute(itemId, trackingId, destination, weight, priority, null);
+    }
+    
+    @Override
+    @Transactional
+    public RouteDto createRoute(String itemId, String trackingId, String destination, Double weight, Integer priority,
+            String site) {
         log.info("Creating route for item: {}, tracking: {}, destination: {}", 
                 itemId, trackingId, destination);
         
-        // Check if route already exists for this item
-        routeRepository.findByItemId(itemId).ifPresent(existingRoute -> {
-            throw new BusinessException(
-                    "Route already exists for item: " + itemId,
-                    BusinessException.ERROR_ITEM_ALREADY_EXISTS
-            );
-        });
+        PlannedRoute planned = buildRoute(itemId, trackingId, destination, weight, priority, site);
+        
+        // A redelivered registration gets the existing route back from the same statement
+        Route route = planned.route;
+        Route savedRoute = routeRepository.insertIfAbsent(route);
+        if (savedRoute != route) {
+            discard(planned);
+            log.debug("Route already exists for item: {}", itemId);
+            return routeMapper.toDto(savedRoute);
+        }
         
+        eventPublisher.publishEvent(new RouteCreatedEvent(savedRoute));
+        log.info("Created route for item {}: routeId={}, steps={}", 
+                itemId, savedRoute.getId(), savedRoute.getRouteSteps());
+        
+        return routeMapper.toDto(savedRoute);
+    }
+    
+    @Override
+    @Transactional
+    public List<RouteDto> createRoutes(List<ItemRegisteredEvent> events) {
+        log.info("Creating routes for a batch of {} items", events.size());
+        
+        Set<String> batchItemIds = new HashSet<>();
+        List<PlannedRoute> plannedRoutes = new ArrayList<>(events.size());
+        List<Route> routes = new ArrayList<>(events.size());
+        for (ItemRegisteredEvent event : events) {
+            // Skips items registered twice within the batch
+            if (!batchItemIds.add(event.getId())) {
+                log.debug("Item {} registered twice in batch, skipping", event.getId());
+                continue;
+            }
+            try {
+                PlannedRoute planned = buildRoute(event.getId(), event.getTrackingId(), event.getDestination(),
+                        event.getWeight(), event.getPriority(), event.getSite());
+                plannedRoutes.add(planned);
+                routes.add(planned.route);
+            } catch (BusinessException e) {
+                log.error("Skipping item {}: {}", event.getId(), e.getMessage());
+            }
+        }
+        
+        // One statement for the whole batch; items that already have a route are skipped by the database
+        Set<String> insertedIds = routeRepository.insertAllIfAbsent(routes);
+        List<Route> savedRoutes = new ArrayList<>(insertedIds.size());
+        for (PlannedRoute planned : plannedRoutes) {
+            Route route = planned.route;
+            if (insertedIds.contains(route.getId())) {
+                savedRoutes.add(route);
+                eventPublisher.publishEvent(new RouteCreatedEvent(route));
+            } else {
+                discard(planned);
+                log.debug("Route already exists for item: {}, skipping", route.getItemId());
+            }
+        }
+        log.info("Created {} routes for a batch of {} items", savedRoutes.size(), events.size());
+        
+        return routeMapper.toDtoList(savedRoutes);
+    }
+    
+    /**
+     * Determine the optimal path of an item and build its (unsaved) route.
+     * 
+     * @param itemId The item ID
+     * @param trackingId The tracking ID
+     * @param destination The destination
+     * @param weight The weight
+     * @param priority The priority, or null for the default
+     * @return The new route and its plan
+     * @throws BusinessException If no route can be determined
+     */
+    private PlannedRoute buildRoute(String itemId, String trackingId, String destination, Double weight, Integer priority,
+            String siteName) {
         // Use the path finder to determine optimal route
         if (priority == null) {
             priority = 1; // Default priority
         }
         
-        List<String> routeSteps = pathFinder.findOptimalPath(itemId, destination, weight, priority);
-        if (routeSteps.isEmpty()) {
+        // Each site is planned by its own path finder, over the site's facilities
+        SiteTopology site = sitePathFinders.siteOf(siteName);
+        OptimalPathFinder sitePathFinder = sitePathFinders.pathFinderOf(site);
+        RoutePlan plan = sitePathFinder.planRoute(itemId, destination, weight, priority);
+        if (plan.isEmpty()) {
             throw new BusinessException(
                     "Failed to determine route for item: " + itemId,
                     BusinessException.ERROR_ROUTE_INVALID
             );
         }
         
-        // Calculate estimated processing time
-        double estimatedTimeMinutes = pathFinder.calculateEstimatedTime(routeSteps);
+        // Plans are shared between items, so each route gets its own copy of the steps
+        List<String> routeSteps = new ArrayList<>(plan.getSteps());
         
+        // Estimate from the processing slots the item gets at each facility on its path,
+        // with part of each minute's capacity kept free for more urgent items
         LocalDateTime now = LocalDateTime.now();
-        LocalDateTime estimatedCompletionTime = now.plusMinutes((long) estimatedTimeMinutes);
+        double estimatedTimeMinutes = reservationCalendar.reserveIfAbsent(itemId, site.toUnion(plan.getOrdinals()),
+                PriorityClass.of(priority));
+        boolean reserved = !Double.isNaN(estimatedTimeMinutes);
+        if (!reserved) {
+            // Another delivery of the item holds its slots; the insert returns that delivery's route
+            estimatedTimeMinutes = plan.getEstimatedTimeMinutes();
+        }
+        LocalDateTime estimatedCompletionTime = now.plusSeconds(Math.round(estimatedTimeMinutes * 60));
         
         Route route = Route.builder()
                 .itemId(itemId)
                 .trackingId(trackingId)
                 .routeSteps(routeSteps)
                 .currentStep(routeSteps.get(0))
+                .currentStepIndex(0)
                 .status(Route.STATUS_CREATED)
                 .estimatedTimeMinutes(estimatedTimeMinutes)
+                .priority(priority)
+                .weight(weight)
                 .createdAt(now)
                 .updatedAt(now)
                 .estimatedCompletionTime(estimatedCompletionTime)
+                .stepEnteredAt(now)
+                .destination(destination)
                 .build();
-        
-        Route savedRoute = routeRepository.save(route);
-        log.info("Created route for item {}: routeId={}, steps={}", 
-                itemId, savedRoute.getId(), routeSteps);
-        
-        return routeMapper.toDto(savedRoute);
+        PlannedRoute planned = new PlannedRoute(route, sitePathFinder, plan, reserved);
+        discardOnRollback(planned);
+        return planned;
+    }
+    
+    /**
+     * Give back the equipment load of a planned route that will not be saved, and its slots if it
+     * reserved any. Routes already discarded are ignored.
+     * 
+     * @param planned The planned route
+     */
+    private void discard(PlannedRoute planned) {
+        if (planned.discarded) {
+            return;
+        }
+        planned.discarded = true;
+        if (planned.reserved) {
+            reservationCalendar.release(planned.route.getItemId());
+        }
+        planned.pathFinder.releaseRoute(planned.plan);
     }
 
     @Override
@@ -99,17 +250,19 @@ public class RoutingServiceImpl implements RoutingService {
     @Override
     public RouteDto getRouteByTrackingId(String trackingId) {
         log.debug("Getting route by tracking ID: {}", trackingId);
-        Route route = routeRepository.findByTrackingId(trackingId)
+        return routeLookupCache.getByTrackingId(trackingId,
+                        id -> routeRepository.findByTrackingId(id)
+                                .or(() -> routeArchiveService.findArchivedByTrackingId(id))
+                                .map(routeMapper::toDto))
                 .orElseThrow(() -> new ResourceNotFoundException("Route", "trackingId", trackingId));
-        return routeMapper.toDto(route);
     }
 
     @Override
     public RouteDto getRouteByItemId(String itemId) {
         log.debug("Getting route by item ID: {}", itemId);
-        Route route = routeRepository.findByItemId(itemId)
+        return routeLookupCache.getByItemId(itemId,
+                        id -> routeRepository.findByItemId(id).map(routeMapper::toDto))
                 .orElseThrow(() -> new ResourceNotFoundException("Route", "itemId", itemId));
-        return routeMapper.toDto(route);
     }
 
     @Override
@@ -126,6 +279,28 @@ public class RoutingServiceImpl implements RoutingService {
         return routesPage.map(routeMapper::toDto);
     }
 
+    @Override
+    public CursorPage<RouteDto> getRoutesAfter(String status, String cursor, int size, boolean ascending) {
+        log.debug("Getting routes by status: {} after cursor: {}, size: {}", status, cursor, size);
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new BusinessException("Page size must be between 1 and " + MAX_CURSOR_PAGE_SIZE + ": " + size);
+        }
+        RouteCursor after = cursor != null && !cursor.isEmpty() ? RouteCursor.decode(cursor) : null;
+        
+        // One extra route tells whether another page follows
+        List<Route> routes = routeRepository.findPage(status, after, ascending, size + 1);
+        String nextCursor = null;
+        if (routes.size() > size) {
+            routes = routes.subList(0, size);
+            nextCursor = RouteCursor.of(routes.get(size - 1)).encode();
+        }
+        return CursorPage.<RouteDto>builder()
+                .content(routeMapper.toDtoList(routes))
+                .nextCursor(nextCursor)
+                .size(size)
+                .build();
+    }
+
     @Override
     @Transactional
     public RouteDto updateRouteStep(String id, String step) {
@@ -135,7 +310,8 @@ public class RoutingServiceImpl implements RoutingService {
                 .orElseThrow(() -> new ResourceNotFoundException("Route", "id", id));
         
         // Validate that the step is part of the route
-        if (!route.getRouteSteps().contains(step)) {
+        int stepIndex = route.getRouteSteps().indexOf(step);
+        if (stepIndex < 0) {
             throw new BusinessException(
                     "Invalid step for route: " + step,
                     BusinessException.ERROR_ROUTE_INVALID
@@ -143,8 +319,29 @@ public class RoutingServiceImpl implements RoutingService {
         }
         
         // Update the current step
+        String previousStep = route.getCurrentStep();
+        int previousIndex = Math.max(0, route.getCurrentStepIndex());
+        LocalDateTime previousStepAt = route.getStepEnteredAt() != null ? route.getStepEnteredAt() : route.getCreatedAt();
+        LocalDateTime now = LocalDateTime.now();
         route.setCurrentStep(step);
-        route.setUpdatedAt(LocalDateTime.now());
+        route.setCurrentStepIndex(stepIndex);
+        route.setUpdatedAt(now);
+        if (stepIndex != previousIndex) {
+            route.setStepEnteredAt(now);
+        }
+        
+        // Only the time spent at a step the item moved on from to the next one is a real stay there
+        boolean consecutive = stepIndex == previousIndex + 1 && previousStepAt != null;
+        if (consecutive) {
+            routeStepHistoryRepository.save(RouteStepHistory.builder()
+                    .routeId(route.getId())
+                    .itemId(route.getItemId())
+                    .facility((short) topology.ordinalOf(previousStep))
+                    .nextFacility((short) topology.ordinalOf(step))
+                    .enteredAt(previousStepAt)
+                    .leftAt(now)
+                    .build());
+        }
         
         // Update status based on step
         if (route.isFinalStep()) {
@@ -152,14 +349,98 @@ public class RoutingServiceImpl implements RoutingService {
         } else {
             route.setStatus(Route.STATUS_IN_PROGRESS);
         }
+        releaseReservations(route.getItemId(), stepIndex, route.getStatus());
         
         Route updatedRoute = routeRepository.save(route);
+        eventPublisher.publishEvent(new RouteStepChangedEvent(updatedRoute.getId(), updatedRoute.getItemId(),
+                previousStep, step, stepIndex, updatedRoute.getStatus(), updatedRoute.getEstimatedTimeMinutes(),
+                consecutive ? previousStepAt : null, now));
         log.info("Route step updated successfully: {}, status: {}", 
                 updatedRoute.getId(), updatedRoute.getStatus());
         
         return routeMapper.toDto(updatedRoute);
     }
 
+    @Override
+    @Transactional
+    public int applyScans(List<ScanEvent> scans) {
+        log.debug("Applying batch of {} scans", scans.size());
+        
+        // One conditional update can move a route only once, so repeated scans of the same
+        // item within the batch are applied in later rounds, in the order they were read
+        List<List<ScanEvent>> rounds = new ArrayList<>();
+        Map<String, Integer> scansPerItem = new HashMap<>();
+        for (ScanEvent scan : scans) {
+            if (scan.getTrackingId() == null || topology.ordinalOf(scan.getFacility()) < 0) {
+                log.warn("Ignoring scan of {} at unknown facility {}", scan.getTrackingId(), scan.getFacility());
+                continue;
+            }
+            int round = scansPerItem.merge(scan.getTrackingId(), 1, Integer::sum) - 1;
+            if (round == rounds.size()) {
+                rounds.add(new ArrayList<>());
+            }
+            rounds.get(round).add(scan);
+        }
+        
+        int applied = 0;
+        LocalDateTime now = LocalDateTime.now();
+        for (List<ScanEvent> round : rounds) {
+            List<String> trackingIds = new ArrayList<>(round.size());
+            List<Integer> stepCodes = new ArrayList<>(round.size());
+            List<LocalDateTime> scannedAt = new ArrayList<>(round.size());
+            for (ScanEvent scan : round) {
+                trackingIds.add(scan.getTrackingId());
+                stepCodes.add(topology.ordinalOf(scan.getFacility()));
+                scannedAt.add(scan.getTimestamp() != null ? scan.getTimestamp() : now);
+            }
+            
+            for (RouteStepTransition transition : routeRepository.advanceSteps(trackingIds, stepCodes, scannedAt)) {
+                releaseReservations(transition.getItemId(), transition.getStepIndex(), transition.getStatus());
+                eventPublisher.publishEvent(new RouteStepChangedEvent(transition.getRouteId(),
+                        transition.getItemId(), transition.getPreviousStep(), transition.getStep(),
+                        transition.getStepIndex(), transition.getStatus(), transition.getEstimatedTimeMinutes(),
+                        transition.getPreviousStepAt(), transition.getStepAt()));
+                applied++;
+            }
+        }
+        
+        log.debug("Applied {} of {} scans", applied, scans.size());
+        return applied;
+    }
+
+    @Override
+    @Transactional
+    public RouteDto failRoute(String id) {
+        log.info("Marking route with ID: {} as failed", id);
+        
+        Route route = routeRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Route", "id", id));
+        
+        if (Route.STATUS_COMPLETED.equals(route.getStatus())) {
+            throw new BusinessException(
+                    "Cannot fail completed route: " + id,
+                    BusinessException.ERROR_ROUTE_INVALID
+            );
+        }
+        if (Route.STATUS_FAILED.equals(route.getStatus())) {
+            // Already failed; publishing FAILED again would take the item off its facility twice
+            log.info("Route already failed: {}", id);
+            return routeMapper.toDto(route);
+        }
+        
+        route.setStatus(Route.STATUS_FAILED);
+        route.setUpdatedAt(LocalDateTime.now());
+        reservationCalendar.release(route.getItemId());
+        
+        Route updatedRoute = routeRepository.save(route);
+        eventPublisher.publishEvent(new RouteStepChangedEvent(updatedRoute.getId(), updatedRoute.getItemId(),
+                updatedRoute.getCurrentStep(), updatedRoute.getCurrentStep(), updatedRoute.getCurrentStepIndex(),
+                Route.STATUS_FAILED, updatedRoute.getEstimatedTimeMinutes()));
+        log.info("Route marked as failed: {}", updatedRoute.getId());
+        
+        return routeMapper.toDto(updatedRoute);
+    }
+
     @Override
     @Transactional
     public RouteDto processItemRegisteredEvent(ItemRegisteredEvent event) {
@@ -171,52 +452,152 @@ public class RoutingServiceImpl implements RoutingService {
                 event.getTrackingId(),
                 event.getDestination(),
                 event.getWeight(),
-                event.getPriority()
+                event.getPriority(),
+                event.getSite()
         );
     }
 
     @Override
     public Map<String, Integer> getEquipmentLoadStatus() {
         log.debug("Getting equipment load status");
-        return pathFinder.getEquipmentLoadStatus();
+        return sitePathFinders.getEquipmentLoadStatus();
     }
 
     @Override
     public Map<String, Boolean> getEquipmentOperationalStatus() {
         log.debug("Getting equipment operational status");
-        return pathFinder.getEquipmentOperationalStatus();
+        return sitePathFinders.getEquipmentOperationalStatus();
     }
 
     @Override
     public void updateEquipmentStatus(String equipment, boolean isOperational) {
         log.info("Updating equipment status for {}: operational = {}", equipment, isOperational);
         pathFinder.updateEquipmentStatus(equipment, isOperational);
+        sitePathFinders.updateEquipmentStatus(equipment, isOperational);
+        // Other replicas apply the change from the equipment state topic
+        equipmentStatePublisher.publishStatus(equipment);
+        if (!isOperational) {
+            // Items still headed for the facility get a new path in the background
+            rerouteService.rerouteAround(equipment);
+        }
     }
 
     @Override
     public List<String> getAllFacilities() {
-        return pathFinder.getAllFacilities();
+        // The shared path finder only holds the default site, so all sites are listed from the union
+        return new ArrayList<>(topology.facilityNames());
     }
 
     @Override
     public List<RouteDto> getDelayedRoutes() {
         log.debug("Getting delayed routes");
-        List<Route> delayedRoutes = routeRepository.findDelayedRoutes();
+        // In-flight routes past their ETA, as tracked by the monitor; routes that finished after
+        // the monitor last heard of them are dropped
+        List<Route> delayedRoutes = routeRepository.findAllById(
+                overdueRouteMonitor.getOverdueRouteIds(MAX_DELAYED_ROUTES)).stream()
+                .filter(route -> Route.STATUS_CREATED.equals(route.getStatus())
+                        || Route.STATUS_IN_PROGRESS.equals(route.getStatus()))
+                .sorted(Comparator.comparing(Route::getEstimatedCompletionTime,
+                        Comparator.nullsLast(Comparator.naturalOrder())))
+                .toList();
         return routeMapper.toDtoList(delayedRoutes);
     }
 
     @Override
     public Map<String, Double> getAverageTimeByStep() {
         log.debug("Getting average time by step");
-        List<Object[]> results = routeRepository.findAverageEstimatedTimeByStep();
-        
-        Map<String, Double> averageTimes = new HashMap<>();
-        for (Object[] result : results) {
-            String step = (String) result[0];
-            Double avgTime = (Double) result[1];
-            averageTimes.put(step, avgTime);
+        return stepTimingAggregator.getAverageTimeByStep();
+    }
+
+    @Override
+    public String dispatchNextItem(String facility) {
+        int ordinal = topology.ordinalOf(facility);
+        if (ordinal < 0) {
+            throw new ResourceNotFoundException("Facility", "name", facility);
+        }
+        if (!dispatchQueueMonitor.isDispatcher(ordinal)) {
+            throw new BusinessException("Items at " + facility + " are dispatched by another replica",
+                    BusinessException.ERROR_NOT_DISPATCHER);
+        }
+        String itemId = dispatchQueueMonitor.dispatch(ordinal);
+        log.debug("Dispatched item {} at {}", itemId, facility);
+        return itemId;
+    }
+
+    @Override
+    public Map<String, DispatchQueueStats> getDispatchQueueStats() {
+        log.debug("Getting dispatch queue statistics");
+        return dispatchQueueMonitor.getStats();
+    }
+
+    @Override
+    public Map<String, Long> getFacilityOccupancy() {
+        log.debug("Getting facility occupancy");
+        return facilityOccupancyMonitor.getOccupancy();
+    }
+
+    @Override
+    public long getFacilityOccupancy(String facility) {
+        int ordinal = topology.ordinalOf(facility);
+        if (ordinal < 0) {
+            throw new ResourceNotFoundException("Facility", "name", facility);
         }
+        return facilityOccupancyMonitor.getOccupancy(ordinal);
+    }
+
+    /**
+     * Release the slots an item no longer needs after its route moved to a step.
+     * 
+     * @param itemId The item ID
+     * @param stepIndex The index of the route's current step
+     * @param status The route's status
+     */
+    private void releaseReservations(String itemId, int stepIndex, String status) {
+        if (Route.STATUS_COMPLETED.equals(status)) {
+            reservationCalendar.release(itemId);
+        } else {
+            reservationCalendar.releasePassedSteps(itemId, stepIndex);
+        }
+    }
+    
+    /**
+     * Discard a planned route if the transaction creating it is rolled back, so a failed batch gives
+     * back its load and slots before its items are routed again one by one.
+     * 
+     * @param planned The planned route
+     */
+    private void discardOnRollback(PlannedRoute planned) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    discard(planned);
+                }
+            }
+        });
+    }
+
+    /**
+     * An unsaved route with the plan it was built from, the path finder that charged the plan's load,
+     * and whether it reserved the item's slots.
+     */
+    private static final class PlannedRoute {
+        
+        private final Route route;
+        private final OptimalPathFinder pathFinder;
+        private final RoutePlan plan;
+        private final boolean reserved;
+        // Set once the load and slots have been given back
+        private boolean discarded;
         
-        return averageTimes;
+        private PlannedRoute(Route route, OptimalPathFinder pathFinder, RoutePlan plan, boolean reserved) {
+            this.route = route;
+            this.pathFinder = pathFinder;
+            this.plan = plan;
+            this.reserved = reserved;
+        }
     }
 }
@@ -0,0 +1,292 @@
+package com.micrologistics.routing.service.impl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.micrologistics.common.event.WaveAssignmentEvent;
+import com.micrologistics.routing.algorithm.FacilityTopology;
+import com.micrologistics.routing.algorithm.SiteTopologies;
+import com.micrologistics.routing.algorithm.WaveBalancer;
+import com.micrologistics.routing.entity.Route;
+import com.micrologistics.routing.event.RouteCreatedEvent;
+import com.micrologistics.routing.messaging.publisher.WaveAssignmentPublisher;
+import com.micrologistics.routing.monitor.FacilityOccupancyMonitor;
+import com.micrologistics.routing.service.RerouteService;
+import com.micrologistics.routing.service.WavePlanningService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementation of the WavePlanningService interface.
+ *
+ * Newly routed items are buffered as their routes are committed. Every planning window the
+ * buffer is drained and its items grouped into waves by outbound dock, destination and
+ * departure cutoff, the estimated completion time rounded up to the next departure. The
+ * waves are spread over the outbound docks of their site with the {@link WaveBalancer},
+ * starting from the items already at each dock, and the routes of waves moved to another
+ * dock are re-planned to end there. The assignments of the whole window are published
+ * together once that re-planning has finished; items whose route could not be moved stay
+ * in a wave at the dock they are routed to.
+ */
+@Service
+@Slf4j
+public class WavePlanningServiceImpl implements WavePlanningService {
+
+    private final FacilityTopology topology;
+    private final FacilityOccupancyMonitor occupancyMonitor;
+    private final RerouteService rerouteService;
+    private final WaveAssignmentPublisher waveAssignmentPublisher;
+    private final WaveBalancer balancer;
+    private final long departureIntervalMinutes;
+
+    // Outbound docks of the site each outbound dock belongs to, by facility ordinal
+    private final int[][] siteDocks;
+
+    private final Queue<PendingItem> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicLong plannedWaveCount = new AtomicLong();
+    private final AtomicLong movedItemCount = new AtomicLong();
+
+    public WavePlanningServiceImpl(
+            FacilityTopology topology,
+            SiteTopologies sites,
+            FacilityOccupancyMonitor occupancyMonitor,
+            RerouteService rerouteService,
+            WaveAssignmentPublisher waveAssignmentPublisher,
+            @Value("${routing.waves.departure-interval-minutes:60}") long departureIntervalMinutes,
+            @Value("${routing.waves.dock-switch-penalty:20}") double dockSwitchPenalty) {
+        this.topology = topology;
+        this.occupancyMonitor = occupancyMonitor;
+        this.rerouteService = rerouteService;
+        this.waveAssignmentPublisher = waveAssignmentPublisher;
+        this.balancer = new WaveBalancer(dockSwitchPenalty);
+        this.departureIntervalMinutes = Math.max(1, departureIntervalMinutes);
+        this.siteDocks = siteDocks(topology, sites);
+    }
+
+    /**
+     * Buffer the item of a newly created route for the next planning window.
+     *
+     * @param event The route created event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRouteCreated(RouteCreatedEvent event) {
+        Route route = event.getRoute();
+        List<String> steps = route.getRouteSteps();
+        int dock = steps != null && !steps.isEmpty() ? topology.ordinalOf(steps.get(steps.size() - 1)) : -1;
+        if (dock < 0 || !topology.isOutboundDock(dock) || route.getEstimatedCompletionTime() == null) {
+            return;
+        }
+        pending.add(new PendingItem(route.getId(), route.getItemId(),
+                route.getDestination() != null ? route.getDestination() : "", dock,
+                departureCutoff(route.getEstimatedCompletionTime())));
+        pendingCount.incrementAndGet();
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${routing.waves.window-ms:30000}")
+    public int planWaves() {
+        Map<List<Object>, Wave> waves = new LinkedHashMap<>();
+        PendingItem polled;
+        while ((polled = pending.poll()) != null) {
+            PendingItem item = polled;
+            pendingCount.decrementAndGet();
+            waves.computeIfAbsent(List.of(item.dock, item.destination, item.cutoff),
+                    key -> new Wave(item.dock, item.destination, item.cutoff)).add(item);
+        }
+        if (waves.isEmpty()) {
+            return 0;
+        }
+
+        List<Wave> planned = new ArrayList<>(waves.values());
+        int[] sizes = new int[planned.size()];
+        int[] preferredDocks = new int[planned.size()];
+        int[][] candidateDocks = new int[planned.size()][];
+        for (int i = 0; i < planned.size(); i++) {
+            Wave wave = planned.get(i);
+            sizes[i] = wave.itemIds.size();
+            preferredDocks[i] = wave.dock;
+            candidateDocks[i] = siteDocks[wave.dock];
+        }
+        long[] dockLoads = new long[topology.size()];
+        for (int facility = 0; facility < dockLoads.length; facility++) {
+            if (topology.isOutboundDock(facility)) {
+                dockLoads[facility] = occupancyMonitor.getOccupancy(facility);
+            }
+        }
+        int[] docks = balancer.assign(sizes, preferredDocks, candidateDocks, dockLoads);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<WaveAssignmentEvent> events = new ArrayList<>(planned.size());
+        List<Integer> movedWaves = new ArrayList<>();
+        Map<String, String> moved = new HashMap<>();
+        for (int i = 0; i < planned.size(); i++) {
+            Wave wave = planned.get(i);
+            if (docks[i] == wave.dock) {
+                events.add(assignment(wave, wave.dock, wave.itemIds, now));
+                continue;
+            }
+            movedWaves.add(i);
+            String dock = topology.nameOf(docks[i]);
+            for (String routeId : wave.routeIds) {
+                moved.put(routeId, dock);
+            }
+        }
+        plannedWaveCount.addAndGet(planned.size());
+        if (moved.isEmpty()) {
+            waveAssignmentPublisher.publishWaves(events);
+            log.info("Planned {} outbound waves, no items moved to another dock", planned.size());
+            return planned.size();
+        }
+
+        // Items of a moved wave are only announced at the new dock once their route has been
+        // re-planned to end there; the others stay in the wave at the dock they are routed to
+        rerouteService.redirectToDocks(moved)
+                .exceptionally(e -> {
+                    log.error("Error sending {} routes of moved waves to other docks: {}", moved.size(), e.getMessage(), e);
+                    return Set.of();
+                })
+                .thenAccept(rerouted -> {
+                    int movedItems = 0;
+                    for (int i : movedWaves) {
+                        Wave wave = planned.get(i);
+                        List<String> movedItemIds = new ArrayList<>();
+                        List<String> keptItemIds = new ArrayList<>();
+                        for (int item = 0; item < wave.itemIds.size(); item++) {
+                            (rerouted.contains(wave.routeIds.get(item)) ? movedItemIds : keptItemIds)
+                                    .add(wave.itemIds.get(item));
+                        }
+                        if (!movedItemIds.isEmpty()) {
+                            events.add(assignment(wave, docks[i], movedItemIds, now));
+                        }
+                        if (!keptItemIds.isEmpty()) {
+                            events.add(assignment(wave, wave.dock, keptItemIds, now));
+                        }
+                        movedItems += movedItemIds.size();
+                    }
+                    waveAssignmentPublisher.publishWaves(events);
+                    movedItemCount.addAndGet(movedItems);
+                    log.info("Planned {} outbound waves, {} of {} items moved to another dock", planned.size(),
+                            movedItems, moved.size());
+                });
+        return planned.size();
+    }
+
+    @Override
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    @Override
+    public long getPlannedWaveCount() {
+        return plannedWaveCount.get();
+    }
+
+    @Override
+    public long getMovedItemCount() {
+        return movedItemCount.get();
+    }
+
+    private WaveAssignmentEvent assignment(Wave wave, int dock, List<String> itemIds, LocalDateTime now) {
+        return WaveAssignmentEvent.builder()
+                .waveId(UUID.randomUUID().toString())
+                .dock(topology.nameOf(dock))
+                .destination(wave.destination)
+                .departureCutoff(wave.cutoff)
+                .itemIds(itemIds)
+                .timestamp(now)
+                .build();
+    }
+
+    /**
+     * Round an estimated completion time up to the next departure, departures leaving every
+     * interval from midnight.
+     */
+    private LocalDateTime departureCutoff(LocalDateTime estimatedCompletionTime) {
+        LocalDateTime midnight = estimatedCompletionTime.toLocalDate().atStartOfDay();
+        long seconds = Duration.between(midnight, estimatedCompletionTime).getSeconds();
+        long intervalSeconds = departureIntervalMinutes * 60;
+        return midnight.plusSeconds((seconds + intervalSeconds - 1) / intervalSeconds * intervalSeconds);
+    }
+
+    /**
+     * Group the outbound docks of the union topology by site, since an item can only be
+     * loaded at a dock of the site it is routed at.
+     */
+    private static int[][] siteDocks(FacilityTopology topology, SiteTopologies sites) {
+        Map<String, List<Integer>> docksBySite = new HashMap<>();
+        for (int facility = 0; facility < topology.size(); facility++) {
+            if (topology.isOutboundDock(facility)) {
+                docksBySite.computeIfAbsent(sites.siteOf(topology.nameOf(facility)), site -> new ArrayList<>())
+                        .add(facility);
+            }
+        }
+        int[][] siteDocks = new int[topology.size()][];
+        for (List<Integer> docks : docksBySite.values()) {
+            int[] ordinals = docks.stream().mapToInt(Integer::intValue).toArray();
+            for (int dock : ordinals) {
+                siteDocks[dock] = ordinals;
+            }
+        }
+        return siteDocks;
+    }
+
+    /**
+     * A routed item waiting for the next planning window.
+     */
+    private static final class PendingItem {
+
+        private final String routeId;
+        private final String itemId;
+        private final String destination;
+        private final int dock;
+        private final LocalDateTime cutoff;
+
+        private PendingItem(String routeId, String itemId, String destination, int dock, LocalDateTime cutoff) {
+            this.routeId = routeId;
+            this.itemId = itemId;
+            this.destination = destination;
+            this.dock = dock;
+            this.cutoff = cutoff;
+        }
+    }
+
+    /**
+     * The items of a window leaving for the same destination at the same departure.
+     */
+    private static final class Wave {
+
+        private final int dock;
+        private final String destination;
+        private final LocalDateTime cutoff;
+        private final List<String> routeIds = new ArrayList<>();
+        private final List<String> itemIds = new ArrayList<>();
+
+        private Wave(int dock, String destination, LocalDateTime cutoff) {
+            this.dock = dock;
+            this.destination = destination;
+            this.cutoff = cutoff;
+        }
+
+        private void add(PendingItem item) {
+            routeIds.add(item.routeId);
+            itemIds.add(item.itemId);
+        }
+    }
+}
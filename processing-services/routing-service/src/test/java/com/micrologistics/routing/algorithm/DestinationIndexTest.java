@@ -0,0 +1,83 @@
+package com.micrologistics.routing.algorithm;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the destination index.
+ */
+class DestinationIndexTest {
+
+    private final FacilityTopology topology = FacilityTopology.defaultTopology();
+    private final DestinationIndex index = DestinationIndex.defaultIndex(topology);
+
+    @Test
+    void resolve_ExactAndPrefix_IgnoresCaseAndPunctuation() {
+        // Act & Assert
+        assertEquals("OUTBOUND_DOCK_EAST", dock("new york"));
+        assertEquals("OUTBOUND_DOCK_EAST", dock("  New-York, NY "));
+        assertEquals("OUTBOUND_DOCK_WEST", dock("Los Angeles CA"));
+        assertEquals("OUTBOUND_DOCK_NORTH", dock("CHICAGO"));
+        // Prefixes only match whole words
+        assertEquals("OUTBOUND_DOCK_SOUTH", dock("Bostonia"));
+    }
+
+    @Test
+    void resolve_Keywords_FirstDeclaredWins() {
+        // Act & Assert
+        assertEquals("OUTBOUND_DOCK_NORTH", dock("North Dakota"));
+        assertEquals("OUTBOUND_DOCK_SOUTH", dock("Southeast Asia"));
+        assertEquals("OUTBOUND_DOCK_EAST", dock("Middle East"));
+        assertEquals("OUTBOUND_DOCK_WEST", dock("midwestern depot"));
+    }
+
+    @Test
+    void resolve_PostalCode_TakesPrecedenceOverPrefixAndKeywords() {
+        // Act & Assert
+        assertEquals("OUTBOUND_DOCK_WEST", dock("Chicago, 98101"));
+        assertEquals("OUTBOUND_DOCK_EAST", dock("1 West St, Boston MA 02134-1234"));
+        assertEquals("OUTBOUND_DOCK_NORTH", dock("Springfield 62701"));
+    }
+
+    @Test
+    void resolve_NoMatch_UsesDefaultDock() {
+        // Act & Assert
+        assertEquals("OUTBOUND_DOCK_SOUTH", dock(null));
+        assertEquals("OUTBOUND_DOCK_SOUTH", dock(""));
+        assertEquals("OUTBOUND_DOCK_SOUTH", dock("Unknown place 12"));
+    }
+
+    @Test
+    void parse_ThousandsOfDestinations_ResolvesEach() throws Exception {
+        // Arrange
+        String[] docks = {"OUTBOUND_DOCK_NORTH", "OUTBOUND_DOCK_SOUTH", "OUTBOUND_DOCK_EAST", "OUTBOUND_DOCK_WEST"};
+        StringBuilder definition = new StringBuilder("DEFAULT|OUTBOUND_DOCK_NORTH\n");
+        for (int i = 0; i < 5000; i++) {
+            definition.append("EXACT|City ").append(i).append('|').append(docks[i % 4]).append('\n');
+        }
+
+        // Act
+        DestinationIndex large = DestinationIndex.parse(new StringReader(definition.toString()), topology);
+
+        // Assert
+        assertEquals(5000, large.size());
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(docks[i % 4], topology.nameOf(large.resolve("CITY " + i)));
+        }
+        assertEquals("OUTBOUND_DOCK_NORTH", topology.nameOf(large.resolve("City 5000")));
+    }
+
+    @Test
+    void parse_UnknownDock_IsRejected() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> DestinationIndex.parse(new StringReader("EXACT|Paris|SORTING_AREA_A\n"), topology));
+    }
+
+    private String dock(String destination) {
+        return topology.nameOf(index.resolve(destination));
+    }
+}
@@ -0,0 +1,101 @@
+package com.micrologistics.routing.algorithm;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the lock-free equipment load tracker.
+ */
+class EquipmentLoadTrackerTest {
+
+    @Test
+    void add_ConcurrentIncrements_AreNotLost() throws Exception {
+        // Arrange
+        EquipmentLoadTracker tracker = new EquipmentLoadTracker(3, 0);
+        int threads = 8;
+        int incrementsPerThread = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // Act
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < incrementsPerThread; i++) {
+                    tracker.add(1, 0.01);
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Assert
+        assertEquals(80.0, tracker.get(1), 1e-6);
+        assertEquals(0.0, tracker.get(0));
+    }
+
+    @Test
+    void get_DecaysWithHalfLife() {
+        // Arrange
+        AtomicLong clock = new AtomicLong(1_000L);
+        EquipmentLoadTracker tracker = new EquipmentLoadTracker(1, 60_000, clock::get);
+        tracker.set(0, 80.0);
+
+        // Act
+        clock.addAndGet(60_000);
+
+        // Assert
+        assertEquals(40.0, tracker.get(0), 1e-3);
+        assertEquals(50.0, tracker.add(0, 10.0), 1e-3);
+    }
+
+    @Test
+    void add_ClampsToValidRange() {
+        // Arrange
+        EquipmentLoadTracker tracker = new EquipmentLoadTracker(1, 0);
+
+        // Act & Assert
+        assertEquals(EquipmentLoadTracker.MAX_LOAD, tracker.add(0, 250.0));
+        assertEquals(0.0, tracker.add(0, -500.0));
+    }
+
+    @Test
+    void snapshot_ReturnsAllFacilitiesAtOneInstant() {
+        // Arrange
+        AtomicLong clock = new AtomicLong(0L);
+        EquipmentLoadTracker tracker = new EquipmentLoadTracker(2, 1_000, clock::get);
+        tracker.set(0, 100.0);
+        clock.addAndGet(1_000);
+        tracker.set(1, 100.0);
+
+        // Act
+        double[] loads = tracker.snapshot();
+
+        // Assert
+        assertEquals(50.0, loads[0], 1e-3);
+        assertEquals(100.0, loads[1], 1e-3);
+    }
+
+    @Test
+    void set_ObservedEarlier_LoadIsDecayedToNow() {
+        // Arrange
+        AtomicLong clock = new AtomicLong(1_000L);
+        EquipmentLoadTracker tracker = new EquipmentLoadTracker(1, 60_000, clock::get);
+
+        // Act - observed one half-life ago
+        double restored = tracker.set(0, 80.0, 60_000L);
+
+        // Assert
+        assertEquals(40.0, restored, 1e-3);
+        assertEquals(40.0, tracker.get(0), 1e-3);
+    }
+}
@@ -0,0 +1,102 @@
+package com.micrologistics.routing.algorithm;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the priority dispatch queues of the facilities.
+ */
+class FacilityDispatchQueuesTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+
+    @Test
+    void dispatch_MixedPriorities_ExpressBeforeStandardBeforeBulk() {
+        // Arrange
+        FacilityDispatchQueues queues = new FacilityDispatchQueues(2, 10, clock::get);
+        queues.enqueue("bulk", 0, PriorityClass.BULK, clock.get());
+        queues.enqueue("standard", 0, PriorityClass.STANDARD, clock.get());
+        queues.enqueue("express1", 0, PriorityClass.EXPRESS, clock.get());
+        queues.enqueue("express2", 0, PriorityClass.EXPRESS, clock.get());
+
+        // Act & Assert - most urgent class first, oldest first within a class
+        assertEquals("express1", queues.dispatch(0));
+        assertEquals("express2", queues.dispatch(0));
+        assertEquals("standard", queues.dispatch(0));
+        assertEquals("bulk", queues.dispatch(0));
+        assertNull(queues.dispatch(0));
+    }
+
+    @Test
+    void moveTo_ItemWaitingElsewhere_LeavesOldQueueAndKeepsClass() {
+        // Arrange
+        FacilityDispatchQueues queues = new FacilityDispatchQueues(2, 10, clock::get);
+        queues.enqueue("item1", 0, PriorityClass.EXPRESS, clock.get());
+
+        // Act
+        queues.moveTo("item1", 1, PriorityClass.STANDARD, clock.get());
+
+        // Assert
+        assertEquals(0, queues.depth(0, PriorityClass.EXPRESS));
+        assertEquals(1, queues.depth(1, PriorityClass.EXPRESS));
+        assertNull(queues.dispatch(0));
+        assertEquals("item1", queues.dispatch(1));
+    }
+
+    @Test
+    void enqueue_FullQueue_RejectsItem() {
+        // Arrange
+        FacilityDispatchQueues queues = new FacilityDispatchQueues(1, 1, clock::get);
+        queues.enqueue("item1", 0, PriorityClass.BULK, clock.get());
+
+        // Act
+        boolean queued = queues.enqueue("item2", 0, PriorityClass.BULK, clock.get());
+
+        // Assert - other classes have their own bound
+        assertFalse(queued);
+        assertEquals(1, queues.getRejectedCount());
+        assertTrue(queues.enqueue("item3", 0, PriorityClass.EXPRESS, clock.get()));
+    }
+
+    @Test
+    void remove_ManyItems_DepthsReturnToZero() {
+        // Arrange
+        FacilityDispatchQueues queues = new FacilityDispatchQueues(1, 1_000, clock::get);
+        for (int i = 0; i < 500; i++) {
+            queues.enqueue("item" + i, 0, PriorityClass.STANDARD, clock.get());
+        }
+
+        // Act
+        for (int i = 0; i < 500; i++) {
+            assertTrue(queues.remove("item" + i));
+        }
+
+        // Assert
+        assertEquals(0, queues.depth(PriorityClass.STANDARD));
+        assertNull(queues.dispatch(0));
+        assertFalse(queues.remove("item0"));
+    }
+
+    @Test
+    void waitHistogram_CountsWaitsInTheirBucket() {
+        // Arrange
+        FacilityDispatchQueues queues = new FacilityDispatchQueues(1, 10, clock::get);
+        queues.enqueue("item1", 0, PriorityClass.EXPRESS, clock.get());
+        queues.enqueue("item2", 0, PriorityClass.EXPRESS, clock.get());
+
+        // Act
+        clock.addAndGet(3_000L);
+        queues.dispatch(0);
+        clock.addAndGet(7_200_000L);
+        queues.dispatch(0);
+
+        // Assert - 3 seconds falls in the 5 second bucket, two hours in the overflow bucket
+        long[] histogram = queues.waitHistogram(PriorityClass.EXPRESS);
+        assertEquals(1, histogram[1]);
+        assertEquals(1, histogram[FacilityDispatchQueues.WAIT_BUCKET_BOUNDS_SECONDS.length]);
+        assertEquals(0, queues.waitHistogram(PriorityClass.BULK)[1]);
+    }
+}
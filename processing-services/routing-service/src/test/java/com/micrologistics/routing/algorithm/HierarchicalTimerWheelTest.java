@@ -0,0 +1,97 @@
+package com.micrologistics.routing.algorithm;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the hierarchical timer wheel.
+ */
+class HierarchicalTimerWheelTest {
+
+    private static final long TICK = 1_000L;
+    private static final long START = 1_000_000L * TICK;
+
+    @Test
+    void advance_ExpiresTimersWhenDeadlineIsReached() {
+        // Arrange
+        HierarchicalTimerWheel<String, String> wheel = new HierarchicalTimerWheel<>(TICK, START);
+        wheel.schedule("late", "late", START + 5 * TICK);
+        wheel.schedule("early", "early", START + 2 * TICK);
+
+        // Act
+        List<String> beforeDeadline = wheel.advance(START + TICK);
+        List<String> expired = wheel.advance(START + 10 * TICK);
+
+        // Assert
+        assertTrue(beforeDeadline.isEmpty());
+        assertEquals(List.of("early", "late"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancel_RemovesTimer() {
+        // Arrange
+        HierarchicalTimerWheel<String, String> wheel = new HierarchicalTimerWheel<>(TICK, START);
+        wheel.schedule("route1", "route1", START + 3 * TICK);
+
+        // Act
+        String cancelled = wheel.cancel("route1");
+
+        // Assert
+        assertEquals("route1", cancelled);
+        assertNull(wheel.cancel("route1"));
+        assertTrue(wheel.advance(START + 10 * TICK).isEmpty());
+    }
+
+    @Test
+    void schedule_SameKey_ReplacesDeadline() {
+        // Arrange
+        HierarchicalTimerWheel<String, String> wheel = new HierarchicalTimerWheel<>(TICK, START);
+        wheel.schedule("route1", "first", START + 3 * TICK);
+
+        // Act
+        wheel.schedule("route1", "second", START + 100 * TICK);
+
+        // Assert
+        assertEquals(1, wheel.size());
+        assertTrue(wheel.advance(START + 99 * TICK).isEmpty());
+        assertEquals(List.of("second"), wheel.advance(START + 100 * TICK));
+    }
+
+    @Test
+    void advance_FarDeadlines_CascadeAndExpireOnTime() {
+        // Arrange - deadlines on every level of the wheel, and beyond it
+        HierarchicalTimerWheel<String, Long> wheel = new HierarchicalTimerWheel<>(TICK, START);
+        long[] offsets = {63, 64, 65, 4_095, 4_096, 300_000, 16_777_215, 20_000_000};
+        for (long offset : offsets) {
+            wheel.schedule("t" + offset, offset, START + offset * TICK);
+        }
+
+        // Act
+        List<Long> expiredAt = new ArrayList<>();
+        for (long offset : offsets) {
+            assertTrue(wheel.advance(START + (offset - 1) * TICK).isEmpty(), "early expiry before " + offset);
+            expiredAt.addAll(wheel.advance(START + offset * TICK));
+        }
+
+        // Assert
+        assertEquals(List.of(63L, 64L, 65L, 4_095L, 4_096L, 300_000L, 16_777_215L, 20_000_000L), expiredAt);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void schedule_PastDeadline_ExpiresOnNextTick() {
+        // Arrange
+        HierarchicalTimerWheel<String, String> wheel = new HierarchicalTimerWheel<>(TICK, START);
+
+        // Act
+        wheel.schedule("route1", "route1", START - 60 * TICK);
+
+        // Assert
+        assertEquals(List.of("route1"), wheel.advance(START + TICK));
+    }
+}
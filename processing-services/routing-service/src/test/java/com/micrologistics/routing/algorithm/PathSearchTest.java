@@ -0,0 +1,98 @@
+package com.micrologistics.routing.algorithm;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the facility topology and its shortest-path search.
+ */
+class PathSearchTest {
+
+    private static final String BYPASS_TOPOLOGY = String.join("\n",
+            "facility IN 1.0 ANY ENTRY",
+            "facility SORTER_1 5.0 LIGHT",
+            "facility SORTER_2 5.0 HEAVY",
+            "facility PACK 10.0",
+            "facility DOCK 1.0 ANY DOCK",
+            "conveyor IN SORTER_1",
+            "conveyor IN SORTER_2",
+            "conveyor SORTER_1 PACK",
+            "conveyor SORTER_2 PACK",
+            "conveyor PACK DOCK",
+            "# bypass lane skipping packaging for a small transfer cost",
+            "conveyor SORTER_2 DOCK 3.0");
+
+    @Test
+    void parse_BuildsAdjacencyInDeclarationOrder() throws Exception {
+        // Act
+        FacilityTopology topology = FacilityTopology.parse(new StringReader(BYPASS_TOPOLOGY));
+
+        // Assert
+        assertEquals(5, topology.size());
+        assertEquals(0, topology.entry());
+        assertTrue(topology.isOutboundDock(topology.ordinalOf("DOCK")));
+        assertEquals(-1, topology.ordinalOf("UNKNOWN"));
+        int sorter2 = topology.ordinalOf("SORTER_2");
+        assertEquals(2, topology.outEnd(sorter2) - topology.outStart(sorter2));
+        int dock = topology.ordinalOf("DOCK");
+        assertEquals(2, topology.inEnd(dock) - topology.inStart(dock));
+    }
+
+    @Test
+    void shortestPath_UsesBypassLaneWhenCheaper() throws Exception {
+        // Arrange
+        FacilityTopology topology = FacilityTopology.parse(new StringReader(BYPASS_TOPOLOGY));
+        int[] path = new int[topology.size()];
+
+        // Act
+        int length = PathSearch.shortestPath(topology, (facility, profile) -> topology.processingMinutes(facility),
+                topology.entry(), topology.ordinalOf("DOCK"), FacilityCostModel.PROFILE_LIGHT, path);
+
+        // Assert
+        assertEquals(3, length);
+        assertEquals("IN", topology.nameOf(path[0]));
+        assertEquals("SORTER_2", topology.nameOf(path[1]));
+        assertEquals("DOCK", topology.nameOf(path[2]));
+    }
+
+    @Test
+    void shortestPath_UnreachableTarget_ReturnsZero() throws Exception {
+        // Arrange
+        FacilityTopology topology = FacilityTopology.parse(new StringReader(BYPASS_TOPOLOGY));
+        int[] path = new int[topology.size()];
+        int pack = topology.ordinalOf("PACK");
+        int sorter2 = topology.ordinalOf("SORTER_2");
+
+        // Act
+        int length = PathSearch.shortestPath(topology,
+                (facility, profile) -> facility == pack || facility == sorter2
+                        ? FacilityCostModel.UNREACHABLE : topology.processingMinutes(facility),
+                topology.entry(), topology.ordinalOf("DOCK"), FacilityCostModel.PROFILE_LIGHT, path);
+
+        // Assert
+        assertEquals(0, length);
+    }
+
+    @Test
+    void defaultTopology_ReproducesStandardFacilityFlow() {
+        // Arrange
+        FacilityTopology topology = FacilityTopology.defaultTopology();
+        int[] path = new int[topology.size()];
+
+        // Act
+        int length = PathSearch.shortestPath(topology, (facility, profile) -> topology.processingMinutes(facility),
+                topology.entry(), topology.ordinalOf("OUTBOUND_DOCK_EAST"), FacilityCostModel.PROFILE_LIGHT, path);
+
+        // Assert
+        assertEquals(6, length);
+        assertEquals("INBOUND_DOCK", topology.nameOf(path[0]));
+        assertEquals("SCANNER_STATION", topology.nameOf(path[1]));
+        assertEquals("SORTING_AREA_A", topology.nameOf(path[2]));
+        assertEquals("PACKAGING_AREA", topology.nameOf(path[3]));
+        assertEquals("CONTAINER_LOADING", topology.nameOf(path[4]));
+        assertEquals("OUTBOUND_DOCK_EAST", topology.nameOf(path[5]));
+    }
+}
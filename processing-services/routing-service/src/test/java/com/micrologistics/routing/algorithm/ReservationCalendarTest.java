@@ -0,0 +1,232 @@
+package com.micrologistics.routing.algorithm;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the facility reservation calendar.
+ */
+class ReservationCalendarTest {
+
+    private static final long MINUTE = 60_000L;
+
+    private final FacilityTopology topology = FacilityTopology.builder()
+            .facility("IN", 1.0, FacilityTopology.Handling.ANY)
+            .facility("SORT", 2.0, FacilityTopology.Handling.ANY)
+            .facility("OUT", 1.0, FacilityTopology.Handling.ANY)
+            .entry("IN")
+            .outboundDock("OUT")
+            .conveyor("IN", "SORT", 0.5)
+            .conveyor("SORT", "OUT", 0.5)
+            .build();
+
+    private final AtomicLong clock = new AtomicLong(1_000 * MINUTE);
+    private final int[] path = {0, 1, 2};
+
+    @Test
+    void reserve_FreeCalendar_EstimateIsProcessingAndTransferTime() {
+        // Arrange
+        ReservationCalendar calendar = new ReservationCalendar(topology, 1, 60, clock::get);
+
+        // Act
+        double eta = calendar.reserve("item1", path);
+
+        // Assert
+        assertEquals(5.0, eta, 1e-9);
+        assertEquals(1, calendar.reserved(0, 1_000));
+        assertEquals(1, calendar.reserved(1, 1_001));
+        assertEquals(1, calendar.reserved(2, 1_004));
+    }
+
+    @Test
+    void reserve_FullSlots_ItemWaitsForNextFreeMinute() {
+        // Arrange
+        ReservationCalendar calendar = new ReservationCalendar(topology, 1, 60, clock::get);
+        calendar.reserve("item1", path);
+
+        // Act
+        double eta = calendar.reserve("item2", path);
+
+        // Assert - item2 starts one minute later at the entry and the delay carries through
+        assertEquals(6.0, eta, 1e-9);
+        assertEquals(1, calendar.reserved(0, 1_001));
+    }
+
+    @Test
+    void release_FreesSlotsForLaterItems() {
+        // Arrange
+        ReservationCalendar calendar = new ReservationCalendar(topology, 1, 60, clock::get);
+        calendar.reserve("item1", path);
+
+        // Act
+        assertTrue(calendar.release("item1"));
+        double eta = calendar.reserve("item2", path);
+
+        // Assert
+        assertEquals(5.0, eta, 1e-9);
+        assertFalse(calendar.release("item1"));
+        assertEquals(1, calendar.size());
+    }
+
+    @Test
+    void releasePassedSteps_OnlyFreesEarlierFacilities() {
+        // Arrange
+        ReservationCalendar calendar = new ReservationCalendar(topology, 1, 60, clock::get);
+        calendar.reserve("item1", path);
+
+        // Act
+        calendar.releasePassedSteps("item1", 2);
+
+        // Assert
+        assertEquals(0, calendar.reserved(0, 1_000));
+        assertEquals(0, calendar.reserved(1, 1_001));
+        assertEquals(1, calendar.reserved(2, 1_004));
+    }
+
+    @Test
+    void rebook_FromCurrentStep_ReservesRemainingStepsByPathIndex() {
+        // Arrange
+        ReservationCalendar calendar = new ReservationCalendar(topology, 2, 60, clock::get);
+        calendar.reserve("item1", path);
+        clock.addAndGet(2 * MINUTE);
+
+        // Act
+        double eta = calendar.rebook("item1", path, 1, PriorityClass.STANDARD);
+
+        // Assert - the old slots are freed and the passed step is not reserved again
+        assertEquals(3.5, eta, 1e-9);
+        assertEquals(0, calendar.reserved(0, 1_000));
+        assertEquals(0, calendar.reserved(1, 1_001));
+        assertEquals(1, calendar.reserved(1, 1_002));
+        assertEquals(1, calendar.reserved(2, 1_004));
+
+        calendar.releasePassedSteps("item1", 2);
+        assertEquals(0, calendar.reserved(1, 1_002));
+        assertEquals(1, calendar.reserved(2, 1_004));
+    }
+
+    @Test
+    void cancel_BookingNotConfirmed_KeepsExistingReservation() {
+        // Arrange
+        ReservationCalendar calendar = new ReservationCalendar(topology, 2, 60, clock::get);
+        calendar.reserve("item1", path);
+        clock.addAndGet(2 * MINUTE);
+        ReservationCalendar.Booking booking = calendar.book(path, 1, PriorityClass.STANDARD);
+
+        // Act
+        calendar.cancel(booking);
+        calendar.confirm("item1", booking);
+
+        // Assert - the booked slots are given back and the item keeps its original slots
+        assertEquals(3.5, booking.getMinutes(), 1e-9);
+        assertEquals(0, calendar.reserved(1, 1_002));
+        assertEquals(1, calendar.reserved(1, 1_001));
+        assertEquals(1, calendar.reserved(2, 1_004));
+        assertTrue(calendar.isReserved("item1"));
+    }
+
+    @Test
+    void confirm_Booking_ReplacesExistingReservation() {
+        // Arrange
+        ReservationCalendar calendar = new ReservationCalendar(topology, 2, 60, clock::get);
+        calendar.reserve("item1", path);
+        clock.addAndGet(2 * MINUTE);
+        ReservationCalendar.Booking booking = calendar.book(path, 1, PriorityClass.STANDARD);
+
+        // Act
+        calendar.confirm("item1", booking);
+        calendar.cancel(booking);
+
+        // Assert - cancelling a confirmed booking leaves it in place
+        assertEquals(0, calendar.reserved(1, 1_001));
+        assertEquals(1, calendar.reserved(1, 1_002));
+        assertEquals(1, calendar.reserved(2, 1_004));
+    }
+
+    @Test
+    void reserve_BucketsBehindTheClock_AreRecycled() {
+        // Arrange
+        ReservationCalendar calendar = new ReservationCalendar(topology, 1, 10, clock::get);
+        calendar.reserve("item1", path);
+
+        // Act - a full horizon later the same ring slots refer to new minutes
+        clock.addAndGet(10 * MINUTE);
+        double eta = calendar.reserve("item2", path);
+
+        // Assert
+        assertEquals(5.0, eta, 1e-9);
+        assertEquals(0, calendar.reserved(0, 1_000));
+        assertEquals(1, calendar.reserved(0, 1_010));
+    }
+
+    @Test
+    void reserve_ReservationsFinishedAHorizonAgo_AreDropped() {
+        // Arrange
+        ReservationCalendar calendar = new ReservationCalendar(topology, 1, 10, clock::get);
+        calendar.reserve("item1", path);
+        clock.addAndGet(10 * MINUTE);
+        calendar.reserve("item2", path);
+
+        // Act - item1 left its last facility at minute 1005, item2 is still within the horizon
+        clock.addAndGet(6 * MINUTE);
+        calendar.reserve("item3", path);
+
+        // Assert
+        assertFalse(calendar.isReserved("item1"));
+        assertTrue(calendar.isReserved("item2"));
+        assertEquals(2, calendar.size());
+    }
+
+    @Test
+    void reserve_ReservationReplacedSinceItFinished_IsKept() {
+        // Arrange
+        ReservationCalendar calendar = new ReservationCalendar(topology, 1, 10, clock::get);
+        calendar.reserve("item1", path);
+        clock.addAndGet(10 * MINUTE);
+        calendar.reserve("item1", path);
+
+        // Act - the first reservation of item1 finished at minute 1005, the second one at 1015
+        clock.addAndGet(6 * MINUTE);
+        calendar.reserve("item2", path);
+
+        // Assert
+        assertTrue(calendar.isReserved("item1"));
+        assertEquals(2, calendar.size());
+    }
+
+    @Test
+    void reserveIfAbsent_ItemAlreadyReserved_KeepsExistingSlots() {
+        // Arrange
+        ReservationCalendar calendar = new ReservationCalendar(topology, 2, 60, clock::get);
+        calendar.reserve("item1", path);
+        clock.addAndGet(MINUTE);
+
+        // Act
+        double eta = calendar.reserveIfAbsent("item1", path);
+
+        // Assert
+        assertTrue(Double.isNaN(eta));
+        assertTrue(calendar.isReserved("item1"));
+        assertEquals(1, calendar.reserved(0, 1_000));
+        assertEquals(0, calendar.reserved(0, 1_001));
+    }
+
+    @Test
+    void reserve_PriorityHeadroom_ExpressGetsSlotsBulkCannotUse() {
+        // Arrange - bulk may fill one slot per minute, express all three
+        ReservationCalendar calendar = new ReservationCalendar(topology, 3, 1, 60, clock::get);
+        calendar.reserve("bulk1", path, PriorityClass.BULK);
+
+        // Act
+        double bulkEta = calendar.reserve("bulk2", path, PriorityClass.BULK);
+        double expressEta = calendar.reserve("express1", path, PriorityClass.EXPRESS);
+
+        // Assert
+        assertEquals(6.0, bulkEta, 1e-9);
+        assertEquals(5.0, expressEta, 1e-9);
+        assertEquals(2, calendar.reserved(0, 1_000));
+    }
+}
@@ -0,0 +1,163 @@
+package com.micrologistics.routing.algorithm;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the incrementally repaired shortest-path trees.
+ */
+class ShortestPathTreesTest {
+
+    private static final int FACILITIES = 60;
+    private static final int DOCKS = 4;
+
+    private FacilityTopology topology;
+    private double[][] costs;
+    private ShortestPathTrees trees;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(42);
+        FacilityTopology.Builder builder = FacilityTopology.builder();
+        for (int i = 0; i < FACILITIES; i++) {
+            builder.facility("F" + i, 1 + random.nextInt(10), FacilityTopology.Handling.ANY);
+        }
+        builder.entry("F0");
+        for (int d = FACILITIES - DOCKS; d < FACILITIES; d++) {
+            builder.outboundDock("F" + d);
+        }
+        // Layered graph with forward conveyors and a few long bypass lanes
+        for (int i = 0; i < FACILITIES - DOCKS; i++) {
+            for (int k = 0; k < 3; k++) {
+                int to = Math.min(FACILITIES - 1, i + 1 + random.nextInt(6));
+                builder.conveyor("F" + i, "F" + to, random.nextInt(3));
+            }
+        }
+        topology = builder.build();
+
+        costs = new double[FacilityCostModel.PROFILE_COUNT][FACILITIES];
+        for (int p = 0; p < costs.length; p++) {
+            for (int f = 0; f < FACILITIES; f++) {
+                costs[p][f] = topology.processingMinutes(f) * (1 + p);
+            }
+        }
+        trees = new ShortestPathTrees(topology, (facility, profile) -> costs[profile][facility],
+                FacilityCostModel.PROFILE_COUNT);
+    }
+
+    @Test
+    void path_MatchesFullSearchAfterBuild() {
+        assertMatchesFullSearch();
+    }
+
+    @Test
+    void refresh_RepairsTreesAfterRandomCostChanges() {
+        // Arrange
+        Random random = new Random(7);
+
+        for (int round = 0; round < 200; round++) {
+            // Act
+            int changes = 1 + random.nextInt(4);
+            for (int c = 0; c < changes; c++) {
+                int facility = random.nextInt(FACILITIES);
+                for (int p = 0; p < costs.length; p++) {
+                    costs[p][facility] = random.nextInt(10) == 0
+                            ? FacilityCostModel.UNREACHABLE
+                            : random.nextDouble() * 30;
+                }
+                trees.markDirty(facility);
+            }
+            trees.refresh();
+
+            // Assert
+            assertMatchesFullSearch();
+        }
+    }
+
+    @Test
+    void refresh_WithoutDirtyFacilities_DoesNothing() {
+        assertFalse(trees.refresh());
+    }
+
+    @Test
+    void isStale_WhileAnotherThreadRepairs_ReportsStaleUntilRepaired() throws InterruptedException {
+        // Arrange - a repair that blocks in the cost model until released
+        CountDownLatch repairing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean block = new AtomicBoolean();
+        ShortestPathTrees blocking = new ShortestPathTrees(topology, (facility, profile) -> {
+            if (block.getAndSet(false)) {
+                repairing.countDown();
+                awaitUninterruptibly(release);
+            }
+            return costs[profile][facility];
+        }, FacilityCostModel.PROFILE_COUNT);
+        assertFalse(blocking.isStale());
+        block.set(true);
+        blocking.markDirty(5);
+        Thread repairer = new Thread(blocking::refresh);
+        repairer.start();
+        repairing.await();
+
+        // Act
+        boolean repaired = blocking.refresh();
+
+        // Assert
+        assertFalse(repaired);
+        assertTrue(blocking.isStale());
+        release.countDown();
+        repairer.join();
+        assertFalse(blocking.isStale());
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void assertMatchesFullSearch() {
+        int[] expected = new int[FACILITIES];
+        int[] actual = new int[FACILITIES];
+        for (int p = 0; p < FacilityCostModel.PROFILE_COUNT; p++) {
+            final int profile = p;
+            for (int dock = FACILITIES - DOCKS; dock < FACILITIES; dock++) {
+                int expectedLength = PathSearch.shortestPath(topology,
+                        (facility, pr) -> costs[pr][facility], topology.entry(), dock, profile, expected);
+                int actualLength = trees.path(topology.entry(), dock, profile, actual);
+
+                assertEquals(expectedLength == 0, actualLength == 0, "Reachability should match full search");
+                if (expectedLength > 0) {
+                    assertEquals(pathCost(expected, expectedLength, profile), pathCost(actual, actualLength, profile),
+                            1e-9, "Repaired path should be as cheap as a full search");
+                    assertEquals(pathCost(actual, actualLength, profile),
+                            trees.distance(topology.entry(), dock, profile), 1e-9);
+                }
+            }
+        }
+    }
+
+    private double pathCost(int[] path, int length, int profile) {
+        double total = 0;
+        for (int i = 1; i < length; i++) {
+            int from = path[i - 1];
+            double transfer = Double.NaN;
+            for (int e = topology.outStart(from); e < topology.outEnd(from); e++) {
+                if (topology.outTarget(e) == path[i]
+                        && (Double.isNaN(transfer) || topology.outTransferMinutes(e) < transfer)) {
+                    transfer = topology.outTransferMinutes(e);
+                }
+            }
+            total += transfer + costs[profile][path[i]];
+        }
+        return total;
+    }
+}
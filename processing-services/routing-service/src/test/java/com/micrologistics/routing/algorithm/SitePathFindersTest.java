@@ -0,0 +1,66 @@
+package com.micrologistics.routing.algorithm;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the per-site path finders.
+ */
+class SitePathFindersTest {
+
+    private final FacilityTopology main = FacilityTopology.builder()
+            .facility("IN", 1.0, FacilityTopology.Handling.ANY)
+            .facility("OUT", 1.0, FacilityTopology.Handling.ANY)
+            .entry("IN")
+            .outboundDock("OUT")
+            .conveyor("IN", "OUT", 0.5)
+            .build();
+
+    private final FacilityTopology berlin = FacilityTopology.builder()
+            .facility("BER_IN", 2.0, FacilityTopology.Handling.ANY)
+            .facility("BER_SORT", 3.0, FacilityTopology.Handling.ANY)
+            .facility("BER_OUT", 2.0, FacilityTopology.Handling.ANY)
+            .entry("BER_IN")
+            .outboundDock("BER_OUT")
+            .conveyor("BER_IN", "BER_SORT", 0.5)
+            .conveyor("BER_SORT", "BER_OUT", 1.0)
+            .build();
+
+    private final SiteTopologies sites = SiteTopologies.builder(main)
+            .site("berlin", berlin, DestinationIndex.builder(berlin).defaultDock("BER_OUT").build())
+            .build();
+
+    private final PathFinderSettings settings = PathFinderSettings.defaults();
+
+    private final SitePathFinders sitePathFinders = new SitePathFinders(sites,
+            new OptimalPathFinder(main, settings), settings, StepDurationModel.of(sites.getUnion(), settings));
+
+    @Test
+    void pathFinderOf_StateRestoredBeforeSiteWasHeld_IsAppliedOnCreation() {
+        // Arrange
+        sitePathFinders.restoreEquipmentState("BER_SORT", true, 4.0, 0);
+        sitePathFinders.restoreEquipmentState("BER_OUT", false, 2.0, 0);
+
+        // Act
+        OptimalPathFinder pathFinder = sitePathFinders.pathFinderOf(sites.get("BERLIN"));
+
+        // Assert
+        assertEquals(4.0, pathFinder.getLoad("BER_SORT"), 0.01);
+        assertFalse(pathFinder.isOperational("BER_OUT"));
+        assertEquals(4.0, sitePathFinders.getLoad("BER_SORT"), 0.01);
+    }
+
+    @Test
+    void applyLoadDelta_HeldSite_DeltaIsAddedToItsPathFinder() {
+        // Arrange
+        OptimalPathFinder pathFinder = sitePathFinders.pathFinderOf(sites.get("BERLIN"));
+
+        // Act
+        sitePathFinders.applyLoadDelta("BER_SORT", 3.0, 3.0, 0);
+
+        // Assert
+        assertEquals(3.0, pathFinder.getLoad("BER_SORT"), 0.01);
+        assertTrue(sitePathFinders.drainLoadDeltas().isEmpty());
+    }
+}
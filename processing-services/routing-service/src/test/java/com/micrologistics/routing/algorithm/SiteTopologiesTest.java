@@ -0,0 +1,78 @@
+package com.micrologistics.routing.algorithm;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import com.micrologistics.common.sharding.SiteShardRing;
+
+/**
+ * Tests for the topologies of multiple warehouse sites and their union.
+ */
+class SiteTopologiesTest {
+
+    private final FacilityTopology main = FacilityTopology.builder()
+            .facility("IN", 1.0, FacilityTopology.Handling.ANY)
+            .facility("OUT", 1.0, FacilityTopology.Handling.ANY)
+            .entry("IN")
+            .outboundDock("OUT")
+            .conveyor("IN", "OUT", 0.5)
+            .build();
+
+    private final FacilityTopology berlin = FacilityTopology.builder()
+            .facility("BER_IN", 2.0, FacilityTopology.Handling.ANY)
+            .facility("BER_SORT", 3.0, FacilityTopology.Handling.ANY)
+            .facility("BER_OUT", 2.0, FacilityTopology.Handling.ANY)
+            .entry("BER_IN")
+            .outboundDock("BER_OUT")
+            .conveyor("BER_IN", "BER_SORT", 0.5)
+            .conveyor("BER_SORT", "BER_OUT", 1.0)
+            .build();
+
+    @Test
+    void single_UnionIsTheDefaultTopology() {
+        // Act
+        SiteTopologies sites = SiteTopologies.single(main);
+
+        // Assert
+        assertSame(main, sites.getUnion());
+        assertEquals(0, sites.getDefault().getOffset());
+    }
+
+    @Test
+    void build_OtherSitesAreAppendedAfterTheDefaultSite() {
+        // Act
+        SiteTopologies sites = SiteTopologies.builder(main)
+                .site("berlin", berlin, DestinationIndex.builder(berlin).defaultDock("BER_OUT").build())
+                .build();
+
+        // Assert
+        FacilityTopology union = sites.getUnion();
+        assertEquals(5, union.size());
+        assertEquals(0, union.ordinalOf("IN"));
+        assertEquals(union.ordinalOf("IN"), union.entry());
+        assertEquals(3, union.ordinalOf("BER_SORT"));
+        assertTrue(union.isOutboundDock(union.ordinalOf("BER_OUT")));
+        assertEquals(3.0, union.processingMinutes(union.ordinalOf("BER_SORT")), 1e-9);
+
+        SiteTopology site = sites.get("BERLIN");
+        assertEquals(2, site.getOffset());
+        assertArrayEquals(new int[] {2, 3, 4}, site.toUnion(new int[] {0, 1, 2}));
+        assertEquals("BERLIN", sites.siteOf("BER_SORT"));
+        assertEquals(SiteShardRing.DEFAULT_SITE, sites.siteOf("OUT"));
+        assertSame(site, sites.siteAt(3));
+        assertSame(sites.getDefault(), sites.siteAt(1));
+        assertNull(sites.siteAt(5));
+        assertEquals(1, site.toSite(3));
+        assertEquals(-1, site.toSite(1));
+    }
+
+    @Test
+    void build_FacilityNameUsedBySeveralSites_IsRejected() {
+        // Arrange
+        SiteTopologies.Builder builder = SiteTopologies.builder(main).site("copy", main, null);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, builder::build);
+    }
+}
@@ -0,0 +1,88 @@
+package com.micrologistics.routing.algorithm;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the model of the time items spend at each facility.
+ */
+class StepDurationModelTest {
+
+    @Test
+    void expectedMinutes_TooFewSamples_FallbackIsUsed() {
+        // Arrange
+        StepDurationModel model = new StepDurationModel(2, 0.1, 3, 60.0);
+        model.record(0, 4.0, 8);
+        model.record(0, 4.0, 8);
+
+        // Act & Assert
+        assertEquals(2.5, model.expectedMinutes(0, 8, 2.5), 1e-9);
+        assertEquals(2.5, model.expectedMinutes(1, 8, 2.5), 1e-9);
+        assertEquals(2.5, model.expectedMinutes(7, 8, 2.5), 1e-9);
+    }
+
+    @Test
+    void expectedMinutes_HourWithoutEnoughSamples_OverallAverageIsUsed() {
+        // Arrange
+        StepDurationModel model = new StepDurationModel(1, 0.5, 2, 60.0);
+        model.record(0, 4.0, 8);
+        model.record(0, 4.0, 8);
+        model.record(0, 10.0, 9);
+
+        // Act & Assert
+        assertEquals(4.0, model.expectedMinutes(0, 8, 1.0), 1e-9);
+        assertEquals(7.0, model.expectedMinutes(0, 9, 1.0), 1e-9);
+        assertEquals(7.0, model.expectedMinutes(0, 10, 1.0), 1e-9);
+    }
+
+    @Test
+    void record_OutOfRangeDurations_AreRejected() {
+        // Arrange
+        StepDurationModel model = new StepDurationModel(1, 0.1, 1, 60.0);
+
+        // Act & Assert
+        assertFalse(model.record(0, -1.0, 8));
+        assertFalse(model.record(0, 61.0, 8));
+        assertFalse(model.record(0, Double.NaN, 8));
+        assertFalse(model.record(1, 5.0, 8));
+        assertTrue(model.record(0, 5.0, 32));
+        assertEquals(1, model.samples(0));
+        assertEquals(5.0, model.expectedMinutes(0, 8, 1.0), 1e-9);
+    }
+
+    @Test
+    void slice_SharesTheLearnedDurationsOfItsRange() {
+        // Arrange
+        StepDurationModel model = new StepDurationModel(3, 0.1, 1, 60.0);
+        StepDurationModel slice = model.slice(1, 2);
+
+        // Act
+        model.record(2, 6.0, 8);
+        slice.record(0, 3.0, 8);
+
+        // Assert
+        assertEquals(3.0, model.expectedMinutes(1, 8, 1.0), 1e-9);
+        assertEquals(6.0, slice.expectedMinutes(1, 8, 1.0), 1e-9);
+        assertEquals(1.0, slice.expectedMinutes(2, 8, 1.0), 1e-9);
+    }
+
+    @Test
+    void quantiles_UniformDurations_EstimatesAreClose() {
+        // Arrange
+        StepDurationModel model = new StepDurationModel(1, 0.05, 20, 60.0);
+        Random random = new Random(42);
+
+        // Act
+        for (int i = 0; i < 10_000; i++) {
+            model.record(0, 10.0 * random.nextDouble(), i % 24);
+        }
+
+        // Assert
+        assertEquals(5.0, model.median(0), 0.3);
+        assertEquals(9.0, model.percentile90(0), 0.3);
+        assertTrue(Double.isNaN(new StepDurationModel(1, 0.05, 20, 60.0).median(0)));
+    }
+}
@@ -0,0 +1,69 @@
+package com.micrologistics.routing.algorithm;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the assignment of outbound waves to docks.
+ */
+class WaveBalancerTest {
+
+    private static final int[] DOCKS = {0, 1, 2, 3};
+
+    @Test
+    void assign_BalancedDocks_WavesStayAtPreferredDock() {
+        // Arrange
+        WaveBalancer balancer = new WaveBalancer(20);
+        long[] loads = {10, 10, 10, 10};
+
+        // Act
+        int[] docks = balancer.assign(new int[] {5, 8, 3}, new int[] {0, 1, 2},
+                new int[][] {DOCKS, DOCKS, DOCKS}, loads);
+
+        // Assert
+        assertArrayEquals(new int[] {0, 1, 2}, docks);
+        assertArrayEquals(new long[] {15, 18, 13, 10}, loads);
+    }
+
+    @Test
+    void assign_HotspotDock_LargestWavesSpreadOverOtherDocks() {
+        // Arrange
+        WaveBalancer balancer = new WaveBalancer(5);
+        long[] loads = {0, 0, 0, 0};
+
+        // Act: every destination maps to the first dock
+        int[] docks = balancer.assign(new int[] {40, 30, 20, 10}, new int[] {0, 0, 0, 0},
+                new int[][] {DOCKS, DOCKS, DOCKS, DOCKS}, loads);
+
+        // Assert
+        assertArrayEquals(new int[] {0, 1, 2, 3}, docks);
+        assertArrayEquals(new long[] {40, 30, 20, 10}, loads);
+    }
+
+    @Test
+    void assign_ImbalanceBelowPenalty_WaveStaysAtPreferredDock() {
+        // Arrange
+        WaveBalancer balancer = new WaveBalancer(20);
+        long[] loads = {30, 15, 15, 15};
+
+        // Act
+        int[] docks = balancer.assign(new int[] {10}, new int[] {0}, new int[][] {DOCKS}, loads);
+
+        // Assert
+        assertEquals(0, docks[0]);
+    }
+
+    @Test
+    void assign_OnlyCandidateDocks_AreUsed() {
+        // Arrange
+        WaveBalancer balancer = new WaveBalancer(0);
+        long[] loads = {100, 100, 0, 0};
+
+        // Act: the wave's site only has the first two docks
+        int[] docks = balancer.assign(new int[] {10}, new int[] {0}, new int[][] {{0, 1}}, loads);
+
+        // Assert
+        assertEquals(0, docks[0]);
+    }
+}
@@ -0,0 +1,103 @@
+package com.micrologistics.routing.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.micrologistics.common.dto.RouteDto;
+import com.micrologistics.routing.entity.Route;
+import com.micrologistics.routing.event.RouteStepChangedEvent;
+import com.micrologistics.routing.mapper.RouteMapper;
+import com.micrologistics.routing.messaging.publisher.RouteCacheInvalidationPublisher;
+
+/**
+ * Tests for the route lookup cache.
+ */
+class RouteLookupCacheTest {
+
+    private final RouteCacheInvalidationPublisher publisher = mock(RouteCacheInvalidationPublisher.class);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private RouteLookupCache cache;
+    private RouteDto route;
+
+    @BeforeEach
+    void setUp() {
+        cache = new RouteLookupCache(new RouteMapper(), publisher, 100, 60);
+        route = RouteDto.builder()
+                .id("route1")
+                .itemId("item1")
+                .trackingId("TRK-1")
+                .routeSteps(List.of("INBOUND_DOCK", "SCANNER_STATION", "OUTBOUND_DOCK_NORTH"))
+                .currentStep("INBOUND_DOCK")
+                .status(Route.STATUS_CREATED)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    @Test
+    void getByTrackingId_SecondLookup_IsServedFromCache() {
+        // Act
+        cache.getByTrackingId("TRK-1", this::load);
+        Optional<RouteDto> result = cache.getByTrackingId("TRK-1", this::load);
+
+        // Assert - the item ID lookup is served by the same entry
+        assertEquals(Optional.of(route), result);
+        assertEquals(Optional.of(route), cache.getByItemId("item1", id -> Optional.empty()));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void getByItemId_UnknownItem_IsNotCached() {
+        // Act
+        cache.getByItemId("missing", id -> { loads.incrementAndGet(); return Optional.empty(); });
+        Optional<RouteDto> result = cache.getByItemId("missing", id -> { loads.incrementAndGet(); return Optional.empty(); });
+
+        // Assert
+        assertTrue(result.isEmpty());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void onRouteStepChanged_CachedRoute_IsMovedAndInvalidatedElsewhere() {
+        // Arrange
+        cache.getByItemId("item1", this::load);
+
+        // Act
+        cache.onRouteStepChanged(new RouteStepChangedEvent("route1", "item1", "INBOUND_DOCK",
+                "SCANNER_STATION", 1, Route.STATUS_IN_PROGRESS, 30.0));
+
+        // Assert
+        RouteDto cached = cache.getByItemId("item1", this::load).orElseThrow();
+        assertEquals("SCANNER_STATION", cached.getCurrentStep());
+        assertEquals(Route.STATUS_IN_PROGRESS, cached.getStatus());
+        assertEquals("INBOUND_DOCK", route.getCurrentStep(), "Cached routes are copied, not modified");
+        assertEquals(1, loads.get());
+        verify(publisher).publishInvalidation("item1");
+    }
+
+    @Test
+    void invalidate_NextLookupReloads() {
+        // Arrange
+        cache.getByItemId("item1", this::load);
+
+        // Act
+        cache.invalidate("item1");
+        cache.getByItemId("item1", this::load);
+
+        // Assert
+        assertEquals(2, loads.get());
+    }
+
+    private Optional<RouteDto> load(String key) {
+        loads.incrementAndGet();
+        return Optional.of(route);
+    }
+}
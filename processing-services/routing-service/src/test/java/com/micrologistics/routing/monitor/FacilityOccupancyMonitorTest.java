@@ -0,0 +1,97 @@
+package com.micrologistics.routing.monitor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.micrologistics.common.event.RouteEvent;
+import com.micrologistics.routing.algorithm.FacilityTopology;
+import com.micrologistics.routing.algorithm.SitePathFinders;
+import com.micrologistics.routing.entity.Route;
+import com.micrologistics.routing.repository.RouteRepository;
+
+/**
+ * Tests for the facility occupancy counters.
+ */
+class FacilityOccupancyMonitorTest {
+
+    private final FacilityTopology topology = FacilityTopology.builder()
+            .facility("IN", 1.0, FacilityTopology.Handling.ANY)
+            .facility("SORT", 2.0, FacilityTopology.Handling.ANY)
+            .facility("OUT", 1.0, FacilityTopology.Handling.ANY)
+            .entry("IN")
+            .outboundDock("OUT")
+            .conveyor("IN", "SORT", 0.5)
+            .conveyor("SORT", "OUT", 0.5)
+            .build();
+
+    private final RouteRepository routeRepository = mock(RouteRepository.class);
+    private final SitePathFinders sitePathFinders = mock(SitePathFinders.class);
+
+    private FacilityOccupancyMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        when(routeRepository.countByCurrentStepAndStatusIn(anyCollection())).thenReturn(List.<Object[]>of(
+                new Object[] {"IN", 3L},
+                new Object[] {"SORT", 2L}));
+        monitor = new FacilityOccupancyMonitor(routeRepository, topology, sitePathFinders);
+        monitor.rebuild();
+    }
+
+    @Test
+    void rebuild_CountsItemsAtTheirCurrentFacility() {
+        // Assert
+        assertEquals(3, monitor.getOccupancy(0));
+        assertEquals(2, monitor.getOccupancy(1));
+        assertEquals(0, monitor.getOccupancy(2));
+        verify(sitePathFinders).updateOccupancy(0, 3);
+    }
+
+    @Test
+    void onRouteEvent_ItemMovesBetweenFacilities() {
+        // Act
+        monitor.onRouteEvent(event(RouteEvent.TYPE_CREATED, "route1", null, "IN", Route.STATUS_CREATED));
+        monitor.onRouteEvent(event(RouteEvent.TYPE_STEP_CHANGED, "route1", "IN", "SORT", Route.STATUS_IN_PROGRESS));
+
+        // Assert
+        assertEquals(3, monitor.getOccupancy(0));
+        assertEquals(3, monitor.getOccupancy(1));
+        verify(sitePathFinders).updateOccupancy(1, 3);
+    }
+
+    @Test
+    void onRouteEvent_FinishedRoutesAreNoLongerCounted() {
+        // Act
+        monitor.onRouteEvent(event(RouteEvent.TYPE_COMPLETED, "route1", "SORT", "OUT", Route.STATUS_COMPLETED));
+        monitor.onRouteEvent(event(RouteEvent.TYPE_FAILED, "route2", "IN", "IN", Route.STATUS_FAILED));
+
+        // Assert
+        assertEquals(List.of(2L, 1L, 0L), List.copyOf(monitor.getOccupancy().values()));
+    }
+
+    @Test
+    void onRouteEvent_ReroutedRoutesStayAtTheirFacility() {
+        // Act
+        monitor.onRouteEvent(event(RouteEvent.TYPE_REROUTED, "route1", null, "SORT", Route.STATUS_IN_PROGRESS));
+
+        // Assert
+        assertEquals(List.of(3L, 2L, 0L), List.copyOf(monitor.getOccupancy().values()));
+    }
+
+    private static RouteEvent event(String eventType, String routeId, String previousStep, String step, String status) {
+        return RouteEvent.builder()
+                .eventType(eventType)
+                .routeId(routeId)
+                .previousStep(previousStep)
+                .currentStep(step)
+                .status(status)
+                .estimatedTimeMinutes(10.0)
+                .build();
+    }
+}
@@ -0,0 +1,84 @@
+package com.micrologistics.routing.monitor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.micrologistics.common.event.RouteEvent;
+import com.micrologistics.routing.algorithm.FacilityTopology;
+import com.micrologistics.routing.repository.RouteRepository;
+
+/**
+ * Tests for the index of in-flight routes by the facilities ahead of them.
+ */
+class FacilityRouteIndexTest {
+
+    private final FacilityTopology topology = FacilityTopology.builder()
+            .facility("IN", 1.0, FacilityTopology.Handling.ANY)
+            .facility("SORT_A", 2.0, FacilityTopology.Handling.ANY)
+            .facility("SORT_B", 2.0, FacilityTopology.Handling.ANY)
+            .facility("OUT", 1.0, FacilityTopology.Handling.ANY)
+            .entry("IN")
+            .outboundDock("OUT")
+            .conveyor("IN", "SORT_A", 0.5)
+            .conveyor("IN", "SORT_B", 0.5)
+            .conveyor("SORT_A", "OUT", 0.5)
+            .conveyor("SORT_B", "OUT", 0.5)
+            .build();
+
+    private final RouteRepository routeRepository = mock(RouteRepository.class);
+
+    private FacilityRouteIndex index;
+
+    @BeforeEach
+    void setUp() {
+        when(routeRepository.findStepCodesByStatusIn(anyCollection())).thenReturn(List.<Object[]>of(
+                new Object[] {"route1", new short[] {0, 1, 3}, 0},
+                new Object[] {"route2", new short[] {0, 1, 3}, 1}));
+        index = new FacilityRouteIndex(routeRepository, topology);
+        index.rebuild();
+    }
+
+    @Test
+    void rebuild_OnlyStepsAfterCurrentStepAreIndexed() {
+        // Assert
+        assertEquals(List.of("route1"), index.routesThrough(1));
+        assertEquals(2, index.routesThrough(3).size());
+        assertTrue(index.routesThrough(0).isEmpty());
+    }
+
+    @Test
+    void onRouteEvent_PassedFacilitiesAndFinishedRoutesAreDropped() {
+        // Act
+        index.onRouteEvent(RouteEvent.builder().eventType(RouteEvent.TYPE_STEP_CHANGED).routeId("route1")
+                .previousStep("IN").currentStep("SORT_A").stepIndex(1).build());
+        index.onRouteEvent(RouteEvent.builder().eventType(RouteEvent.TYPE_COMPLETED).routeId("route2")
+                .previousStep("SORT_A").currentStep("OUT").stepIndex(2).build());
+
+        // Assert
+        assertTrue(index.routesThrough(1).isEmpty());
+        assertEquals(List.of("route1"), index.routesThrough(3));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void onRouteEvent_ReroutedStepsReplaceOldOnes() {
+        // Arrange
+        index.onRouteEvent(RouteEvent.builder().eventType(RouteEvent.TYPE_CREATED).routeId("route3")
+                .currentStep("IN").routeSteps(List.of("IN", "SORT_A", "OUT")).stepIndex(0).build());
+
+        // Act
+        index.onRouteEvent(RouteEvent.builder().eventType(RouteEvent.TYPE_REROUTED).routeId("route3")
+                .currentStep("IN").routeSteps(List.of("IN", "SORT_B", "OUT")).stepIndex(0).build());
+
+        // Assert
+        assertFalse(index.routesThrough(1).contains("route3"));
+        assertEquals(List.of("route3"), index.routesThrough(2));
+        assertTrue(index.routesThrough(3).contains("route3"));
+    }
+}
@@ -0,0 +1,95 @@
+package com.micrologistics.routing.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import com.micrologistics.routing.algorithm.FacilityTopology;
+import com.micrologistics.routing.algorithm.OptimalPathFinder;
+import com.micrologistics.routing.algorithm.ReservationCalendar;
+import com.micrologistics.routing.algorithm.SitePathFinders;
+import com.micrologistics.routing.algorithm.SiteTopology;
+import com.micrologistics.routing.entity.Route;
+import com.micrologistics.routing.monitor.FacilityRouteIndex;
+import com.micrologistics.routing.repository.RouteRepository;
+import com.micrologistics.routing.service.impl.RerouteServiceImpl;
+
+/**
+ * Tests for re-planning in-flight routes around facilities.
+ */
+class RerouteServiceTest {
+
+    private static final long MINUTE = 60_000L;
+
+    private final FacilityTopology topology = FacilityTopology.builder()
+            .facility("IN", 1.0, FacilityTopology.Handling.ANY)
+            .facility("SORT_A", 2.0, FacilityTopology.Handling.ANY)
+            .facility("SORT_B", 2.0, FacilityTopology.Handling.ANY)
+            .facility("OUT", 1.0, FacilityTopology.Handling.ANY)
+            .entry("IN")
+            .outboundDock("OUT")
+            .conveyor("IN", "SORT_A", 0.5)
+            .conveyor("IN", "SORT_B", 0.5)
+            .conveyor("SORT_A", "OUT", 0.5)
+            .conveyor("SORT_B", "OUT", 0.5)
+            .build();
+
+    private final AtomicLong clock = new AtomicLong(1_000 * MINUTE);
+
+    private final RouteRepository routeRepository = mock(RouteRepository.class);
+    private final SitePathFinders sitePathFinders = mock(SitePathFinders.class);
+    private final OptimalPathFinder pathFinder = mock(OptimalPathFinder.class);
+    private final FacilityRouteIndex facilityRouteIndex = mock(FacilityRouteIndex.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    private ReservationCalendar reservationCalendar;
+    private RerouteServiceImpl rerouteService;
+
+    @BeforeEach
+    void setUp() {
+        reservationCalendar = new ReservationCalendar(topology, 1, 60, clock::get);
+        SiteTopology site = new SiteTopology("default", topology, null, 0);
+        when(sitePathFinders.siteAt(0)).thenReturn(site);
+        when(sitePathFinders.pathFinderOf(site)).thenReturn(pathFinder);
+        rerouteService = new RerouteServiceImpl(routeRepository, sitePathFinders, reservationCalendar, topology,
+                facilityRouteIndex, eventPublisher, 500, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        rerouteService.shutdown();
+    }
+
+    @Test
+    void rerouteAround_RouteMovedOnWhileReplanned_IsDroppedAndItsBookingCancelled() {
+        // Arrange
+        Route route = Route.builder().id("route1").itemId("item1").stepCodes(new short[] {0, 1, 3})
+                .currentStepIndex(0).status(Route.STATUS_IN_PROGRESS).createdAt(LocalDateTime.now()).build();
+        reservationCalendar.reserve("item1", new int[] {0, 1, 3});
+        when(facilityRouteIndex.routesThrough(1)).thenReturn(List.of("route1"));
+        when(routeRepository.findAllById(List.of("route1"))).thenReturn(List.of(route));
+        when(pathFinder.findPathFrom(eq("item1"), eq(0), eq(3), anyDouble(), any())).thenReturn(new int[] {0, 2, 3});
+        when(routeRepository.replaceSteps(anyList(), anyList())).thenReturn(Set.of());
+
+        // Act
+        int rerouted = rerouteService.rerouteAround("SORT_A").join();
+
+        // Assert - the booked slots at SORT_B are given back and the item keeps those of its current path
+        assertEquals(0, rerouted);
+        for (long minute = 1_000; minute < 1_010; minute++) {
+            assertEquals(0, reservationCalendar.reserved(2, minute));
+        }
+        assertEquals(1, reservationCalendar.reserved(1, 1_001));
+        assertEquals(0, rerouteService.getReroutedCount());
+        verifyNoInteractions(eventPublisher);
+    }
+}
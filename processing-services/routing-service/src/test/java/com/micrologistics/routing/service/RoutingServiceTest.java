@@ -1,7 +1,7 @@
 package com.micrologistics.routing.service;
 
-import static org.junit.jupiter.api.Assertions.;
-import static org.mockito.ArgumentMatchers.;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 import java.time.LocalDateTime;
@@ -10,26 +10,47 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.micrologistics.common.dto.CursorPage;
 import com.micrologistics.common.dto.RouteDto;
 import com.micrologistics.common.event.ItemRegisteredEvent;
 import com.micrologistics.common.exception.BusinessException;
 import com.micrologistics.common.exception.ResourceNotFoundException;
+import com.micrologistics.common.sharding.SiteShardRing;
+import com.micrologistics.routing.algorithm.FacilityTopology;
 import com.micrologistics.routing.algorithm.OptimalPathFinder;
+import com.micrologistics.routing.algorithm.ReservationCalendar;
+import com.micrologistics.routing.algorithm.RoutePlan;
+import com.micrologistics.routing.algorithm.SitePathFinders;
+import com.micrologistics.routing.algorithm.SiteTopology;
+import com.micrologistics.routing.cache.RouteLookupCache;
 import com.micrologistics.routing.entity.Route;
+import com.micrologistics.routing.entity.RouteStepHistory;
 import com.micrologistics.routing.mapper.RouteMapper;
+import com.micrologistics.routing.messaging.publisher.EquipmentStatePublisher;
+import com.micrologistics.routing.monitor.DispatchQueueMonitor;
+import com.micrologistics.routing.monitor.FacilityOccupancyMonitor;
+import com.micrologistics.routing.monitor.OverdueRouteMonitor;
+import com.micrologistics.routing.monitor.StepTimingAggregator;
+import com.micrologistics.routing.repository.RouteCursor;
 import com.micrologistics.routing.repository.RouteRepository;
+import com.micrologistics.routing.repository.RouteStepHistoryRepository;
 import com.micrologistics.routing.service.impl.RoutingServiceImpl;
 
 @ExtendWith(MockitoExtension.class)
@@ -44,16 +65,61 @@ class RoutingServiceTest {
 	@Mock
 	private OptimalPathFinder pathFinder;
 
+	@Mock
+	private ReservationCalendar reservationCalendar;
+
+	@Mock
+	private FacilityTopology topology;
+
+	@Mock
+	private ApplicationEventPublisher eventPublisher;
+
+	@Mock
+	private OverdueRouteMonitor overdueRouteMonitor;
+
+	@Mock
+	private StepTimingAggregator stepTimingAggregator;
+
+	@Mock
+	private DispatchQueueMonitor dispatchQueueMonitor;
+
+	@Mock
+	private FacilityOccupancyMonitor facilityOccupancyMonitor;
+
+	@Mock
+	private EquipmentStatePublisher equipmentStatePublisher;
+
+	@Mock
+	private RouteLookupCache routeLookupCache;
+
+	@Mock
+	private RerouteService rerouteService;
+
+	@Mock
+	private RouteStepHistoryRepository routeStepHistoryRepository;
+
+	@Mock
+	private SitePathFinders sitePathFinders;
+
+	@Mock
+	private RouteArchiveService routeArchiveService;
+
 	@InjectMocks
 	private RoutingServiceImpl routingService;
 
 	private Route testRoute;
 	private RouteDto testRouteDto;
 	private List<String> routeSteps;
+	private RoutePlan routePlan;
 
 	@BeforeEach
 	void setUp() {
 	    routeSteps = Arrays.asList("INBOUND_DOCK", "SCANNER_STATION", "SORTING_AREA_A", "PACKAGING_AREA");
+	    routePlan = new RoutePlan(routeSteps, new int[] {0, 1, 2, 4}, 30.0, 4, 0L);
+	    
+	    SiteTopology defaultSite = new SiteTopology(SiteShardRing.DEFAULT_SITE, null, null, 0);
+	    lenient().when(sitePathFinders.siteOf(any())).thenReturn(defaultSite);
+	    lenient().when(sitePathFinders.pathFinderOf(defaultSite)).thenReturn(pathFinder);
 	    
 	    testRoute = Route.builder()
 	            .id("1")
@@ -85,11 +151,9 @@ class RoutingServiceTest {
 	@Test
 	void createRoute_Success() {
 	    // Arrange
-	    when(routeRepository.findByItemId(anyString())).thenReturn(Optional.empty());
-	    when(pathFinder.findOptimalPath(anyString(), anyString(), anyDouble(), anyInt()))
-	        .thenReturn(routeSteps);
-	    when(pathFinder.calculateEstimatedTime(anyList())).thenReturn(30.0);
-	    when(routeRepository.save(any(Route.class))).thenReturn(testRoute);
+	    when(pathFinder.planRoute(anyString(), anyString(), anyDouble(), anyInt()))
+	        .thenReturn(routePlan);
+	    when(routeRepository.insertIfAbsent(any(Route.class))).thenAnswer(invocation -> invocation.getArgument(0));
 	    when(routeMapper.toDto(any(Route.class))).thenReturn(testRouteDto);
 	    
 	    // Act
@@ -99,19 +163,79 @@ class RoutingServiceTest {
 	    assertNotNull(result);
 	    assertEquals(testRouteDto.getId(), result.getId());
 	    assertEquals(testRouteDto.getItemId(), result.getItemId());
-	    verify(routeRepository).save(any(Route.class));
+	    verify(routeRepository).insertIfAbsent(any(Route.class));
+	    verify(routeRepository, never()).findByItemId(anyString());
 	}
 
 	@Test
-	void createRoute_RouteAlreadyExists() {
+	void createRoute_RouteAlreadyExists_ReturnsExistingRoute() {
 	    // Arrange
-	    when(routeRepository.findByItemId(anyString())).thenReturn(Optional.of(testRoute));
+	    when(pathFinder.planRoute(anyString(), anyString(), anyDouble(), anyInt()))
+	        .thenReturn(routePlan);
+	    when(routeRepository.insertIfAbsent(any(Route.class))).thenReturn(testRoute);
+	    when(routeMapper.toDto(testRoute)).thenReturn(testRouteDto);
 	    
-	    // Act & Assert
-	    assertThrows(BusinessException.class, () -> {
-	        routingService.createRoute("item1", "TRK-12345678", "New York", 10.0, 1);
-	    });
-	    verify(routeRepository, never()).save(any(Route.class));
+	    // Act
+	    RouteDto result = routingService.createRoute("item1", "TRK-12345678", "New York", 10.0, 1);
+	    
+	    // Assert
+	    assertEquals(testRouteDto.getId(), result.getId());
+	    verify(reservationCalendar).release("item1");
+	    verify(pathFinder).releaseRoute(routePlan);
+	    verify(routeRepository, never()).findByItemId(anyString());
+	    verify(eventPublisher, never()).publishEvent(any());
+	}
+
+	@Test
+	void createRoute_ItemAlreadyReserved_ReturnsExistingRouteFromInsert() {
+	    // Arrange
+	    lenient().when(reservationCalendar.isReserved("item1")).thenReturn(true);
+	    when(pathFinder.planRoute(anyString(), anyString(), anyDouble(), anyInt()))
+	        .thenReturn(routePlan);
+	    when(reservationCalendar.reserveIfAbsent(eq("item1"), any(), any())).thenReturn(Double.NaN);
+	    when(routeRepository.insertIfAbsent(any(Route.class))).thenReturn(testRoute);
+	    when(routeMapper.toDto(testRoute)).thenReturn(testRouteDto);
+	    
+	    // Act
+	    RouteDto result = routingService.createRoute("item1", "TRK-12345678", "New York", 10.0, 1);
+	    
+	    // Assert
+	    assertEquals(testRouteDto.getId(), result.getId());
+	    verify(pathFinder).releaseRoute(routePlan);
+	    verify(reservationCalendar, never()).release(anyString());
+	    verify(routeRepository, never()).findByItemId(anyString());
+	    verify(eventPublisher, never()).publishEvent(any());
+	}
+
+	@Test
+	void createRoutes_BatchRolledBack_GivesBackLoadAndSlots() {
+	    // Arrange
+	    ItemRegisteredEvent event = ItemRegisteredEvent.builder()
+	            .id("item1")
+	            .trackingId("TRK-12345678")
+	            .weight(10.0)
+	            .destination("New York")
+	            .priority(1)
+	            .build();
+	    when(pathFinder.planRoute(anyString(), anyString(), anyDouble(), anyInt()))
+	        .thenReturn(routePlan);
+	    when(routeRepository.insertAllIfAbsent(anyList())).thenThrow(new IllegalStateException("insert failed"));
+	    
+	    TransactionSynchronizationManager.initSynchronization();
+	    try {
+	        // Act
+	        assertThrows(IllegalStateException.class, () -> routingService.createRoutes(List.of(event)));
+	        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+	            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+	        }
+	    } finally {
+	        TransactionSynchronizationManager.clearSynchronization();
+	    }
+	    
+	    // Assert
+	    verify(pathFinder).releaseRoute(routePlan);
+	    verify(reservationCalendar).release("item1");
+	    verify(eventPublisher, never()).publishEvent(any());
 	}
 
 	@Test
@@ -143,6 +267,9 @@ class RoutingServiceTest {
 	@Test
 	void getRouteByTrackingId_Success() {
 	    // Arrange
+	    when(routeLookupCache.getByTrackingId(anyString(), any()))
+	        .thenAnswer(invocation -> invocation.<Function<String, Optional<RouteDto>>>getArgument(1)
+	                .apply(invocation.getArgument(0)));
 	    when(routeRepository.findByTrackingId(anyString())).thenReturn(Optional.of(testRoute));
 	    when(routeMapper.toDto(any(Route.class))).thenReturn(testRouteDto);
 	    
@@ -158,6 +285,9 @@ class RoutingServiceTest {
 	@Test
 	void getRouteByItemId_Success() {
 	    // Arrange
+	    when(routeLookupCache.getByItemId(anyString(), any()))
+	        .thenAnswer(invocation -> invocation.<Function<String, Optional<RouteDto>>>getArgument(1)
+	                .apply(invocation.getArgument(0)));
 	    when(routeRepository.findByItemId(anyString())).thenReturn(Optional.of(testRoute));
 	    when(routeMapper.toDto(any(Route.class))).thenReturn(testRouteDto);
 	    
@@ -170,6 +300,19 @@ class RoutingServiceTest {
 	    verify(routeRepository).findByItemId("item1");
 	}
 
+	@Test
+	void getRouteByItemId_Cached_SkipsRepository() {
+	    // Arrange
+	    when(routeLookupCache.getByItemId(eq("item1"), any())).thenReturn(Optional.of(testRouteDto));
+	    
+	    // Act
+	    RouteDto result = routingService.getRouteByItemId("item1");
+	    
+	    // Assert
+	    assertSame(testRouteDto, result);
+	    verify(routeRepository, never()).findByItemId(anyString());
+	}
+
 	@Test
 	void getAllRoutes_Success() {
 	    // Arrange
@@ -189,6 +332,31 @@ class RoutingServiceTest {
 	    verify(routeRepository).findAll(pageable);
 	}
 
+	@Test
+	void getRoutesAfter_MoreRoutesThanPageSize_ReturnsCursorOfLastRoute() {
+	    // Arrange
+	    Route second = Route.builder().id("2").itemId("item2").createdAt(testRoute.getCreatedAt().minusSeconds(1)).build();
+	    Route third = Route.builder().id("3").itemId("item3").createdAt(testRoute.getCreatedAt().minusSeconds(2)).build();
+	    when(routeRepository.findPage(null, null, false, 3)).thenReturn(Arrays.asList(testRoute, second, third));
+	    when(routeMapper.toDtoList(anyList())).thenReturn(Arrays.asList(testRouteDto, testRouteDto));
+	    
+	    // Act
+	    CursorPage<RouteDto> page = routingService.getRoutesAfter(null, null, 2, false);
+	    
+	    // Assert
+	    assertTrue(page.isHasNext());
+	    RouteCursor cursor = RouteCursor.decode(page.getNextCursor());
+	    assertEquals("2", cursor.getId());
+	    assertEquals(second.getCreatedAt(), cursor.getCreatedAt());
+	    verify(routeRepository, never()).count();
+	}
+
+	@Test
+	void getRoutesAfter_InvalidCursor_ThrowsException() {
+	    // Act & Assert
+	    assertThrows(BusinessException.class, () -> routingService.getRoutesAfter(null, "not a cursor", 10, false));
+	}
+
 	@Test
 	void updateRouteStep_Success() {
 	    // Arrange
@@ -198,6 +366,8 @@ class RoutingServiceTest {
 	    when(routeRepository.findById(anyString())).thenReturn(Optional.of(testRoute));
 	    when(routeRepository.save(any(Route.class))).thenReturn(testRoute);
 	    when(routeMapper.toDto(any(Route.class))).thenReturn(testRouteDto);
+	    when(topology.ordinalOf("INBOUND_DOCK")).thenReturn(0);
+	    when(topology.ordinalOf("SCANNER_STATION")).thenReturn(1);
 	    
 	    // Act
 	    RouteDto result = routingService.updateRouteStep("1", "SCANNER_STATION");
@@ -206,6 +376,12 @@ class RoutingServiceTest {
 	    assertNotNull(result);
 	    verify(routeRepository).findById("1");
 	    verify(routeRepository).save(any(Route.class));
+	    ArgumentCaptor<RouteStepHistory> history = ArgumentCaptor.forClass(RouteStepHistory.class);
+	    verify(routeStepHistoryRepository).save(history.capture());
+	    assertEquals("1", history.getValue().getRouteId());
+	    assertEquals(0, history.getValue().getFacility());
+	    assertEquals(1, history.getValue().getNextFacility());
+	    assertEquals(testRoute.getCreatedAt(), history.getValue().getEnteredAt());
 	}
 
 	@Test
@@ -235,11 +411,9 @@ class RoutingServiceTest {
 	            .timestamp(LocalDateTime.now())
 	            .build();
 	    
-	    when(routeRepository.findByItemId(anyString())).thenReturn(Optional.empty());
-	    when(pathFinder.findOptimalPath(anyString(), anyString(), anyDouble(), anyInt()))
-	        .thenReturn(routeSteps);
-	    when(pathFinder.calculateEstimatedTime(anyList())).thenReturn(30.0);
-	    when(routeRepository.save(any(Route.class))).thenReturn(testRoute);
+	    when(pathFinder.planRoute(anyString(), anyString(), anyDouble(), anyInt()))
+	        .thenReturn(routePlan);
+	    when(routeRepository.insertIfAbsent(any(Route.class))).thenAnswer(invocation -> invocation.getArgument(0));
 	    when(routeMapper.toDto(any(Route.class))).thenReturn(testRouteDto);
 	    
 	    // Act
@@ -248,7 +422,7 @@ class RoutingServiceTest {
 	    // Assert
 	    assertNotNull(result);
 	    assertEquals(testRouteDto.getId(), result.getId());
-	    verify(routeRepository).save(any(Route.class));
+	    verify(routeRepository).insertIfAbsent(any(Route.class));
 	}
 
 	@Test
@@ -257,7 +431,7 @@ class RoutingServiceTest {
 	    Map<String, Integer> loadStatus = new HashMap<>();
 	    loadStatus.put("INBOUND_DOCK", 50);
 	    loadStatus.put("SCANNER_STATION", 30);
-	    when(pathFinder.getEquipmentLoadStatus()).thenReturn(loadStatus);
+	    when(sitePathFinders.getEquipmentLoadStatus()).thenReturn(loadStatus);
 	    
 	    // Act
 	    Map<String, Integer> result = routingService.getEquipmentLoadStatus();
@@ -267,7 +441,7 @@ class RoutingServiceTest {
 	    assertEquals(2, result.size());
 	    assertEquals(50, result.get("INBOUND_DOCK"));
 	    assertEquals(30, result.get("SCANNER_STATION"));
-	    verify(pathFinder).getEquipmentLoadStatus();
+	    verify(sitePathFinders).getEquipmentLoadStatus();
 	}
 
 	@Test
@@ -280,13 +454,16 @@ class RoutingServiceTest {
 	    
 	    // Assert
 	    verify(pathFinder).updateEquipmentStatus("INBOUND_DOCK", false);
+	    verify(equipmentStatePublisher).publishStatus("INBOUND_DOCK");
+	    verify(rerouteService).rerouteAround("INBOUND_DOCK");
 	}
 
 	@Test
 	void getDelayedRoutes_Success() {
 	    // Arrange
 	    List<Route> delayedRoutes = Arrays.asList(testRoute);
-	    when(routeRepository.findDelayedRoutes()).thenReturn(delayedRoutes);
+	    when(overdueRouteMonitor.getOverdueRouteIds(anyInt())).thenReturn(List.of("route-1"));
+	    when(routeRepository.findAllById(List.of("route-1"))).thenReturn(delayedRoutes);
 	    when(routeMapper.toDtoList(anyList())).thenReturn(Arrays.asList(testRouteDto));
 	    
 	    // Act
@@ -296,17 +473,32 @@ class RoutingServiceTest {
 	    assertNotNull(result);
 	    assertEquals(1, result.size());
 	    assertEquals(testRouteDto.getId(), result.get(0).getId());
-	    verify(routeRepository).findDelayedRoutes();
+	    verify(routeRepository).findAllById(List.of("route-1"));
+	}
+
+	@Test
+	void getDelayedRoutes_FinishedRoutesAreDropped() {
+	    // Arrange
+	    Route completedRoute = Route.builder()
+	            .id("route-2")
+	            .itemId("item2")
+	            .status(Route.STATUS_COMPLETED)
+	            .build();
+	    when(overdueRouteMonitor.getOverdueRouteIds(anyInt())).thenReturn(List.of("route-1", "route-2"));
+	    when(routeRepository.findAllById(List.of("route-1", "route-2"))).thenReturn(List.of(testRoute, completedRoute));
+	    
+	    // Act
+	    routingService.getDelayedRoutes();
+	    
+	    // Assert
+	    verify(routeMapper).toDtoList(List.of(testRoute));
 	}
 
 	@Test
 	void getAverageTimeByStep_Success() {
 	    // Arrange
-	    List<Object[]> timeData = Arrays.asList(
-	            new Object[] {"INBOUND_DOCK", 5.0},
-	            new Object[] {"SCANNER_STATION", 3.0}
-	    );
-	    when(routeRepository.findAverageEstimatedTimeByStep()).thenReturn(timeData);
+	    Map<String, Double> timeData = Map.of("INBOUND_DOCK", 5.0, "SCANNER_STATION", 3.0);
+	    when(stepTimingAggregator.getAverageTimeByStep()).thenReturn(timeData);
 	    
 	    // Act
 	    Map<String, Double> result = routingService.getAverageTimeByStep();
@@ -316,6 +508,37 @@ class RoutingServiceTest {
 	    assertEquals(2, result.size());
 	    assertEquals(5.0, result.get("INBOUND_DOCK"));
 	    assertEquals(3.0, result.get("SCANNER_STATION"));
-	    verify(routeRepository).findAverageEstimatedTimeByStep();
+	    verify(stepTimingAggregator).getAverageTimeByStep();
+	    verifyNoInteractions(routeRepository);
+	}
+
+	@Test
+	void dispatchNextItem_AnotherReplicaDispatches_ThrowsWithoutDispatching() {
+	    // Arrange
+	    when(topology.ordinalOf("SCANNER_STATION")).thenReturn(1);
+	    when(dispatchQueueMonitor.isDispatcher(1)).thenReturn(false);
+	    
+	    // Act & Assert
+	    BusinessException exception = assertThrows(BusinessException.class,
+	            () -> routingService.dispatchNextItem("SCANNER_STATION"));
+	    assertEquals(BusinessException.ERROR_NOT_DISPATCHER, exception.getErrorCode());
+	    verify(dispatchQueueMonitor, never()).dispatch(anyInt());
+	}
+
+	@Test
+	void failRoute_AlreadyFailed_NothingIsPublishedAgain() {
+	    // Arrange
+	    testRoute.setStatus(Route.STATUS_FAILED);
+	    when(routeRepository.findById("1")).thenReturn(Optional.of(testRoute));
+	    when(routeMapper.toDto(testRoute)).thenReturn(testRouteDto);
+	    
+	    // Act
+	    RouteDto result = routingService.failRoute("1");
+	    
+	    // Assert
+	    assertEquals(testRouteDto, result);
+	    verify(routeRepository, never()).save(any(Route.class));
+	    verify(reservationCalendar, never()).release(anyString());
+	    verifyNoInteractions(eventPublisher);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,157 @@
+package com.micrologistics.simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.micrologistics.container.entity.Container;
+import com.micrologistics.container.optimizer.PackingAlgorithm;
+import com.micrologistics.routing.algorithm.FacilityTopology;
+
+/**
+ * The containers being loaded at each outbound dock.
+ *
+ * Items leaving a dock are placed with the {@link PackingAlgorithm} among the dock's open
+ * containers. When none fits, a new container is opened, sealing the fullest one first if
+ * the dock already loads as many as it can. The fill of each container is recorded when it
+ * is sealed.
+ */
+final class ContainerYard {
+
+    private final FacilityTopology topology;
+    private final PackingAlgorithm packingAlgorithm;
+    private final double maxWeight;
+    private final double maxVolume;
+    private final int openContainers;
+
+    // Containers being loaded, by dock ordinal
+    private final List<List<Container>> open = new ArrayList<>();
+    private long opened;
+
+    // Sealed containers by whole percent of volume filled
+    private final long[] volumeFill = new long[101];
+    private long sealed;
+    private long packedItems;
+    private long oversizeItems;
+    private double volumeFillSum;
+    private double weightFillSum;
+
+    ContainerYard(FacilityTopology topology, PackingAlgorithm packingAlgorithm, SimulationSettings settings) {
+        this.topology = topology;
+        this.packingAlgorithm = packingAlgorithm;
+        this.maxWeight = settings.getContainerMaxWeight();
+        this.maxVolume = settings.getContainerMaxVolume();
+        this.openContainers = settings.getOpenContainers();
+        for (int facility = 0; facility < topology.size(); facility++) {
+            open.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Pack an item leaving an outbound dock.
+     *
+     * @param dock The dock ordinal
+     * @param weight The item weight
+     * @param volume The item volume
+     */
+    void pack(int dock, double weight, double volume) {
+        if (weight > maxWeight || volume > maxVolume) {
+            oversizeItems++;
+            return;
+        }
+        List<Container> containers = open.get(dock);
+        Container container = packingAlgorithm.findBestContainer(containers, weight, volume);
+        if (container == null) {
+            if (containers.size() >= openContainers) {
+                Container fullest = containers.get(0);
+                for (Container candidate : containers) {
+                    if (candidate.getCurrentVolume() > fullest.getCurrentVolume()) {
+                        fullest = candidate;
+                    }
+                }
+                containers.remove(fullest);
+                seal(fullest);
+            }
+            container = Container.builder()
+                    .containerNumber("SIM-C-" + opened++)
+                    .destination(topology.nameOf(dock))
+                    .maxWeight(maxWeight)
+                    .maxVolume(maxVolume)
+                    .currentWeight(0.0)
+                    .currentVolume(0.0)
+                    .itemCount(0)
+                    .status(Container.STATUS_LOADING)
+                    .build();
+            containers.add(container);
+        }
+        container.setCurrentWeight(container.getCurrentWeight() + weight);
+        container.setCurrentVolume(container.getCurrentVolume() + volume);
+        container.setItemCount(container.getItemCount() + 1);
+        packedItems++;
+    }
+
+    /**
+     * Seal every open container, at the end of the run.
+     */
+    void sealAll() {
+        for (List<Container> containers : open) {
+            for (Container container : containers) {
+                seal(container);
+            }
+            containers.clear();
+        }
+    }
+
+    long getSealed() {
+        return sealed;
+    }
+
+    long getPackedItems() {
+        return packedItems;
+    }
+
+    long getOversizeItems() {
+        return oversizeItems;
+    }
+
+    double meanVolumeFill() {
+        return sealed > 0 ? volumeFillSum / sealed : Double.NaN;
+    }
+
+    double meanWeightFill() {
+        return sealed > 0 ? weightFillSum / sealed : Double.NaN;
+    }
+
+    /**
+     * Get a percentile of the volume filled in sealed containers.
+     *
+     * @param percentile The percentile, between 0 and 100
+     * @return The fill, in percent, or NaN if no container has been sealed
+     */
+    double volumeFillPercentile(double percentile) {
+        if (sealed == 0) {
+            return Double.NaN;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * sealed));
+        long seen = 0;
+        for (int percent = 0; percent < volumeFill.length; percent++) {
+            seen += volumeFill[percent];
+            if (seen >= rank) {
+                return percent;
+            }
+        }
+        return 100;
+    }
+
+    private void seal(Container container) {
+        if (container.getItemCount() == 0) {
+            return;
+        }
+        container.setStatus(Container.STATUS_CLOSED);
+        double volume = container.getCurrentVolume() / maxVolume;
+        double weight = container.getCurrentWeight() / maxWeight;
+        volumeFill[(int) Math.min(100, Math.round(volume * 100))]++;
+        volumeFillSum += volume;
+        weightFillSum += weight;
+        sealed++;
+    }
+}
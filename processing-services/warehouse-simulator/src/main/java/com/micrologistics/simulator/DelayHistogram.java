@@ -0,0 +1,87 @@
+package com.micrologistics.simulator;
+
+/**
+ * Histogram of durations for percentiles over millions of samples in constant memory.
+ *
+ * Durations are counted in hundredths of a minute: exactly below 1024 of them, above that in
+ * log-linear buckets of 512 per power of two, so any percentile is within 0.2% of the exact
+ * one.
+ */
+final class DelayHistogram {
+
+    private static final double UNITS_PER_MINUTE = 100.0;
+    private static final int LINEAR = 1024;
+    private static final int SUB_BUCKETS = 512;
+    private static final int SUB_BUCKET_BITS = 9;
+    private static final int MAX_SHIFT = 40;
+
+    private final long[] counts = new long[LINEAR + MAX_SHIFT * SUB_BUCKETS];
+    private long count;
+    private double sum;
+    private double max;
+
+    /**
+     * Record a duration.
+     *
+     * @param minutes The duration, in minutes; negative durations are counted as zero
+     */
+    void record(double minutes) {
+        double value = Math.max(0.0, minutes);
+        counts[indexOf(Math.round(value * UNITS_PER_MINUTE))]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    long count() {
+        return count;
+    }
+
+    double mean() {
+        return count > 0 ? sum / count : Double.NaN;
+    }
+
+    double max() {
+        return count > 0 ? max : Double.NaN;
+    }
+
+    /**
+     * Get a percentile of the recorded durations.
+     *
+     * @param percentile The percentile, between 0 and 100
+     * @return The duration, in minutes, or NaN if nothing has been recorded
+     */
+    double percentile(double percentile) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, valueOf(i) / UNITS_PER_MINUTE);
+            }
+        }
+        return max;
+    }
+
+    private static int indexOf(long units) {
+        if (units < LINEAR) {
+            return (int) units;
+        }
+        int shift = Math.min(MAX_SHIFT, 63 - Long.numberOfLeadingZeros(units) - SUB_BUCKET_BITS);
+        long subBucket = Math.min(units >>> shift, 2L * SUB_BUCKETS - 1);
+        return LINEAR + (shift - 1) * SUB_BUCKETS + (int) (subBucket - SUB_BUCKETS);
+    }
+
+    // Middle of the bucket, in hundredths of a minute
+    private static double valueOf(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int shift = (index - LINEAR) / SUB_BUCKETS + 1;
+        long subBucket = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+        return (subBucket << shift) + (1L << shift) / 2.0;
+    }
+}
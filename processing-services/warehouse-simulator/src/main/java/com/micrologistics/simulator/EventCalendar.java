@@ -0,0 +1,150 @@
+package com.micrologistics.simulator;
+
+import java.util.Arrays;
+
+/**
+ * Event calendar of the simulation: a binary min-heap of pending events ordered by time,
+ * with events at the same time taken in the order they were scheduled, so runs with the
+ * same seed are identical.
+ *
+ * Events are kept in parallel primitive arrays rather than as objects, so millions of items
+ * can be simulated without allocating per event. The earliest event is taken with
+ * {@link #next()} and read through the accessors until the next call.
+ */
+final class EventCalendar {
+
+    private double[] times;
+    private long[] sequences;
+    private int[] kinds;
+    private int[] items;
+    private int[] facilities;
+    private int size;
+    private long scheduled;
+
+    // The event last taken by next()
+    private double time;
+    private int kind;
+    private int item;
+    private int facility;
+
+    EventCalendar(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        this.times = new double[capacity];
+        this.sequences = new long[capacity];
+        this.kinds = new int[capacity];
+        this.items = new int[capacity];
+        this.facilities = new int[capacity];
+    }
+
+    /**
+     * Schedule an event.
+     *
+     * @param at The simulated time of the event, in minutes
+     * @param eventKind The kind of event
+     * @param eventItem The item the event concerns
+     * @param eventFacility The facility the event concerns
+     */
+    void schedule(double at, int eventKind, int eventItem, int eventFacility) {
+        if (size == times.length) {
+            grow();
+        }
+        int i = size++;
+        long sequence = scheduled++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(at, sequence, parent)) {
+                break;
+            }
+            move(parent, i);
+            i = parent;
+        }
+        set(i, at, sequence, eventKind, eventItem, eventFacility);
+    }
+
+    /**
+     * Take the earliest event, which is then read through the accessors.
+     *
+     * @return False if no event is pending
+     */
+    boolean next() {
+        if (size == 0) {
+            return false;
+        }
+        time = times[0];
+        kind = kinds[0];
+        item = items[0];
+        facility = facilities[0];
+
+        int last = --size;
+        if (last > 0) {
+            double lastTime = times[last];
+            long lastSequence = sequences[last];
+            int lastKind = kinds[last];
+            int lastItem = items[last];
+            int lastFacility = facilities[last];
+            int i = 0;
+            int child;
+            while ((child = 2 * i + 1) < last) {
+                if (child + 1 < last && before(times[child + 1], sequences[child + 1], child)) {
+                    child++;
+                }
+                if (!before(times[child], sequences[child], lastTime, lastSequence)) {
+                    break;
+                }
+                move(child, i);
+                i = child;
+            }
+            set(i, lastTime, lastSequence, lastKind, lastItem, lastFacility);
+        }
+        return true;
+    }
+
+    double time() {
+        return time;
+    }
+
+    int kind() {
+        return kind;
+    }
+
+    int item() {
+        return item;
+    }
+
+    int facility() {
+        return facility;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private boolean before(double at, long sequence, int slot) {
+        return before(at, sequence, times[slot], sequences[slot]);
+    }
+
+    private static boolean before(double at, long sequence, double otherAt, long otherSequence) {
+        return at < otherAt || (at == otherAt && sequence < otherSequence);
+    }
+
+    private void move(int from, int to) {
+        set(to, times[from], sequences[from], kinds[from], items[from], facilities[from]);
+    }
+
+    private void set(int slot, double at, long sequence, int eventKind, int eventItem, int eventFacility) {
+        times[slot] = at;
+        sequences[slot] = sequence;
+        kinds[slot] = eventKind;
+        items[slot] = eventItem;
+        facilities[slot] = eventFacility;
+    }
+
+    private void grow() {
+        int capacity = times.length * 2;
+        times = Arrays.copyOf(times, capacity);
+        sequences = Arrays.copyOf(sequences, capacity);
+        kinds = Arrays.copyOf(kinds, capacity);
+        items = Arrays.copyOf(items, capacity);
+        facilities = Arrays.copyOf(facilities, capacity);
+    }
+}
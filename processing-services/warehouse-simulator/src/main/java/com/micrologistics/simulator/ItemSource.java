@@ -0,0 +1,24 @@
+package com.micrologistics.simulator;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import com.micrologistics.common.event.ItemRegisteredEvent;
+
+/**
+ * Stream of item registrations fed to the simulation, in arrival order.
+ */
+interface ItemSource extends Closeable {
+
+    /**
+     * Get the next registration. Its timestamp is the time the item arrives at the warehouse.
+     *
+     * @return The registration, or null once the stream is exhausted
+     * @throws IOException If a replayed registration cannot be read
+     */
+    ItemRegisteredEvent next() throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
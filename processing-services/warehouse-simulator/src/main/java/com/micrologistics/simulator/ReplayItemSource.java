@@ -0,0 +1,44 @@
+package com.micrologistics.simulator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.micrologistics.common.event.ItemRegisteredEvent;
+
+/**
+ * Item registrations replayed from a file of events as published on the item registered
+ * topic, one JSON object per line. The file is read as the simulation advances, so it may
+ * hold more events than fit in memory.
+ */
+final class ReplayItemSource implements ItemSource {
+
+    private final BufferedReader reader;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    ReplayItemSource(Path file) throws IOException {
+        this.reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public ItemRegisteredEvent next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.isBlank()) {
+                return objectMapper.readValue(line, ItemRegisteredEvent.class);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
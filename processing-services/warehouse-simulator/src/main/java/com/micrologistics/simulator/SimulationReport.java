@@ -0,0 +1,118 @@
+package com.micrologistics.simulator;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+import com.micrologistics.routing.algorithm.FacilityTopology;
+
+/**
+ * Results of a simulation run: throughput, utilization and queueing delay of each facility,
+ * end-to-end time in the warehouse and container fill.
+ */
+final class SimulationReport {
+
+    private final FacilityTopology topology;
+    private final long arrived;
+    private final long completed;
+    private final long unroutable;
+    private final long events;
+    private final double simulatedMinutes;
+    private final double wallSeconds;
+    private final int[] servers;
+    private final long[] processed;
+    private final double[] busyMinutes;
+    private final DelayHistogram[] queueDelays;
+    private final DelayHistogram queueDelay;
+    private final DelayHistogram cycleTime;
+    private final ContainerYard yard;
+
+    SimulationReport(FacilityTopology topology, long arrived, long completed, long unroutable, long events,
+            double simulatedMinutes, double wallSeconds, int[] servers, long[] processed, double[] busyMinutes,
+            DelayHistogram[] queueDelays, DelayHistogram queueDelay, DelayHistogram cycleTime, ContainerYard yard) {
+        this.topology = topology;
+        this.arrived = arrived;
+        this.completed = completed;
+        this.unroutable = unroutable;
+        this.events = events;
+        this.simulatedMinutes = simulatedMinutes;
+        this.wallSeconds = wallSeconds;
+        this.servers = servers;
+        this.processed = processed;
+        this.busyMinutes = busyMinutes;
+        this.queueDelays = queueDelays;
+        this.queueDelay = queueDelay;
+        this.cycleTime = cycleTime;
+        this.yard = yard;
+    }
+
+    long getCompleted() {
+        return completed;
+    }
+
+    long getUnroutable() {
+        return unroutable;
+    }
+
+    /**
+     * Get the items that left the warehouse per simulated hour.
+     *
+     * @return The throughput
+     */
+    double throughputPerHour() {
+        return simulatedMinutes > 0 ? completed / simulatedMinutes * 60.0 : 0.0;
+    }
+
+    /**
+     * Get the share of a facility's server time spent processing items.
+     *
+     * @param facility The facility ordinal
+     * @return The utilization, between 0 and 1
+     */
+    double utilization(int facility) {
+        return simulatedMinutes > 0 ? busyMinutes[facility] / (servers[facility] * simulatedMinutes) : 0.0;
+    }
+
+    DelayHistogram queueDelay(int facility) {
+        return queueDelays[facility];
+    }
+
+    ContainerYard getYard() {
+        return yard;
+    }
+
+    /**
+     * Print the report.
+     *
+     * @param out The stream to print to
+     */
+    void print(PrintStream out) {
+        out.println("== Warehouse simulation ==");
+        out.printf(Locale.ROOT, "Items: %d arrived, %d completed, %d unroutable%n", arrived, completed, unroutable);
+        out.printf(Locale.ROOT, "Simulated: %.1f hours, %d events in %.1f s (%.0f events/s)%n",
+                simulatedMinutes / 60.0, events, wallSeconds, wallSeconds > 0 ? events / wallSeconds : 0.0);
+        out.printf(Locale.ROOT, "Throughput: %.1f items/hour%n", throughputPerHour());
+        out.printf(Locale.ROOT, "Time in warehouse (min): mean %.2f, p50 %.2f, p90 %.2f, p99 %.2f, max %.2f%n",
+                cycleTime.mean(), cycleTime.percentile(50), cycleTime.percentile(90), cycleTime.percentile(99),
+                cycleTime.max());
+        out.printf(Locale.ROOT, "Queueing delay (min): mean %.2f, p50 %.2f, p90 %.2f, p99 %.2f, max %.2f%n",
+                queueDelay.mean(), queueDelay.percentile(50), queueDelay.percentile(90), queueDelay.percentile(99),
+                queueDelay.max());
+        out.println();
+
+        out.printf(Locale.ROOT, "%-22s %8s %12s %7s %9s %9s %9s %9s%n",
+                "Facility", "Servers", "Processed", "Util", "Wait p50", "Wait p90", "Wait p99", "Wait max");
+        for (int facility = 0; facility < topology.size(); facility++) {
+            DelayHistogram delays = queueDelays[facility];
+            out.printf(Locale.ROOT, "%-22s %8d %12d %6.1f%% %9.2f %9.2f %9.2f %9.2f%n",
+                    topology.nameOf(facility), servers[facility], processed[facility], utilization(facility) * 100,
+                    delays.percentile(50), delays.percentile(90), delays.percentile(99), delays.max());
+        }
+        out.println();
+
+        out.printf(Locale.ROOT, "Containers: %d sealed, %d items packed, %d items too large for a container%n",
+                yard.getSealed(), yard.getPackedItems(), yard.getOversizeItems());
+        out.printf(Locale.ROOT, "Container fill: volume mean %.1f%%, p10 %.0f%%, p50 %.0f%%, p90 %.0f%%; weight mean %.1f%%%n",
+                yard.meanVolumeFill() * 100, yard.volumeFillPercentile(10), yard.volumeFillPercentile(50),
+                yard.volumeFillPercentile(90), yard.meanWeightFill() * 100);
+    }
+}
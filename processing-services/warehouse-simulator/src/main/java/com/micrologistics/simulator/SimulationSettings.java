@@ -0,0 +1,139 @@
+package com.micrologistics.simulator;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+import com.micrologistics.container.optimizer.PackingAlgorithm;
+
+/**
+ * Parameters of a simulation run, read from properties such as {@code -Ditems=1000000}.
+ *
+ * <ul>
+ *   <li>{@code items}, {@code seed}: number of synthetic items and the seed of every random choice</li>
+ *   <li>{@code arrivalsPerMinute}: mean rate of synthetic item arrivals, which are Poisson</li>
+ *   <li>{@code replay}: file of item registered events, one JSON object per line, replayed
+ *       instead of synthetic items at the times of their timestamps</li>
+ *   <li>{@code servers}, {@code servers.<FACILITY>}: items a facility processes at once</li>
+ *   <li>{@code serviceCv}: coefficient of variation of processing times around the
+ *       topology's processing minutes</li>
+ *   <li>{@code topology}, {@code destinations}: files replacing the bundled topology and
+ *       destination index</li>
+ *   <li>{@code packing}: packing strategy, one of {@link PackingAlgorithm.Strategy}</li>
+ *   <li>{@code containerMaxWeight}, {@code containerMaxVolume}, {@code openContainers}:
+ *       container capacity and containers loaded at once at each outbound dock</li>
+ *   <li>{@code occupancyFeedback}: whether the path finder is told how many items are at
+ *       each facility, as the routing service does from route step transitions</li>
+ *   <li>{@code loadIncrement}: load the path finder adds per routed item; off by default,
+ *       since that load decays in wall-clock time rather than simulated time</li>
+ * </ul>
+ */
+final class SimulationSettings {
+
+    private final long items;
+    private final long seed;
+    private final double arrivalsPerMinute;
+    private final String replayFile;
+    private final int defaultServers;
+    private final Map<String, Integer> servers = new HashMap<>();
+    private final double serviceCv;
+    private final String topologyFile;
+    private final String destinationsFile;
+    private final PackingAlgorithm.Strategy packingStrategy;
+    private final double containerMaxWeight;
+    private final double containerMaxVolume;
+    private final int openContainers;
+    private final boolean occupancyFeedback;
+    private final double loadIncrement;
+
+    SimulationSettings(Properties properties) {
+        this.items = Long.parseLong(properties.getProperty("items", "1000000"));
+        this.seed = Long.parseLong(properties.getProperty("seed", "42"));
+        this.arrivalsPerMinute = Double.parseDouble(properties.getProperty("arrivalsPerMinute", "20"));
+        this.replayFile = properties.getProperty("replay");
+        this.defaultServers = Integer.parseInt(properties.getProperty("servers", "320"));
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith("servers.")) {
+                servers.put(name.substring("servers.".length()), Integer.parseInt(properties.getProperty(name)));
+            }
+        }
+        this.serviceCv = Double.parseDouble(properties.getProperty("serviceCv", "0.5"));
+        this.topologyFile = properties.getProperty("topology");
+        this.destinationsFile = properties.getProperty("destinations");
+        this.packingStrategy = PackingAlgorithm.Strategy.valueOf(
+                properties.getProperty("packing", "BEST_FIT").toUpperCase(Locale.ROOT));
+        this.containerMaxWeight = Double.parseDouble(properties.getProperty("containerMaxWeight", "1000"));
+        this.containerMaxVolume = Double.parseDouble(properties.getProperty("containerMaxVolume", "500"));
+        this.openContainers = Integer.parseInt(properties.getProperty("openContainers", "4"));
+        this.occupancyFeedback = Boolean.parseBoolean(properties.getProperty("occupancyFeedback", "true"));
+        this.loadIncrement = Double.parseDouble(properties.getProperty("loadIncrement", "0"));
+
+        if (items < 0 || arrivalsPerMinute <= 0.0 || defaultServers < 1 || serviceCv < 0.0
+                || containerMaxWeight <= 0.0 || containerMaxVolume <= 0.0 || openContainers < 1) {
+            throw new IllegalArgumentException("Invalid simulation settings: item count, rates, servers and container capacity must be positive");
+        }
+    }
+
+    long getItems() {
+        return items;
+    }
+
+    long getSeed() {
+        return seed;
+    }
+
+    double getArrivalsPerMinute() {
+        return arrivalsPerMinute;
+    }
+
+    String getReplayFile() {
+        return replayFile;
+    }
+
+    /**
+     * Get the number of items a facility processes at once.
+     *
+     * @param facility The facility name
+     * @return The server count
+     */
+    int serversAt(String facility) {
+        return Math.max(1, servers.getOrDefault(facility, defaultServers));
+    }
+
+    double getServiceCv() {
+        return serviceCv;
+    }
+
+    String getTopologyFile() {
+        return topologyFile;
+    }
+
+    String getDestinationsFile() {
+        return destinationsFile;
+    }
+
+    PackingAlgorithm.Strategy getPackingStrategy() {
+        return packingStrategy;
+    }
+
+    double getContainerMaxWeight() {
+        return containerMaxWeight;
+    }
+
+    double getContainerMaxVolume() {
+        return containerMaxVolume;
+    }
+
+    int getOpenContainers() {
+        return openContainers;
+    }
+
+    boolean isOccupancyFeedback() {
+        return occupancyFeedback;
+    }
+
+    double getLoadIncrement() {
+        return loadIncrement;
+    }
+}
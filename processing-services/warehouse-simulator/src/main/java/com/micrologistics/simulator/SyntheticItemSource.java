@@ -0,0 +1,73 @@
+package com.micrologistics.simulator;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import com.micrologistics.common.event.ItemRegisteredEvent;
+
+/**
+ * Seeded synthetic item registrations: Poisson arrivals, destinations drawn with a skewed
+ * popularity from places the bundled destination index knows and a share it does not,
+ * log-normal weights and uniform dimensions.
+ */
+final class SyntheticItemSource implements ItemSource {
+
+    private static final String[] DESTINATIONS = {
+        "NEW YORK, NY 10001", "LOS ANGELES, CA 90001", "CHICAGO, IL 60601", "HOUSTON, TX 77001",
+        "MIAMI, FL 33101", "SEATTLE, WA 98101", "NORTH", "SOUTH", "EAST", "WEST",
+        "UNIT 4, NORTH DEPOT", "12 HARBOUR ROAD, EAST QUAY", "SPRINGFIELD", "RIVERTON 55555"
+    };
+
+    private final Random random;
+    private final long items;
+    private final double meanInterarrivalSeconds;
+    private final double[] destinationWeights = new double[DESTINATIONS.length];
+    private long produced;
+    private LocalDateTime arrival;
+
+    SyntheticItemSource(long items, double arrivalsPerMinute, long seed, LocalDateTime start) {
+        this.random = new Random(seed);
+        this.items = items;
+        this.meanInterarrivalSeconds = 60.0 / arrivalsPerMinute;
+        this.arrival = start;
+        // Zipf-like popularity: the k-th destination is drawn in proportion to 1/k
+        double total = 0.0;
+        for (int k = 0; k < DESTINATIONS.length; k++) {
+            total += 1.0 / (k + 1);
+            destinationWeights[k] = total;
+        }
+        for (int k = 0; k < DESTINATIONS.length; k++) {
+            destinationWeights[k] /= total;
+        }
+    }
+
+    @Override
+    public ItemRegisteredEvent next() {
+        if (produced >= items) {
+            return null;
+        }
+        String id = "SIM-" + produced++;
+        arrival = arrival.plusNanos(Math.round(-Math.log(1.0 - random.nextDouble()) * meanInterarrivalSeconds * 1e9));
+        return ItemRegisteredEvent.builder()
+                .id(id)
+                .trackingId(id)
+                .weight(Math.exp(2.3 + 0.8 * random.nextGaussian()))
+                .length(1.0 + 4.0 * random.nextDouble())
+                .width(1.0 + 4.0 * random.nextDouble())
+                .height(1.0 + 4.0 * random.nextDouble())
+                .destination(destination())
+                .priority(random.nextDouble() < 0.8 ? 1 : 2 + random.nextInt(4))
+                .timestamp(arrival)
+                .build();
+    }
+
+    private String destination() {
+        double draw = random.nextDouble();
+        for (int k = 0; k < destinationWeights.length; k++) {
+            if (draw < destinationWeights[k]) {
+                return DESTINATIONS[k];
+            }
+        }
+        return DESTINATIONS[DESTINATIONS.length - 1];
+    }
+}
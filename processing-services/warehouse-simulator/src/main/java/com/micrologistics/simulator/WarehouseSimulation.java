@@ -0,0 +1,255 @@
+package com.micrologistics.simulator;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.micrologistics.common.event.ItemRegisteredEvent;
+import com.micrologistics.routing.algorithm.FacilityTopology;
+import com.micrologistics.routing.algorithm.OptimalPathFinder;
+import com.micrologistics.routing.algorithm.RoutePlan;
+
+/**
+ * Discrete-event simulation of items flowing through the warehouse.
+ *
+ * Each arriving item is routed by the {@link OptimalPathFinder} under evaluation, then
+ * queues at every facility on its path in turn. A facility processes as many items at once
+ * as it has servers, each for a log-normal time around the topology's processing minutes,
+ * and items then ride the conveyor to the next facility. Items leaving their outbound dock
+ * are packed into containers by the {@link ContainerYard}. When enabled, the path finder is
+ * told the number of items at each facility as it changes, as the routing service does from
+ * route step transitions, so routing reacts to the congestion it causes.
+ *
+ * Only one arrival is pending at a time, the next item being read from the source as the
+ * previous one arrives, so memory is bounded by the items in the warehouse at once rather
+ * than by the length of the run.
+ */
+final class WarehouseSimulation {
+
+    private static final int ARRIVE = 0;
+    private static final int ENTER = 1;
+    private static final int FINISH = 2;
+
+    private final FacilityTopology topology;
+    private final OptimalPathFinder pathFinder;
+    private final ContainerYard yard;
+    private final boolean occupancyFeedback;
+    private final Random random;
+    private final EventCalendar calendar = new EventCalendar(1 << 16);
+
+    // Per facility, by ordinal
+    private final int[] servers;
+    private final int[] busy;
+    private final long[] occupancy;
+    private final long[] processed;
+    private final double[] busyMinutes;
+    private final double[] serviceMu;
+    private final double[] serviceSigma;
+    private final List<ArrayDeque<Integer>> queues = new ArrayList<>();
+    private final DelayHistogram[] queueDelays;
+
+    private final DelayHistogram queueDelay = new DelayHistogram();
+    private final DelayHistogram cycleTime = new DelayHistogram();
+
+    // Items in the warehouse, by slot; freed slots are reused
+    private final List<SimItem> items = new ArrayList<>();
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+
+    private LocalDateTime start;
+    private double lastArrival;
+    private long arrived;
+    private long completed;
+    private long unroutable;
+    private long events;
+
+    WarehouseSimulation(FacilityTopology topology, OptimalPathFinder pathFinder, ContainerYard yard,
+            SimulationSettings settings) {
+        this.topology = topology;
+        this.pathFinder = pathFinder;
+        this.yard = yard;
+        this.occupancyFeedback = settings.isOccupancyFeedback();
+        this.random = new Random(settings.getSeed() ^ 0x5DEECE66DL);
+
+        int size = topology.size();
+        this.servers = new int[size];
+        this.busy = new int[size];
+        this.occupancy = new long[size];
+        this.processed = new long[size];
+        this.busyMinutes = new double[size];
+        this.serviceMu = new double[size];
+        this.serviceSigma = new double[size];
+        this.queueDelays = new DelayHistogram[size];
+        double sigmaSquared = Math.log(1.0 + settings.getServiceCv() * settings.getServiceCv());
+        for (int facility = 0; facility < size; facility++) {
+            servers[facility] = settings.serversAt(topology.nameOf(facility));
+            serviceMu[facility] = Math.log(Math.max(1e-9, topology.processingMinutes(facility))) - sigmaSquared / 2;
+            serviceSigma[facility] = Math.sqrt(sigmaSquared);
+            queues.add(new ArrayDeque<>());
+            queueDelays[facility] = new DelayHistogram();
+        }
+    }
+
+    /**
+     * Run the simulation until every item from the source has left the warehouse.
+     *
+     * @param source The item registrations
+     * @return The report of the run
+     * @throws IOException If a registration cannot be read
+     */
+    SimulationReport run(ItemSource source) throws IOException {
+        long startedAt = System.nanoTime();
+        scheduleNextArrival(source);
+        while (calendar.next()) {
+            events++;
+            double now = calendar.time();
+            int slot = calendar.item();
+            switch (calendar.kind()) {
+                case ARRIVE -> {
+                    arrive(slot, now);
+                    scheduleNextArrival(source);
+                }
+                case ENTER -> enter(slot, calendar.facility(), now);
+                default -> finish(slot, calendar.facility(), now);
+            }
+        }
+        yard.sealAll();
+        return new SimulationReport(topology, arrived, completed, unroutable, events, calendar.time(),
+                (System.nanoTime() - startedAt) / 1e9, servers, processed, busyMinutes, queueDelays, queueDelay,
+                cycleTime, yard);
+    }
+
+    private void scheduleNextArrival(ItemSource source) throws IOException {
+        ItemRegisteredEvent event = source.next();
+        if (event == null) {
+            return;
+        }
+        LocalDateTime timestamp = event.getTimestamp();
+        if (start == null && timestamp != null) {
+            start = timestamp;
+        }
+        // Replayed items without a timestamp, or out of order, arrive with the previous one
+        double at = timestamp != null ? Duration.between(start, timestamp).toNanos() / 60e9 : lastArrival;
+        lastArrival = Math.max(lastArrival, at);
+
+        int slot = allocate();
+        items.get(slot).reset(event);
+        calendar.schedule(lastArrival, ARRIVE, slot, -1);
+    }
+
+    private void arrive(int slot, double now) {
+        SimItem item = items.get(slot);
+        ItemRegisteredEvent event = item.event;
+        arrived++;
+        RoutePlan plan = pathFinder.planRoute(event.getId(), event.getDestination(),
+                event.getWeight() != null ? event.getWeight() : 0.0, event.getPriority());
+        if (plan.isEmpty()) {
+            unroutable++;
+            release(slot);
+            return;
+        }
+        item.path = plan.getOrdinals();
+        item.step = 0;
+        item.arrivedAt = now;
+        enter(slot, item.path[0], now);
+    }
+
+    private void enter(int slot, int facility, double now) {
+        items.get(slot).queuedAt = now;
+        changeOccupancy(facility, 1);
+        if (busy[facility] < servers[facility]) {
+            startService(slot, facility, now);
+        } else {
+            queues.get(facility).add(slot);
+        }
+    }
+
+    private void startService(int slot, int facility, double now) {
+        double delay = now - items.get(slot).queuedAt;
+        queueDelays[facility].record(delay);
+        queueDelay.record(delay);
+        busy[facility]++;
+        double service = Math.exp(serviceMu[facility] + serviceSigma[facility] * random.nextGaussian());
+        busyMinutes[facility] += service;
+        calendar.schedule(now + service, FINISH, slot, facility);
+    }
+
+    private void finish(int slot, int facility, double now) {
+        busy[facility]--;
+        processed[facility]++;
+        changeOccupancy(facility, -1);
+        Integer waiting = queues.get(facility).poll();
+        if (waiting != null) {
+            startService(waiting, facility, now);
+        }
+
+        SimItem item = items.get(slot);
+        if (item.step == item.path.length - 1) {
+            ItemRegisteredEvent event = item.event;
+            if (topology.isOutboundDock(facility)) {
+                Double volume = event.getVolume();
+                yard.pack(facility, event.getWeight() != null ? event.getWeight() : 0.0, volume != null ? volume : 0.0);
+            }
+            cycleTime.record(now - item.arrivedAt);
+            completed++;
+            release(slot);
+            return;
+        }
+        int next = item.path[++item.step];
+        calendar.schedule(now + transferMinutes(facility, next), ENTER, slot, next);
+    }
+
+    private void changeOccupancy(int facility, int delta) {
+        occupancy[facility] += delta;
+        if (occupancyFeedback) {
+            pathFinder.updateOccupancy(facility, occupancy[facility]);
+        }
+    }
+
+    private double transferMinutes(int from, int to) {
+        for (int edge = topology.outStart(from); edge < topology.outEnd(from); edge++) {
+            if (topology.outTarget(edge) == to) {
+                return topology.outTransferMinutes(edge);
+            }
+        }
+        return 0.0;
+    }
+
+    private int allocate() {
+        Integer slot = freeSlots.poll();
+        if (slot != null) {
+            return slot;
+        }
+        items.add(new SimItem());
+        return items.size() - 1;
+    }
+
+    private void release(int slot) {
+        SimItem item = items.get(slot);
+        item.event = null;
+        item.path = null;
+        freeSlots.push(slot);
+    }
+
+    /**
+     * An item in the warehouse.
+     */
+    private static final class SimItem {
+
+        private ItemRegisteredEvent event;
+        // Facility ordinals of the planned path, shared with other items on the same plan
+        private int[] path;
+        private int step;
+        private double arrivedAt;
+        private double queuedAt;
+
+        private void reset(ItemRegisteredEvent registration) {
+            this.event = registration;
+            this.path = null;
+            this.step = 0;
+        }
+    }
+}
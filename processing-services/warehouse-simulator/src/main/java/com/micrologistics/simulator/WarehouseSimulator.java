@@ -0,0 +1,64 @@
+package com.micrologistics.simulator;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import com.micrologistics.container.optimizer.PackingAlgorithm;
+import com.micrologistics.routing.algorithm.DestinationIndex;
+import com.micrologistics.routing.algorithm.FacilityTopology;
+import com.micrologistics.routing.algorithm.OptimalPathFinder;
+import com.micrologistics.routing.algorithm.PathFinderSettings;
+
+/**
+ * Runs the warehouse simulation headless and prints its report, to evaluate a routing or
+ * packing change before it is rolled out.
+ *
+ * Usage: {@code java -Ditems=1000000 -Dseed=42 -Dpacking=FIRST_FIT -jar target/simulator.jar}.
+ * Every setting of {@link SimulationSettings} is a system property; runs with the same
+ * settings and seed give the same report.
+ */
+public final class WarehouseSimulator {
+
+    // Synthetic items arrive from this time, so their timestamps are reproducible
+    private static final LocalDateTime SYNTHETIC_START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private WarehouseSimulator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        SimulationSettings settings = new SimulationSettings(System.getProperties());
+        FacilityTopology topology = loadTopology(settings);
+        OptimalPathFinder pathFinder = new OptimalPathFinder(topology, PathFinderSettings.builder()
+                .loadIncrement(settings.getLoadIncrement())
+                .build());
+        if (settings.getDestinationsFile() != null) {
+            try (Reader reader = Files.newBufferedReader(Path.of(settings.getDestinationsFile()), StandardCharsets.UTF_8)) {
+                pathFinder.setDestinationIndex(DestinationIndex.parse(reader, topology));
+            }
+        }
+        PackingAlgorithm packingAlgorithm = new PackingAlgorithm();
+        packingAlgorithm.setStrategy(settings.getPackingStrategy());
+
+        WarehouseSimulation simulation = new WarehouseSimulation(topology, pathFinder,
+                new ContainerYard(topology, packingAlgorithm, settings), settings);
+        try (ItemSource source = settings.getReplayFile() != null
+                ? new ReplayItemSource(Path.of(settings.getReplayFile()))
+                : new SyntheticItemSource(settings.getItems(), settings.getArrivalsPerMinute(), settings.getSeed(),
+                        SYNTHETIC_START)) {
+            simulation.run(source).print(System.out);
+        }
+    }
+
+    private static FacilityTopology loadTopology(SimulationSettings settings) throws IOException {
+        if (settings.getTopologyFile() == null) {
+            return FacilityTopology.defaultTopology();
+        }
+        try (Reader reader = Files.newBufferedReader(Path.of(settings.getTopologyFile()), StandardCharsets.UTF_8)) {
+            return FacilityTopology.parse(reader);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.micrologistics.simulator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the duration histogram of the simulation.
+ */
+class DelayHistogramTest {
+
+    @Test
+    void percentile_UniformDurations_WithinBucketPrecision() {
+        // Arrange
+        DelayHistogram histogram = new DelayHistogram();
+        for (int i = 1; i <= 100_000; i++) {
+            histogram.record(i / 100.0);
+        }
+
+        // Act & Assert
+        assertEquals(100_000, histogram.count());
+        assertEquals(500.0, histogram.percentile(50), 500.0 * 0.002);
+        assertEquals(990.0, histogram.percentile(99), 990.0 * 0.002);
+        assertEquals(1_000.0, histogram.max(), 1e-9);
+        assertEquals(500.005, histogram.mean(), 1e-6);
+    }
+
+    @Test
+    void percentile_NoDurations_IsNaN() {
+        // Act & Assert
+        assertTrue(Double.isNaN(new DelayHistogram().percentile(50)));
+    }
+}
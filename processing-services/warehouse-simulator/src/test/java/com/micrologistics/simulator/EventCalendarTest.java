@@ -0,0 +1,54 @@
+package com.micrologistics.simulator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the event calendar of the simulation.
+ */
+class EventCalendarTest {
+
+    @Test
+    void next_RandomTimes_TakenInTimeOrder() {
+        // Arrange
+        EventCalendar calendar = new EventCalendar(4);
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            calendar.schedule(random.nextDouble() * 1_000, 0, i, -1);
+        }
+
+        // Act & Assert
+        double previous = Double.NEGATIVE_INFINITY;
+        int taken = 0;
+        while (calendar.next()) {
+            assertTrue(calendar.time() >= previous);
+            previous = calendar.time();
+            taken++;
+        }
+        assertEquals(10_000, taken);
+        assertEquals(0, calendar.size());
+    }
+
+    @Test
+    void next_SameTime_TakenInScheduleOrder() {
+        // Arrange
+        EventCalendar calendar = new EventCalendar(16);
+        calendar.schedule(5.0, 1, 10, 3);
+        calendar.schedule(1.0, 2, 20, 4);
+        calendar.schedule(5.0, 1, 30, 5);
+
+        // Act & Assert
+        assertTrue(calendar.next());
+        assertEquals(20, calendar.item());
+        assertEquals(2, calendar.kind());
+        assertTrue(calendar.next());
+        assertEquals(10, calendar.item());
+        assertEquals(3, calendar.facility());
+        assertTrue(calendar.next());
+        assertEquals(30, calendar.item());
+        assertFalse(calendar.next());
+    }
+}